@@ -77,14 +77,15 @@ class MMTApi:
     def _post(self, endpoint, json=None, params=None):
         url = self._url_template.format(host=self.host, port=self.port, endpoint=endpoint)
 
-        data = headers = None
+        data = headers = query = None
         if json is not None:
             data = js.dumps(json)
             headers = {'Content-type': 'application/json'}
+            query = params
         elif params is not None:
             data = params
 
-        r = requests.post(url, data=data, headers=headers, timeout=MMTApi.DEFAULT_TIMEOUT)
+        r = requests.post(url, params=query, data=data, headers=headers, timeout=MMTApi.DEFAULT_TIMEOUT)
         return self._unpack(r)
 
     @staticmethod
@@ -134,6 +135,17 @@ class MMTApi:
 
         return self._get('translate', params=p)
 
+    def translate_batch(self, sources, session=None, context=None, nbest=None):
+        p = {}
+        if session is not None:
+            p['session'] = session
+        if nbest is not None:
+            p['nbest'] = nbest
+        if context is not None:
+            p['context_vector'] = self._encode_context(context)
+
+        return self._post('translate/batch', json=sources, params=p)
+
     def create_domain(self, name):
         params = {'name': name}
         return self._post('domains', params=params)
@@ -356,6 +368,7 @@ class ClusterNode(object):
         'LOADED': 700,
         'UPDATING': 800,
         'UPDATED': 900,
+        'WARMING': 950,
         'READY': 1000,
         'SHUTDOWN': 1100,
         'TERMINATED': 1200,
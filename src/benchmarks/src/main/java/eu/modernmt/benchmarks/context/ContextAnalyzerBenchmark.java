@@ -0,0 +1,143 @@
+package eu.modernmt.benchmarks.context;
+
+import eu.modernmt.context.ContextAnalyzerException;
+import eu.modernmt.context.lucene.LuceneAnalyzer;
+import eu.modernmt.context.lucene.storage.Options;
+import eu.modernmt.io.DefaultCharset;
+import eu.modernmt.model.ContextVector;
+import eu.modernmt.model.Domain;
+import eu.modernmt.model.corpus.Corpus;
+import eu.modernmt.model.corpus.impl.StringCorpus;
+import eu.modernmt.model.corpus.impl.parallel.FileCorpus;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of LuceneAnalyzer.getContextVector() as the number of domains and the
+ * size of the query grow. The index is built with the same bulk-insert path used
+ * by the training pipeline and it is cached in the temporary folder, since building
+ * the larger ones takes a while: delete "mmt-context-benchmark-*" to rebuild them.
+ * <p>
+ * Run with "-prof gc" to measure the allocation rate of the queries as well.
+ * <p>
+ * The context vector cache is disabled by default, since the benchmark cycles over
+ * a few queries: run with "-p cacheSize=1000" to measure the cache hits instead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ContextAnalyzerBenchmark {
+
+    public enum QuerySize {
+        SENTENCE(100),
+        PARAGRAPH(2 * 1024),
+        DOCUMENT(5 * 1024 * 1024);
+
+        private final int bytes;
+
+        QuerySize(int bytes) {
+            this.bytes = bytes;
+        }
+    }
+
+    // Buckets keep their files open until the storage is closed,
+    // the index is therefore built a chunk of domains at a time
+    private static final int DOMAINS_PER_CHUNK = 500;
+    private static final int QUERIES = 16;
+    private static final int LIMIT = 10;
+    private static final long SEED = 42L;
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int domains;
+
+    @Param({"20"})
+    public int linesPerDomain;
+
+    @Param({"SENTENCE", "PARAGRAPH", "DOCUMENT"})
+    public QuerySize querySize;
+
+    @Param({"0"})
+    public int cacheSize;
+
+    private LuceneAnalyzer analyzer;
+    private Corpus[] queries;
+    private File[] files;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, ContextAnalyzerException {
+        CorpusGenerator generator = new CorpusGenerator(SEED);
+
+        File model = new File(FileUtils.getTempDirectory(),
+                "mmt-context-benchmark-" + domains + "x" + linesPerDomain);
+        File marker = new File(model, "complete");
+
+        if (!marker.isFile()) {
+            FileUtils.deleteDirectory(model);
+
+            for (int first = 1; first <= domains; first += DOMAINS_PER_CHUNK) {
+                HashMap<Domain, Corpus> corpora = new HashMap<>(DOMAINS_PER_CHUNK);
+                for (int domain = first; domain < first + DOMAINS_PER_CHUNK && domain <= domains; domain++) {
+                    String content = generator.domain(domain, linesPerDomain);
+                    corpora.put(new Domain(domain), new StringCorpus(Integer.toString(domain), Locale.ENGLISH, content));
+                }
+
+                try (LuceneAnalyzer builder = new LuceneAnalyzer(model, Locale.ENGLISH, Options.prepareForBulkLoad())) {
+                    builder.add(corpora);
+                }
+            }
+
+            FileUtils.touch(marker);
+        }
+
+        Options options = new Options();
+        options.cacheSize = cacheSize;
+
+        analyzer = new LuceneAnalyzer(model, Locale.ENGLISH, options);
+
+        queries = new Corpus[QUERIES];
+        files = new File[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            int domain = 1 + (int) ((i * 2654435761L) % domains);
+            String content = generator.query(domain, i, querySize.bytes);
+
+            if (querySize == QuerySize.DOCUMENT) {
+                // Uploaded documents are read from a file
+                files[i] = File.createTempFile("mmt-context-query", ".txt");
+                FileUtils.write(files[i], content, DefaultCharset.get());
+
+                queries[i] = new FileCorpus(files[i], null, Locale.ENGLISH);
+            } else {
+                queries[i] = new StringCorpus(null, Locale.ENGLISH, content);
+            }
+        }
+
+        index = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        analyzer.close();
+
+        for (File file : files)
+            FileUtils.deleteQuietly(file);
+    }
+
+    @Benchmark
+    public ContextVector getContextVector() throws ContextAnalyzerException {
+        Corpus query = queries[index];
+        index = (index + 1) % queries.length;
+
+        return analyzer.getContextVector(query, LIMIT);
+    }
+
+}
@@ -0,0 +1,98 @@
+package eu.modernmt.benchmarks.context;
+
+import eu.modernmt.context.lucene.ContextAnalyzerIndex;
+import eu.modernmt.context.lucene.storage.CorporaStorage;
+import eu.modernmt.context.lucene.storage.Options;
+import eu.modernmt.data.Deletion;
+import eu.modernmt.data.TranslationUnit;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Indexing throughput of the contributions received from the data stream:
+ * every invocation sends a batch of translation units to CorporaStorage.onDataReceived()
+ * and then forces the AnalysisTask of the modified buckets, as the write-behind
+ * thread would do after its delay. The score is expressed in translation units.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ContextIndexingBenchmark {
+
+    private static final int UNITS = 1000;
+    private static final short CHANNEL = 1;
+    private static final long SEED = 42L;
+
+    // Buckets keep their files open: the number of domains is
+    // limited by the maximum number of open files of the process
+    @Param({"10", "100", "1000"})
+    public int domains;
+
+    private CorpusGenerator generator;
+    private File model;
+    private ContextAnalyzerIndex index;
+    private CorporaStorage storage;
+    private long position;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        generator = new CorpusGenerator(SEED);
+        model = Files.createTempDirectory("mmt-context-indexing").toFile();
+
+        Options options = new Options();
+        options.writeBehindDelay = Long.MAX_VALUE;
+
+        index = new ContextAnalyzerIndex(new File(model, "index"), Locale.ENGLISH);
+        storage = new CorporaStorage(new File(model, "storage"), options, index);
+        position = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException, InterruptedException {
+        try {
+            storage.shutdown();
+            storage.awaitTermination(TimeUnit.SECONDS, 2);
+        } finally {
+            index.close();
+            FileUtils.deleteQuietly(model);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(UNITS)
+    public void onDataReceived() throws IOException, InterruptedException {
+        for (int i = 0; i < UNITS; i++) {
+            position++;
+
+            int domain = 1 + (int) (position % domains);
+            String sentence = generator.line(domain, position);
+
+            storage.onDataReceived(new TranslationUnit(CHANNEL, position, domain, sentence, sentence));
+        }
+
+        // The background thread registers the position of a message before processing it:
+        // a no-op deletion is used as a barrier, so that the last unit is surely in its bucket
+        position++;
+        storage.onDelete(new Deletion(CHANNEL, position, 0));
+
+        while (true) {
+            Long latest = storage.getLatestChannelPositions().get(CHANNEL);
+            if (latest != null && latest == position)
+                break;
+
+            Thread.sleep(1);
+        }
+
+        storage.flushToDisk(false, true);
+    }
+
+}
@@ -0,0 +1,129 @@
+package eu.modernmt.benchmarks.context;
+
+import java.util.Random;
+
+/**
+ * Generates synthetic domains for the context analyzer benchmarks. Every domain mixes
+ * words from a common vocabulary, drawn with a Zipf-like distribution, with words
+ * from a small set of topic terms of its own: queries generated from a domain
+ * are therefore similar to that domain, as it happens with real data.
+ */
+public class CorpusGenerator {
+
+    private static final int COMMON_WORDS = 2000;
+    private static final int TOPIC_SPACE = 500000;
+    private static final int TOPIC_WORDS = 40;
+    private static final double TOPIC_RATIO = .3;
+    private static final char[] LETTERS = "bcdfghjklmnprstvz".toCharArray();
+    private static final char[] VOWELS = "aeiou".toCharArray();
+
+    private final long seed;
+    private final double[] zipf;
+
+    public CorpusGenerator(long seed) {
+        this.seed = seed;
+        this.zipf = new double[COMMON_WORDS];
+
+        double sum = 0.;
+        for (int i = 0; i < COMMON_WORDS; i++) {
+            sum += 1. / (i + 1);
+            zipf[i] = sum;
+        }
+        for (int i = 0; i < COMMON_WORDS; i++)
+            zipf[i] /= sum;
+    }
+
+    /**
+     * Pronounceable pseudo-word for the given id: common words and topic
+     * terms use disjoint ids, so they never collide.
+     */
+    private static void appendWord(StringBuilder builder, int id) {
+        do {
+            builder.append(LETTERS[id % LETTERS.length]);
+            id /= LETTERS.length;
+            builder.append(VOWELS[id % VOWELS.length]);
+            id /= VOWELS.length;
+        } while (id > 0);
+    }
+
+    private int commonWord(Random random) {
+        double value = random.nextDouble();
+
+        int low = 0, high = COMMON_WORDS - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (zipf[mid] < value)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+
+        return low;
+    }
+
+    private int[] topic(int domain) {
+        Random random = new Random(seed * 31L + domain);
+
+        int[] terms = new int[TOPIC_WORDS];
+        for (int i = 0; i < TOPIC_WORDS; i++)
+            terms[i] = COMMON_WORDS + random.nextInt(TOPIC_SPACE);
+
+        return terms;
+    }
+
+    private void appendLine(StringBuilder builder, Random random, int[] topic, int length) {
+        for (int i = 0; i < length; i++) {
+            if (i > 0)
+                builder.append(' ');
+
+            if (random.nextDouble() < TOPIC_RATIO)
+                appendWord(builder, topic[random.nextInt(topic.length)]);
+            else
+                appendWord(builder, commonWord(random));
+        }
+    }
+
+    /**
+     * @return a line of the given domain, different for every call with a different index
+     */
+    public String line(int domain, long index) {
+        Random random = new Random((seed * 31L + domain) * 31L + index);
+
+        StringBuilder builder = new StringBuilder();
+        appendLine(builder, random, topic(domain), 8 + random.nextInt(25));
+        return builder.toString();
+    }
+
+    /**
+     * @return the content of the given domain, made of the given number of lines
+     */
+    public String domain(int domain, int lines) {
+        Random random = new Random(seed * 31L + domain);
+        int[] topic = topic(domain);
+
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            appendLine(builder, random, topic, 8 + random.nextInt(25));
+            builder.append('\n');
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * @return a query of about the given size in bytes, drawn from the given domain
+     */
+    public String query(int domain, long index, int size) {
+        Random random = new Random(~((seed * 31L + domain) * 31L + index));
+        int[] topic = topic(domain);
+
+        StringBuilder builder = new StringBuilder(size + 256);
+        do {
+            appendLine(builder, random, topic, 8 + random.nextInt(25));
+            builder.append('\n');
+        } while (builder.length() < size);
+
+        return builder.toString();
+    }
+
+}
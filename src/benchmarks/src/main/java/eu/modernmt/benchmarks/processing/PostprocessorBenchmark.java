@@ -0,0 +1,106 @@
+package eu.modernmt.benchmarks.processing;
+
+import eu.modernmt.model.Alignment;
+import eu.modernmt.model.Sentence;
+import eu.modernmt.model.Translation;
+import eu.modernmt.model.Word;
+import eu.modernmt.processing.Postprocessor;
+import eu.modernmt.processing.Preprocessor;
+import eu.modernmt.processing.ProcessingException;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Postprocessing throughput of the default pipeline (JFlexDetokenizer, NumericWordPostprocessor
+ * and XMLTagProcessor among the others). The translations are a monotone copy of the
+ * preprocessed source sentences, so that words, numbers and tags are all aligned.
+ * Postprocessing modifies the translations in place, so every invocation works on
+ * fresh copies: the copy is part of the measured time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PostprocessorBenchmark {
+
+    private static final int SENTENCES = 1000;
+
+    @Param({"en", "fr", "it"})
+    public String language;
+
+    @Param({"PLAIN", "XML", "NUMBERS", "XMESSAGE"})
+    public TextGenerator.Kind kind;
+
+    @Param({"100"})
+    public int batchSize;
+
+    private Postprocessor postprocessor;
+    private Sentence[] sources;
+    private Alignment[] alignments;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, ProcessingException {
+        Locale locale = Locale.forLanguageTag(language);
+
+        try (Preprocessor preprocessor = new Preprocessor(Locale.ENGLISH)) {
+            TextGenerator generator = new TextGenerator("en", 42L);
+            sources = preprocessor.process(generator.generate(kind, SENTENCES, 5, 40)).toArray(new Sentence[SENTENCES]);
+        }
+
+        alignments = new Alignment[SENTENCES];
+        for (int i = 0; i < SENTENCES; i++) {
+            int[][] pairs = new int[sources[i].getWords().length][];
+            for (int j = 0; j < pairs.length; j++)
+                pairs[j] = new int[]{j, j};
+
+            alignments[i] = Alignment.fromAlignmentPairs(pairs);
+        }
+
+        postprocessor = new Postprocessor(Locale.ENGLISH, locale);
+        index = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        postprocessor.close();
+    }
+
+    private Translation translation(int i) {
+        Word[] sourceWords = sources[i].getWords();
+        Word[] words = new Word[sourceWords.length];
+
+        for (int j = 0; j < words.length; j++)
+            words[j] = new Word(sourceWords[j].getPlaceholder(), " ");
+
+        return new Translation(words, sources[i], alignments[i]);
+    }
+
+    @Benchmark
+    public Translation processTranslation() throws ProcessingException {
+        Translation translation = translation(index);
+        index = (index + 1) % sources.length;
+
+        postprocessor.process(translation);
+        return translation;
+    }
+
+    @Benchmark
+    public List<Translation> processList() throws ProcessingException {
+        ArrayList<Translation> translations = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++)
+            translations.add(translation((index + i) % sources.length));
+        index = (index + batchSize) % sources.length;
+
+        postprocessor.process(translations);
+        return translations;
+    }
+
+}
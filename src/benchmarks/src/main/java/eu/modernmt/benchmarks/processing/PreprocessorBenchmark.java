@@ -0,0 +1,70 @@
+package eu.modernmt.benchmarks.processing;
+
+import eu.modernmt.model.Sentence;
+import eu.modernmt.processing.Preprocessor;
+import eu.modernmt.processing.ProcessingException;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Preprocessing throughput of the default pipeline, one language for each tokenizer
+ * family: JFlex (en), CoreNLP (ar), OpenNLP (da), Lucene (zh) and Kuromoji (ja).
+ * The vocabulary is disabled, so that no native library is needed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PreprocessorBenchmark {
+
+    private static final int SENTENCES = 1000;
+
+    @Param({"en", "ar", "da", "zh", "ja"})
+    public String language;
+
+    @Param({"PLAIN", "XML", "NUMBERS", "XMESSAGE"})
+    public TextGenerator.Kind kind;
+
+    @Param({"100"})
+    public int batchSize;
+
+    private Preprocessor preprocessor;
+    private String[] sentences;
+    private List<String> batch;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        preprocessor = new Preprocessor(Locale.forLanguageTag(language));
+
+        TextGenerator generator = new TextGenerator(language, 42L);
+        sentences = generator.generate(kind, SENTENCES, 5, 40).toArray(new String[SENTENCES]);
+        batch = generator.generate(kind, batchSize, 5, 40);
+        index = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        preprocessor.close();
+    }
+
+    @Benchmark
+    public Sentence processString() throws ProcessingException {
+        String sentence = sentences[index];
+        index = (index + 1) % sentences.length;
+
+        return preprocessor.process(sentence);
+    }
+
+    @Benchmark
+    public List<Sentence> processList() throws ProcessingException {
+        return preprocessor.process(batch);
+    }
+
+}
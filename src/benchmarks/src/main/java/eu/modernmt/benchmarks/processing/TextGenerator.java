@@ -0,0 +1,201 @@
+package eu.modernmt.benchmarks.processing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates synthetic sentences for the processing benchmarks. The sentences are built
+ * from a small per-language vocabulary and are reproducible, given the same seed.
+ */
+public class TextGenerator {
+
+    public enum Kind {
+        /**
+         * Plain text
+         */
+        PLAIN,
+        /**
+         * Text with a tag every couple of words, attributes, self-closing tags and entities
+         */
+        XML,
+        /**
+         * Text with integers, decimals, percentages, prices and dates
+         */
+        NUMBERS,
+        /**
+         * XMessage patterns with placeholders and choice formats
+         */
+        XMESSAGE
+    }
+
+    private static final String[] EN = {
+            "the", "user", "can", "open", "file", "from", "menu", "and", "save", "changes", "before", "closing",
+            "window", "system", "will", "update", "settings", "automatically", "when", "new", "version", "is",
+            "available", "please", "contact", "support", "if", "problem", "persists", "after", "restart", "translation",
+            "server", "returned", "an", "error", "while", "processing", "your", "request", "don't", "it's"
+    };
+    private static final String[] AR = {
+            "في", "من", "على", "إلى", "أن", "هذا", "التي", "الذي", "مع", "كان", "عن", "هذه", "بين", "كل", "ما",
+            "لا", "قد", "بعد", "الحكومة", "الشركة", "المستخدم", "الملف", "النظام", "الترجمة", "الخادم", "الإعدادات"
+    };
+    private static final String[] DA = {
+            "og", "det", "at", "en", "den", "til", "er", "som", "på", "med", "ikke", "der", "var", "for", "har",
+            "brugeren", "kan", "åbne", "filen", "fra", "menuen", "gemme", "ændringerne", "systemet", "opdaterer",
+            "indstillingerne", "automatisk", "oversættelse", "serveren", "fejl"
+    };
+    private static final String[] ZH = {
+            "我们", "的", "系统", "文件", "用户", "可以", "使用", "这个", "翻译", "服务", "数据", "管理", "设置",
+            "打开", "保存", "更新", "版本", "错误", "请求", "服务器", "自动", "联系", "支持", "问题"
+    };
+    private static final String[] JA = {
+            "私", "は", "の", "ファイル", "を", "開く", "システム", "ユーザー", "翻訳", "が", "できます", "設定",
+            "保存", "します", "データ", "サーバー", "エラー", "更新", "新しい", "バージョン", "自動的に", "問題"
+    };
+
+    private static final String[] TAGS = {"b", "i", "u", "span", "strong", "em"};
+
+    private final Random random;
+    private final String[] vocabulary;
+    private final boolean spaced;
+    private final String period;
+
+    public TextGenerator(String language, long seed) {
+        this.random = new Random(seed);
+
+        switch (language) {
+            case "ar":
+                vocabulary = AR;
+                break;
+            case "da":
+                vocabulary = DA;
+                break;
+            case "zh":
+                vocabulary = ZH;
+                break;
+            case "ja":
+                vocabulary = JA;
+                break;
+            default:
+                vocabulary = EN;
+                break;
+        }
+
+        this.spaced = !("zh".equals(language) || "ja".equals(language));
+        this.period = spaced ? "." : "。";
+    }
+
+    public List<String> generate(Kind kind, int count, int minLength, int maxLength) {
+        ArrayList<String> sentences = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            sentences.add(generate(kind, minLength + random.nextInt(maxLength - minLength + 1)));
+
+        return sentences;
+    }
+
+    public String generate(Kind kind, int length) {
+        StringBuilder text = new StringBuilder();
+        int openTags = 0;
+        String[] stack = new String[length];
+
+        for (int i = 0; i < length; i++) {
+            if (i > 0 && spaced)
+                text.append(' ');
+
+            switch (kind) {
+                case XML:
+                    int action = random.nextInt(6);
+                    if (action == 0) {
+                        String tag = TAGS[random.nextInt(TAGS.length)];
+                        stack[openTags++] = tag;
+                        text.append('<').append(tag).append('>');
+                    } else if (action == 1 && openTags > 0) {
+                        appendWord(text, i == 0);
+                        text.append("</").append(stack[--openTags]).append('>');
+                        continue;
+                    } else if (action == 2) {
+                        text.append("<a href=\"http://www.example.com/page?id=").append(random.nextInt(1000)).append("\">");
+                        appendWord(text, i == 0);
+                        text.append("</a>");
+                        continue;
+                    } else if (action == 3) {
+                        text.append("<br/>");
+                    } else if (action == 4) {
+                        text.append("&amp; ");
+                    }
+                    break;
+                case NUMBERS:
+                    if (random.nextInt(3) == 0) {
+                        appendNumber(text);
+                        continue;
+                    }
+                    break;
+                case XMESSAGE:
+                    if (random.nextInt(5) == 0) {
+                        appendFormat(text, random.nextInt(3));
+                        continue;
+                    }
+                    break;
+                default:
+                    break;
+            }
+
+            appendWord(text, i == 0);
+        }
+
+        while (openTags > 0)
+            text.append("</").append(stack[--openTags]).append('>');
+
+        text.append(period);
+        return text.toString();
+    }
+
+    private void appendWord(StringBuilder text, boolean capitalize) {
+        String word = vocabulary[random.nextInt(vocabulary.length)];
+
+        if (capitalize && spaced)
+            word = Character.toUpperCase(word.charAt(0)) + word.substring(1);
+
+        text.append(word);
+
+        if (spaced && random.nextInt(12) == 0)
+            text.append(',');
+    }
+
+    private void appendNumber(StringBuilder text) {
+        switch (random.nextInt(5)) {
+            case 0:
+                text.append(random.nextInt(100));
+                break;
+            case 1:
+                text.append(String.format(Locale.US, "%,d.%02d", random.nextInt(1000000), random.nextInt(100)));
+                break;
+            case 2:
+                text.append(random.nextInt(100)).append('.').append(random.nextInt(10)).append('%');
+                break;
+            case 3:
+                text.append('$').append(random.nextInt(1000)).append('.').append(random.nextInt(90) + 10);
+                break;
+            default:
+                text.append(String.format(Locale.US, "%02d/%02d/%d", random.nextInt(28) + 1, random.nextInt(12) + 1, 1990 + random.nextInt(30)));
+                break;
+        }
+    }
+
+    private void appendFormat(StringBuilder text, int index) {
+        switch (random.nextInt(3)) {
+            case 0:
+                text.append('{').append(index).append('}');
+                break;
+            case 1:
+                text.append('{').append(index).append(",number,integer}");
+                break;
+            default:
+                text.append('{').append(index).append(",choice,0#no files|1#one file|1<{")
+                        .append(index).append(",number,integer} files}");
+                break;
+        }
+    }
+
+}
@@ -0,0 +1,198 @@
+package eu.modernmt.cli;
+
+import eu.modernmt.cli.loadtest.LoadGenerator;
+import eu.modernmt.cli.loadtest.RequestType;
+import eu.modernmt.cli.log4j.Log4jConfiguration;
+import eu.modernmt.config.*;
+import eu.modernmt.config.xml.XMLConfigBuilder;
+import eu.modernmt.engine.Engine;
+import eu.modernmt.facade.ModernMT;
+import eu.modernmt.io.DefaultCharset;
+import eu.modernmt.rest.RESTServer;
+import eu.modernmt.stats.LatencyHistogram;
+import org.apache.commons.cli.*;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Starts an engine with the stand-in decoder, aligner and vocabulary and an in-memory
+ * data stream, then drives its REST API with the load generator and prints throughput
+ * and latency percentiles for every request type. With "--url" an already running
+ * node is tested instead.
+ */
+public class LoadTestMain {
+
+    private static class Args {
+
+        private static final Options cliOptions;
+
+        static {
+            Option engine = Option.builder("e").longOpt("engine").hasArg().required(false).build();
+            Option url = Option.builder().longOpt("url").hasArg().required(false).build();
+            Option apiPort = Option.builder("a").longOpt("api-port").hasArg().type(Integer.class).required(false).build();
+            Option nativeModels = Option.builder().longOpt("native").required(false).build();
+
+            Option concurrency = Option.builder("c").longOpt("concurrency").hasArg().type(Integer.class).required(false).build();
+            Option duration = Option.builder("d").longOpt("duration").hasArg().type(Integer.class).required(false).build();
+            Option warmUp = Option.builder().longOpt("warmup").hasArg().type(Integer.class).required(false).build();
+            Option mix = Option.builder().longOpt("mix").hasArg().required(false).build();
+            Option corpus = Option.builder().longOpt("corpus").hasArg().required(false).build();
+            Option domains = Option.builder().longOpt("domains").hasArg().type(Integer.class).required(false).build();
+            Option sourceLanguage = Option.builder("s").longOpt("source-language").hasArg().required(false).build();
+            Option targetLanguage = Option.builder("t").longOpt("target-language").hasArg().required(false).build();
+
+            Option logsFolder = Option.builder().longOpt("logs").hasArg().required(false).build();
+            Option verbosity = Option.builder("v").longOpt("verbosity").hasArg().type(Integer.class).required(false).build();
+
+            cliOptions = new Options();
+            cliOptions.addOption(engine);
+            cliOptions.addOption(url);
+            cliOptions.addOption(apiPort);
+            cliOptions.addOption(nativeModels);
+            cliOptions.addOption(concurrency);
+            cliOptions.addOption(duration);
+            cliOptions.addOption(warmUp);
+            cliOptions.addOption(mix);
+            cliOptions.addOption(corpus);
+            cliOptions.addOption(domains);
+            cliOptions.addOption(sourceLanguage);
+            cliOptions.addOption(targetLanguage);
+            cliOptions.addOption(logsFolder);
+            cliOptions.addOption(verbosity);
+        }
+
+        public final NodeConfig config;
+        public final LoadGenerator.Options options;
+        public final File logsFolder;
+        public final int verbosity;
+        public final boolean nativeModels;
+
+        public Args(String[] args) throws Throwable {
+            CommandLineParser parser = new DefaultParser();
+            CommandLine cli = parser.parse(cliOptions, args);
+
+            options = new LoadGenerator.Options();
+            nativeModels = cli.hasOption("native");
+
+            String url = cli.getOptionValue("url");
+            if (url != null) {
+                this.config = null;
+                options.url = url;
+
+                if (cli.hasOption("source-language"))
+                    options.sourceLanguage = Locale.forLanguageTag(cli.getOptionValue("source-language"));
+                if (cli.hasOption("target-language"))
+                    options.targetLanguage = Locale.forLanguageTag(cli.getOptionValue("target-language"));
+            } else {
+                String engine = cli.getOptionValue("engine");
+                if (engine == null)
+                    throw new ParseException("One of --engine or --url is required");
+
+                this.config = XMLConfigBuilder.build(Engine.getConfigFile(engine));
+                this.config.getEngineConfig().setName(engine);
+
+                if (!nativeModels)
+                    this.config.getEngineConfig().getStubConfig().setEnabled(true);
+
+                this.config.getDataStreamConfig()
+                        .setEnabled(true)
+                        .setType(DataStreamConfig.Type.IN_MEMORY);
+
+                ApiConfig apiConfig = this.config.getNetworkConfig().getApiConfig();
+                String apiPort = cli.getOptionValue("api-port");
+                if (apiPort != null)
+                    apiConfig.setPort(Integer.parseInt(apiPort));
+
+                String root = apiConfig.getApiRoot();
+                options.url = "http://localhost:" + apiConfig.getPort() + (root == null ? "" : root);
+                options.sourceLanguage = this.config.getEngineConfig().getSourceLanguage();
+                options.targetLanguage = this.config.getEngineConfig().getTargetLanguage();
+            }
+
+            if (cli.hasOption("concurrency"))
+                options.concurrency = Integer.parseInt(cli.getOptionValue("concurrency"));
+            if (cli.hasOption("duration"))
+                options.duration = Integer.parseInt(cli.getOptionValue("duration"));
+            if (cli.hasOption("warmup"))
+                options.warmUp = Integer.parseInt(cli.getOptionValue("warmup"));
+            if (cli.hasOption("domains"))
+                options.domains = Integer.parseInt(cli.getOptionValue("domains"));
+
+            String mix = cli.getOptionValue("mix");
+            if (mix != null) {
+                options.mix.clear();
+
+                for (String entry : mix.split(",")) {
+                    String[] parts = entry.split("=");
+                    if (parts.length != 2)
+                        throw new ParseException("Invalid mix entry: " + entry);
+
+                    options.mix.put(RequestType.forName(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+                }
+            }
+
+            String corpus = cli.getOptionValue("corpus");
+            if (corpus != null)
+                options.sentences = FileUtils.readLines(new File(corpus), DefaultCharset.get());
+
+            String logs = cli.getOptionValue("logs");
+            this.logsFolder = logs == null ? null : new File(logs);
+
+            String verbosity = cli.getOptionValue("verbosity");
+            this.verbosity = verbosity == null ? 1 : Integer.parseInt(verbosity);
+        }
+    }
+
+    public static void main(String[] _args) throws Throwable {
+        Args args = new Args(_args);
+        Log4jConfiguration.setup(args.verbosity, args.logsFolder, args.config != null && args.nativeModels);
+
+        RESTServer restServer = null;
+
+        if (args.config != null) {
+            ModernMT.start(args.config, null);
+
+            ApiConfig apiConfig = args.config.getNetworkConfig().getApiConfig();
+            RESTServer.ServerOptions options = new RESTServer.ServerOptions(apiConfig.getPort());
+            options.contextPath = apiConfig.getApiRoot();
+
+            restServer = new RESTServer(options);
+            restServer.start();
+        }
+
+        try {
+            List<LoadGenerator.Result> results = new LoadGenerator(args.options).run();
+            print(args.options, results);
+        } finally {
+            if (restServer != null)
+                restServer.stop();
+        }
+
+        System.exit(0);
+    }
+
+    private static void print(LoadGenerator.Options options, List<LoadGenerator.Result> results) {
+        System.out.println("Load test: " + options.url + ", " + options.concurrency + " clients, " +
+                options.duration + "s (after " + options.warmUp + "s of warm-up)");
+        System.out.println();
+        System.out.println(String.format("%-16s %10s %8s %10s %10s %10s %10s %10s %10s %10s",
+                "request", "count", "errors", "req/s", "mean", "p50", "p90", "p99", "p99.9", "max"));
+
+        long count = 0;
+        for (LoadGenerator.Result result : results) {
+            LatencyHistogram.Snapshot latency = result.getLatency();
+            count += latency.getCount();
+
+            System.out.println(String.format("%-16s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f %10.2f %10.2f",
+                    result.getType(), latency.getCount(), result.getErrors(), (double) latency.getCount() / options.duration,
+                    latency.getMean(), latency.getP50(), latency.getP90(), latency.getP99(), latency.getP999(), latency.getMax()));
+        }
+
+        System.out.println();
+        System.out.println(String.format("Total throughput: %.1f req/s (latencies in ms)", (double) count / options.duration));
+    }
+
+}
@@ -0,0 +1,295 @@
+package eu.modernmt.cli.loadtest;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import eu.modernmt.io.DefaultCharset;
+import eu.modernmt.stats.LatencyHistogram;
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load generator for the REST API: every client thread sends a request,
+ * waits for the response and immediately sends the next one. The type of every request
+ * is drawn from the configured mix; latencies are collected after the warm-up only.
+ */
+public class LoadGenerator {
+
+    private static final int CONNECT_TIMEOUT = 5000;
+    private static final int READ_TIMEOUT = 60000;
+    private static final int PARAGRAPH_SIZE = 5;
+
+    public static class Options {
+
+        public String url = "http://localhost:8045";
+        public int concurrency = 8;
+        public long warmUp = 10; // seconds
+        public long duration = 60; // seconds
+        public int domains = 10;
+        public Locale sourceLanguage = Locale.ENGLISH;
+        public Locale targetLanguage = Locale.ITALIAN;
+        public List<String> sentences = null;
+        public final EnumMap<RequestType, Integer> mix = new EnumMap<>(RequestType.class);
+
+        public Options() {
+            mix.put(RequestType.TRANSLATE, 70);
+            mix.put(RequestType.CONTEXT_VECTOR, 10);
+            mix.put(RequestType.TAGS_PROJECTION, 10);
+            mix.put(RequestType.CONTRIBUTION, 10);
+        }
+    }
+
+    public static class Result {
+
+        private final RequestType type;
+        private final LatencyHistogram.Snapshot latency;
+        private final long errors;
+
+        private Result(RequestType type, LatencyHistogram.Snapshot latency, long errors) {
+            this.type = type;
+            this.latency = latency;
+            this.errors = errors;
+        }
+
+        public RequestType getType() {
+            return type;
+        }
+
+        public LatencyHistogram.Snapshot getLatency() {
+            return latency;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+    }
+
+    private static class Measurement {
+
+        private final EnumMap<RequestType, LatencyHistogram> latencies = new EnumMap<>(RequestType.class);
+        private final EnumMap<RequestType, AtomicLong> errors = new EnumMap<>(RequestType.class);
+
+        public Measurement() {
+            for (RequestType type : RequestType.values()) {
+                latencies.put(type, new LatencyHistogram());
+                errors.put(type, new AtomicLong(0L));
+            }
+        }
+    }
+
+    private static final String[] WORDS = {
+            "the", "user", "can", "open", "file", "from", "menu", "and", "save", "changes", "before", "closing",
+            "window", "system", "will", "update", "settings", "automatically", "when", "new", "version", "is",
+            "available", "please", "contact", "support", "if", "problem", "persists", "after", "restart", "translation",
+            "server", "returned", "an", "error", "while", "processing", "your", "request", "document", "page"
+    };
+
+    private final Options options;
+    private final String[] sentences;
+    private final RequestType[] mix;
+    private int[] domains;
+
+    private volatile Measurement measurement = new Measurement();
+    private volatile boolean running;
+
+    public LoadGenerator(Options options) {
+        this.options = options;
+        this.sentences = options.sentences == null ?
+                generateSentences(10000, new Random(42L)) : options.sentences.toArray(new String[options.sentences.size()]);
+
+        ArrayList<RequestType> mix = new ArrayList<>(100);
+        for (Map.Entry<RequestType, Integer> entry : options.mix.entrySet()) {
+            for (int i = 0; i < entry.getValue(); i++)
+                mix.add(entry.getKey());
+        }
+
+        if (mix.isEmpty())
+            throw new IllegalArgumentException("Empty request mix");
+
+        this.mix = mix.toArray(new RequestType[mix.size()]);
+    }
+
+    private static String[] generateSentences(int count, Random random) {
+        String[] sentences = new String[count];
+
+        for (int i = 0; i < count; i++) {
+            int length = 5 + random.nextInt(30);
+
+            StringBuilder builder = new StringBuilder();
+            for (int j = 0; j < length; j++) {
+                if (j > 0)
+                    builder.append(' ');
+                builder.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            builder.append('.');
+
+            sentences[i] = builder.toString();
+        }
+
+        return sentences;
+    }
+
+    public List<Result> run() throws IOException, InterruptedException {
+        domains = createDomains();
+
+        ExecutorService executor = Executors.newFixedThreadPool(options.concurrency);
+        running = true;
+
+        try {
+            for (int i = 0; i < options.concurrency; i++)
+                executor.execute(new Client(new Random(i)));
+
+            Thread.sleep(options.warmUp * 1000L);
+            Measurement result = measurement = new Measurement();
+            Thread.sleep(options.duration * 1000L);
+
+            running = false;
+
+            // Histograms are read only once, at the end of the test:
+            // their snapshot covers the whole measurement then
+            ArrayList<Result> results = new ArrayList<>();
+            for (RequestType type : RequestType.values()) {
+                if (options.mix.getOrDefault(type, 0) > 0)
+                    results.add(new Result(type, result.latencies.get(type).getSnapshot(), result.errors.get(type).get()));
+            }
+
+            return results;
+        } finally {
+            running = false;
+
+            executor.shutdown();
+            executor.awaitTermination(READ_TIMEOUT, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private int[] createDomains() throws IOException {
+        int[] ids = new int[options.domains];
+
+        for (int i = 0; i < ids.length; i++) {
+            String response = call("POST", "domains", "name", "load-test-" + i);
+            if (response == null)
+                throw new IOException("Unable to create domain for load test");
+
+            JsonObject json = new JsonParser().parse(response).getAsJsonObject();
+            ids[i] = json.getAsJsonObject("data").get("id").getAsInt();
+        }
+
+        return ids;
+    }
+
+    private class Client implements Runnable {
+
+        private final Random random;
+
+        public Client(Random random) {
+            this.random = random;
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                RequestType type = mix[random.nextInt(mix.length)];
+                Measurement measurement = LoadGenerator.this.measurement;
+
+                long begin = System.nanoTime();
+                boolean success;
+
+                try {
+                    success = send(type) != null;
+                } catch (IOException e) {
+                    success = false;
+                }
+
+                if (success)
+                    measurement.latencies.get(type).recordSince(begin);
+                else
+                    measurement.errors.get(type).incrementAndGet();
+            }
+        }
+
+        private String sentence() {
+            return sentences[random.nextInt(sentences.length)];
+        }
+
+        private int domain() {
+            return domains[random.nextInt(domains.length)];
+        }
+
+        private String send(RequestType type) throws IOException {
+            switch (type) {
+                case TRANSLATE:
+                    if (domains.length > 1 && random.nextBoolean()) {
+                        String context = domain() + ":0.6," + domain() + ":0.4";
+                        return call("GET", "translate", "q", sentence(), "context_vector", context);
+                    } else {
+                        return call("GET", "translate", "q", sentence());
+                    }
+                case CONTEXT_VECTOR:
+                    StringBuilder text = new StringBuilder();
+                    for (int i = 0; i < PARAGRAPH_SIZE; i++)
+                        text.append(sentence()).append('\n');
+
+                    return call("GET", "context-vector", "text", text.toString());
+                case TAGS_PROJECTION:
+                    String translation = sentence();
+                    String[] words = sentence().split(" ");
+                    int index = random.nextInt(words.length);
+                    words[index] = "<b>" + words[index] + "</b>";
+
+                    return call("GET", "tags-projection", "s", String.join(" ", words), "t", translation,
+                            "sl", options.sourceLanguage.toLanguageTag(), "tl", options.targetLanguage.toLanguageTag());
+                case CONTRIBUTION:
+                    String sentence = sentence();
+                    return call("PUT", "domains/" + domain() + "/corpus", "source", sentence, "target", sentence);
+                default:
+                    throw new Error("Unknown request type: " + type);
+            }
+        }
+    }
+
+    /**
+     * @return the response body, or null if the server replied with an error status
+     */
+    private String call(String method, String path, String... parameters) throws IOException {
+        StringBuilder url = new StringBuilder(options.url);
+        url.append('/').append(path);
+
+        for (int i = 0; i < parameters.length; i += 2) {
+            url.append(i == 0 ? '?' : '&');
+            url.append(parameters[i]).append('=').append(encode(parameters[i + 1]));
+        }
+
+        HttpURLConnection connection = (HttpURLConnection) new URL(url.toString()).openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(CONNECT_TIMEOUT);
+        connection.setReadTimeout(READ_TIMEOUT);
+
+        int status = connection.getResponseCode();
+        InputStream stream = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+
+        // The body is always consumed, so that the connection can be reused
+        try {
+            String body = stream == null ? null : IOUtils.toString(stream, DefaultCharset.get());
+            return status < 400 ? body : null;
+        } finally {
+            IOUtils.closeQuietly(stream);
+        }
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new Error("Unsupported UTF-8 encoding", e);
+        }
+    }
+
+}
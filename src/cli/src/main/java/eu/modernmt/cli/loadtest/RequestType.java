@@ -0,0 +1,30 @@
+package eu.modernmt.cli.loadtest;
+
+public enum RequestType {
+
+    TRANSLATE("translate"),
+    CONTEXT_VECTOR("context-vector"),
+    TAGS_PROJECTION("tags-projection"),
+    CONTRIBUTION("contributions");
+
+    private final String name;
+
+    RequestType(String name) {
+        this.name = name;
+    }
+
+    public static RequestType forName(String name) {
+        for (RequestType type : values()) {
+            if (type.name.equals(name))
+                return type;
+        }
+
+        throw new IllegalArgumentException("Invalid request type: " + name);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+}
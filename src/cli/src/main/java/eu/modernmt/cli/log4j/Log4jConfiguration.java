@@ -26,10 +26,14 @@ public class Log4jConfiguration {
     }
 
     public static void setup(int verbosity, File logsFolder) throws IOException {
+        setup(verbosity, logsFolder, true);
+    }
+
+    public static void setup(int verbosity, File logsFolder, boolean nativeLogging) throws IOException {
         if (verbosity < 0 || verbosity >= VERBOSITY_LEVELS.length)
             throw new IllegalArgumentException("Invalid verbosity value: " + verbosity);
 
-        setup(VERBOSITY_LEVELS[verbosity], logsFolder);
+        setup(VERBOSITY_LEVELS[verbosity], logsFolder, nativeLogging);
     }
 
     public static void setup(Level level) throws IOException {
@@ -37,6 +41,14 @@ public class Log4jConfiguration {
     }
 
     public static void setup(Level level, File logsFolder) throws IOException {
+        setup(level, logsFolder, true);
+    }
+
+    /**
+     * @param nativeLogging if false the native library is not loaded, for processes
+     *                      that run without native components (i.e. with stub models)
+     */
+    public static void setup(Level level, File logsFolder, boolean nativeLogging) throws IOException {
         String config = loadConfig(level, logsFolder);
 
         File file = File.createTempFile("mmt_log4j2", "xml");
@@ -46,7 +58,8 @@ public class Log4jConfiguration {
 
         System.setProperty("log4j.configurationFile", file.getAbsolutePath());
 
-        NativeLogger.initialize();
+        if (nativeLogging)
+            NativeLogger.initialize();
     }
 
     private static String loadConfig(Level level, File logsFolder) throws IOException {
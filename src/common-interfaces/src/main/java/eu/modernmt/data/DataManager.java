@@ -27,6 +27,8 @@ public interface DataManager extends Closeable {
 
     void addDataListener(DataListener listener);
 
+    void removeDataListener(DataListener listener);
+
     ImportJob upload(int domainId, BilingualCorpus corpus, short channel) throws DataManagerException;
 
     ImportJob upload(int domainId, BilingualCorpus corpus, DataChannel channel) throws DataManagerException;
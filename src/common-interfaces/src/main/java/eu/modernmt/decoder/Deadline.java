@@ -0,0 +1,80 @@
+package eu.modernmt.decoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deadlines of the translation requests. A deadline is an instant of the local
+ * {@link System#nanoTime()} clock, or 0 for no deadline at all: since that clock is
+ * only meaningful within a single JVM, deadlines are sent to the other members of the
+ * cluster as the remaining budget, and rebased on the clock of the executing node.
+ */
+public final class Deadline {
+
+    public static final long NONE = 0L;
+
+    private Deadline() {
+    }
+
+    /**
+     * @return the deadline that expires after the given timeout from now
+     */
+    public static long after(long timeout, TimeUnit unit) {
+        return fromBudget(Math.max(1L, unit.toNanos(timeout)));
+    }
+
+    public static boolean isExpired(long deadline) {
+        return deadline != NONE && System.nanoTime() - deadline >= 0;
+    }
+
+    /**
+     * @return the nanoseconds left before the deadline, not negative,
+     * or Long.MAX_VALUE if there is no deadline
+     */
+    public static long remainingNanos(long deadline) {
+        if (deadline == NONE)
+            return Long.MAX_VALUE;
+
+        return Math.max(0L, deadline - System.nanoTime());
+    }
+
+    /**
+     * @return the remaining budget in nanoseconds to send to another node: 0 if there
+     * is no deadline, a negative value if the deadline has already expired
+     */
+    public static long toBudget(long deadline) {
+        if (deadline == NONE)
+            return 0L;
+
+        long remaining = deadline - System.nanoTime();
+        return remaining > 0 ? remaining : -1L;
+    }
+
+    /**
+     * @return the local deadline of the budget returned by {@link #toBudget(long)}
+     */
+    public static long fromBudget(long budget) {
+        if (budget == 0L)
+            return NONE;
+
+        long deadline = System.nanoTime() + budget;
+        return deadline == NONE ? 1L : deadline;
+    }
+
+    /**
+     * @return the deadline as an absolute time in milliseconds, as returned by
+     * {@link System#currentTimeMillis()} on this node, or 0 if there is no deadline
+     */
+    public static long toEpochMillis(long deadline) {
+        if (deadline == NONE)
+            return 0L;
+
+        // Rounded up, so that the native decoder never stops before the deadline
+        long remaining = remainingNanos(deadline);
+        long millis = TimeUnit.NANOSECONDS.toMillis(remaining);
+        if (TimeUnit.MILLISECONDS.toNanos(millis) < remaining)
+            millis++;
+
+        return System.currentTimeMillis() + millis;
+    }
+
+}
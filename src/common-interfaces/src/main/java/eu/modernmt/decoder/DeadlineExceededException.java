@@ -0,0 +1,18 @@
+package eu.modernmt.decoder;
+
+/**
+ * Thrown when a translation request can not be completed before its deadline.
+ * See {@link Deadline} for the representation of the deadlines.
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    public static void check(long deadline) throws DeadlineExceededException {
+        if (Deadline.isExpired(deadline))
+            throw new DeadlineExceededException("Request deadline exceeded");
+    }
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+
+}
@@ -23,6 +23,11 @@ public interface Decoder extends Closeable {
 
     void closeSession(TranslationSession session);
 
+    /**
+     * @return the number of translation sessions currently held by this decoder instance
+     */
+    int getActiveSessionCount();
+
     // Translate
 
     DecoderTranslation translate(Sentence text);
@@ -37,4 +42,13 @@ public interface Decoder extends Closeable {
 
     DecoderTranslation translate(Sentence text, TranslationSession session, int nbestListSize);
 
+    /**
+     * Translates the sentence with either the given context vector or session (both may be null),
+     * stopping the translation if it is still in progress when the deadline is reached.
+     *
+     * @param deadline the deadline of the request, see {@link Deadline}
+     * @throws DeadlineExceededException if the deadline is reached before the translation is complete
+     */
+    DecoderTranslation translate(Sentence text, ContextVector contextVector, TranslationSession session, int nbestListSize, long deadline) throws DeadlineExceededException;
+
 }
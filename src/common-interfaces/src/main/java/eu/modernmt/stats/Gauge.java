@@ -0,0 +1,28 @@
+package eu.modernmt.stats;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Value that can go up and down, updated by the component that owns it.
+ */
+public class Gauge {
+
+    private final AtomicLong value = new AtomicLong(0L);
+
+    public void set(long value) {
+        this.value.set(value);
+    }
+
+    public void increment() {
+        value.incrementAndGet();
+    }
+
+    public void decrement() {
+        value.decrementAndGet();
+    }
+
+    public long get() {
+        return value.get();
+    }
+
+}
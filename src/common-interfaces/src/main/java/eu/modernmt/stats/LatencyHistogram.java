@@ -0,0 +1,268 @@
+package eu.modernmt.stats;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free latency histogram with log-linear buckets (HDR-style): values up to
+ * 32µs have their own bucket, larger values are split in 16 buckets per power of two,
+ * so that every value is recorded with a relative error below 3%.
+ * Recording is a single atomic increment per counter; percentiles and throughput
+ * of the snapshots are computed over the last one to two minutes of samples,
+ * while the total count is cumulative since the histogram creation.
+ * <p>
+ * Samples are recorded in the bucket array of the current interval: the first
+ * record after the end of the interval rotates it, and the intervals older than
+ * the previous one are dropped, even after an idle gap. Snapshots only read
+ * the intervals, so that readers do not affect each other.
+ */
+public class LatencyHistogram {
+
+    private static final int LINEAR_BITS = 5;
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 36; // ~19 hours in µs
+    private static final int BUCKETS = (1 << LINEAR_BITS) + (MAX_EXPONENT - LINEAR_BITS) * SUB_BUCKETS;
+    private static final long MAX_VALUE = (1L << MAX_EXPONENT) - 1;
+
+    private static final long DEFAULT_WINDOW = 60L * 1000L; // millis
+
+    private static final class Interval {
+
+        private final long start;
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLongArray previous;
+
+        private Interval(long start, AtomicLongArray previous) {
+            this.start = start;
+            this.previous = previous;
+        }
+    }
+
+    private final AtomicReference<Interval> interval;
+    private final AtomicLong count = new AtomicLong(0L);
+    private final AtomicLong sum = new AtomicLong(0L);
+    private final long window;
+
+    public LatencyHistogram() {
+        this(DEFAULT_WINDOW, System.currentTimeMillis());
+    }
+
+    LatencyHistogram(long window, long now) {
+        this.window = window;
+        this.interval = new AtomicReference<>(new Interval(now, null));
+    }
+
+    static int indexOf(long value) {
+        if (value < (1L << LINEAR_BITS))
+            return (int) Math.max(0L, value);
+
+        value = Math.min(value, MAX_VALUE);
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+
+        return (1 << LINEAR_BITS) + (exponent - LINEAR_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    static long lowerBoundOf(int index) {
+        if (index < (1 << LINEAR_BITS))
+            return index;
+
+        int exponent = LINEAR_BITS + (index - (1 << LINEAR_BITS)) / SUB_BUCKETS;
+        int subBucket = (index - (1 << LINEAR_BITS)) % SUB_BUCKETS;
+
+        return ((long) (SUB_BUCKETS + subBucket)) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    static long upperBoundOf(int index) {
+        return index < (1 << LINEAR_BITS) ? index : lowerBoundOf(index + 1) - 1;
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(long nanos) {
+        record(nanos, System.currentTimeMillis());
+    }
+
+    void record(long nanos, long now) {
+        long micros = Math.max(0L, nanos / 1000L);
+
+        getInterval(now).buckets.incrementAndGet(indexOf(micros));
+        count.incrementAndGet();
+        sum.addAndGet(micros);
+    }
+
+    private Interval getInterval(long now) {
+        Interval current = interval.get();
+
+        while (now - current.start >= window) {
+            // Intervals are aligned to the window: after an idle gap
+            // longer than the window, the previous interval is empty
+            long start = current.start + ((now - current.start) / window) * window;
+            AtomicLongArray previous = start - current.start == window ? current.buckets : null;
+
+            // If the rotation fails, another thread has already rotated the interval
+            interval.compareAndSet(current, new Interval(start, previous));
+            current = interval.get();
+        }
+
+        return current;
+    }
+
+    /**
+     * Records the time elapsed since the given instant.
+     *
+     * @param beginNanos the begin instant, as returned by {@link System#nanoTime()}
+     */
+    public void recordSince(long beginNanos) {
+        record(System.nanoTime() - beginNanos);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return the sum of all the recorded values, in microseconds
+     */
+    public long getSum() {
+        return sum.get();
+    }
+
+    public Snapshot getSnapshot() {
+        return getSnapshot(System.currentTimeMillis());
+    }
+
+    Snapshot getSnapshot(long now) {
+        Interval current = interval.get();
+        long elapsed = now - current.start;
+
+        // The intervals are rotated by the next record, they are considered
+        // as if the rotation happened at the end of the current interval
+        long[] values = new long[BUCKETS];
+        long windowCount = 0L;
+        long begin;
+
+        if (elapsed >= 2 * window) {
+            begin = now - window;
+        } else {
+            begin = current.start;
+            add(values, current.buckets);
+
+            if (elapsed < window && current.previous != null) {
+                begin -= window;
+                add(values, current.previous);
+            }
+        }
+
+        for (long value : values)
+            windowCount += value;
+
+        double seconds = Math.max(1L, now - begin) / 1000.;
+
+        return new Snapshot(count.get(), sum.get(), windowCount / seconds, values, windowCount);
+    }
+
+    private static void add(long[] values, AtomicLongArray buckets) {
+        for (int i = 0; i < BUCKETS; i++)
+            values[i] += buckets.get(i);
+    }
+
+    public static class Snapshot {
+
+        private final long count;
+        private final double throughput;
+        private final double mean;
+        private final double p50;
+        private final double p90;
+        private final double p99;
+        private final double p999;
+        private final double max;
+
+        private Snapshot(long count, long sum, double throughput, long[] buckets, long windowCount) {
+            this.count = count;
+            this.throughput = round(throughput);
+            this.mean = count == 0 ? 0. : round(sum / (count * 1000.));
+            this.p50 = percentile(buckets, windowCount, .5);
+            this.p90 = percentile(buckets, windowCount, .9);
+            this.p99 = percentile(buckets, windowCount, .99);
+            this.p999 = percentile(buckets, windowCount, .999);
+
+            int last = buckets.length - 1;
+            while (last >= 0 && buckets[last] == 0)
+                last--;
+            this.max = last < 0 ? 0. : round(upperBoundOf(last) / 1000.);
+        }
+
+        private static double percentile(long[] buckets, long count, double quantile) {
+            if (count == 0)
+                return 0.;
+
+            long rank = (long) Math.ceil(quantile * count);
+            long seen = 0L;
+
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+
+                if (seen >= rank)
+                    return round((lowerBoundOf(i) + upperBoundOf(i)) / 2000.);
+            }
+
+            return 0.;
+        }
+
+        private static double round(double value) {
+            return Math.round(value * 100.) / 100.;
+        }
+
+        /**
+         * @return the total number of recorded values
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return the recent number of recorded values per second
+         */
+        public double getThroughput() {
+            return throughput;
+        }
+
+        /**
+         * @return the mean of all the recorded values, in milliseconds
+         */
+        public double getMean() {
+            return mean;
+        }
+
+        public double getP50() {
+            return p50;
+        }
+
+        public double getP90() {
+            return p90;
+        }
+
+        public double getP99() {
+            return p99;
+        }
+
+        public double getP999() {
+            return p999;
+        }
+
+        /**
+         * @return the maximum recent value, in milliseconds
+         */
+        public double getMax() {
+            return max;
+        }
+    }
+
+}
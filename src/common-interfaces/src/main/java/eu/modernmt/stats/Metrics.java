@@ -0,0 +1,163 @@
+package eu.modernmt.stats;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the metrics of the local node. Every component updates its own
+ * counters, gauges and latency histograms while it works, so that reading
+ * the metrics never requires to inspect the components themselves.
+ * A metric is identified by its name and an optional list of label name-value pairs.
+ */
+public class Metrics {
+
+    // Translation tasks, recorded by the node that executes them
+    public static final String TRANSLATION_QUEUE = "translation.queue";
+    public static final String TRANSLATION_PREPROCESS = "translation.preprocess";
+    public static final String TRANSLATION_DECODE = "translation.decode";
+    public static final String TRANSLATION_POSTPROCESS = "translation.postprocess";
+    public static final String DECODER_IN_FLIGHT = "decoder.inflight";
+
+    // Translation requests, recorded by the node that receives them
+    public static final String TRANSLATION_TOTAL = "translation.total";
+    public static final String BATCH_TRANSLATION_TOTAL = "translation.batch.total";
+
+    // REST requests
+    public static final String HTTP_SERIALIZATION = "http.serialization";
+    public static final String HTTP_REQUEST = "http.request";
+
+    // Processing pipelines
+    public static final String PIPELINE_QUEUED = "pipeline.queued";
+    public static final String PIPELINE_BUSY = "pipeline.busy";
+
+    // Data stream
+    public static final String DATASTREAM_BATCHES = "datastream.batches";
+    public static final String DATASTREAM_MESSAGES = "datastream.messages";
+    public static final String DATASTREAM_BATCH_SIZE = "datastream.batch.size";
+    public static final String DATASTREAM_DELIVERY = "datastream.delivery";
+    public static final String DATASTREAM_LAG = "datastream.lag";
+
+    // Context analyzer
+    public static final String CONTEXT_PENDING_BUCKETS = "context.storage.pending";
+    public static final String CONTEXT_ANALYSIS = "context.storage.analysis";
+    public static final String CONTEXT_QUERY = "context.query";
+    public static final String CONTEXT_SIMILARITY_QUEUED = "context.similarity.queued";
+
+    public static class Key implements Comparable<Key> {
+
+        private final String name;
+        private final String[] labels;
+
+        private Key(String name, String[] labels) {
+            if (labels.length % 2 != 0)
+                throw new IllegalArgumentException("Labels must be name-value pairs");
+
+            this.name = name;
+            this.labels = labels;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getLabelCount() {
+            return labels.length / 2;
+        }
+
+        public String getLabelName(int i) {
+            return labels[i * 2];
+        }
+
+        public String getLabelValue(int i) {
+            return labels[i * 2 + 1];
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Key key = (Key) o;
+            return name.equals(key.name) && Arrays.equals(labels, key.labels);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * name.hashCode() + Arrays.hashCode(labels);
+        }
+
+        @Override
+        public int compareTo(Key o) {
+            // Metrics with the same name must be adjacent
+            int result = name.compareTo(o.name);
+            return result == 0 ? toString().compareTo(o.toString()) : result;
+        }
+
+        @Override
+        public String toString() {
+            if (labels.length == 0)
+                return name;
+
+            StringBuilder builder = new StringBuilder(name);
+            builder.append('{');
+            for (int i = 0; i < getLabelCount(); i++) {
+                if (i > 0)
+                    builder.append(',');
+                builder.append(getLabelName(i));
+                builder.append('=');
+                builder.append(getLabelValue(i));
+            }
+            builder.append('}');
+
+            return builder.toString();
+        }
+    }
+
+    private static final ConcurrentHashMap<Key, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Key, Counter> counters = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Key, Gauge> gauges = new ConcurrentHashMap<>();
+
+    public static LatencyHistogram histogram(String name, String... labels) {
+        return histograms.computeIfAbsent(new Key(name, labels), key -> new LatencyHistogram());
+    }
+
+    public static Counter counter(String name, String... labels) {
+        return counters.computeIfAbsent(new Key(name, labels), key -> new Counter());
+    }
+
+    public static Gauge gauge(String name, String... labels) {
+        return gauges.computeIfAbsent(new Key(name, labels), key -> new Gauge());
+    }
+
+    public static Map<Key, LatencyHistogram> getHistograms() {
+        return Collections.unmodifiableMap(new TreeMap<>(histograms));
+    }
+
+    public static Map<Key, Counter> getCounters() {
+        return Collections.unmodifiableMap(new TreeMap<>(counters));
+    }
+
+    public static Map<Key, Gauge> getGauges() {
+        return Collections.unmodifiableMap(new TreeMap<>(gauges));
+    }
+
+    public static Map<String, Long> getGaugeValues() {
+        TreeMap<String, Long> values = new TreeMap<>();
+        for (Map.Entry<Key, Gauge> entry : gauges.entrySet())
+            values.put(entry.getKey().toString(), entry.getValue().get());
+
+        return values;
+    }
+
+    public static Map<String, LatencyHistogram.Snapshot> getLatencySnapshots() {
+        TreeMap<String, LatencyHistogram.Snapshot> snapshots = new TreeMap<>();
+        for (Map.Entry<Key, LatencyHistogram> entry : histograms.entrySet())
+            snapshots.put(entry.getKey().toString(), entry.getValue().getSnapshot());
+
+        return snapshots;
+    }
+
+}
@@ -0,0 +1,61 @@
+package eu.modernmt.decoder;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class DeadlineTest {
+
+    @Test
+    public void testNoDeadline() {
+        assertFalse(Deadline.isExpired(Deadline.NONE));
+        assertEquals(Long.MAX_VALUE, Deadline.remainingNanos(Deadline.NONE));
+        assertEquals(0L, Deadline.toBudget(Deadline.NONE));
+        assertEquals(Deadline.NONE, Deadline.fromBudget(0L));
+        assertEquals(0L, Deadline.toEpochMillis(Deadline.NONE));
+    }
+
+    @Test
+    public void testDeadlineIsNeverNone() {
+        assertNotEquals(Deadline.NONE, Deadline.after(0L, TimeUnit.MILLISECONDS));
+        assertNotEquals(Deadline.NONE, Deadline.fromBudget(-System.nanoTime()));
+    }
+
+    @Test
+    public void testBudgetRoundTrip() {
+        long deadline = Deadline.after(1, TimeUnit.HOURS);
+        long budget = Deadline.toBudget(deadline);
+
+        assertTrue(budget > 0 && budget <= TimeUnit.HOURS.toNanos(1));
+
+        long rebased = Deadline.fromBudget(budget);
+        assertFalse(Deadline.isExpired(rebased));
+        assertTrue(rebased - deadline >= 0);
+        assertTrue(Deadline.remainingNanos(rebased) > TimeUnit.MINUTES.toNanos(59));
+    }
+
+    @Test
+    public void testExpiredBudgetStaysExpired() throws InterruptedException {
+        long deadline = Deadline.after(1, TimeUnit.MILLISECONDS);
+        Thread.sleep(5);
+
+        assertTrue(Deadline.isExpired(deadline));
+        assertEquals(0L, Deadline.remainingNanos(deadline));
+
+        long budget = Deadline.toBudget(deadline);
+        assertTrue(budget < 0);
+        assertTrue(Deadline.isExpired(Deadline.fromBudget(budget)));
+    }
+
+    @Test
+    public void testEpochMillis() {
+        long now = System.currentTimeMillis();
+        long millis = Deadline.toEpochMillis(Deadline.after(10, TimeUnit.SECONDS));
+
+        assertTrue(millis >= now + 9900);
+        assertTrue(millis <= System.currentTimeMillis() + 10000);
+    }
+
+}
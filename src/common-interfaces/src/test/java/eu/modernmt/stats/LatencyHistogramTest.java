@@ -0,0 +1,109 @@
+package eu.modernmt.stats;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    private static final long MILLIS = 1000000L; // in nanos
+
+    @Test
+    public void testBucketsContainTheirValues() {
+        for (long value = 0; value < 1000000L; value += 7) {
+            int index = LatencyHistogram.indexOf(value);
+
+            assertTrue(LatencyHistogram.lowerBoundOf(index) <= value);
+            assertTrue(LatencyHistogram.upperBoundOf(index) >= value);
+        }
+    }
+
+    @Test
+    public void testRelativeErrorIsBounded() {
+        for (long value = 32; value < 100000000L; value = value * 3 / 2 + 1) {
+            int index = LatencyHistogram.indexOf(value);
+            long width = LatencyHistogram.upperBoundOf(index) - LatencyHistogram.lowerBoundOf(index) + 1;
+
+            assertTrue(((double) width) / value <= 1. / 16.);
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram(1000L, System.currentTimeMillis());
+        for (int i = 1; i <= 1000; i++)
+            histogram.record(i * MILLIS);
+
+        LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+
+        assertEquals(1000L, snapshot.getCount());
+        assertEquals(500.5, snapshot.getMean(), .01);
+        assertEquals(500., snapshot.getP50(), 500. * .03);
+        assertEquals(900., snapshot.getP90(), 900. * .03);
+        assertEquals(990., snapshot.getP99(), 990. * .03);
+        assertEquals(1000., snapshot.getMax(), 1000. * .03);
+    }
+
+    @Test
+    public void testOldSamplesLeaveTheWindow() {
+        long now = System.currentTimeMillis();
+
+        LatencyHistogram histogram = new LatencyHistogram(1000L, now);
+        for (int i = 0; i < 100; i++)
+            histogram.record(100 * MILLIS, now);
+
+        for (int i = 0; i < 10; i++)
+            histogram.record(MILLIS, now + 1000L);
+
+        LatencyHistogram.Snapshot snapshot = histogram.getSnapshot(now + 2000L);
+
+        assertEquals(110L, snapshot.getCount());
+        assertEquals(1., snapshot.getP50(), .03);
+        assertEquals(1., snapshot.getMax(), .03);
+        assertEquals(10., snapshot.getThroughput(), .01);
+    }
+
+    @Test
+    public void testIdleGapsEmptyTheWindow() {
+        long now = System.currentTimeMillis();
+
+        LatencyHistogram histogram = new LatencyHistogram(1000L, now);
+        for (int i = 0; i < 100; i++)
+            histogram.record(100 * MILLIS, now);
+
+        // Nothing recorded since then
+        LatencyHistogram.Snapshot snapshot = histogram.getSnapshot(now + 5000L);
+        assertEquals(100L, snapshot.getCount());
+        assertEquals(0., snapshot.getP50(), .01);
+        assertEquals(0., snapshot.getThroughput(), .01);
+
+        // After the gap, the old samples are not in the previous interval
+        for (int i = 0; i < 10; i++)
+            histogram.record(MILLIS, now + 5500L);
+
+        snapshot = histogram.getSnapshot(now + 5900L);
+        assertEquals(1., snapshot.getP50(), .03);
+        assertEquals(1., snapshot.getMax(), .03);
+    }
+
+    @Test
+    public void testSnapshotsDoNotRotateTheWindow() {
+        long now = System.currentTimeMillis();
+
+        LatencyHistogram histogram = new LatencyHistogram(1000L, now);
+        for (int i = 0; i < 100; i++)
+            histogram.record(100 * MILLIS, now);
+
+        // Readers at different times see the same samples
+        for (int i = 0; i < 5; i++)
+            histogram.getSnapshot(now + 1500L);
+
+        LatencyHistogram.Snapshot snapshot = histogram.getSnapshot(now + 500L);
+        assertEquals(100., snapshot.getP50(), 100. * .03);
+        assertEquals(200., snapshot.getThroughput(), .01);
+
+        snapshot = histogram.getSnapshot(now + 1500L);
+        assertEquals(100., snapshot.getP50(), 100. * .03);
+    }
+
+}
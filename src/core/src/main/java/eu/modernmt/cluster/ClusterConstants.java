@@ -10,4 +10,6 @@ public class ClusterConstants {
     public static final String TRANSLATION_SESSION_ID_GENERATOR_NAME = "TranslationSessionIdGenerator";
     public static final String DECODER_WEIGHTS_TOPIC_NAME = "DecoderWeightsTopic";
 
+    public static final String DECODER_SLOTS_CONTEXT_KEY = "DecoderSlots";
+
 }
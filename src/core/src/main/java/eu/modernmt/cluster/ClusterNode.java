@@ -1,13 +1,18 @@
 package eu.modernmt.cluster;
 
 import com.hazelcast.config.Config;
+import com.hazelcast.config.EvictionPolicy;
+import com.hazelcast.config.MaxSizeConfig;
 import com.hazelcast.config.TcpIpConfig;
 import com.hazelcast.config.XmlConfigBuilder;
 import com.hazelcast.core.*;
 import eu.modernmt.aligner.Aligner;
 import eu.modernmt.cluster.error.FailedToJoinClusterException;
 import eu.modernmt.cluster.kafka.KafkaDataManager;
+import eu.modernmt.cluster.kafka.MemoryBroker;
+import eu.modernmt.config.ApiConfig;
 import eu.modernmt.config.DataStreamConfig;
+import eu.modernmt.config.DecoderConfig;
 import eu.modernmt.config.JoinConfig;
 import eu.modernmt.config.NetworkConfig;
 import eu.modernmt.config.NodeConfig;
@@ -20,14 +25,16 @@ import eu.modernmt.decoder.Decoder;
 import eu.modernmt.decoder.DecoderFeature;
 import eu.modernmt.engine.BootstrapException;
 import eu.modernmt.engine.Engine;
+import eu.modernmt.engine.EngineWarmer;
+import eu.modernmt.io.Paths;
 import eu.modernmt.util.Timer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.File;
 import java.util.*;
-import java.util.concurrent.Callable;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Created by davide on 18/04/16.
@@ -44,6 +51,7 @@ public class ClusterNode {
         LOADED,         // Node loaded the models
         UPDATING,       // Node is updating its models with the latest contributions
         UPDATED,        // Node updated its models with the latest contributions
+        WARMING,        // Node is warming up its models and processing pipelines
         READY,          // Node is ready and can receive translation requests
         SHUTDOWN,       // Node is shutting down
         TERMINATED      // Node is no longer active
@@ -55,6 +63,9 @@ public class ClusterNode {
 
     }
 
+    private static final long LOAD_MONITOR_INTERVAL = 500L; // millis
+    private static final int QUEUED_TASKS_PER_SLOT = 64;
+
     private final Logger logger = LogManager.getLogger(ClusterNode.class);
 
     private Engine engine;
@@ -65,10 +76,18 @@ public class ClusterNode {
 
     private HazelcastInstance hazelcast;
     private IExecutorService executor;
+    private TaskDispatcher dispatcher;
+    private Semaphore decoderSlots;
+    private LocalExecutor localExecutor;
+    private ScheduledExecutorService loadMonitorExecutor;
+    private CompletionExecutor completionExecutor;
     private SessionManager sessionManager;
     private DataManager dataManager;
     private ITopic<Map<String, float[]>> decoderWeightsTopic;
 
+    private final AtomicLong requests = new AtomicLong(0L);
+    private final AtomicLong localRequests = new AtomicLong(0L);
+
     private final Thread shutdownThread = new Thread() {
         @Override
         public void run() {
@@ -80,11 +99,19 @@ public class ClusterNode {
 //                // Ignore exception
 //            }
 
+            if (loadMonitorExecutor != null)
+                loadMonitorExecutor.shutdownNow();
+            if (completionExecutor != null)
+                completionExecutor.shutdownNow();
+            if (localExecutor != null)
+                localExecutor.shutdownNow();
             if (executor != null)
                 executor.shutdownNow();
             hazelcast.shutdown();
 
             try {
+                if (localExecutor != null)
+                    localExecutor.awaitTermination(1, TimeUnit.DAYS);
                 if (executor != null)
                     executor.awaitTermination(1, TimeUnit.DAYS);
             } catch (InterruptedException e) {
@@ -208,11 +235,25 @@ public class ClusterNode {
             hazelcastConfig.setProperty("hazelcast.initial.min.cluster.size", "1");
         }
 
-        int executorPoolSize = nodeConfig.getEngineConfig().getDecoderConfig().getThreads();
+        DecoderConfig decoderConfig = nodeConfig.getEngineConfig().getDecoderConfig();
+        int executorPoolSize = decoderConfig.getThreads();
 
+        // A queue capacity of 0 means unbounded: the queue is bounded per decoder slot instead,
+        // a member with a full queue rejects new tasks and the dispatcher tries another member
         hazelcastConfig.getExecutorConfig(ClusterConstants.TRANSLATION_EXECUTOR_NAME)
                 .setPoolSize(executorPoolSize)
-                .setQueueCapacity(0);
+                .setQueueCapacity(executorPoolSize * QUEUED_TASKS_PER_SLOT);
+
+        // Decoder slots are shared by the tasks of the distributed executor and the local ones
+        decoderSlots = new Semaphore(executorPoolSize, true);
+        hazelcastConfig.getUserContext().put(ClusterConstants.DECODER_SLOTS_CONTEXT_KEY, decoderSlots);
+
+        // Translation sessions are bounded like the native sessions of the decoder,
+        // so that the sessions map and the decoders' memory do not grow indefinitely
+        hazelcastConfig.getMapConfig(ClusterConstants.TRANSLATION_SESSION_MAP_NAME)
+                .setMaxIdleSeconds(decoderConfig.getSessionTimeout())
+                .setEvictionPolicy(EvictionPolicy.LRU)
+                .setMaxSizeConfig(new MaxSizeConfig(decoderConfig.getMaxSessions(), MaxSizeConfig.MaxSizePolicy.PER_NODE));
 
         return hazelcastConfig;
     }
@@ -273,13 +314,28 @@ public class ClusterNode {
         setStatus(Status.LOADED);
         logger.info("Model loaded in " + (timer.time() / 1000.) + "s");
 
+        DecoderConfig decoderConfig = nodeConfig.getEngineConfig().getDecoderConfig();
+        EngineWarmer warmer = null;
+        if (decoderConfig.getWarmUpSize() > 0) {
+            String warmUpFile = decoderConfig.getWarmUpFile();
+            File file = warmUpFile == null ? Paths.join(engine.getRootPath(), "models", "warmup.txt") : new File(warmUpFile);
+
+            warmer = new EngineWarmer(engine, decoderConfig.getWarmUpSize(), file);
+        }
+
         // ========================
 
         DataStreamConfig dataStreamConfig = nodeConfig.getDataStreamConfig();
         if (dataStreamConfig.isEnabled()) {
-            dataManager = new KafkaDataManager(uuid, engine);
+            if (dataStreamConfig.getType() == DataStreamConfig.Type.IN_MEMORY)
+                dataManager = new KafkaDataManager(uuid, engine, new MemoryBroker());
+            else
+                dataManager = new KafkaDataManager(uuid, engine);
             dataManager.setDataManagerListener(this::updateChannelsPositions);
 
+            // Latest contributions are collected as warm-up sentences
+            addToDataManager(warmer, dataManager);
+
             Aligner aligner = engine.getAligner();
             Decoder decoder = engine.getDecoder();
             ContextAnalyzer contextAnalyzer = engine.getContextAnalyzer();
@@ -317,12 +373,45 @@ public class ClusterNode {
         // ========================
 
         executor = hazelcast.getExecutorService(ClusterConstants.TRANSLATION_EXECUTOR_NAME);
+        dispatcher = new TaskDispatcher(hazelcast, executor);
+
+        int executorPoolSize = hazelcastConfig.getExecutorConfig(ClusterConstants.TRANSLATION_EXECUTOR_NAME).getPoolSize();
+        localExecutor = new LocalExecutor(decoderSlots, executorPoolSize);
+
+        ApiConfig apiConfig = nodeConfig.getNetworkConfig().getApiConfig();
+        completionExecutor = new CompletionExecutor(apiConfig.getCompletionThreads(), apiConfig.getCompletionQueueSize());
 
-        sessionManager = new SessionManager(hazelcast, event -> engine.getDecoder().closeSession(event.getOldValue()));
+        loadMonitorExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "LoadMonitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        loadMonitorExecutor.scheduleWithFixedDelay(new LoadMonitor(executor, localExecutor, engine.getDecoder(), hazelcast.getCluster().getLocalMember(), executorPoolSize),
+                0L, LOAD_MONITOR_INTERVAL, TimeUnit.MILLISECONDS);
+
+        sessionManager = new SessionManager(hazelcast, session -> engine.getDecoder().closeSession(session));
 
         decoderWeightsTopic = hazelcast.getTopic(ClusterConstants.DECODER_WEIGHTS_TOPIC_NAME);
         decoderWeightsTopic.addMessageListener(this::onDecoderWeightsChanged);
 
+        // ========================
+
+        if (warmer != null) {
+            setStatus(Status.WARMING);
+            logger.info("Engine warm-up started");
+
+            try {
+                long time = warmer.warmUp(executorPoolSize);
+                logger.info("Engine warm-up completed in " + (time / 1000.) + "s");
+            } catch (InterruptedException e) {
+                throw new BootstrapException("Engine warm-up interrupted", e);
+            }
+
+            // Contributions are no longer needed once the engine is warm
+            if (dataManager != null)
+                dataManager.removeDataListener(warmer);
+        }
+
         setStatus(Status.READY);
 
         logger.info("Node started in " + (globalTimer.time() / 1000.) + "s");
@@ -365,8 +454,79 @@ public class ClusterNode {
         return nodes;
     }
 
-    public <V> Future<V> submit(Callable<V> callable) {
-        return executor.submit(callable);
+    public int getTranslationCapacity() {
+        int poolSize = hazelcast.getConfig().getExecutorConfig(ClusterConstants.TRANSLATION_EXECUTOR_NAME).getPoolSize();
+        int readyNodes = 0;
+
+        for (NodeInfo node : getClusterNodes()) {
+            if (node.status == Status.READY)
+                readyNodes++;
+        }
+
+        return Math.max(1, readyNodes) * poolSize;
+    }
+
+    /**
+     * Submits a task that does not run the decoder (i.e. a context vector or a tag projection)
+     * to the least loaded member: the task does not hold any decoder slot.
+     */
+    public <V> CompletableFuture<V> submit(Callable<V> callable) {
+        requests.incrementAndGet();
+        return dispatcher.submit(callable);
+    }
+
+    /**
+     * Submits a task that runs the decoder: the task holds a decoder slot of the member
+     * that executes it, and it is executed locally as long as this node has free slots.
+     */
+    public <V> CompletableFuture<V> submitTranslation(Callable<V> callable) {
+        requests.incrementAndGet();
+
+        // Local execution avoids serialization, use it as long as this node has free decoder slots
+        if (getStatus() == Status.READY) {
+            CompletableFuture<V> future = localExecutor.trySubmit(callable);
+            if (future != null) {
+                localRequests.incrementAndGet();
+                return future;
+            }
+        }
+
+        return dispatcher.submit(new DecoderSlotCallable<>(callable));
+    }
+
+    /**
+     * Same as submitTranslation(Callable), but the task is bound to the given affinity key (i.e. the id
+     * of a translation session): tasks with the same key are executed by the same member, as long as it is READY.
+     */
+    public <V> CompletableFuture<V> submitTranslation(Callable<V> callable, long affinityKey) {
+        requests.incrementAndGet();
+
+        if (getStatus() == Status.READY) {
+            Member owner = dispatcher.getOwner(affinityKey);
+
+            if (owner == null || owner.localMember()) {
+                CompletableFuture<V> future = localExecutor.trySubmit(callable);
+                if (future != null) {
+                    localRequests.incrementAndGet();
+                    return future;
+                }
+            }
+        }
+
+        return dispatcher.submit(new DecoderSlotCallable<>(callable), affinityKey);
+    }
+
+    /**
+     * Returns the executor of the completion stages of the requests submitted to this node:
+     * blocking work that follows a task (post-processing, database lookups, responses)
+     * must run here, and not in the thread that completed the task.
+     */
+    public CompletionExecutor getCompletionExecutor() {
+        return completionExecutor;
+    }
+
+    public ExecutionStats getExecutionStats() {
+        return new ExecutionStats(requests.get(), localRequests.get());
     }
 
     public synchronized void shutdown() {
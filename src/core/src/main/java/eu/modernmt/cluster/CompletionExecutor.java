@@ -0,0 +1,121 @@
+package eu.modernmt.cluster;
+
+import java.util.concurrent.*;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Bounded pool for the completion stages of the requests (pre-processing, post-processing,
+ * database lookups, responses), so that they never run in the decoder or cluster threads.
+ * Stages are never run by the thread that completes a future: if the pool is saturated or
+ * shut down, the future of the stage is completed with a RejectedExecutionException, so that
+ * callers always get a result.
+ */
+public class CompletionExecutor {
+
+    private final ThreadPoolExecutor executor;
+
+    public CompletionExecutor(int threads, int queueSize) {
+        this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "CompletionExecutor");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Same as CompletableFuture.supplyAsync(supplier, this).
+     */
+    public <U> CompletableFuture<U> supply(Supplier<U> supplier) {
+        CompletableFuture<U> result = new CompletableFuture<>();
+        execute(result, () -> result.complete(supplier.get()));
+        return result;
+    }
+
+    /**
+     * Same as future.thenComposeAsync(fn, this): failures of the given future
+     * are propagated without running the function.
+     */
+    public <T, U> CompletableFuture<U> thenCompose(CompletableFuture<T> future, Function<? super T, ? extends CompletionStage<U>> fn) {
+        CompletableFuture<U> result = new CompletableFuture<>();
+
+        future.whenComplete((value, error) -> {
+            if (error != null) {
+                fail(result, error);
+            } else {
+                execute(result, () -> fn.apply(value).whenComplete((composed, composedError) -> {
+                    if (composedError != null)
+                        fail(result, composedError);
+                    else
+                        result.complete(composed);
+                }));
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Same as future.handleAsync(fn, this).
+     */
+    public <T, U> CompletableFuture<U> handle(CompletableFuture<T> future, BiFunction<? super T, Throwable, ? extends U> fn) {
+        CompletableFuture<U> result = new CompletableFuture<>();
+        future.whenComplete((value, error) -> execute(result, () -> result.complete(fn.apply(value, error))));
+        return result;
+    }
+
+    /**
+     * Stops the executor: the stages that are still queued fail with a RejectedExecutionException.
+     */
+    public void shutdownNow() {
+        for (Runnable runnable : executor.shutdownNow()) {
+            if (runnable instanceof Task)
+                ((Task) runnable).fail(new RejectedExecutionException("Completion executor has been shut down"));
+        }
+    }
+
+    private void execute(CompletableFuture<?> result, Runnable body) {
+        try {
+            executor.execute(new Task(result, body));
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    private static void fail(CompletableFuture<?> result, Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null)
+            error = error.getCause();
+
+        result.completeExceptionally(error);
+    }
+
+    private static final class Task implements Runnable {
+
+        private final CompletableFuture<?> result;
+        private final Runnable body;
+
+        private Task(CompletableFuture<?> result, Runnable body) {
+            this.result = result;
+            this.body = body;
+        }
+
+        @Override
+        public void run() {
+            try {
+                body.run();
+            } catch (Throwable e) {
+                fail(e);
+            }
+        }
+
+        private void fail(Throwable error) {
+            CompletionExecutor.fail(result, error);
+        }
+
+    }
+
+}
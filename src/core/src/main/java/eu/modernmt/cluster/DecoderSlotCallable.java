@@ -0,0 +1,53 @@
+package eu.modernmt.cluster;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.HazelcastInstanceAware;
+
+import java.io.Serializable;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wraps a task sent through the distributed executor: on the member that executes it,
+ * the task holds one of the decoder slots of that member, the same slots used by the
+ * {@link LocalExecutor}, so that local and remote tasks never exceed the decoder threads.
+ * If no slot is released within the timeout, the task is rejected and the dispatcher
+ * submits it to a different member.
+ */
+class DecoderSlotCallable<V> implements Callable<V>, Serializable, HazelcastInstanceAware {
+
+    private static final long SLOT_TIMEOUT = 30L; // seconds
+
+    private final Callable<V> callable;
+    private transient Semaphore slots;
+
+    public DecoderSlotCallable(Callable<V> callable) {
+        this.callable = callable;
+    }
+
+    @Override
+    public void setHazelcastInstance(HazelcastInstance hazelcast) {
+        this.slots = (Semaphore) hazelcast.getUserContext().get(ClusterConstants.DECODER_SLOTS_CONTEXT_KEY);
+
+        if (callable instanceof HazelcastInstanceAware)
+            ((HazelcastInstanceAware) callable).setHazelcastInstance(hazelcast);
+    }
+
+    @Override
+    public V call() throws Exception {
+        if (slots == null)
+            return callable.call();
+
+        if (!slots.tryAcquire(SLOT_TIMEOUT, TimeUnit.SECONDS))
+            throw new RejectedExecutionException("No decoder slot available within " + SLOT_TIMEOUT + "s");
+
+        try {
+            return callable.call();
+        } finally {
+            slots.release();
+        }
+    }
+
+}
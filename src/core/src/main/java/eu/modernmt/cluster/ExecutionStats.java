@@ -0,0 +1,27 @@
+package eu.modernmt.cluster;
+
+public class ExecutionStats {
+
+    private final long requests;
+    private final long localRequests;
+    private final double localRatio;
+
+    ExecutionStats(long requests, long localRequests) {
+        this.requests = requests;
+        this.localRequests = localRequests;
+        this.localRatio = requests > 0 ? ((double) localRequests) / requests : 0.;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public long getLocalRequests() {
+        return localRequests;
+    }
+
+    public double getLocalRatio() {
+        return localRatio;
+    }
+
+}
@@ -0,0 +1,89 @@
+package eu.modernmt.cluster;
+
+import com.hazelcast.core.IExecutorService;
+import com.hazelcast.core.Member;
+import com.hazelcast.monitor.LocalExecutorStats;
+import eu.modernmt.decoder.Decoder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Periodically publishes the load of the local translation executors
+ * (running and queued tasks, average execution time) as a member attribute,
+ * so that other members can dispatch their tasks to the least loaded node.
+ * The number of sessions held by the local decoder is published as well.
+ */
+class LoadMonitor implements Runnable {
+
+    private static final double SMOOTHING_FACTOR = .2;
+
+    private final Logger logger = LogManager.getLogger(LoadMonitor.class);
+
+    private final IExecutorService executor;
+    private final LocalExecutor localExecutor;
+    private final Decoder decoder;
+    private final Member member;
+    private final int threads;
+
+    private long completedTasks = 0L;
+    private long executionTime = 0L;
+    private double averageExecutionTime = 0.;
+    private NodeInfo.Load published = null;
+    private int publishedSessions = -1;
+
+    public LoadMonitor(IExecutorService executor, LocalExecutor localExecutor, Decoder decoder, Member member, int threads) {
+        this.executor = executor;
+        this.localExecutor = localExecutor;
+        this.decoder = decoder;
+        this.member = member;
+        this.threads = threads;
+    }
+
+    @Override
+    public void run() {
+        try {
+            publish();
+        } catch (RuntimeException e) {
+            logger.warn("Unable to publish node load", e);
+        }
+    }
+
+    private void publish() {
+        LocalExecutorStats stats = executor.getLocalExecutorStats();
+
+        long completed = stats.getCompletedTaskCount() + localExecutor.getCompletedTasks();
+        long time = stats.getTotalExecutionLatency() + localExecutor.getExecutionTime();
+
+        if (completed > completedTasks) {
+            double sample = ((double) (time - executionTime)) / (completed - completedTasks);
+
+            if (averageExecutionTime == 0.)
+                averageExecutionTime = sample;
+            else
+                averageExecutionTime = SMOOTHING_FACTOR * sample + (1. - SMOOTHING_FACTOR) * averageExecutionTime;
+
+            completedTasks = completed;
+            executionTime = time;
+        }
+
+        // Local and distributed tasks share the decoder slots: distributed tasks
+        // waiting for a slot are queued, even if the executor has already started them
+        int running = localExecutor.getRunningTasks();
+        int queued = (int) Math.max(0L, stats.getPendingTaskCount()) + localExecutor.getWaitingTasks();
+
+        NodeInfo.Load load = new NodeInfo.Load(threads, running, queued, Math.round(averageExecutionTime * 100.) / 100.);
+
+        if (!load.equals(published)) {
+            NodeInfo.updateLoadInMember(member, load);
+            published = load;
+        }
+
+        int sessions = decoder == null ? 0 : decoder.getActiveSessionCount();
+
+        if (sessions != publishedSessions) {
+            NodeInfo.updateSessionsInMember(member, sessions);
+            publishedSessions = sessions;
+        }
+    }
+
+}
@@ -0,0 +1,113 @@
+package eu.modernmt.cluster;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool that executes tasks directly on the local node, skipping the
+ * serialization and the hand-off of the distributed executor. A task is accepted
+ * only if the local node has a free decoder slot: slots are shared with the tasks
+ * received through the distributed executor (see {@link DecoderSlotCallable}).
+ */
+class LocalExecutor {
+
+    private final int threads;
+    private final Semaphore slots;
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong completedTasks = new AtomicLong(0L);
+    private final AtomicLong executionTime = new AtomicLong(0L);
+
+    public LocalExecutor(Semaphore slots, int threads) {
+        this.threads = threads;
+        this.slots = slots;
+        this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "LocalExecutor");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Executes the task locally if a decoder slot is available.
+     *
+     * @param callable the task to execute
+     * @return the future of the task or null if the local node is saturated
+     */
+    public <V> CompletableFuture<V> trySubmit(Callable<V> callable) {
+        // Unlike tryAcquire(), a zero timeout honors the fairness of the slots:
+        // local tasks never barge past the distributed tasks waiting for a slot
+        try {
+            if (!slots.tryAcquire(0L, TimeUnit.MILLISECONDS))
+                return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+
+        CompletableFuture<V> future = new CompletableFuture<>();
+
+        try {
+            executor.execute(() -> {
+                long begin = System.currentTimeMillis();
+
+                V result = null;
+                Throwable error = null;
+
+                try {
+                    result = callable.call();
+                } catch (Throwable e) {
+                    error = e;
+                } finally {
+                    executionTime.addAndGet(System.currentTimeMillis() - begin);
+                    completedTasks.incrementAndGet();
+                    slots.release();
+                }
+
+                // Dependent stages run in this thread: the slot must be released first
+                if (error == null)
+                    future.complete(result);
+                else
+                    future.completeExceptionally(error);
+            });
+        } catch (RejectedExecutionException e) {
+            slots.release();
+            return null;
+        }
+
+        return future;
+    }
+
+    /**
+     * @return the number of decoder slots in use, by local and distributed tasks
+     */
+    public int getRunningTasks() {
+        return threads - slots.availablePermits();
+    }
+
+    /**
+     * @return the number of distributed tasks waiting for a decoder slot
+     */
+    public int getWaitingTasks() {
+        return slots.getQueueLength();
+    }
+
+    public long getCompletedTasks() {
+        return completedTasks.get();
+    }
+
+    public long getExecutionTime() {
+        return executionTime.get();
+    }
+
+    public void shutdownNow() {
+        executor.shutdownNow();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+}
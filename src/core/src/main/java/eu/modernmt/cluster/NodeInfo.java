@@ -12,23 +12,106 @@ public class NodeInfo {
 
     private static final String STATUS_ATTRIBUTE = "NodeInfo.STATUS_ATTRIBUTE";
     private static final String DATA_CHANNELS_ATTRIBUTE = "NodeInfo.DATA_CHANNELS_ATTRIBUTE";
+    private static final String LOAD_ATTRIBUTE = "NodeInfo.LOAD_ATTRIBUTE";
+    private static final String SESSIONS_ATTRIBUTE = "NodeInfo.SESSIONS_ATTRIBUTE";
+
+    public static class Load {
+
+        public final int threads;
+        public final int running;
+        public final int queued;
+        public final double averageExecutionTime;
+
+        Load(int threads, int running, int queued, double averageExecutionTime) {
+            this.threads = threads;
+            this.running = running;
+            this.queued = queued;
+            this.averageExecutionTime = averageExecutionTime;
+        }
+
+        /**
+         * Estimates the time a new task would wait on this node before completion,
+         * in units of its average execution time.
+         *
+         * @return the estimated cost of sending a new task to this node
+         */
+        public double getCost() {
+            double executionTime = averageExecutionTime > 0 ? averageExecutionTime : 1.;
+            return executionTime * (running + queued + 1) / Math.max(1, threads);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Load load = (Load) o;
+
+            if (threads != load.threads) return false;
+            if (running != load.running) return false;
+            if (queued != load.queued) return false;
+            return Double.compare(load.averageExecutionTime, averageExecutionTime) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = threads;
+            result = 31 * result + running;
+            result = 31 * result + queued;
+            long temp = Double.doubleToLongBits(averageExecutionTime);
+            result = 31 * result + (int) (temp ^ (temp >>> 32));
+            return result;
+        }
+    }
 
     public final String uuid;
     public final ClusterNode.Status status;
     public final Map<Short, Long> channelsPositions;
+    public final Load load;
+    public final int sessions;
 
-    private NodeInfo(String uuid, ClusterNode.Status status, Map<Short, Long> channelsPositions) {
+    private NodeInfo(String uuid, ClusterNode.Status status, Map<Short, Long> channelsPositions, Load load, int sessions) {
         this.uuid = uuid;
         this.status = status;
         this.channelsPositions = channelsPositions;
+        this.load = load;
+        this.sessions = sessions;
     }
 
     static NodeInfo fromMember(Member member) {
         String uuid = member.getUuid();
         ClusterNode.Status status = ClusterNode.Status.valueOf(member.getStringAttribute(STATUS_ATTRIBUTE));
         Map<Short, Long> positions = fromString(member.getStringAttribute(DATA_CHANNELS_ATTRIBUTE));
+        Load load = loadFromString(member.getStringAttribute(LOAD_ATTRIBUTE));
+        Integer sessions = member.getIntAttribute(SESSIONS_ATTRIBUTE);
+
+        return new NodeInfo(uuid, status, positions, load, sessions == null ? 0 : sessions);
+    }
+
+    static ClusterNode.Status getStatusFromMember(Member member) {
+        String status = member.getStringAttribute(STATUS_ATTRIBUTE);
+        return status == null ? null : ClusterNode.Status.valueOf(status);
+    }
+
+    static Load getLoadFromMember(Member member) {
+        return loadFromString(member.getStringAttribute(LOAD_ATTRIBUTE));
+    }
+
+    static void updateLoadInMember(Member member, Load load) {
+        member.setStringAttribute(LOAD_ATTRIBUTE, load.threads + ":" + load.running + ":" + load.queued + ":" + load.averageExecutionTime);
+    }
+
+    static void updateSessionsInMember(Member member, int sessions) {
+        member.setIntAttribute(SESSIONS_ATTRIBUTE, sessions);
+    }
+
+    private static Load loadFromString(String encoded) {
+        if (encoded == null || encoded.isEmpty())
+            return null;
 
-        return new NodeInfo(uuid, status, positions);
+        String[] elements = encoded.split(":");
+        return new Load(Integer.parseInt(elements[0]), Integer.parseInt(elements[1]), Integer.parseInt(elements[2]),
+                Double.parseDouble(elements[3]));
     }
 
     static void updateStatusInMember(Member member, ClusterNode.Status status) {
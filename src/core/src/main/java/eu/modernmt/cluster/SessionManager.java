@@ -3,6 +3,9 @@ package eu.modernmt.cluster;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.core.IMap;
 import com.hazelcast.core.IdGenerator;
+import com.hazelcast.core.EntryEvent;
+import com.hazelcast.map.listener.EntryEvictedListener;
+import com.hazelcast.map.listener.EntryExpiredListener;
 import com.hazelcast.map.listener.EntryRemovedListener;
 import eu.modernmt.decoder.TranslationSession;
 import eu.modernmt.model.ContextVector;
@@ -10,6 +13,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Created by davide on 21/04/16.
@@ -21,10 +25,10 @@ public class SessionManager {
     private final IMap<Long, TranslationSessionImpl> sessions;
     private final IdGenerator idGenerator;
 
-    SessionManager(HazelcastInstance hazelcast, EntryRemovedListener<Long, TranslationSession> listener) {
+    SessionManager(HazelcastInstance hazelcast, Consumer<TranslationSession> closeListener) {
         this.idGenerator = hazelcast.getIdGenerator(ClusterConstants.TRANSLATION_SESSION_ID_GENERATOR_NAME);
         this.sessions = hazelcast.getMap(ClusterConstants.TRANSLATION_SESSION_MAP_NAME);
-        this.sessions.addEntryListener(listener, true);
+        this.sessions.addEntryListener(new SessionListener(closeListener), true);
     }
 
     public TranslationSession get(long id) {
@@ -42,6 +46,50 @@ public class SessionManager {
         return session;
     }
 
+    /**
+     * Notifies the sessions that have been closed, either explicitly or
+     * because they have been evicted from the map (idle or map full).
+     */
+    private static class SessionListener implements EntryRemovedListener<Long, TranslationSessionImpl>,
+            EntryEvictedListener<Long, TranslationSessionImpl>, EntryExpiredListener<Long, TranslationSessionImpl> {
+
+        private final Consumer<TranslationSession> closeListener;
+
+        private SessionListener(Consumer<TranslationSession> closeListener) {
+            this.closeListener = closeListener;
+        }
+
+        private void onClose(EntryEvent<Long, TranslationSessionImpl> event) {
+            TranslationSession session = event.getOldValue();
+
+            if (session == null) {
+                logger.warn("Closed session " + event.getKey() + " has no value");
+                return;
+            }
+
+            try {
+                closeListener.accept(session);
+            } catch (RuntimeException e) {
+                logger.error("Unable to close session " + session.getId(), e);
+            }
+        }
+
+        @Override
+        public void entryRemoved(EntryEvent<Long, TranslationSessionImpl> event) {
+            onClose(event);
+        }
+
+        @Override
+        public void entryEvicted(EntryEvent<Long, TranslationSessionImpl> event) {
+            onClose(event);
+        }
+
+        @Override
+        public void entryExpired(EntryEvent<Long, TranslationSessionImpl> event) {
+            onClose(event);
+        }
+    }
+
     private static class TranslationSessionImpl extends TranslationSession {
 
         transient Map<Long, TranslationSessionImpl> sessionMap;
@@ -0,0 +1,192 @@
+package eu.modernmt.cluster;
+
+import com.hazelcast.core.ExecutionCallback;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IExecutorService;
+import com.hazelcast.core.Member;
+import com.hazelcast.core.MemberLeftException;
+import com.hazelcast.spi.exception.TargetNotMemberException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.*;
+
+/**
+ * Sends tasks to the translation executor choosing the target member with
+ * the "power of two choices" strategy: two READY members are picked at random
+ * and the task is sent to the one with the lowest published load.
+ * If a member rejects the task (or leaves the cluster) the task is
+ * submitted again to a different member.
+ * <p>
+ * Tasks with an affinity key (i.e. the id of a translation session) are
+ * always sent to the same member, chosen by rendezvous hashing of the key over
+ * the READY members: when the owner leaves, only its keys move to other members.
+ */
+class TaskDispatcher {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final Logger logger = LogManager.getLogger(TaskDispatcher.class);
+
+    private final HazelcastInstance hazelcast;
+    private final IExecutorService executor;
+
+    public TaskDispatcher(HazelcastInstance hazelcast, IExecutorService executor) {
+        this.hazelcast = hazelcast;
+        this.executor = executor;
+    }
+
+    public <V> CompletableFuture<V> submit(Callable<V> callable) {
+        return submit(callable, null);
+    }
+
+    public <V> CompletableFuture<V> submit(Callable<V> callable, Long affinityKey) {
+        DispatchedTask<V> task = new DispatchedTask<>(callable, affinityKey);
+        task.submit(null);
+        return task.future;
+    }
+
+    /**
+     * Returns the member that owns the given affinity key among the READY members.
+     *
+     * @param affinityKey the affinity key
+     * @return the owner of the key or null if no member is READY
+     */
+    public Member getOwner(long affinityKey) {
+        return getOwner(affinityKey, getCandidates(null));
+    }
+
+    private ArrayList<Member> getCandidates(HashSet<Member> excluded) {
+        ArrayList<Member> candidates = new ArrayList<>();
+        for (Member member : hazelcast.getCluster().getMembers()) {
+            if ((excluded == null || !excluded.contains(member)) && NodeInfo.getStatusFromMember(member) == ClusterNode.Status.READY)
+                candidates.add(member);
+        }
+
+        return candidates;
+    }
+
+    private static Member getOwner(long affinityKey, ArrayList<Member> candidates) {
+        Member owner = null;
+        long maxWeight = 0L;
+
+        for (Member member : candidates) {
+            long weight = hash(affinityKey * 31L + member.getUuid().hashCode());
+
+            if (owner == null || weight > maxWeight) {
+                owner = member;
+                maxWeight = weight;
+            }
+        }
+
+        return owner;
+    }
+
+    private static long hash(long value) {
+        // MurmurHash3 64-bit finalizer
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    private Member select(HashSet<Member> excluded, Long affinityKey) {
+        ArrayList<Member> candidates = getCandidates(excluded);
+
+        if (affinityKey != null)
+            return getOwner(affinityKey, candidates);
+
+        int size = candidates.size();
+
+        if (size == 0)
+            return null;
+        if (size == 1)
+            return candidates.get(0);
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = random.nextInt(size);
+        int j = random.nextInt(size - 1);
+        if (j >= i)
+            j++;
+
+        Member a = candidates.get(i);
+        Member b = candidates.get(j);
+
+        return getCost(a) <= getCost(b) ? a : b;
+    }
+
+    private static double getCost(Member member) {
+        NodeInfo.Load load = NodeInfo.getLoadFromMember(member);
+        return load == null ? 0. : load.getCost();
+    }
+
+    private static boolean isRejection(Throwable e) {
+        return e instanceof RejectedExecutionException ||
+                e instanceof MemberLeftException ||
+                e instanceof TargetNotMemberException;
+    }
+
+    private class DispatchedTask<V> implements ExecutionCallback<V> {
+
+        private final Callable<V> callable;
+        private final Long affinityKey;
+        private final HashSet<Member> attempted = new HashSet<>();
+        private final CompletableFuture<V> future = new CompletableFuture<>();
+
+        public DispatchedTask(Callable<V> callable, Long affinityKey) {
+            this.callable = callable;
+            this.affinityKey = affinityKey;
+        }
+
+        private synchronized void submit(Throwable rejection) {
+            // Excluding the members already attempted, the next owner of the key is selected
+            Member member = select(attempted, affinityKey);
+
+            if (member == null) {
+                if (rejection != null) {
+                    // No other member available, reporting the last rejection
+                    future.completeExceptionally(rejection);
+                } else {
+                    // No member is READY yet, let the executor choose
+                    executor.submit(callable, this);
+                }
+
+                return;
+            }
+
+            attempted.add(member);
+
+            try {
+                executor.submitToMember(callable, member, this);
+            } catch (RuntimeException e) {
+                onFailure(e);
+            }
+        }
+
+        @Override
+        public void onResponse(V response) {
+            future.complete(response);
+        }
+
+        @Override
+        public void onFailure(Throwable t) {
+            if (t instanceof ExecutionException && t.getCause() != null)
+                t = t.getCause();
+
+            if (isRejection(t) && attempted.size() < MAX_ATTEMPTS) {
+                if (logger.isDebugEnabled())
+                    logger.debug("Task rejected, submitting to a different member", t);
+
+                submit(t);
+            } else {
+                future.completeExceptionally(t);
+            }
+        }
+
+    }
+
+}
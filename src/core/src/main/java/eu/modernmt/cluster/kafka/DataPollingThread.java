@@ -4,15 +4,20 @@ import eu.modernmt.aligner.AlignerException;
 import eu.modernmt.data.*;
 import eu.modernmt.engine.Engine;
 import eu.modernmt.processing.ProcessingException;
+import eu.modernmt.stats.Counter;
+import eu.modernmt.stats.Gauge;
+import eu.modernmt.stats.LatencyHistogram;
+import eu.modernmt.stats.Metrics;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
-import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.common.errors.WakeupException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -20,14 +25,19 @@ import java.util.concurrent.TimeUnit;
  */
 class DataPollingThread extends Thread {
 
+    private static final Counter batchCount = Metrics.counter(Metrics.DATASTREAM_BATCHES);
+    private static final Counter messageCount = Metrics.counter(Metrics.DATASTREAM_MESSAGES);
+    private static final Gauge batchSize = Metrics.gauge(Metrics.DATASTREAM_BATCH_SIZE);
+    private static final LatencyHistogram deliveryLatency = Metrics.histogram(Metrics.DATASTREAM_DELIVERY);
+
     private final Logger logger = LogManager.getLogger(KafkaDataManager.class);
 
     private final DataBatch batch;
 
     private DataManagerException exception;
-    private KafkaConsumer<Integer, KafkaElement> consumer;
+    private Consumer<Integer, KafkaElement> consumer;
     private boolean interrupted;
-    private final ArrayList<DataListener> listeners = new ArrayList<>(10);
+    private final List<DataListener> listeners = new CopyOnWriteArrayList<>();
     private DataManager.Listener dataManagerListener = null;
 
     public DataPollingThread(Engine engine) {
@@ -50,7 +60,11 @@ class DataPollingThread extends Thread {
         this.listeners.add(listener);
     }
 
-    public void start(KafkaConsumer<Integer, KafkaElement> consumer) {
+    public void removeListener(DataListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    public void start(Consumer<Integer, KafkaElement> consumer) {
         this.consumer = consumer;
         this.interrupted = false;
 
@@ -116,12 +130,20 @@ class DataPollingThread extends Thread {
                 if (logger.isDebugEnabled())
                     logger.debug("Delivering batch of " + batch.size() + " updates");
 
+                batchCount.increment();
+                messageCount.add(batch.size());
+                batchSize.set(batch.size());
+
+                long begin = System.nanoTime();
+
                 try {
                     deliverBatch(batch);
                 } catch (Throwable e) {
                     logger.error("Failed to delivery updates", e);
                 }
 
+                deliveryLatency.recordSince(begin);
+
                 if (dataManagerListener != null)
                     dataManagerListener.onDataBatchProcessed(batch.getBatchOffset());
 
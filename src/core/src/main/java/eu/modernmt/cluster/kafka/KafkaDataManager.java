@@ -5,8 +5,10 @@ import eu.modernmt.engine.Engine;
 import eu.modernmt.model.ImportJob;
 import eu.modernmt.model.corpus.BilingualCorpus;
 import org.apache.commons.io.IOUtils;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
 import org.apache.kafka.common.TopicPartition;
@@ -54,12 +56,23 @@ public class KafkaDataManager implements DataManager {
 
     private final String uuid;
     private final DataPollingThread pollingThread;
+    private final MemoryBroker broker;
 
-    private KafkaConsumer<Integer, KafkaElement> consumer;
-    private KafkaProducer<Integer, KafkaElement> producer;
+    private Consumer<Integer, KafkaElement> consumer;
+    private Producer<Integer, KafkaElement> producer;
+    private LagMonitor lagMonitor;
 
     public KafkaDataManager(String uuid, Engine engine) {
+        this(uuid, engine, null);
+    }
+
+    /**
+     * @param broker the in-process broker to use instead of a Kafka server,
+     *               or null to connect to the host given to {@link #connect(String, int, long, TimeUnit)}
+     */
+    public KafkaDataManager(String uuid, Engine engine, MemoryBroker broker) {
         this.uuid = uuid;
+        this.broker = broker;
         this.pollingThread = new DataPollingThread(engine);
     }
 
@@ -87,13 +100,21 @@ public class KafkaDataManager implements DataManager {
 
     @Override
     public Map<Short, Long> connect(String host, int port, long timeout, TimeUnit unit) throws HostUnreachableException {
-        Properties producerProperties = loadProperties("kafka-producer.properties", host, port);
-        this.producer = new KafkaProducer<>(producerProperties);
+        Properties consumerProperties = null;
+
+        if (broker == null) {
+            Properties producerProperties = loadProperties("kafka-producer.properties", host, port);
+            this.producer = new KafkaProducer<>(producerProperties);
 
-        Properties consumerProperties = loadProperties("kafka-consumer.properties", host, port);
-        consumerProperties.put("group.id", uuid);
+            consumerProperties = loadProperties("kafka-consumer.properties", host, port);
+            consumerProperties.put("group.id", uuid);
+
+            this.consumer = new KafkaConsumer<>(consumerProperties);
+        } else {
+            this.producer = broker.createProducer();
+            this.consumer = broker.createConsumer();
+        }
 
-        this.consumer = new KafkaConsumer<>(consumerProperties);
         this.consumer.assign(PARTITIONS);
 
         ConnectionThread connectThread = new ConnectionThread();
@@ -110,6 +131,12 @@ public class KafkaDataManager implements DataManager {
 
         this.pollingThread.start(this.consumer);
 
+        Consumer<Integer, KafkaElement> monitorConsumer = broker == null ?
+                new KafkaConsumer<>(consumerProperties) : broker.createConsumer();
+
+        this.lagMonitor = new LagMonitor(monitorConsumer, pollingThread);
+        this.lagMonitor.start();
+
         return connectThread.getLatestPositions();
     }
 
@@ -123,6 +150,11 @@ public class KafkaDataManager implements DataManager {
         pollingThread.addListener(listener);
     }
 
+    @Override
+    public void removeDataListener(DataListener listener) {
+        pollingThread.removeListener(listener);
+    }
+
     @Override
     public ImportJob upload(int domainId, BilingualCorpus corpus, short channel) throws DataManagerException {
         return upload(domainId, corpus, getDataChannel(channel));
@@ -278,6 +310,9 @@ public class KafkaDataManager implements DataManager {
 
     @Override
     public void close() throws IOException {
+        if (lagMonitor != null)
+            lagMonitor.shutdown();
+
         IOUtils.closeQuietly(consumer);
         IOUtils.closeQuietly(producer);
 
@@ -0,0 +1,93 @@
+package eu.modernmt.cluster.kafka;
+
+import eu.modernmt.stats.Gauge;
+import eu.modernmt.stats.Metrics;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically publishes the lag of the data stream, for every channel: the
+ * difference between the end offset of the channel and the position reached by
+ * the data listeners of this node. The end offsets are read with a dedicated
+ * consumer, so that a stalled polling thread does not stop the monitor.
+ */
+class LagMonitor implements Runnable {
+
+    private static final long INTERVAL = 10L; // seconds
+
+    private final Logger logger = LogManager.getLogger(LagMonitor.class);
+
+    private final Consumer<Integer, KafkaElement> consumer;
+    private final DataPollingThread pollingThread;
+    private final ArrayList<TopicPartition> partitions = new ArrayList<>(KafkaDataManager.CHANNELS.length);
+    private final Gauge[] lags = new Gauge[KafkaDataManager.CHANNELS.length];
+    private final ScheduledExecutorService scheduler;
+
+    public LagMonitor(Consumer<Integer, KafkaElement> consumer, DataPollingThread pollingThread) {
+        this.consumer = consumer;
+        this.pollingThread = pollingThread;
+
+        for (int i = 0; i < KafkaDataManager.CHANNELS.length; i++) {
+            KafkaChannel channel = KafkaDataManager.CHANNELS[i];
+
+            this.partitions.add(channel.getTopicPartition());
+            this.lags[i] = Metrics.gauge(Metrics.DATASTREAM_LAG, "channel", channel.getName());
+        }
+
+        this.consumer.assign(partitions);
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "LagMonitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this, 0L, INTERVAL, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void run() {
+        try {
+            consumer.seekToEnd(partitions);
+            Map<Short, Long> positions = pollingThread.getCurrentPositions();
+
+            for (int i = 0; i < KafkaDataManager.CHANNELS.length; i++) {
+                KafkaChannel channel = KafkaDataManager.CHANNELS[i];
+
+                long end = consumer.position(channel.getTopicPartition());
+                Long position = positions.get(channel.getId());
+
+                lags[i].set(Math.max(0L, end - (position == null ? 0L : position)));
+            }
+        } catch (WakeupException e) {
+            // Shutdown request
+        } catch (RuntimeException e) {
+            logger.warn("Unable to compute data stream lag", e);
+        }
+    }
+
+    public void shutdown() {
+        scheduler.shutdown();
+        consumer.wakeup();
+
+        try {
+            scheduler.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            // Ignore it
+        }
+
+        consumer.close();
+    }
+
+}
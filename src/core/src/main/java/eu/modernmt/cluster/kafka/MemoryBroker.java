@@ -0,0 +1,225 @@
+package eu.modernmt.cluster.kafka;
+
+import org.apache.kafka.clients.consumer.*;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process stand-in for a Kafka broker, used to run a node without an external data stream
+ * (load tests, development). Elements are stored serialized, as Kafka does, and are delivered
+ * through the same {@link KafkaDataManager} code path used with a real broker.
+ * Nothing is persisted: the content of the channels is lost when the process ends.
+ */
+public class MemoryBroker {
+
+    private static final int MAX_POLL_RECORDS = 1000;
+
+    private final HashMap<TopicPartition, ArrayList<byte[]>> logs = new HashMap<>();
+
+    private synchronized long append(TopicPartition partition, KafkaElement element) {
+        ArrayList<byte[]> log = logs.computeIfAbsent(partition, key -> new ArrayList<>());
+        log.add(element.toBytes());
+
+        this.notifyAll();
+
+        return log.size() - 1;
+    }
+
+    private synchronized long getEndOffset(TopicPartition partition) {
+        ArrayList<byte[]> log = logs.get(partition);
+        return log == null ? 0L : log.size();
+    }
+
+    Producer<Integer, KafkaElement> createProducer() {
+        return new MemoryProducer();
+    }
+
+    Consumer<Integer, KafkaElement> createConsumer() {
+        return new MemoryConsumer();
+    }
+
+    private class MemoryProducer implements Producer<Integer, KafkaElement> {
+
+        @Override
+        public Future<RecordMetadata> send(ProducerRecord<Integer, KafkaElement> record) {
+            return send(record, null);
+        }
+
+        @Override
+        public Future<RecordMetadata> send(ProducerRecord<Integer, KafkaElement> record, Callback callback) {
+            TopicPartition partition = new TopicPartition(record.topic(), record.partition() == null ? 0 : record.partition());
+            long offset = append(partition, record.value());
+
+            RecordMetadata metadata = new RecordMetadata(partition, offset, 0L);
+            if (callback != null)
+                callback.onCompletion(metadata, null);
+
+            return CompletableFuture.completedFuture(metadata);
+        }
+
+        @Override
+        public void flush() {
+            // Nothing to do
+        }
+
+        @Override
+        public List<PartitionInfo> partitionsFor(String topic) {
+            return Collections.singletonList(new PartitionInfo(topic, 0, null, null, null));
+        }
+
+        @Override
+        public Map<MetricName, ? extends Metric> metrics() {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public void close() {
+            // Nothing to do
+        }
+
+        @Override
+        public void close(long timeout, TimeUnit unit) {
+            // Nothing to do
+        }
+    }
+
+    /**
+     * Only the methods used by {@link KafkaDataManager} are implemented,
+     * the others are inherited from the Kafka {@link MockConsumer}.
+     */
+    private class MemoryConsumer extends MockConsumer<Integer, KafkaElement> {
+
+        private final ConcurrentHashMap<TopicPartition, Long> positions = new ConcurrentHashMap<>();
+        private volatile boolean wakeup = false;
+
+        public MemoryConsumer() {
+            super(OffsetResetStrategy.EARLIEST);
+        }
+
+        @Override
+        public void assign(Collection<TopicPartition> partitions) {
+            positions.clear();
+
+            for (TopicPartition partition : partitions)
+                positions.put(partition, 0L);
+        }
+
+        @Override
+        public Set<TopicPartition> assignment() {
+            return Collections.unmodifiableSet(positions.keySet());
+        }
+
+        @Override
+        public void seek(TopicPartition partition, long offset) {
+            positions.put(partition, offset);
+        }
+
+        @Override
+        public void seekToBeginning(Collection<TopicPartition> partitions) {
+            for (TopicPartition partition : partitions)
+                positions.put(partition, 0L);
+        }
+
+        @Override
+        public void seekToEnd(Collection<TopicPartition> partitions) {
+            checkWakeup();
+
+            for (TopicPartition partition : partitions)
+                positions.put(partition, getEndOffset(partition));
+        }
+
+        @Override
+        public long position(TopicPartition partition) {
+            Long position = positions.get(partition);
+            if (position == null)
+                throw new IllegalArgumentException("You can only check the position for partitions assigned to this consumer.");
+
+            return position;
+        }
+
+        @Override
+        public ConsumerRecords<Integer, KafkaElement> poll(long timeout) {
+            long expiration = System.currentTimeMillis() + timeout;
+            if (expiration < 0) // overflow
+                expiration = Long.MAX_VALUE;
+
+            synchronized (MemoryBroker.this) {
+                while (true) {
+                    checkWakeup();
+
+                    HashMap<TopicPartition, List<ConsumerRecord<Integer, KafkaElement>>> records = null;
+
+                    for (Map.Entry<TopicPartition, Long> entry : positions.entrySet()) {
+                        TopicPartition partition = entry.getKey();
+                        ArrayList<byte[]> log = logs.get(partition);
+
+                        long position = entry.getValue();
+                        if (log == null || position >= log.size())
+                            continue;
+
+                        int end = (int) Math.min(log.size(), position + MAX_POLL_RECORDS);
+                        ArrayList<ConsumerRecord<Integer, KafkaElement>> list = new ArrayList<>(end - (int) position);
+
+                        for (int offset = (int) position; offset < end; offset++) {
+                            KafkaElement element = KafkaElement.fromBytes(log.get(offset));
+                            list.add(new ConsumerRecord<>(partition.topic(), partition.partition(), offset, 0, element));
+                        }
+
+                        if (records == null)
+                            records = new HashMap<>();
+                        records.put(partition, list);
+                        entry.setValue((long) end);
+                    }
+
+                    if (records != null)
+                        return new ConsumerRecords<>(records);
+
+                    long wait = expiration - System.currentTimeMillis();
+                    if (wait <= 0)
+                        return ConsumerRecords.empty();
+
+                    try {
+                        MemoryBroker.this.wait(wait);
+                    } catch (InterruptedException e) {
+                        throw new WakeupException();
+                    }
+                }
+            }
+        }
+
+        private void checkWakeup() {
+            if (wakeup) {
+                wakeup = false;
+                throw new WakeupException();
+            }
+        }
+
+        @Override
+        public void wakeup() {
+            wakeup = true;
+
+            synchronized (MemoryBroker.this) {
+                MemoryBroker.this.notifyAll();
+            }
+        }
+
+        @Override
+        public void close() {
+            positions.clear();
+        }
+    }
+
+}
@@ -9,6 +9,8 @@ public class ApiConfig {
     private String listeningInterface = null;
     private int port = 8045;
     private String apiRoot = null;
+    private int completionThreads = Runtime.getRuntime().availableProcessors();
+    private int completionQueueSize = 10000;
 
     public boolean isEnabled() {
         return enabled;
@@ -42,12 +44,37 @@ public class ApiConfig {
         this.apiRoot = apiRoot;
     }
 
+    /**
+     * @return the number of threads that complete the requests (pre-processing, post-processing, responses)
+     */
+    public int getCompletionThreads() {
+        return completionThreads;
+    }
+
+    public void setCompletionThreads(int completionThreads) {
+        this.completionThreads = completionThreads;
+    }
+
+    /**
+     * @return the maximum number of request completions waiting for a thread;
+     * requests beyond this limit are rejected
+     */
+    public int getCompletionQueueSize() {
+        return completionQueueSize;
+    }
+
+    public void setCompletionQueueSize(int completionQueueSize) {
+        this.completionQueueSize = completionQueueSize;
+    }
+
     @Override
     public String toString() {
         return "[Api]\n" +
                 "  enabled = " + enabled + "\n" +
                 "  interface = " + listeningInterface + "\n" +
                 "  port = " + port + "\n" +
-                "  root = " + apiRoot;
+                "  root = " + apiRoot + "\n" +
+                "  completion-threads = " + completionThreads + "\n" +
+                "  completion-queue-size = " + completionQueueSize;
     }
 }
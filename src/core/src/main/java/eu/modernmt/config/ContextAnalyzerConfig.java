@@ -0,0 +1,53 @@
+package eu.modernmt.config;
+
+public class ContextAnalyzerConfig {
+
+    private static final int DEFAULT_SIMILARITY_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    private int similarityThreads = DEFAULT_SIMILARITY_THREADS;
+    private int similarityQueueSize = 1000;
+    private int cacheSize = 1000;
+
+    /**
+     * @return the number of threads, shared by all the queries, that compute the
+     * cosine similarity between the query and the candidate domains
+     */
+    public int getSimilarityThreads() {
+        return similarityThreads;
+    }
+
+    public void setSimilarityThreads(int similarityThreads) {
+        this.similarityThreads = similarityThreads;
+    }
+
+    /**
+     * @return the maximum number of similarity tasks waiting for a thread:
+     * when the queue is full, the query thread computes the similarity itself
+     */
+    public int getSimilarityQueueSize() {
+        return similarityQueueSize;
+    }
+
+    public void setSimilarityQueueSize(int similarityQueueSize) {
+        this.similarityQueueSize = similarityQueueSize;
+    }
+
+    /**
+     * @return the maximum number of context vectors cached by every node, 0 to disable the cache
+     */
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    public void setCacheSize(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    @Override
+    public String toString() {
+        return "[Context analyzer]\n" +
+                "  similarity-threads = " + similarityThreads + "\n" +
+                "  similarity-queue-size = " + similarityQueueSize + "\n" +
+                "  cache-size = " + cacheSize;
+    }
+}
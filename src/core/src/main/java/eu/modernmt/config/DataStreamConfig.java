@@ -6,7 +6,11 @@ package eu.modernmt.config;
 public class DataStreamConfig {
 
     public enum Type {
-        EMBEDDED, STANDALONE
+        EMBEDDED, STANDALONE,
+        /**
+         * In-process broker, no Kafka server required (load tests and development only)
+         */
+        IN_MEMORY
     }
 
     private boolean enabled = true;
@@ -16,6 +16,11 @@ public class DecoderConfig {
 
     private boolean enabled = true;
     private int threads = DEFAULT_THREADS;
+    private int cacheSize = 10000;
+    private int maxSessions = 10000;
+    private int sessionTimeout = 30 * 60;
+    private int warmUpSize = 200;
+    private String warmUpFile = null;
 
     public boolean isEnabled() {
         return enabled;
@@ -33,10 +38,61 @@ public class DecoderConfig {
         this.threads = thread;
     }
 
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    public void setCacheSize(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    public int getMaxSessions() {
+        return maxSessions;
+    }
+
+    public void setMaxSessions(int maxSessions) {
+        this.maxSessions = maxSessions;
+    }
+
+    /**
+     * @return the idle time in seconds after which a translation session is closed, 0 for no timeout
+     */
+    public int getSessionTimeout() {
+        return sessionTimeout;
+    }
+
+    public void setSessionTimeout(int sessionTimeout) {
+        this.sessionTimeout = sessionTimeout;
+    }
+
+    /**
+     * @return the maximum number of sentences translated during the engine warm-up, 0 to disable the warm-up
+     */
+    public int getWarmUpSize() {
+        return warmUpSize;
+    }
+
+    public void setWarmUpSize(int warmUpSize) {
+        this.warmUpSize = warmUpSize;
+    }
+
+    public String getWarmUpFile() {
+        return warmUpFile;
+    }
+
+    public void setWarmUpFile(String warmUpFile) {
+        this.warmUpFile = warmUpFile;
+    }
+
     @Override
     public String toString() {
         return "[Decoder]\n" +
                 "  threads = " + threads + "\n" +
+                "  cache-size = " + cacheSize + "\n" +
+                "  max-sessions = " + maxSessions + "\n" +
+                "  session-timeout = " + sessionTimeout + "\n" +
+                "  warmup-size = " + warmUpSize + "\n" +
+                (warmUpFile == null ? "" : "  warmup-file = " + warmUpFile + "\n") +
                 "  enabled = " + enabled;
     }
 }
@@ -11,6 +11,8 @@ public class EngineConfig {
     private Locale sourceLanguage = null;
     private Locale targetLanguage = null;
     private final DecoderConfig decoderConfig = new DecoderConfig();
+    private final ContextAnalyzerConfig contextAnalyzerConfig = new ContextAnalyzerConfig();
+    private final StubConfig stubConfig = new StubConfig();
 
     public String getName() {
         return name;
@@ -43,12 +45,22 @@ public class EngineConfig {
         return decoderConfig;
     }
 
+    public ContextAnalyzerConfig getContextAnalyzerConfig() {
+        return contextAnalyzerConfig;
+    }
+
+    public StubConfig getStubConfig() {
+        return stubConfig;
+    }
+
     @Override
     public String toString() {
         return "[Engine]\n" +
                 "  name = " + name + "\n" +
                 "  source-language = " + sourceLanguage.toLanguageTag() + "\n" +
                 "  target-language = " + targetLanguage.toLanguageTag() + "\n" +
-                "  " + decoderConfig.toString().replace("\n", "\n  ");
+                "  " + decoderConfig.toString().replace("\n", "\n  ") + "\n" +
+                "  " + contextAnalyzerConfig.toString().replace("\n", "\n  ") +
+                (stubConfig.isEnabled() ? "\n  " + stubConfig.toString().replace("\n", "\n  ") : "");
     }
 }
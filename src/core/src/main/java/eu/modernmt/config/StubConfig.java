@@ -0,0 +1,89 @@
+package eu.modernmt.config;
+
+/**
+ * Configuration of the pure-Java stand-ins for the native models (decoder, aligner
+ * and vocabulary), used to load test the node without trained models.
+ */
+public class StubConfig {
+
+    private boolean enabled = false;
+    private int decoderLatency = 50;
+    private float decoderWordLatency = 5.f;
+    private float jitter = .2f;
+    private float alignerLatency = .5f;
+    private float lengthRatio = 1.f;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return the fixed part of the time in milliseconds spent by the decoder on every sentence
+     */
+    public int getDecoderLatency() {
+        return decoderLatency;
+    }
+
+    public void setDecoderLatency(int decoderLatency) {
+        this.decoderLatency = decoderLatency;
+    }
+
+    /**
+     * @return the time in milliseconds spent by the decoder on every source word
+     */
+    public float getDecoderWordLatency() {
+        return decoderWordLatency;
+    }
+
+    public void setDecoderWordLatency(float decoderWordLatency) {
+        this.decoderWordLatency = decoderWordLatency;
+    }
+
+    /**
+     * @return the maximum relative deviation of the latencies from their nominal value
+     */
+    public float getJitter() {
+        return jitter;
+    }
+
+    public void setJitter(float jitter) {
+        this.jitter = jitter;
+    }
+
+    /**
+     * @return the time in milliseconds spent by the aligner on every sentence pair
+     */
+    public float getAlignerLatency() {
+        return alignerLatency;
+    }
+
+    public void setAlignerLatency(float alignerLatency) {
+        this.alignerLatency = alignerLatency;
+    }
+
+    /**
+     * @return the ratio between the length of the translations and the length of the source sentences
+     */
+    public float getLengthRatio() {
+        return lengthRatio;
+    }
+
+    public void setLengthRatio(float lengthRatio) {
+        this.lengthRatio = lengthRatio;
+    }
+
+    @Override
+    public String toString() {
+        return "[Stub]\n" +
+                "  decoder-latency = " + decoderLatency + "\n" +
+                "  decoder-word-latency = " + decoderWordLatency + "\n" +
+                "  jitter = " + jitter + "\n" +
+                "  aligner-latency = " + alignerLatency + "\n" +
+                "  length-ratio = " + lengthRatio + "\n" +
+                "  enabled = " + enabled;
+    }
+}
@@ -108,6 +108,15 @@ abstract class XMLAbstractBuilder {
         return getIntAttribute(element, attr);
     }
 
+    protected static float getFloatAttribute(Element element, String attr) {
+        String value = getStringAttribute(element, attr);
+        return value == null ? 0.f : Float.parseFloat(value);
+    }
+
+    protected float getFloatAttribute(String attr) {
+        return getFloatAttribute(element, attr);
+    }
+
     protected static Locale getLocaleAttribute(Element element, String attr) {
         String value = getStringAttribute(element, attr);
         return value == null ? null : Locale.forLanguageTag(value);
@@ -1,8 +1,10 @@
 package eu.modernmt.config.xml;
 
 import eu.modernmt.config.ConfigException;
+import eu.modernmt.config.ContextAnalyzerConfig;
 import eu.modernmt.config.DecoderConfig;
 import eu.modernmt.config.EngineConfig;
+import eu.modernmt.config.StubConfig;
 import org.w3c.dom.Element;
 
 /**
@@ -11,10 +13,14 @@ import org.w3c.dom.Element;
 class XMLEngineConfigBuilder extends XMLAbstractBuilder {
 
     private final XMLDecoderConfigBuilder decoderConfigBuilder;
+    private final XMLContextAnalyzerConfigBuilder contextAnalyzerConfigBuilder;
+    private final XMLStubConfigBuilder stubConfigBuilder;
 
     public XMLEngineConfigBuilder(Element element) {
         super(element);
         decoderConfigBuilder = new XMLDecoderConfigBuilder(getChild("decoder"));
+        contextAnalyzerConfigBuilder = new XMLContextAnalyzerConfigBuilder(getChild("context-analyzer"));
+        stubConfigBuilder = new XMLStubConfigBuilder(getChild("stub"));
     }
 
     public EngineConfig build(EngineConfig config) throws ConfigException {
@@ -24,6 +30,8 @@ class XMLEngineConfigBuilder extends XMLAbstractBuilder {
             config.setTargetLanguage(getLocaleAttribute("target-language"));
 
         decoderConfigBuilder.build(config.getDecoderConfig());
+        contextAnalyzerConfigBuilder.build(config.getContextAnalyzerConfig());
+        stubConfigBuilder.build(config.getStubConfig());
 
         return config;
     }
@@ -39,6 +47,58 @@ class XMLEngineConfigBuilder extends XMLAbstractBuilder {
                 config.setEnabled(getBooleanAttribute("enabled"));
             if (hasAttribute("threads"))
                 config.setThreads(getIntAttribute("threads"));
+            if (hasAttribute("cache-size"))
+                config.setCacheSize(getIntAttribute("cache-size"));
+            if (hasAttribute("max-sessions"))
+                config.setMaxSessions(getIntAttribute("max-sessions"));
+            if (hasAttribute("session-timeout"))
+                config.setSessionTimeout(getIntAttribute("session-timeout"));
+            if (hasAttribute("warmup-size"))
+                config.setWarmUpSize(getIntAttribute("warmup-size"));
+            if (hasAttribute("warmup-file"))
+                config.setWarmUpFile(getStringAttribute("warmup-file"));
+
+            return config;
+        }
+    }
+
+    private static class XMLContextAnalyzerConfigBuilder extends XMLAbstractBuilder {
+
+        public XMLContextAnalyzerConfigBuilder(Element element) {
+            super(element);
+        }
+
+        public ContextAnalyzerConfig build(ContextAnalyzerConfig config) throws ConfigException {
+            if (hasAttribute("similarity-threads"))
+                config.setSimilarityThreads(getIntAttribute("similarity-threads"));
+            if (hasAttribute("similarity-queue-size"))
+                config.setSimilarityQueueSize(getIntAttribute("similarity-queue-size"));
+            if (hasAttribute("cache-size"))
+                config.setCacheSize(getIntAttribute("cache-size"));
+
+            return config;
+        }
+    }
+
+    private static class XMLStubConfigBuilder extends XMLAbstractBuilder {
+
+        public XMLStubConfigBuilder(Element element) {
+            super(element);
+        }
+
+        public StubConfig build(StubConfig config) throws ConfigException {
+            if (hasAttribute("enabled"))
+                config.setEnabled(getBooleanAttribute("enabled"));
+            if (hasAttribute("decoder-latency"))
+                config.setDecoderLatency(getIntAttribute("decoder-latency"));
+            if (hasAttribute("decoder-word-latency"))
+                config.setDecoderWordLatency(getFloatAttribute("decoder-word-latency"));
+            if (hasAttribute("jitter"))
+                config.setJitter(getFloatAttribute("jitter"));
+            if (hasAttribute("aligner-latency"))
+                config.setAlignerLatency(getFloatAttribute("aligner-latency"));
+            if (hasAttribute("length-ratio"))
+                config.setLengthRatio(getFloatAttribute("length-ratio"));
 
             return config;
         }
@@ -50,6 +50,10 @@ class XMLNetworkConfigBuilder extends XMLAbstractBuilder {
                 config.setPort(getIntAttribute("port"));
             if (hasAttribute("root"))
                 config.setApiRoot(getStringAttribute("root"));
+            if (hasAttribute("completion-threads"))
+                config.setCompletionThreads(getIntAttribute("completion-threads"));
+            if (hasAttribute("completion-queue-size"))
+                config.setCompletionQueueSize(getIntAttribute("completion-queue-size"));
 
             return config;
         }
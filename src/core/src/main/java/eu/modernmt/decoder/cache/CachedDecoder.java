@@ -0,0 +1,145 @@
+package eu.modernmt.decoder.cache;
+
+import eu.modernmt.data.DataListener;
+import eu.modernmt.data.DataListenerProvider;
+import eu.modernmt.decoder.*;
+import eu.modernmt.model.ContextVector;
+import eu.modernmt.model.Sentence;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Decoder decorator that serves repeated translation requests from a {@link TranslationCache}.
+ */
+public class CachedDecoder implements Decoder, DataListenerProvider {
+
+    private final Decoder decoder;
+    private final TranslationCache cache;
+
+    public CachedDecoder(Decoder decoder, int capacity) {
+        this.decoder = decoder;
+        this.cache = new TranslationCache(capacity);
+    }
+
+    public Decoder getDecoder() {
+        return decoder;
+    }
+
+    public TranslationCache getCache() {
+        return cache;
+    }
+
+    // Features
+
+    @Override
+    public DecoderFeature[] getFeatures() {
+        return decoder.getFeatures();
+    }
+
+    @Override
+    public float[] getFeatureWeights(DecoderFeature feature) {
+        return decoder.getFeatureWeights(feature);
+    }
+
+    @Override
+    public void setDefaultFeatureWeights(Map<DecoderFeature, float[]> weights) {
+        decoder.setDefaultFeatureWeights(weights);
+        cache.clear();
+    }
+
+    // Translation session
+
+    @Override
+    public void closeSession(TranslationSession session) {
+        decoder.closeSession(session);
+    }
+
+    @Override
+    public int getActiveSessionCount() {
+        return decoder.getActiveSessionCount();
+    }
+
+    // Translate
+
+    @Override
+    public DecoderTranslation translate(Sentence text) {
+        return translate(text, null, null, 0, 0L);
+    }
+
+    @Override
+    public DecoderTranslation translate(Sentence text, ContextVector contextVector) {
+        return translate(text, contextVector, null, 0, 0L);
+    }
+
+    @Override
+    public DecoderTranslation translate(Sentence text, TranslationSession session) {
+        return translate(text, null, session, 0, 0L);
+    }
+
+    @Override
+    public DecoderTranslation translate(Sentence text, int nbestListSize) {
+        return translate(text, null, null, nbestListSize, 0L);
+    }
+
+    @Override
+    public DecoderTranslation translate(Sentence text, ContextVector contextVector, int nbestListSize) {
+        return translate(text, contextVector, null, nbestListSize, 0L);
+    }
+
+    @Override
+    public DecoderTranslation translate(Sentence text, TranslationSession session, int nbestListSize) {
+        return translate(text, null, session, nbestListSize, 0L);
+    }
+
+    @Override
+    public DecoderTranslation translate(Sentence sentence, ContextVector contextVector, TranslationSession session, int nbest, long deadline) {
+        if (sentence.getWords().length == 0)
+            return decoder.translate(sentence, contextVector, session, nbest, deadline);
+
+        long start = System.currentTimeMillis();
+
+        ContextVector context = session == null ? contextVector : session.getContextVector();
+        TranslationCache.Key key = TranslationCache.key(sentence, context, nbest);
+
+        DecoderTranslation translation = cache.get(key, sentence);
+
+        if (translation == null) {
+            long version = cache.version();
+            translation = decoder.translate(sentence, contextVector, session, nbest, deadline);
+            cache.put(key, translation, version);
+        } else {
+            translation.setElapsedTime(System.currentTimeMillis() - start);
+        }
+
+        return translation;
+    }
+
+    // DataListenerProvider
+
+    @Override
+    public Collection<DataListener> getDataListeners() {
+        ArrayList<DataListener> listeners = new ArrayList<>();
+
+        if (decoder instanceof DataListener)
+            listeners.add((DataListener) decoder);
+        else if (decoder instanceof DataListenerProvider)
+            listeners.addAll(((DataListenerProvider) decoder).getDataListeners());
+
+        // The cache must be notified after the decoder models have been updated
+        listeners.add(cache);
+
+        return listeners;
+    }
+
+    // Shutdown
+
+    @Override
+    public void close() throws IOException {
+        cache.clear();
+        decoder.close();
+    }
+
+}
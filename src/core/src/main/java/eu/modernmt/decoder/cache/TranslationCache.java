@@ -0,0 +1,347 @@
+package eu.modernmt.decoder.cache;
+
+import eu.modernmt.data.DataListener;
+import eu.modernmt.data.Deletion;
+import eu.modernmt.data.TranslationUnit;
+import eu.modernmt.decoder.DecoderTranslation;
+import eu.modernmt.decoder.TranslationHypothesis;
+import eu.modernmt.model.Alignment;
+import eu.modernmt.model.ContextVector;
+import eu.modernmt.model.Sentence;
+import eu.modernmt.model.Word;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded LRU cache of raw decoder outputs. Entries are keyed by the vocabulary ids
+ * of the preprocessed source sentence, the quantized context vector and the n-best size.
+ * <p>
+ * Every update or deletion received from the data stream bumps the version of its domain:
+ * an entry is considered stale (and lazily removed) if one of the domains of its context
+ * vector has been updated after the entry was computed. Entries translated without
+ * a context are invalidated by any update.
+ */
+public class TranslationCache implements DataListener {
+
+    private static final float CONTEXT_SCORE_RESOLUTION = 100.f;
+
+    public static class Stats {
+
+        private final int size;
+        private final int capacity;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long invalidations;
+
+        private Stats(int size, int capacity, long hits, long misses, long evictions, long invalidations) {
+            this.size = size;
+            this.capacity = capacity;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.invalidations = invalidations;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        public long getInvalidations() {
+            return invalidations;
+        }
+    }
+
+    public static final class Key {
+
+        private final int[] words;
+        private final int[] domains;
+        private final int[] scores;
+        private final int nbest;
+        private final int hash;
+
+        private Key(int[] words, int[] domains, int[] scores, int nbest) {
+            this.words = words;
+            this.domains = domains;
+            this.scores = scores;
+            this.nbest = nbest;
+
+            int result = Arrays.hashCode(words);
+            result = 31 * result + Arrays.hashCode(domains);
+            result = 31 * result + Arrays.hashCode(scores);
+            result = 31 * result + nbest;
+            this.hash = result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Key key = (Key) o;
+
+            if (hash != key.hash) return false;
+            if (nbest != key.nbest) return false;
+            if (!Arrays.equals(words, key.words)) return false;
+            if (!Arrays.equals(domains, key.domains)) return false;
+            return Arrays.equals(scores, key.scores);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static class Entry {
+
+        private final int[] domains;
+        private final long version;
+
+        private final Hypothesis translation;
+        private final Alignment alignment;
+        private final Hypothesis[] nbest;
+        private final long elapsedTime;
+
+        private Entry(int[] domains, long version, DecoderTranslation translation) {
+            this.domains = domains;
+            this.version = version;
+            this.translation = new Hypothesis(translation.getWords(), 0.f, null);
+            this.alignment = translation.getAlignment();
+            this.elapsedTime = translation.getElapsedTime();
+
+            if (translation.hasNbest()) {
+                List<TranslationHypothesis> nbest = translation.getNbest();
+
+                this.nbest = new Hypothesis[nbest.size()];
+                for (int i = 0; i < this.nbest.length; i++) {
+                    TranslationHypothesis hypothesis = nbest.get(i);
+                    this.nbest[i] = new Hypothesis(hypothesis.getWords(), hypothesis.getTotalScore(), hypothesis.getScores());
+                }
+            } else {
+                this.nbest = null;
+            }
+        }
+
+        public DecoderTranslation getTranslation(Sentence source) {
+            DecoderTranslation result = new DecoderTranslation(translation.getWords(), source, alignment);
+
+            if (nbest != null) {
+                ArrayList<TranslationHypothesis> list = new ArrayList<>(nbest.length);
+                for (Hypothesis hypothesis : nbest)
+                    list.add(new TranslationHypothesis(hypothesis.getWords(), source, null, hypothesis.totalScore, hypothesis.scores));
+
+                result.setNbest(list);
+            }
+
+            return result;
+        }
+    }
+
+    private static class Hypothesis {
+
+        // Post-processing alters the translation words, so only
+        // the raw decoder output (ids and spacing) is stored
+        private final int[] ids;
+        private final String[] rightSpaces;
+        private final float totalScore;
+        private final Map<String, float[]> scores;
+
+        private Hypothesis(Word[] words, float totalScore, Map<String, float[]> scores) {
+            this.ids = new int[words.length];
+            this.rightSpaces = new String[words.length];
+            this.totalScore = totalScore;
+            this.scores = scores;
+
+            for (int i = 0; i < words.length; i++) {
+                this.ids[i] = words[i].getId();
+                this.rightSpaces[i] = words[i].getRightSpace();
+            }
+        }
+
+        private Word[] getWords() {
+            Word[] words = new Word[ids.length];
+            for (int i = 0; i < words.length; i++)
+                words[i] = new Word(ids[i], rightSpaces[i]);
+            return words;
+        }
+    }
+
+    private final int capacity;
+    private final LinkedHashMap<Key, Entry> entries;
+
+    private final AtomicLong clock = new AtomicLong(0L);
+    private final ConcurrentHashMap<Integer, Long> domainVersions = new ConcurrentHashMap<>();
+    private volatile long lastUpdateVersion = 0L;
+    private volatile long lastClearVersion = 0L;
+
+    private long hits = 0L;
+    private long misses = 0L;
+    private long evictions = 0L;
+    private long invalidations = 0L;
+
+    public TranslationCache(int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<Key, Entry>(16, .75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > TranslationCache.this.capacity) {
+                    evictions++;
+                    return true;
+                } else {
+                    return false;
+                }
+            }
+        };
+    }
+
+    public static Key key(Sentence sentence, ContextVector context, int nbest) {
+        Word[] words = sentence.getWords();
+
+        int[] ids = new int[words.length];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = words[i].getId();
+
+        int[] domains;
+        int[] scores;
+
+        if (context == null || context.size() == 0) {
+            domains = null;
+            scores = null;
+        } else {
+            ContextVector.Entry[] array = new ContextVector.Entry[context.size()];
+            int i = 0;
+            for (ContextVector.Entry entry : context)
+                array[i++] = entry;
+
+            // Entries with the same score may come in any order
+            Arrays.sort(array, (a, b) -> Integer.compare(a.domain.getId(), b.domain.getId()));
+
+            domains = new int[array.length];
+            scores = new int[array.length];
+
+            for (i = 0; i < array.length; i++) {
+                domains[i] = array[i].domain.getId();
+                scores[i] = Math.round(array[i].score * CONTEXT_SCORE_RESOLUTION);
+            }
+        }
+
+        return new Key(ids, domains, scores, nbest);
+    }
+
+    /**
+     * Returns the current cache version: it must be read before starting a translation
+     * and then passed to {@link #put(Key, DecoderTranslation, long)}, so that a concurrent
+     * update cannot be hidden by a result computed with the previous data.
+     *
+     * @return the current cache version
+     */
+    public long version() {
+        return clock.get();
+    }
+
+    public DecoderTranslation get(Key key, Sentence source) {
+        Entry entry;
+
+        synchronized (this) {
+            entry = entries.get(key);
+
+            if (entry != null && !isValid(entry)) {
+                entries.remove(key);
+                invalidations++;
+                entry = null;
+            }
+
+            if (entry == null)
+                misses++;
+            else
+                hits++;
+        }
+
+        return entry == null ? null : entry.getTranslation(source);
+    }
+
+    public void put(Key key, DecoderTranslation translation, long version) {
+        Entry entry = new Entry(key.domains, version, translation);
+
+        if (!isValid(entry))
+            return;
+
+        synchronized (this) {
+            entries.put(key, entry);
+        }
+    }
+
+    public void clear() {
+        lastClearVersion = clock.incrementAndGet();
+
+        synchronized (this) {
+            invalidations += entries.size();
+            entries.clear();
+        }
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(entries.size(), capacity, hits, misses, evictions, invalidations);
+    }
+
+    private boolean isValid(Entry entry) {
+        if (entry.version < lastClearVersion)
+            return false;
+
+        if (entry.domains == null)
+            return entry.version >= lastUpdateVersion;
+
+        for (int domain : entry.domains) {
+            Long version = domainVersions.get(domain);
+            if (version != null && entry.version < version)
+                return false;
+        }
+
+        return true;
+    }
+
+    private void onDomainChanged(int domain) {
+        long version = clock.incrementAndGet();
+
+        domainVersions.put(domain, version);
+        lastUpdateVersion = version;
+    }
+
+    // DataListener
+
+    @Override
+    public void onDataReceived(TranslationUnit unit) {
+        onDomainChanged(unit.domain);
+    }
+
+    @Override
+    public void onDelete(Deletion deletion) {
+        onDomainChanged(deletion.domain);
+    }
+
+    @Override
+    public Map<Short, Long> getLatestChannelPositions() {
+        // The cache does not hold any persistent data
+        return Collections.emptyMap();
+    }
+
+}
@@ -2,13 +2,23 @@ package eu.modernmt.engine;
 
 import eu.modernmt.aligner.Aligner;
 import eu.modernmt.aligner.fastalign.FastAlign;
+import eu.modernmt.config.ContextAnalyzerConfig;
 import eu.modernmt.config.DecoderConfig;
 import eu.modernmt.config.EngineConfig;
+import eu.modernmt.config.StubConfig;
 import eu.modernmt.context.ContextAnalyzer;
+import eu.modernmt.context.lucene.ContextVectorCache;
 import eu.modernmt.context.lucene.LuceneAnalyzer;
+import eu.modernmt.context.lucene.storage.Options;
 import eu.modernmt.decoder.Decoder;
+import eu.modernmt.decoder.cache.CachedDecoder;
+import eu.modernmt.decoder.cache.TranslationCache;
 import eu.modernmt.decoder.moses.MosesDecoder;
+import eu.modernmt.engine.stub.StubAligner;
+import eu.modernmt.engine.stub.StubDecoder;
+import eu.modernmt.engine.stub.StubVocabulary;
 import eu.modernmt.io.Paths;
+import eu.modernmt.persistence.Connection;
 import eu.modernmt.persistence.Database;
 import eu.modernmt.persistence.PersistenceException;
 import eu.modernmt.persistence.sqlite.SQLiteDatabase;
@@ -79,20 +89,66 @@ public class Engine implements Closeable {
         this.root = FileConst.getEngineRoot(name);
         this.runtime = FileConst.getEngineRuntime(name);
 
-        this.vocabulary = new RocksDBVocabulary(Paths.join(root, "models", "vocabulary"));
+        // The stand-ins replace the native models only: the rest of the engine
+        // is the same, so that it can be load tested without trained models
+        StubConfig stubConfig = config.getStubConfig();
+
+        this.vocabulary = stubConfig.isEnabled() ?
+                new StubVocabulary() : new RocksDBVocabulary(Paths.join(root, "models", "vocabulary"));
         this.sourcePreprocessor = new Preprocessor(sourceLanguage, targetLanguage, vocabulary);
         this.targetPreprocessor = new Preprocessor(targetLanguage, sourceLanguage, vocabulary);
         this.postprocessor = new Postprocessor(sourceLanguage, targetLanguage, vocabulary);
-        this.aligner = new FastAlign(Paths.join(root, "models", "align"));
-        this.contextAnalyzer = new LuceneAnalyzer(Paths.join(root, "models", "context"), sourceLanguage);
-        this.database = new SQLiteDatabase(Paths.join(root, "models", "db", "domains.db"));
+        this.aligner = stubConfig.isEnabled() ?
+                new StubAligner(stubConfig) : new FastAlign(Paths.join(root, "models", "align"));
+
+        ContextAnalyzerConfig contextAnalyzerConfig = config.getContextAnalyzerConfig();
+        Options contextAnalyzerOptions = new Options();
+        contextAnalyzerOptions.similarityThreads = contextAnalyzerConfig.getSimilarityThreads();
+        contextAnalyzerOptions.similarityQueueSize = contextAnalyzerConfig.getSimilarityQueueSize();
+        contextAnalyzerOptions.cacheSize = contextAnalyzerConfig.getCacheSize();
+
+        this.contextAnalyzer = new LuceneAnalyzer(Paths.join(root, "models", "context"), sourceLanguage, contextAnalyzerOptions);
+        this.database = openDatabase(Paths.join(root, "models", "db", "domains.db"), stubConfig.isEnabled());
 
         DecoderConfig decoderConfig = config.getDecoderConfig();
-        if (decoderConfig.isEnabled())
-            this.decoder = new MosesDecoder(Paths.join(root, "models", "decoder"), aligner, vocabulary,
-                    decoderConfig.getThreads());
-        else
+        if (decoderConfig.isEnabled()) {
+            Decoder decoder;
+
+            if (stubConfig.isEnabled())
+                decoder = new StubDecoder(stubConfig);
+            else
+                decoder = new MosesDecoder(Paths.join(root, "models", "decoder"), aligner, vocabulary,
+                        decoderConfig.getThreads(), decoderConfig.getMaxSessions(), decoderConfig.getSessionTimeout() * 1000L);
+
+            if (decoderConfig.getCacheSize() > 0)
+                decoder = new CachedDecoder(decoder, decoderConfig.getCacheSize());
+
+            this.decoder = decoder;
+        } else {
             this.decoder = null;
+        }
+    }
+
+    private static Database openDatabase(File path, boolean createIfMissing) throws IOException, PersistenceException {
+        boolean create = createIfMissing && !path.exists();
+
+        if (create)
+            FileUtils.forceMkdir(path.getParentFile());
+
+        Database database = new SQLiteDatabase(path);
+
+        if (create) {
+            Connection connection = null;
+
+            try {
+                connection = database.getConnection();
+                database.create(connection);
+            } finally {
+                IOUtils.closeQuietly(connection);
+            }
+        }
+
+        return database;
     }
 
     public String getName() {
@@ -106,6 +162,10 @@ public class Engine implements Closeable {
         return decoder;
     }
 
+    public TranslationCache getTranslationCache() {
+        return decoder instanceof CachedDecoder ? ((CachedDecoder) decoder).getCache() : null;
+    }
+
     public Aligner getAligner() {
         if (aligner == null)
             throw new UnsupportedOperationException("Aligner unavailable");
@@ -120,6 +180,10 @@ public class Engine implements Closeable {
         return contextAnalyzer;
     }
 
+    public ContextVectorCache getContextVectorCache() {
+        return contextAnalyzer instanceof LuceneAnalyzer ? ((LuceneAnalyzer) contextAnalyzer).getCache() : null;
+    }
+
     public Preprocessor getSourcePreprocessor() {
         return sourcePreprocessor;
     }
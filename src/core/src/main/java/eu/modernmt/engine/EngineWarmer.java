@@ -0,0 +1,211 @@
+package eu.modernmt.engine;
+
+import eu.modernmt.data.DataListener;
+import eu.modernmt.data.Deletion;
+import eu.modernmt.data.TranslationUnit;
+import eu.modernmt.decoder.Decoder;
+import eu.modernmt.decoder.DecoderTranslation;
+import eu.modernmt.decoder.cache.CachedDecoder;
+import eu.modernmt.model.Sentence;
+import eu.modernmt.processing.Postprocessor;
+import eu.modernmt.processing.Preprocessor;
+import eu.modernmt.processing.ProcessingException;
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Warms up the engine before the node starts serving translations: a sample of source
+ * sentences is translated (preprocessing, decoding and postprocessing) on all the decoder
+ * threads, in rounds, until the average latency of a round settles.
+ * The sample is made of the latest contributions received from the data stream,
+ * completed with the sentences of the optional warm-up file.
+ */
+public class EngineWarmer implements DataListener {
+
+    private static final int MAX_ROUNDS = 10;
+    private static final long MAX_TIME = 120L * 1000L; // millis
+    private static final double SETTLE_THRESHOLD = .1;
+
+    private final Logger logger = LogManager.getLogger(EngineWarmer.class);
+
+    private final Engine engine;
+    private final int size;
+    private final File file;
+    private final ArrayDeque<String> sample;
+
+    /**
+     * @param engine the engine to warm up
+     * @param size   the maximum number of sentences of the warm-up set
+     * @param file   a file with one sentence per line used to complete the warm-up set (may be null)
+     */
+    public EngineWarmer(Engine engine, int size, File file) {
+        this.engine = engine;
+        this.size = size;
+        this.file = file;
+        this.sample = new ArrayDeque<>(size);
+    }
+
+    // DataListener
+
+    @Override
+    public synchronized void onDataReceived(TranslationUnit unit) {
+        if (size == 0 || unit.originalSourceSentence == null)
+            return;
+
+        if (sample.size() == size)
+            sample.removeFirst();
+        sample.addLast(unit.originalSourceSentence);
+    }
+
+    @Override
+    public void onDelete(Deletion deletion) {
+        // Nothing to do
+    }
+
+    @Override
+    public Map<Short, Long> getLatestChannelPositions() {
+        // The warmer does not hold any persistent data
+        return Collections.emptyMap();
+    }
+
+    // Warm-up
+
+    private synchronized List<String> getWarmUpSet() {
+        ArrayList<String> sentences = new ArrayList<>(sample);
+
+        if (sentences.size() < size && file != null && file.isFile()) {
+            try {
+                for (String line : FileUtils.readLines(file, "UTF-8")) {
+                    if (sentences.size() == size)
+                        break;
+
+                    line = line.trim();
+                    if (!line.isEmpty())
+                        sentences.add(line);
+                }
+            } catch (IOException e) {
+                logger.warn("Unable to read warm-up file " + file, e);
+            }
+        }
+
+        return sentences;
+    }
+
+    /**
+     * Runs the warm-up on the given number of threads.
+     *
+     * @param threads the number of decoder threads
+     * @return the time spent warming up in milliseconds
+     */
+    public long warmUp(int threads) throws InterruptedException {
+        long begin = System.currentTimeMillis();
+
+        Decoder decoder = engine.getDecoder();
+        if (decoder == null) {
+            logger.info("Decoder is disabled, skipping warm-up");
+            return 0L;
+        }
+
+        // Cached translations would hide the actual latency
+        if (decoder instanceof CachedDecoder)
+            decoder = ((CachedDecoder) decoder).getDecoder();
+
+        List<String> sentences = getWarmUpSet();
+        if (sentences.isEmpty()) {
+            logger.info("No warm-up sentences available, skipping warm-up");
+            return 0L;
+        }
+
+        logger.info("Warming up engine with " + sentences.size() + " sentences on " + threads + " threads");
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "EngineWarmer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Failures are counted and reported once: the same error is likely
+        // repeated for many sentences and rounds
+        AtomicInteger failures = new AtomicInteger(0);
+        AtomicReference<Exception> firstFailure = new AtomicReference<>();
+
+        try {
+            double previousLatency = 0.;
+
+            for (int round = 1; round <= MAX_ROUNDS; round++) {
+                double latency = runRound(executor, threads, decoder, sentences, failures, firstFailure);
+
+                if (logger.isDebugEnabled())
+                    logger.debug(String.format("Warm-up round %d: average latency %.2fms", round, latency));
+
+                if (previousLatency > 0. && Math.abs(previousLatency - latency) <= previousLatency * SETTLE_THRESHOLD)
+                    break;
+                if (System.currentTimeMillis() - begin > MAX_TIME) {
+                    logger.warn("Warm-up time limit reached before latency settled");
+                    break;
+                }
+
+                previousLatency = latency;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if (failures.get() > 0)
+            logger.warn("Warm-up translation failed " + failures.get() + " times", firstFailure.get());
+
+        return System.currentTimeMillis() - begin;
+    }
+
+    private double runRound(ExecutorService executor, int threads, Decoder decoder, List<String> sentences,
+                            AtomicInteger failures, AtomicReference<Exception> firstFailure) throws InterruptedException {
+        Preprocessor preprocessor = engine.getSourcePreprocessor();
+        Postprocessor postprocessor = engine.getPostprocessor();
+
+        AtomicInteger index = new AtomicInteger(0);
+        AtomicLong elapsed = new AtomicLong(0L);
+        AtomicInteger count = new AtomicInteger(0);
+
+        ArrayList<Future<?>> futures = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                int next;
+                while ((next = index.getAndIncrement()) < sentences.size()) {
+                    long begin = System.nanoTime();
+
+                    try {
+                        Sentence sentence = preprocessor.process(sentences.get(next));
+                        DecoderTranslation translation = decoder.translate(sentence);
+                        postprocessor.process(translation);
+                    } catch (ProcessingException | RuntimeException e) {
+                        if (failures.getAndIncrement() == 0)
+                            firstFailure.set(e);
+                    }
+
+                    elapsed.addAndGet(System.nanoTime() - begin);
+                    count.incrementAndGet();
+                }
+            }));
+        }
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                logger.warn("Warm-up thread failed", e.getCause());
+            }
+        }
+
+        return count.get() == 0 ? 0. : elapsed.get() / (count.get() * 1e6);
+    }
+
+}
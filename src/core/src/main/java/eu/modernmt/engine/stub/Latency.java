@@ -0,0 +1,60 @@
+package eu.modernmt.engine.stub;
+
+import eu.modernmt.decoder.Deadline;
+import eu.modernmt.decoder.DeadlineExceededException;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Simulated processing time of the stand-in models: the nominal time
+ * is randomly varied by at most the configured jitter.
+ */
+class Latency {
+
+    private final float jitter;
+
+    public Latency(float jitter) {
+        this.jitter = jitter;
+    }
+
+    private long sample(double millis) {
+        if (millis <= 0)
+            return 0L;
+
+        double factor = 1. + jitter * (2. * ThreadLocalRandom.current().nextDouble() - 1.);
+        return (long) (millis * Math.max(0., factor) * 1000000.);
+    }
+
+    public void await(double millis) {
+        sleep(sample(millis));
+    }
+
+    /**
+     * Like {@link #await(double)}, but the wait is stopped at the given deadline, if any.
+     *
+     * @throws DeadlineExceededException if the deadline is reached before the end of the wait
+     */
+    public void await(double millis, long deadline) throws DeadlineExceededException {
+        long nanos = sample(millis);
+
+        long available = Deadline.remainingNanos(deadline);
+
+        if (available < nanos) {
+            sleep(available);
+            throw new DeadlineExceededException("Request deadline exceeded");
+        }
+
+        sleep(nanos);
+    }
+
+    private static void sleep(long nanos) {
+        long end = System.nanoTime() + nanos;
+
+        while (nanos > 0 && !Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(nanos);
+            nanos = end - System.nanoTime();
+        }
+    }
+
+}
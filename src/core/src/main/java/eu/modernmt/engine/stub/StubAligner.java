@@ -0,0 +1,92 @@
+package eu.modernmt.engine.stub;
+
+import eu.modernmt.aligner.Aligner;
+import eu.modernmt.aligner.AlignerException;
+import eu.modernmt.config.StubConfig;
+import eu.modernmt.model.Alignment;
+import eu.modernmt.model.Sentence;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Aligner that spends the configured time on every sentence pair
+ * and returns a monotone alignment, whatever the strategy.
+ */
+public class StubAligner implements Aligner {
+
+    private final Latency latency;
+    private final float pairLatency;
+    private SymmetrizationStrategy strategy = SymmetrizationStrategy.GROW_DIAGONAL_FINAL_AND;
+
+    public StubAligner(StubConfig config) {
+        this.latency = new Latency(config.getJitter());
+        this.pairLatency = config.getAlignerLatency();
+    }
+
+    static Alignment monotone(int sourceLength, int targetLength) {
+        if (sourceLength == 0 || targetLength == 0)
+            return new Alignment(new int[0], new int[0]);
+
+        int[] source = new int[targetLength];
+        int[] target = new int[targetLength];
+
+        for (int j = 0; j < targetLength; j++) {
+            source[j] = (int) ((long) j * sourceLength / targetLength);
+            target[j] = j;
+        }
+
+        return new Alignment(source, target);
+    }
+
+    @Override
+    public void setDefaultSymmetrizationStrategy(SymmetrizationStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    @Override
+    public SymmetrizationStrategy getDefaultSymmetrizationStrategy() {
+        return strategy;
+    }
+
+    @Override
+    public Alignment getAlignment(Sentence source, Sentence target) throws AlignerException {
+        return getAlignment(source, target, strategy);
+    }
+
+    @Override
+    public Alignment[] getAlignments(List<Sentence> sources, List<Sentence> targets) throws AlignerException {
+        return getAlignments(sources, targets, strategy);
+    }
+
+    @Override
+    public Alignment getAlignment(Sentence source, Sentence target, SymmetrizationStrategy strategy) throws AlignerException {
+        latency.await(pairLatency);
+        return monotone(source.getWords().length, target.getWords().length);
+    }
+
+    @Override
+    public Alignment[] getAlignments(List<Sentence> sources, List<Sentence> targets, SymmetrizationStrategy strategy) throws AlignerException {
+        Alignment[] alignments = new Alignment[Math.min(sources.size(), targets.size())];
+        latency.await(pairLatency * alignments.length);
+
+        Iterator<Sentence> sourceIterator = sources.iterator();
+        Iterator<Sentence> targetIterator = targets.iterator();
+
+        for (int i = 0; i < alignments.length; i++)
+            alignments[i] = monotone(sourceIterator.next().getWords().length, targetIterator.next().getWords().length);
+
+        return alignments;
+    }
+
+    @Override
+    public long getNativeHandle() {
+        throw new UnsupportedOperationException("StubAligner has no native implementation");
+    }
+
+    @Override
+    public void close() {
+        // Nothing to do
+    }
+
+}
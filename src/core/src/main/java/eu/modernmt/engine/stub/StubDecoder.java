@@ -0,0 +1,226 @@
+package eu.modernmt.engine.stub;
+
+import eu.modernmt.config.StubConfig;
+import eu.modernmt.data.DataListener;
+import eu.modernmt.data.Deletion;
+import eu.modernmt.data.TranslationUnit;
+import eu.modernmt.decoder.*;
+import eu.modernmt.model.ContextVector;
+import eu.modernmt.model.Sentence;
+import eu.modernmt.model.Word;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decoder that spends the configured time on every sentence and "translates" it
+ * by copying the source words, stretched to the configured length ratio. Words are
+ * returned by id, like the native decoder does, so that the vocabulary reverse lookup
+ * of the post-processing pipeline is exercised as well.
+ */
+public class StubDecoder implements Decoder, DataListener {
+
+    private static final StubFeature[] FEATURES = new StubFeature[]{
+            new StubFeature("StubTranslationModel", true),
+            new StubFeature("StubLanguageModel", true),
+            new StubFeature("StubWordPenalty", false)
+    };
+
+    private final Latency latency;
+    private final int sentenceLatency;
+    private final float wordLatency;
+    private final float lengthRatio;
+
+    private final ConcurrentHashMap<String, float[]> weights = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, TranslationSession> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Short, Long> channels = new ConcurrentHashMap<>();
+
+    public StubDecoder(StubConfig config) {
+        this.latency = new Latency(config.getJitter());
+        this.sentenceLatency = config.getDecoderLatency();
+        this.wordLatency = config.getDecoderWordLatency();
+        this.lengthRatio = config.getLengthRatio();
+
+        for (StubFeature feature : FEATURES)
+            weights.put(feature.getName(), new float[]{feature.isTunable() ? .5f : DecoderFeature.UNTUNEABLE_COMPONENT});
+    }
+
+    // Features
+
+    @Override
+    public DecoderFeature[] getFeatures() {
+        return FEATURES;
+    }
+
+    @Override
+    public float[] getFeatureWeights(DecoderFeature feature) {
+        return weights.get(feature.getName());
+    }
+
+    @Override
+    public void setDefaultFeatureWeights(Map<DecoderFeature, float[]> map) {
+        for (Map.Entry<DecoderFeature, float[]> entry : map.entrySet())
+            weights.put(entry.getKey().getName(), entry.getValue());
+    }
+
+    // Translation session
+
+    @Override
+    public void closeSession(TranslationSession session) {
+        sessions.remove(session.getId());
+    }
+
+    @Override
+    public int getActiveSessionCount() {
+        return sessions.size();
+    }
+
+    // Translate
+
+    @Override
+    public DecoderTranslation translate(Sentence text) {
+        return translate(text, null, null, 0, 0L);
+    }
+
+    @Override
+    public DecoderTranslation translate(Sentence text, ContextVector contextVector) {
+        return translate(text, contextVector, null, 0, 0L);
+    }
+
+    @Override
+    public DecoderTranslation translate(Sentence text, TranslationSession session) {
+        return translate(text, null, session, 0, 0L);
+    }
+
+    @Override
+    public DecoderTranslation translate(Sentence text, int nbestListSize) {
+        return translate(text, null, null, nbestListSize, 0L);
+    }
+
+    @Override
+    public DecoderTranslation translate(Sentence text, ContextVector contextVector, int nbestListSize) {
+        return translate(text, contextVector, null, nbestListSize, 0L);
+    }
+
+    @Override
+    public DecoderTranslation translate(Sentence text, TranslationSession session, int nbestListSize) {
+        return translate(text, null, session, nbestListSize, 0L);
+    }
+
+    @Override
+    public DecoderTranslation translate(Sentence sentence, ContextVector contextVector, TranslationSession session, int nbest, long deadline) {
+        Word[] sourceWords = sentence.getWords();
+        if (sourceWords.length == 0)
+            return new DecoderTranslation(new Word[0], sentence, null);
+
+        DeadlineExceededException.check(deadline);
+
+        if (session != null)
+            sessions.putIfAbsent(session.getId(), session);
+
+        long start = System.currentTimeMillis();
+        latency.await(sentenceLatency + wordLatency * sourceWords.length, deadline);
+
+        int length = Math.max(1, Math.round(sourceWords.length * lengthRatio));
+
+        DecoderTranslation translation = new DecoderTranslation(copy(sourceWords, length), sentence,
+                StubAligner.monotone(sourceWords.length, length));
+
+        if (nbest > 0) {
+            List<TranslationHypothesis> hypotheses = new ArrayList<>(nbest);
+
+            for (int i = 0; i < nbest; i++) {
+                float score = -(i + 1);
+
+                HashMap<String, float[]> scores = new HashMap<>(FEATURES.length);
+                for (StubFeature feature : FEATURES) {
+                    if (feature.isTunable())
+                        scores.put(feature.getName(), new float[]{score});
+                }
+
+                hypotheses.add(new TranslationHypothesis(copy(sourceWords, length), sentence, null, score, scores));
+            }
+
+            translation.setNbest(hypotheses);
+        }
+
+        translation.setElapsedTime(System.currentTimeMillis() - start);
+
+        return translation;
+    }
+
+    private static Word[] copy(Word[] source, int length) {
+        Word[] words = new Word[length];
+
+        for (int j = 0; j < length; j++) {
+            int i = (int) ((long) j * source.length / length);
+            words[j] = new Word(source[i].getId(), j < length - 1 ? " " : null);
+        }
+
+        return words;
+    }
+
+    // DataListener
+
+    @Override
+    public void onDataReceived(TranslationUnit unit) {
+        channels.merge(unit.channel, unit.channelPosition, Math::max);
+    }
+
+    @Override
+    public void onDelete(Deletion deletion) {
+        channels.merge(deletion.channel, deletion.channelPosition, Math::max);
+    }
+
+    @Override
+    public Map<Short, Long> getLatestChannelPositions() {
+        return new HashMap<>(channels);
+    }
+
+    // Shutdown
+
+    @Override
+    public void close() {
+        sessions.clear();
+    }
+
+    private static class StubFeature implements DecoderFeature {
+
+        private final String name;
+        private final boolean tunable;
+
+        public StubFeature(String name, boolean tunable) {
+            this.name = name;
+            this.tunable = tunable;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public boolean isTunable() {
+            return tunable;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            return name.equals(((StubFeature) o).name);
+        }
+
+        @Override
+        public int hashCode() {
+            return name.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+}
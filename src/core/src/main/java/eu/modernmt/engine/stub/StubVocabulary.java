@@ -0,0 +1,105 @@
+package eu.modernmt.engine.stub;
+
+import eu.modernmt.vocabulary.Vocabulary;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory vocabulary, initially empty: words are added by the data stream
+ * as it happens with the RocksDB vocabulary.
+ */
+public class StubVocabulary implements Vocabulary {
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, String> words = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger(VOCABULARY_WORD_ID_START);
+
+    @Override
+    public int lookup(String word, boolean putIfAbsent) {
+        Integer id = ids.get(word);
+
+        if (id == null && putIfAbsent) {
+            id = ids.computeIfAbsent(word, key -> {
+                int newId = nextId.getAndIncrement();
+                words.put(newId, key);
+                return newId;
+            });
+        }
+
+        return id == null ? VOCABULARY_UNKNOWN_WORD : id;
+    }
+
+    @Override
+    public int[] lookupLine(String[] line, boolean putIfAbsent) {
+        int[] result = new int[line.length];
+        for (int i = 0; i < line.length; i++)
+            result[i] = lookup(line[i], putIfAbsent);
+
+        return result;
+    }
+
+    @Override
+    public List<int[]> lookupLines(List<String[]> lines, boolean putIfAbsent) {
+        ArrayList<int[]> result = new ArrayList<>(lines.size());
+        for (String[] line : lines)
+            result.add(lookupLine(line, putIfAbsent));
+
+        return result;
+    }
+
+    @Override
+    public int[][] lookupLines(String[][] lines, boolean putIfAbsent) {
+        int[][] result = new int[lines.length][];
+        for (int i = 0; i < lines.length; i++)
+            result[i] = lookupLine(lines[i], putIfAbsent);
+
+        return result;
+    }
+
+    @Override
+    public String reverseLookup(int id) {
+        return words.get(id);
+    }
+
+    @Override
+    public String[] reverseLookupLine(int[] line) {
+        String[] result = new String[line.length];
+        for (int i = 0; i < line.length; i++)
+            result[i] = reverseLookup(line[i]);
+
+        return result;
+    }
+
+    @Override
+    public List<String[]> reverseLookupLines(List<int[]> lines) {
+        ArrayList<String[]> result = new ArrayList<>(lines.size());
+        for (int[] line : lines)
+            result.add(reverseLookupLine(line));
+
+        return result;
+    }
+
+    @Override
+    public String[][] reverseLookupLines(int[][] lines) {
+        String[][] result = new String[lines.length][];
+        for (int i = 0; i < lines.length; i++)
+            result[i] = reverseLookupLine(lines[i]);
+
+        return result;
+    }
+
+    @Override
+    public long getNativeHandle() {
+        throw new UnsupportedOperationException("StubVocabulary has no native implementation");
+    }
+
+    @Override
+    public void close() {
+        ids.clear();
+        words.clear();
+    }
+
+}
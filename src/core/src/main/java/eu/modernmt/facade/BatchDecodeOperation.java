@@ -0,0 +1,111 @@
+package eu.modernmt.facade;
+
+import eu.modernmt.cluster.ClusterNode;
+import eu.modernmt.cluster.SessionManager;
+import eu.modernmt.decoder.Deadline;
+import eu.modernmt.decoder.DeadlineExceededException;
+import eu.modernmt.decoder.Decoder;
+import eu.modernmt.decoder.DecoderTranslation;
+import eu.modernmt.decoder.TranslationSession;
+import eu.modernmt.model.ContextVector;
+import eu.modernmt.model.Sentence;
+import eu.modernmt.stats.Gauge;
+import eu.modernmt.stats.LatencyHistogram;
+import eu.modernmt.stats.Metrics;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.concurrent.Callable;
+
+/**
+ * Decodes a chunk of already preprocessed sentences on a single cluster member.
+ * Pre and post processing are left to the caller, so that they can be
+ * executed once for the whole batch.
+ */
+class BatchDecodeOperation implements Callable<BatchDecodeOperation.Result>, Serializable {
+
+    private static final LatencyHistogram queueLatency = Metrics.histogram(Metrics.TRANSLATION_QUEUE);
+    private static final LatencyHistogram decodeLatency = Metrics.histogram(Metrics.TRANSLATION_DECODE);
+    private static final Gauge decoderInFlight = Metrics.gauge(Metrics.DECODER_IN_FLIGHT);
+
+    static class Result implements Serializable {
+
+        final DecoderTranslation[] translations;
+        final RuntimeException[] errors;
+
+        private Result(int size) {
+            this.translations = new DecoderTranslation[size];
+            this.errors = new RuntimeException[size];
+        }
+    }
+
+    private final Sentence[] sentences;
+    private final ContextVector translationContext;
+    private final long session;
+    private final int nbest;
+    private transient long deadline;
+    private final long creationTime = System.currentTimeMillis();
+
+    public BatchDecodeOperation(Sentence[] sentences, ContextVector translationContext, long session, int nbest, long deadline) {
+        this.sentences = sentences;
+        this.translationContext = translationContext;
+        this.session = session;
+        this.nbest = nbest;
+        this.deadline = deadline;
+    }
+
+    @Override
+    public Result call() {
+        // Wall-clock time: the task may have been created by a different node
+        queueLatency.record((System.currentTimeMillis() - creationTime) * 1000000L);
+
+        // Chunks that expired while waiting in the executor queue are dropped here
+        DeadlineExceededException.check(deadline);
+
+        ClusterNode node = ModernMT.getNode();
+        Decoder decoder = node.getEngine().getDecoder();
+
+        TranslationSession session = null;
+        if (this.session > 0) {
+            SessionManager sessionManager = node.getSessionManager();
+            session = sessionManager.get(this.session);
+
+            if (session == null)
+                throw new IllegalArgumentException("Session not found: " + this.session);
+        }
+
+        Result result = new Result(sentences.length);
+
+        for (int i = 0; i < sentences.length; i++) {
+            long begin = System.nanoTime();
+            decoderInFlight.increment();
+
+            try {
+                result.translations[i] = decoder.translate(sentences[i], translationContext, session, nbest, deadline);
+                decodeLatency.recordSince(begin);
+            } catch (RuntimeException e) {
+                result.errors[i] = e;
+            } finally {
+                decoderInFlight.decrement();
+            }
+        }
+
+        return result;
+    }
+
+    // The deadline is an instant of the local clock: it is sent as the remaining budget
+    // and rebased on the clock of the node that executes the operation
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeLong(Deadline.toBudget(deadline));
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        deadline = Deadline.fromBudget(in.readLong());
+    }
+
+}
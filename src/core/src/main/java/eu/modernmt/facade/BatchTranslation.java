@@ -0,0 +1,46 @@
+package eu.modernmt.facade;
+
+import eu.modernmt.decoder.DecoderTranslation;
+import eu.modernmt.decoder.TranslationException;
+
+/**
+ * The result of a batch translation request: for every input sentence
+ * (in the same order of the input) it holds either the translation or the
+ * error that prevented the sentence from being translated.
+ */
+public class BatchTranslation {
+
+    private final DecoderTranslation[] translations;
+    private final TranslationException[] errors;
+
+    BatchTranslation(int size) {
+        this.translations = new DecoderTranslation[size];
+        this.errors = new TranslationException[size];
+    }
+
+    public int size() {
+        return translations.length;
+    }
+
+    public DecoderTranslation getTranslation(int i) {
+        return translations[i];
+    }
+
+    public TranslationException getError(int i) {
+        return errors[i];
+    }
+
+    public boolean hasError(int i) {
+        return errors[i] != null;
+    }
+
+    void setTranslation(int i, DecoderTranslation translation) {
+        this.translations[i] = translation;
+    }
+
+    void setError(int i, TranslationException error) {
+        this.translations[i] = null;
+        this.errors[i] = error;
+    }
+
+}
@@ -1,5 +1,6 @@
 package eu.modernmt.facade;
 
+import eu.modernmt.cluster.ExecutionStats;
 import eu.modernmt.cluster.NodeInfo;
 
 import java.util.Collection;
@@ -13,4 +14,8 @@ public class ClusterFacade {
         return ModernMT.getNode().getClusterNodes();
     }
 
+    public ExecutionStats getExecutionStats() {
+        return ModernMT.getNode().getExecutionStats();
+    }
+
 }
@@ -19,6 +19,8 @@ import org.apache.logging.log4j.Logger;
 import java.io.Serializable;
 import java.util.Locale;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 
 /**
@@ -31,27 +33,50 @@ public class TagFacade {
     }
 
     public Translation project(String sentence, String translation, Locale sourceLanguage, Locale targetLanguage, Aligner.SymmetrizationStrategy strategy) throws AlignerException, LanguagePairNotSupportedException {
-        boolean inverted = isLanguagesInverted(sourceLanguage, targetLanguage);
-        ProjectTagsCallable operation = new ProjectTagsCallable(sentence, translation, inverted, strategy);
-
         try {
-            return ModernMT.getNode().submit(operation).get();
+            return projectAsync(sentence, translation, sourceLanguage, targetLanguage, strategy).get();
         } catch (InterruptedException e) {
             throw new SystemShutdownException();
         } catch (ExecutionException e) {
             Throwable cause = e.getCause();
 
-            if (cause instanceof ProcessingException)
-                throw new AlignerException("Problem while processing translation", cause);
-            else if (cause instanceof AlignerException)
-                throw new AlignerException("Problem while computing alignments", cause);
-            else if (cause instanceof RuntimeException)
-                throw new AlignerException("Unexpected exception while projecting tags", cause);
+            // Asynchronous failures are already wrapped
+            if (cause instanceof AlignerException)
+                throw (AlignerException) cause;
             else
-                throw new Error("Unexpected exception: " + cause.getMessage(), cause);
+                throw wrap(cause);
         }
     }
 
+    public CompletableFuture<Translation> projectAsync(String sentence, String translation, Locale sourceLanguage, Locale targetLanguage) throws LanguagePairNotSupportedException {
+        return projectAsync(sentence, translation, sourceLanguage, targetLanguage, null);
+    }
+
+    public CompletableFuture<Translation> projectAsync(String sentence, String translation, Locale sourceLanguage, Locale targetLanguage, Aligner.SymmetrizationStrategy strategy) throws LanguagePairNotSupportedException {
+        boolean inverted = isLanguagesInverted(sourceLanguage, targetLanguage);
+        ProjectTagsCallable operation = new ProjectTagsCallable(sentence, translation, inverted, strategy);
+
+        ClusterNode node = ModernMT.getNode();
+        return node.getCompletionExecutor().handle(node.submit(operation), (taggedTranslation, error) -> {
+            if (error != null)
+                throw new CompletionException(wrap(error));
+
+            return taggedTranslation;
+        });
+    }
+
+    private static AlignerException wrap(Throwable cause) {
+        if ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null)
+            cause = cause.getCause();
+
+        if (cause instanceof ProcessingException)
+            return new AlignerException("Problem while processing translation", cause);
+        else if (cause instanceof AlignerException)
+            return new AlignerException("Problem while computing alignments", cause);
+        else
+            return new AlignerException("Unexpected exception while projecting tags", cause);
+    }
+
     public boolean isLanguagesSupported(Locale sourceLanguage, Locale targetLanguage)
             throws LanguagePairNotSupportedException {
         isLanguagesInverted(sourceLanguage, targetLanguage);
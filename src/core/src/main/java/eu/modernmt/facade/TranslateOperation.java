@@ -2,6 +2,8 @@ package eu.modernmt.facade;
 
 import eu.modernmt.cluster.ClusterNode;
 import eu.modernmt.cluster.SessionManager;
+import eu.modernmt.decoder.Deadline;
+import eu.modernmt.decoder.DeadlineExceededException;
 import eu.modernmt.decoder.Decoder;
 import eu.modernmt.decoder.DecoderTranslation;
 import eu.modernmt.decoder.TranslationSession;
@@ -11,7 +13,13 @@ import eu.modernmt.model.Sentence;
 import eu.modernmt.processing.Postprocessor;
 import eu.modernmt.processing.Preprocessor;
 import eu.modernmt.processing.ProcessingException;
+import eu.modernmt.stats.Gauge;
+import eu.modernmt.stats.LatencyHistogram;
+import eu.modernmt.stats.Metrics;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.concurrent.Callable;
 
@@ -20,31 +28,45 @@ import java.util.concurrent.Callable;
  */
 class TranslateOperation implements Callable<DecoderTranslation>, Serializable {
 
+    private static final LatencyHistogram queueLatency = Metrics.histogram(Metrics.TRANSLATION_QUEUE);
+    private static final LatencyHistogram preprocessLatency = Metrics.histogram(Metrics.TRANSLATION_PREPROCESS);
+    private static final LatencyHistogram decodeLatency = Metrics.histogram(Metrics.TRANSLATION_DECODE);
+    private static final LatencyHistogram postprocessLatency = Metrics.histogram(Metrics.TRANSLATION_POSTPROCESS);
+    private static final Gauge decoderInFlight = Metrics.gauge(Metrics.DECODER_IN_FLIGHT);
+
     private String text;
     private ContextVector translationContext;
     private Long session;
     private int nbest;
+    private transient long deadline;
+    private final long creationTime = System.currentTimeMillis();
 
-    public TranslateOperation(String text, int nbest) {
+    public TranslateOperation(String text, int nbest, long deadline) {
         this.text = text;
         this.nbest = nbest;
+        this.deadline = deadline;
     }
 
-    public TranslateOperation(String text, ContextVector translationContext, int nbest) {
+    public TranslateOperation(String text, ContextVector translationContext, int nbest, long deadline) {
         this.text = text;
         this.translationContext = translationContext;
         this.nbest = nbest;
+        this.deadline = deadline;
     }
 
-    public TranslateOperation(String text, long session, int nbest) {
+    public TranslateOperation(String text, long session, int nbest, long deadline) {
         this.text = text;
         this.session = session;
         this.translationContext = null;
         this.nbest = nbest;
+        this.deadline = deadline;
     }
 
     @Override
     public DecoderTranslation call() throws ProcessingException {
+        // Wall-clock time: the task may have been created by a different node
+        queueLatency.record((System.currentTimeMillis() - creationTime) * 1000000L);
+
         ClusterNode node = ModernMT.getNode();
 
         Engine engine = node.getEngine();
@@ -52,28 +74,55 @@ class TranslateOperation implements Callable<DecoderTranslation>, Serializable {
         Preprocessor preprocessor = engine.getSourcePreprocessor();
         Postprocessor postprocessor = engine.getPostprocessor();
 
+        // Tasks that expired while waiting in the executor queue are dropped here
+        DeadlineExceededException.check(deadline);
+
+        long begin = System.nanoTime();
         Sentence sentence = preprocessor.process(text);
+        preprocessLatency.recordSince(begin);
 
-        DecoderTranslation translation;
-        if (session != null) {
+        TranslationSession session = null;
+        if (this.session != null) {
             SessionManager sessionManager = node.getSessionManager();
-            TranslationSession session = sessionManager.get(this.session);
+            session = sessionManager.get(this.session);
 
             if (session == null)
                 throw new IllegalArgumentException("Session not found: " + this.session);
+        }
+
+        DecoderTranslation translation;
 
-            translation = nbest > 0 ? decoder.translate(sentence, session, nbest) : decoder.translate(sentence, session);
-        } else if (translationContext != null) {
-            translation = nbest > 0 ? decoder.translate(sentence, translationContext, nbest) : decoder.translate(sentence, translationContext);
-        } else {
-            translation = nbest > 0 ? decoder.translate(sentence, nbest) : decoder.translate(sentence);
+        begin = System.nanoTime();
+        decoderInFlight.increment();
+        try {
+            translation = decoder.translate(sentence, translationContext, session, nbest, deadline);
+        } finally {
+            decoderInFlight.decrement();
         }
+        decodeLatency.recordSince(begin);
 
+        DeadlineExceededException.check(deadline);
+
+        begin = System.nanoTime();
         postprocessor.process(translation);
         if (translation.hasNbest())
             postprocessor.process(translation.getNbest());
+        postprocessLatency.recordSince(begin);
 
         return translation;
     }
 
+    // The deadline is an instant of the local clock: it is sent as the remaining budget
+    // and rebased on the clock of the node that executes the operation
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeLong(Deadline.toBudget(deadline));
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        deadline = Deadline.fromBudget(in.readLong());
+    }
+
 }
@@ -1,23 +1,33 @@
 package eu.modernmt.facade;
 
+import eu.modernmt.cluster.ClusterNode;
+import eu.modernmt.cluster.CompletionExecutor;
 import eu.modernmt.cluster.SessionManager;
 import eu.modernmt.cluster.error.SystemShutdownException;
 import eu.modernmt.context.ContextAnalyzer;
 import eu.modernmt.context.ContextAnalyzerException;
+import eu.modernmt.context.lucene.ContextVectorCache;
 import eu.modernmt.decoder.*;
+import eu.modernmt.decoder.cache.TranslationCache;
 import eu.modernmt.engine.Engine;
 import eu.modernmt.model.ContextVector;
 import eu.modernmt.model.MultiOptionsToken;
+import eu.modernmt.model.Sentence;
 import eu.modernmt.model.Token;
 import eu.modernmt.model.Translation;
+import eu.modernmt.model.corpus.Corpus;
+import eu.modernmt.processing.Postprocessor;
+import eu.modernmt.processing.Preprocessor;
 import eu.modernmt.processing.ProcessingException;
+import eu.modernmt.stats.LatencyHistogram;
+import eu.modernmt.stats.Metrics;
 
 import java.io.File;
 import java.io.Serializable;
-import java.util.HashMap;
-import java.util.Locale;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 
 /**
@@ -25,6 +35,9 @@ import java.util.concurrent.ExecutionException;
  */
 public class TranslationFacade {
 
+    private static final LatencyHistogram translationLatency = Metrics.histogram(Metrics.TRANSLATION_TOTAL);
+    private static final LatencyHistogram batchTranslationLatency = Metrics.histogram(Metrics.BATCH_TRANSLATION_TOTAL);
+
     // =============================
     //  Decoder Weights
     // =============================
@@ -66,75 +79,407 @@ public class TranslationFacade {
     // =============================
 
     public DecoderTranslation get(String sentence) throws TranslationException {
-        return get(sentence, null, 0L, 0);
+        return join(getAsync(sentence));
     }
 
     public DecoderTranslation get(String sentence, long sessionId) throws TranslationException {
-        return get(sentence, null, sessionId, 0);
+        return join(getAsync(sentence, sessionId));
     }
 
     public DecoderTranslation get(String sentence, ContextVector translationContext) throws TranslationException {
-        return get(sentence, translationContext, 0L, 0);
+        return join(getAsync(sentence, translationContext));
     }
 
     public DecoderTranslation get(String sentence, int nbest) throws TranslationException {
-        return get(sentence, null, 0L, nbest);
+        return join(getAsync(sentence, nbest));
     }
 
     public DecoderTranslation get(String sentence, long sessionId, int nbest) throws TranslationException {
-        return get(sentence, null, sessionId, nbest);
+        return join(getAsync(sentence, sessionId, nbest));
     }
 
     public DecoderTranslation get(String sentence, ContextVector translationContext, int nbest) throws TranslationException {
-        return get(sentence, translationContext, 0L, nbest);
+        return join(getAsync(sentence, translationContext, nbest));
+    }
+
+    public CompletableFuture<DecoderTranslation> getAsync(String sentence) {
+        return getAsync(sentence, null, 0L, 0, 0L);
+    }
+
+    public CompletableFuture<DecoderTranslation> getAsync(String sentence, long sessionId) {
+        return getAsync(sentence, null, sessionId, 0, 0L);
+    }
+
+    public CompletableFuture<DecoderTranslation> getAsync(String sentence, ContextVector translationContext) {
+        return getAsync(sentence, translationContext, 0L, 0, 0L);
+    }
+
+    public CompletableFuture<DecoderTranslation> getAsync(String sentence, int nbest) {
+        return getAsync(sentence, null, 0L, nbest, 0L);
+    }
+
+    public CompletableFuture<DecoderTranslation> getAsync(String sentence, long sessionId, int nbest) {
+        return getAsync(sentence, null, sessionId, nbest, 0L);
+    }
+
+    public CompletableFuture<DecoderTranslation> getAsync(String sentence, ContextVector translationContext, int nbest) {
+        return getAsync(sentence, translationContext, 0L, nbest, 0L);
+    }
+
+    /**
+     * Translates the sentence within the session. If the deadline (see {@link Deadline}, 0 for none)
+     * is reached before the translation is complete, the returned future fails with a
+     * {@link DeadlineExceededException}.
+     */
+    public CompletableFuture<DecoderTranslation> getAsync(String sentence, long sessionId, int nbest, long deadline) {
+        return getAsync(sentence, null, sessionId, nbest, deadline);
     }
 
-    private DecoderTranslation get(String text, ContextVector translationContext, long session, int nbest) throws TranslationException {
+    /**
+     * Translates the sentence with the given context (it may be null). If the deadline (see
+     * {@link Deadline}, 0 for none) is reached before the translation is complete, the returned
+     * future fails with a {@link DeadlineExceededException}.
+     */
+    public CompletableFuture<DecoderTranslation> getAsync(String sentence, ContextVector translationContext, int nbest, long deadline) {
+        return getAsync(sentence, translationContext, 0L, nbest, deadline);
+    }
+
+    private CompletableFuture<DecoderTranslation> getAsync(String text, ContextVector translationContext, long session, int nbest, long deadline) {
+        long begin = System.nanoTime();
         TranslateOperation operation;
 
         if (translationContext != null) {
-            operation = new TranslateOperation(text, translationContext, nbest);
+            operation = new TranslateOperation(text, translationContext, nbest, deadline);
         } else if (session > 0) {
-            operation = new TranslateOperation(text, session, nbest);
+            operation = new TranslateOperation(text, session, nbest, deadline);
         } else {
-            operation = new TranslateOperation(text, nbest);
+            operation = new TranslateOperation(text, nbest, deadline);
         }
 
-        DecoderTranslation rootTranslation;
+        ClusterNode node = ModernMT.getNode();
+        CompletionExecutor executor = node.getCompletionExecutor();
+
+        CompletableFuture<DecoderTranslation> future = executor.thenCompose(submit(node, operation, session),
+                translation -> translateOptions(translation, translationContext, session, deadline))
+                .whenComplete((translation, error) -> translationLatency.recordSince(begin));
+
+        return wrapFailures(future, executor);
+    }
+
+    private CompletableFuture<DecoderTranslation> translateOptions(DecoderTranslation translation, ContextVector translationContext, long session, long deadline) {
+        BatchTranslation batch = new BatchTranslation(1);
+        batch.setTranslation(0, translation);
+
+        return translateOptions(batch, translationContext, session, deadline).thenApply(v -> {
+            if (batch.hasError(0))
+                throw new CompletionException(batch.getError(0));
+
+            return translation;
+        });
+    }
+
+    private CompletableFuture<Void> translateOptions(BatchTranslation batch, ContextVector translationContext, long session, long deadline) {
+        // Options of all the tokens are collected and translated together,
+        // so that the whole set costs about as much as a single translation
+        ArrayList<MultiOptionsToken> tokens = new ArrayList<>();
+        ArrayList<Integer> owners = new ArrayList<>();
+        ArrayList<String> options = new ArrayList<>();
+
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.hasError(i))
+                continue;
+
+            for (Token token : batch.getTranslation(i)) {
+                if (token instanceof MultiOptionsToken) {
+                    MultiOptionsToken mop = (MultiOptionsToken) token;
+
+                    if (!mop.hasTranslatedOptions()) {
+                        tokens.add(mop);
+                        owners.add(i);
+                        Collections.addAll(options, mop.getSourceOptions());
+                    }
+                }
+            }
+        }
+
+        if (tokens.isEmpty())
+            return CompletableFuture.completedFuture(null);
+
+        return getAsync(options, translationContext, session, 0, deadline).handle((translations, error) -> {
+            if (error != null) {
+                TranslationException exception = wrap(error);
 
+                for (int owner : owners)
+                    batch.setError(owner, exception);
+
+                return null;
+            }
+
+            int index = 0;
+            for (int i = 0; i < tokens.size(); i++) {
+                MultiOptionsToken mop = tokens.get(i);
+                int owner = owners.get(i);
+
+                Translation[] result = new Translation[mop.getSourceOptions().length];
+                for (int j = 0; j < result.length; j++, index++) {
+                    if (translations.hasError(index))
+                        batch.setError(owner, translations.getError(index));
+                    else
+                        result[j] = translations.getTranslation(index);
+                }
+
+                if (!batch.hasError(owner))
+                    mop.setTranslatedOptions(result);
+            }
+
+            return null;
+        });
+    }
+
+    private static TranslationException wrap(Throwable cause) {
+        if ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null)
+            cause = cause.getCause();
+
+        if (cause instanceof TranslationException)
+            return (TranslationException) cause;
+        else if (cause instanceof ProcessingException)
+            return new TranslationException("Problem while processing translation", cause);
+        else
+            return new TranslationException("Unexpected exceptions while translating", cause);
+    }
+
+    private static <V> CompletableFuture<V> submit(ClusterNode node, Callable<V> operation, long session) {
+        // Translations of a session are sent to the same node, so that its
+        // native session is created once and then reused
+        return session > 0 ? node.submitTranslation(operation, session) : node.submitTranslation(operation);
+    }
+
+    private static DeadlineExceededException getDeadlineExceeded(Throwable cause) {
+        while (cause != null) {
+            if (cause instanceof DeadlineExceededException)
+                return (DeadlineExceededException) cause;
+
+            cause = cause.getCause();
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns a future that is completed by the given executor: the stages that callers
+     * chain to it must not run in the decoder or cluster threads.
+     */
+    private static <V> CompletableFuture<V> wrapFailures(CompletableFuture<V> future, CompletionExecutor executor) {
+        return executor.handle(future, (value, error) -> {
+            if (error == null)
+                return value;
+
+            // Expired requests are reported as they are, so that they are not mistaken for errors
+            DeadlineExceededException deadlineExceeded = getDeadlineExceeded(error);
+            throw new CompletionException(deadlineExceeded == null ? wrap(error) : deadlineExceeded);
+        });
+    }
+
+    private static <V> V join(CompletableFuture<V> future) throws TranslationException {
         try {
-            rootTranslation = ModernMT.getNode().submit(operation).get();
+            return future.get();
         } catch (InterruptedException e) {
             throw new SystemShutdownException(e);
         } catch (ExecutionException e) {
             Throwable cause = e.getCause();
 
-            if (cause instanceof ProcessingException)
-                throw new TranslationException("Problem while processing translation", cause);
-            else if (cause instanceof RuntimeException)
-                throw new TranslationException("Unexpected exceptions while translating", cause);
+            if (cause instanceof DeadlineExceededException)
+                throw (DeadlineExceededException) cause;
             else
-                throw new Error("Unexpected exception: " + cause.getMessage(), cause);
+                throw wrap(cause);
         }
+    }
 
-        for (Token token : rootTranslation) {
-            if (token instanceof MultiOptionsToken) {
-                MultiOptionsToken mop = (MultiOptionsToken) token;
+    // =============================
+    //  Batch translation
+    // =============================
+
+    public BatchTranslation get(List<String> sentences) throws TranslationException {
+        return join(getAsync(sentences));
+    }
 
-                if (!mop.hasTranslatedOptions()) {
-                    String[] options = mop.getSourceOptions();
-                    Translation[] translations = new Translation[options.length];
+    public BatchTranslation get(List<String> sentences, int nbest) throws TranslationException {
+        return join(getAsync(sentences, nbest));
+    }
+
+    public BatchTranslation get(List<String> sentences, long sessionId, int nbest) throws TranslationException {
+        return join(getAsync(sentences, sessionId, nbest));
+    }
 
-                    for (int i = 0; i < translations.length; i++) {
-                        translations[i] = get(options[i], translationContext, session, 0);
+    public BatchTranslation get(List<String> sentences, ContextVector translationContext, int nbest) throws TranslationException {
+        return join(getAsync(sentences, translationContext, nbest));
+    }
+
+    public CompletableFuture<BatchTranslation> getAsync(List<String> sentences) {
+        return getAsync(sentences, null, 0L, 0, 0L);
+    }
+
+    public CompletableFuture<BatchTranslation> getAsync(List<String> sentences, int nbest) {
+        return getAsync(sentences, null, 0L, nbest, 0L);
+    }
+
+    public CompletableFuture<BatchTranslation> getAsync(List<String> sentences, long sessionId, int nbest) {
+        return getAsync(sentences, null, sessionId, nbest, 0L);
+    }
+
+    public CompletableFuture<BatchTranslation> getAsync(List<String> sentences, ContextVector translationContext, int nbest) {
+        return getAsync(sentences, translationContext, 0L, nbest, 0L);
+    }
+
+    public CompletableFuture<BatchTranslation> getAsync(List<String> sentences, long sessionId, int nbest, long deadline) {
+        return getAsync(sentences, null, sessionId, nbest, deadline);
+    }
+
+    public CompletableFuture<BatchTranslation> getAsync(List<String> sentences, ContextVector translationContext, int nbest, long deadline) {
+        return getAsync(sentences, translationContext, 0L, nbest, deadline);
+    }
+
+    private CompletableFuture<BatchTranslation> getAsync(List<String> text, ContextVector translationContext, long session, int nbest, long deadline) {
+        long requestBegin = System.nanoTime();
+        ClusterNode node = ModernMT.getNode();
+        Engine engine = node.getEngine();
+        CompletionExecutor executor = node.getCompletionExecutor();
+
+        BatchTranslation batch = new BatchTranslation(text.size());
+
+        // Preprocessing is executed locally once for the whole batch, outside the request thread
+        CompletableFuture<Sentence[]> sentences = executor.supply(() -> preprocess(engine.getSourcePreprocessor(), text, batch));
+        CompletableFuture<Void> decoded = executor.thenCompose(sentences,
+                s -> decode(node, s, batch, translationContext, session, nbest, deadline));
+        CompletableFuture<BatchTranslation> future = executor.thenCompose(decoded, v -> {
+            DeadlineExceededException.check(deadline);
+
+            // Postprocessing is executed locally once for the whole batch
+            postprocess(engine.getPostprocessor(), batch);
+            return translateOptions(batch, translationContext, session, deadline);
+        })
+                .thenApply(v -> batch)
+                .whenComplete((translation, error) -> batchTranslationLatency.recordSince(requestBegin));
+
+        return wrapFailures(future, executor);
+    }
+
+    private static CompletableFuture<Void> decode(ClusterNode node, Sentence[] sentences, BatchTranslation batch,
+                                                  ContextVector translationContext, long session, int nbest, long deadline) {
+        CompletionExecutor executor = node.getCompletionExecutor();
+
+        int[] indexes = new int[sentences.length];
+        int size = 0;
+        for (int i = 0; i < sentences.length; i++) {
+            if (sentences[i] != null)
+                indexes[size++] = i;
+        }
+
+        // Decoding is spread across the cluster in chunks
+        int capacity = node.getTranslationCapacity();
+        int chunkSize = Math.max(1, (size + capacity - 1) / capacity);
+
+        ArrayList<CompletableFuture<Void>> chunks = new ArrayList<>();
+        for (int begin = 0; begin < size; begin += chunkSize) {
+            int offset = begin;
+
+            Sentence[] chunk = new Sentence[Math.min(chunkSize, size - begin)];
+            for (int j = 0; j < chunk.length; j++)
+                chunk[j] = sentences[indexes[offset + j]];
+
+            CompletableFuture<BatchDecodeOperation.Result> future =
+                    submit(node, new BatchDecodeOperation(chunk, translationContext, session, nbest, deadline), session);
+
+            chunks.add(executor.handle(future, (result, error) -> {
+                if (error != null) {
+                    TranslationException exception = wrap(error);
+
+                    for (int j = 0; j < chunk.length; j++)
+                        batch.setError(indexes[offset + j], exception);
+                } else {
+                    for (int j = 0; j < chunk.length; j++) {
+                        if (result.errors[j] != null)
+                            batch.setError(indexes[offset + j], wrap(result.errors[j]));
+                        else
+                            batch.setTranslation(indexes[offset + j], result.translations[j]);
                     }
+                }
+
+                return null;
+            }));
+        }
+
+        return CompletableFuture.allOf(chunks.toArray(new CompletableFuture[chunks.size()]));
+    }
+
+    private static Sentence[] preprocess(Preprocessor preprocessor, List<String> text, BatchTranslation batch) {
+        try {
+            List<Sentence> sentences = preprocessor.process(text);
+            return sentences.toArray(new Sentence[sentences.size()]);
+        } catch (ProcessingException | RuntimeException e) {
+            // Fallback to single sentence processing in order to isolate the failing sentences
+        }
+
+        Sentence[] sentences = new Sentence[text.size()];
+
+        for (int i = 0; i < sentences.length; i++) {
+            try {
+                sentences[i] = preprocessor.process(text.get(i));
+            } catch (ProcessingException | RuntimeException e) {
+                batch.setError(i, wrap(e));
+            }
+        }
+
+        return sentences;
+    }
+
+    private static void postprocess(Postprocessor postprocessor, BatchTranslation batch) {
+        ArrayList<Translation> translations = new ArrayList<>(batch.size());
+        ArrayList<Integer> owners = new ArrayList<>(batch.size());
 
-                    mop.setTranslatedOptions(translations);
+        for (int i = 0; i < batch.size(); i++) {
+            DecoderTranslation translation = batch.getTranslation(i);
+
+            if (translation != null) {
+                translations.add(translation);
+                owners.add(i);
+
+                if (translation.hasNbest()) {
+                    for (Translation hypothesis : translation.getNbest()) {
+                        translations.add(hypothesis);
+                        owners.add(i);
+                    }
                 }
             }
         }
 
-        return rootTranslation;
+        // Failures are isolated per translation: the failing translations get their
+        // error, the others are processed once in the same batch
+        Throwable[] errors = new Throwable[translations.size()];
+
+        try {
+            postprocessor.process(translations, errors);
+        } catch (ProcessingException | RuntimeException e) {
+            for (int owner : owners)
+                batch.setError(owner, wrap(e));
+            return;
+        }
+
+        for (int j = 0; j < errors.length; j++) {
+            if (errors[j] != null)
+                batch.setError(owners.get(j), wrap(errors[j]));
+        }
+    }
+
+    // =============================
+    //  Translation cache
+    // =============================
+
+    public TranslationCache.Stats getCacheStats() {
+        // Every node caches the translations it has decoded,
+        // these are the statistics of the local node only
+        TranslationCache cache = ModernMT.getNode().getEngine().getTranslationCache();
+        return cache == null ? null : cache.getStats();
     }
 
     // =============================
@@ -162,16 +507,35 @@ public class TranslationFacade {
         return analyzer.getContextVector(context, limit);
     }
 
+    public ContextVector getContextVector(Corpus context, int limit) throws ContextAnalyzerException {
+        // The corpus may be a stream that cannot be sent to another node,
+        // so the local context analyzer is invoked as for local files
+        Engine engine = ModernMT.getNode().getEngine();
+        ContextAnalyzer analyzer = engine.getContextAnalyzer();
+
+        return analyzer.getContextVector(context, limit);
+    }
+
     public ContextVector getContextVector(String context, int limit) throws ContextAnalyzerException {
         try {
-            return ModernMT.getNode().submit(new GetContextVectorCallable(context, limit)).get();
+            return getContextVectorAsync(context, limit).get();
         } catch (InterruptedException e) {
             throw new SystemShutdownException();
         } catch (ExecutionException e) {
-            throw unwrap(e);
+            throw unwrap(e.getCause());
         }
     }
 
+    public CompletableFuture<ContextVector> getContextVectorAsync(String context, int limit) {
+        ClusterNode node = ModernMT.getNode();
+        return node.getCompletionExecutor().handle(node.submit(new GetContextVectorCallable(context, limit)), (vector, error) -> {
+            if (error != null)
+                throw new CompletionException(unwrap(error));
+
+            return vector;
+        });
+    }
+
     private static class GetContextVectorCallable implements Callable<ContextVector>, Serializable {
 
         private final String context;
@@ -189,14 +553,20 @@ public class TranslationFacade {
         }
     }
 
-    private static ContextAnalyzerException unwrap(ExecutionException e) {
-        Throwable cause = e.getCause();
+    public ContextVectorCache.Stats getContextCacheStats() {
+        // Context vector requests are distributed among the nodes,
+        // these are the statistics of the local node only
+        ContextVectorCache cache = ModernMT.getNode().getEngine().getContextVectorCache();
+        return cache == null ? null : cache.getStats();
+    }
+
+    private static ContextAnalyzerException unwrap(Throwable cause) {
+        if ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null)
+            cause = cause.getCause();
 
         if (cause instanceof ContextAnalyzerException)
             return (ContextAnalyzerException) cause;
-        else if (cause instanceof RuntimeException)
-            return new ContextAnalyzerException("Unexpected exceptions in context analyzer", cause);
         else
-            throw new Error("Unexpected exception: " + cause.getMessage(), cause);
+            return new ContextAnalyzerException("Unexpected exceptions in context analyzer", cause);
     }
 }
@@ -0,0 +1,128 @@
+package eu.modernmt.decoder.cache;
+
+import eu.modernmt.data.Deletion;
+import eu.modernmt.data.TranslationUnit;
+import eu.modernmt.decoder.DecoderTranslation;
+import eu.modernmt.model.ContextVector;
+import eu.modernmt.model.Sentence;
+import eu.modernmt.model.Word;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TranslationCacheTest {
+
+    private static Sentence sentence(int... ids) {
+        Word[] words = new Word[ids.length];
+        for (int i = 0; i < ids.length; i++)
+            words[i] = new Word(ids[i], i < ids.length - 1 ? " " : null);
+
+        return new Sentence(words);
+    }
+
+    private static ContextVector context(int domain, float score) {
+        ContextVector.Builder builder = new ContextVector.Builder();
+        builder.add(domain, score);
+        return builder.build();
+    }
+
+    private static DecoderTranslation translation(Sentence source, int... ids) {
+        return new DecoderTranslation(sentence(ids).getWords(), source, null);
+    }
+
+    @Test
+    public void testHitReturnsFreshTranslation() {
+        TranslationCache cache = new TranslationCache(10);
+        Sentence source = sentence(1001, 1002);
+        TranslationCache.Key key = TranslationCache.key(source, null, 0);
+
+        assertNull(cache.get(key, source));
+        cache.put(key, translation(source, 2001, 2002, 2003), cache.version());
+
+        Sentence other = sentence(1001, 1002);
+        DecoderTranslation hit = cache.get(TranslationCache.key(other, null, 0), other);
+
+        assertNotNull(hit);
+        assertSame(other, hit.getSource());
+        assertEquals(3, hit.getWords().length);
+        assertEquals(2002, hit.getWords()[1].getId());
+
+        hit.getWords()[1].setId(0);
+        assertEquals(2002, cache.get(key, source).getWords()[1].getId());
+
+        TranslationCache.Stats stats = cache.getStats();
+        assertEquals(2, stats.getHits());
+        assertEquals(1, stats.getMisses());
+    }
+
+    @Test
+    public void testQuantizedContextAndNbestInKey() {
+        TranslationCache.Key key = TranslationCache.key(sentence(1001), context(1, .501f), 0);
+
+        assertEquals(key, TranslationCache.key(sentence(1001), context(1, .499f), 0));
+        assertNotEquals(key, TranslationCache.key(sentence(1001), context(1, .6f), 0));
+        assertNotEquals(key, TranslationCache.key(sentence(1001), context(2, .5f), 0));
+        assertNotEquals(key, TranslationCache.key(sentence(1001), context(1, .5f), 10));
+        assertNotEquals(key, TranslationCache.key(sentence(1001), null, 0));
+    }
+
+    @Test
+    public void testLRUEviction() {
+        TranslationCache cache = new TranslationCache(2);
+
+        Sentence a = sentence(1001), b = sentence(1002), c = sentence(1003);
+        TranslationCache.Key ka = TranslationCache.key(a, null, 0);
+        TranslationCache.Key kb = TranslationCache.key(b, null, 0);
+        TranslationCache.Key kc = TranslationCache.key(c, null, 0);
+
+        cache.put(ka, translation(a, 2001), cache.version());
+        cache.put(kb, translation(b, 2002), cache.version());
+        assertNotNull(cache.get(ka, a));
+        cache.put(kc, translation(c, 2003), cache.version());
+
+        assertNotNull(cache.get(ka, a));
+        assertNull(cache.get(kb, b));
+        assertNotNull(cache.get(kc, c));
+        assertEquals(1, cache.getStats().getEvictions());
+    }
+
+    @Test
+    public void testDomainInvalidation() {
+        TranslationCache cache = new TranslationCache(10);
+
+        Sentence source = sentence(1001);
+        TranslationCache.Key k1 = TranslationCache.key(source, context(1, 1.f), 0);
+        TranslationCache.Key k2 = TranslationCache.key(source, context(2, 1.f), 0);
+        TranslationCache.Key k0 = TranslationCache.key(source, null, 0);
+
+        cache.put(k1, translation(source, 2001), cache.version());
+        cache.put(k2, translation(source, 2002), cache.version());
+        cache.put(k0, translation(source, 2003), cache.version());
+
+        cache.onDataReceived(new TranslationUnit((short) 0, 0L, 1, "a", "b"));
+
+        assertNull(cache.get(k1, source));
+        assertNotNull(cache.get(k2, source));
+        assertNull(cache.get(k0, source));
+
+        cache.onDelete(new Deletion((short) 0, 1L, 2));
+        assertNull(cache.get(k2, source));
+
+        assertEquals(3, cache.getStats().getInvalidations());
+    }
+
+    @Test
+    public void testUpdateDuringTranslationIsNotHidden() {
+        TranslationCache cache = new TranslationCache(10);
+
+        Sentence source = sentence(1001);
+        TranslationCache.Key key = TranslationCache.key(source, context(1, 1.f), 0);
+
+        long version = cache.version();
+        cache.onDataReceived(new TranslationUnit((short) 0, 0L, 1, "a", "b"));
+        cache.put(key, translation(source, 2001), version);
+
+        assertNull(cache.get(key, source));
+    }
+
+}
@@ -2,8 +2,12 @@ package eu.modernmt.context.lucene;
 
 import eu.modernmt.context.ContextAnalyzerException;
 import eu.modernmt.context.lucene.analysis.CorpusAnalyzer;
+import eu.modernmt.context.lucene.storage.Options;
 import eu.modernmt.model.ContextVector;
 import eu.modernmt.model.corpus.Corpus;
+import eu.modernmt.stats.Gauge;
+import eu.modernmt.stats.LatencyHistogram;
+import eu.modernmt.stats.Metrics;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.logging.log4j.LogManager;
@@ -13,7 +17,7 @@ import org.apache.lucene.document.Document;
 import org.apache.lucene.index.*;
 import org.apache.lucene.queries.mlt.MoreLikeThis;
 import org.apache.lucene.search.IndexSearcher;
-import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ReferenceManager;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.TopScoreDocCollector;
 import org.apache.lucene.search.similarities.DefaultSimilarity;
@@ -27,31 +31,79 @@ import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.Reader;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.Locale;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Created by davide on 10/07/15.
+ * <p>
+ * Queries run on an IndexSnapshot, a near-real-time reader of the index writer together with
+ * the norms of the domain vectors. Snapshots are reference counted by a ReferenceManager:
+ * acquiring one never blocks, and a new snapshot is opened in background after every change.
+ * Only the norms of the domains changed since the previous snapshot are recomputed (see
+ * DomainNorms); they are stored next to the index on every commit, to be reused after a restart.
+ * If they are missing, they are built in background: until then, queries compute the norms
+ * of their candidates from the term vectors.
  */
 public class ContextAnalyzerIndex implements Closeable {
 
+    public interface RefreshListener {
+
+        /**
+         * Called after a new snapshot has become visible to the queries.
+         *
+         * @param domains the domains added, updated or deleted since the previous snapshot
+         * @param reset   true if the index has been rebuilt or new domains have been added
+         */
+        void onRefresh(Set<Integer> domains, boolean reset);
+
+    }
+
     private static final int MIN_RESULT_BATCH = 20;
+    private static final int MAX_QUERY_TERMS = MoreLikeThis.DEFAULT_MAX_QUERY_TERMS;
+    private static final String NORMS_FILE = "domain-norms.bin";
+    private static final LatencyHistogram queryLatency = Metrics.histogram(Metrics.CONTEXT_QUERY);
+    private static final Gauge similarityQueue = Metrics.gauge(Metrics.CONTEXT_SIMILARITY_QUEUED);
 
     private final Logger logger = LogManager.getLogger(ContextAnalyzerIndex.class);
 
-    private IDFTable idfCache;
-    private Directory indexDirectory;
-    private Analyzer analyzer;
-    private IndexWriter indexWriter;
-    private DirectoryReader indexReader;
+    private final IDFTable idfCache;
+    private final Directory indexDirectory;
+    private final Analyzer analyzer;
+    private final IndexWriter indexWriter;
+    private final File normsFile;
+
+    private final SnapshotManager snapshotManager;
+    private final ExecutorService refreshExecutor;
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean(false);
+
+    // Domains changed since the last snapshot: changes are recorded with the
+    // read lock, the snapshot refresh (that consumes them) holds the write lock
+    private final ReentrantReadWriteLock updateLock = new ReentrantReadWriteLock();
+    private final Set<Integer> pendingDomains = ConcurrentHashMap.newKeySet();
+    private boolean rebuildNorms = false;
+
+    private volatile RefreshListener refreshListener = null;
+
+    private final ThreadPoolExecutor similarityExecutor;
+    private final int similarityThreads;
+    private final int minParallelSimilarityCandidates;
+    private final int maxReferenceTerms;
 
     public ContextAnalyzerIndex(File indexPath, Locale language) throws IOException {
+        this(indexPath, language, new Options());
+    }
+
+    public ContextAnalyzerIndex(File indexPath, Locale language, Options options) throws IOException {
         if (!indexPath.isDirectory())
             FileUtils.forceMkdir(indexPath);
 
         this.indexDirectory = FSDirectory.open(indexPath);
+        this.normsFile = new File(indexPath, NORMS_FILE);
         this.analyzer = new CorpusAnalyzer(language);
+        this.idfCache = new IDFTable(DocumentBuilder.CONTENT_FIELD);
 
         // Index writer setup
         IndexWriterConfig indexConfig = new IndexWriterConfig(Version.LUCENE_4_10_4, this.analyzer);
@@ -66,60 +118,98 @@ public class ContextAnalyzerIndex implements Closeable {
         });
 
         this.indexWriter = new IndexWriter(this.indexDirectory, indexConfig);
-    }
+        this.snapshotManager = new SnapshotManager();
 
-    private IDFTable getIDFCache() throws ContextAnalyzerException {
-        if (idfCache == null) {
-            synchronized (this) {
-                if (idfCache == null) {
-                    idfCache = new IDFTable(DocumentBuilder.CONTENT_FIELD);
-                }
-            }
-        }
+        this.refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ContextAnalyzerIndex.Refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
 
-        return idfCache;
+        // Similarity tasks of all the queries share the same threads; when the queue is full
+        // (or the index is closing) the query thread runs the task itself, slowing down its own
+        // query only. Unlike CallerRunsPolicy, a rejected task is never discarded: the query is
+        // waiting for its result.
+        int threads = options.similarityThreads;
+        this.similarityExecutor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(options.similarityQueueSize), runnable -> {
+            Thread thread = new Thread(runnable, "CosineSimilarityCalculator");
+            thread.setDaemon(true);
+            return thread;
+        }, (task, executor) -> task.run());
+        this.similarityExecutor.allowCoreThreadTimeOut(true);
+        this.similarityThreads = threads;
+        this.minParallelSimilarityCandidates = options.minParallelSimilarityCandidates;
+        this.maxReferenceTerms = options.maxReferenceTerms;
+
+        if (rebuildNorms)
+            scheduleRefresh();
     }
 
-    public void invalidateCache() {
-        if (idfCache != null) {
-            idfCache.invalidate();
-
-            if (logger.isDebugEnabled())
-                logger.debug("IDF cache invalidated");
-        }
+    private void executeSimilarityTask(Runnable task) {
+        similarityQueue.increment();
+        similarityExecutor.execute(() -> {
+            similarityQueue.decrement();
+            task.run();
+        });
     }
 
-    private synchronized IndexReader getIndexReader() throws ContextAnalyzerException {
-        if (this.indexReader == null) {
-            try {
-                this.indexReader = DirectoryReader.open(this.indexDirectory);
-            } catch (IOException e) {
-                throw new ContextAnalyzerException("Could not open index directory: " + this.indexDirectory, e);
-            }
+    public void setRefreshListener(RefreshListener refreshListener) {
+        this.refreshListener = refreshListener;
+    }
 
-            this.indexReader.incRef();
-        } else {
-            DirectoryReader reader;
+    /**
+     * Opens a new snapshot in background, unless a refresh is already pending.
+     */
+    private void scheduleRefresh() {
+        if (!refreshScheduled.compareAndSet(false, true))
+            return;
 
-            try {
-                reader = DirectoryReader.openIfChanged(this.indexReader);
-            } catch (IOException e) {
-                throw new ContextAnalyzerException("Could not open index directory: " + this.indexDirectory, e);
-            }
+        try {
+            refreshExecutor.execute(() -> {
+                refreshScheduled.set(false);
 
-            if (reader != null) {
                 try {
-                    this.indexReader.close();
-                } catch (IOException e) {
-                    logger.warn("Could not close old indexReader", e);
-                }
+                    snapshotManager.maybeRefreshBlocking();
 
-                this.indexReader = reader;
-                this.indexReader.incRef();
-            }
+                    // Norms built in background can be stored if nothing changed after the last commit
+                    storeNorms();
+                } catch (IOException | RuntimeException e) {
+                    logger.error("Unable to refresh context analyzer index", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Closing, ignore it
+            refreshScheduled.set(false);
         }
+    }
 
-        return this.indexReader;
+    /**
+     * Makes the last commit visible and stores the norms of its snapshot; if other
+     * changes followed the commit, the norms will be stored with the next one.
+     * Commits must be serialized by the caller.
+     */
+    private void refreshAfterCommit() throws IOException {
+        snapshotManager.maybeRefreshBlocking();
+        storeNorms();
+    }
+
+    /**
+     * Stores the norms of the current snapshot, if it is the last commit and they are available.
+     */
+    private synchronized void storeNorms() throws IOException {
+        SegmentInfos commit = new SegmentInfos();
+        commit.read(this.indexDirectory);
+
+        IndexSnapshot snapshot = snapshotManager.acquire();
+        try {
+            if (snapshot.norms.isAvailable() && snapshot.reader.getVersion() == commit.getVersion())
+                snapshot.norms.store(this.normsFile);
+        } catch (IOException e) {
+            logger.warn("Could not store domain norms to " + this.normsFile, e);
+        } finally {
+            snapshotManager.release(snapshot);
+        }
     }
 
     public void add(Document document) throws ContextAnalyzerException {
@@ -132,12 +222,18 @@ public class ContextAnalyzerIndex implements Closeable {
 
             logger.info("Adding to index document " + id);
 
+            updateLock.readLock().lock();
             try {
                 this.indexWriter.addDocument(document);
+                this.pendingDomains.add(id);
             } catch (IOException e) {
                 throw new ContextAnalyzerException("Failed to add document " + id + " to index", e);
+            } finally {
+                updateLock.readLock().unlock();
             }
         }
+
+        scheduleRefresh();
     }
 
     public void update(int domain, Document document) throws ContextAnalyzerException {
@@ -146,11 +242,17 @@ public class ContextAnalyzerIndex implements Closeable {
 
         Term id = new Term(DocumentBuilder.ID_FIELD, builder.toBytesRef());
 
+        updateLock.readLock().lock();
         try {
             this.indexWriter.updateDocument(id, document);
+            this.pendingDomains.add(domain);
         } catch (IOException e) {
             throw new ContextAnalyzerException("Unable to update corpus " + domain, e);
+        } finally {
+            updateLock.readLock().unlock();
         }
+
+        scheduleRefresh();
     }
 
     public void delete(int domain) throws ContextAnalyzerException {
@@ -159,62 +261,114 @@ public class ContextAnalyzerIndex implements Closeable {
 
         Term id = new Term(DocumentBuilder.ID_FIELD, builder.toBytesRef());
 
+        updateLock.readLock().lock();
         try {
             this.indexWriter.deleteDocuments(id);
+            this.pendingDomains.add(domain);
         } catch (IOException e) {
             throw new ContextAnalyzerException("Unable to delete domain " + domain, e);
+        } finally {
+            updateLock.readLock().unlock();
         }
+
+        scheduleRefresh();
     }
 
-    public void flush() throws ContextAnalyzerException {
+    public synchronized void flush() throws ContextAnalyzerException {
         try {
             this.indexWriter.commit();
+            this.refreshAfterCommit();
         } catch (IOException e) {
             throw new ContextAnalyzerException("Unable to commit changes to context analyzer index", e);
         }
     }
 
-    public void clear() throws ContextAnalyzerException {
+    public synchronized void clear() throws ContextAnalyzerException {
         try {
-            this.indexWriter.deleteAll();
+            updateLock.writeLock().lock();
+            try {
+                this.indexWriter.deleteAll();
+                this.pendingDomains.clear();
+                this.rebuildNorms = true;
+            } finally {
+                updateLock.writeLock().unlock();
+            }
+
             this.indexWriter.commit();
+            this.refreshAfterCommit();
         } catch (IOException e) {
             throw new ContextAnalyzerException("Unable to drop context analyzer index", e);
         }
     }
 
     public ContextVector getSimilarDocuments(Corpus queryDocument, int limit) throws ContextAnalyzerException {
-        IndexReader reader = this.getIndexReader();
-        IndexSearcher searcher = new IndexSearcher(reader);
+        QueryDocument document;
 
-        // Get matching documents
+        try (Reader reader = queryDocument.getRawContentReader()) {
+            document = analyze(reader);
+        } catch (IOException e) {
+            throw new ContextAnalyzerException("Could not read content for similar documents query", e);
+        }
 
-        int rawLimit = limit < MIN_RESULT_BATCH ? MIN_RESULT_BATCH : limit;
+        return getSimilarDocuments(document, limit);
+    }
 
-        MoreLikeThis mlt = new MoreLikeThis(reader);
-        mlt.setFieldNames(new String[]{DocumentBuilder.CONTENT_FIELD});
-        mlt.setMinDocFreq(0);
-        mlt.setMinTermFreq(1);
-        mlt.setMinWordLen(2);
-        mlt.setBoost(true);
-        mlt.setAnalyzer(analyzer);
+    /**
+     * Reads and analyzes a query document. The content is consumed in a single pass
+     * and it is not stored, so it can be read from any stream.
+     */
+    QueryDocument analyze(Reader content) throws IOException {
+        return QueryDocument.analyze(analyzer, DocumentBuilder.CONTENT_FIELD, content);
+    }
 
-        TopScoreDocCollector collector = TopScoreDocCollector.create(rawLimit, true);
+    ContextVector getSimilarDocuments(QueryDocument queryDocument, int limit) throws ContextAnalyzerException {
+        long begin = System.nanoTime();
 
-        Reader queryDocumentReader;
+        IndexSnapshot snapshot;
         try {
-            queryDocumentReader = queryDocument.getRawContentReader();
+            snapshot = snapshotManager.acquire();
         } catch (IOException e) {
-            throw new ContextAnalyzerException("Could not read content for similar documents query", e);
+            throw new ContextAnalyzerException("Could not acquire index reader", e);
         }
 
+        ContextVector result;
+
         try {
-            Query query = mlt.like(DocumentBuilder.CONTENT_FIELD, queryDocumentReader);
-            searcher.search(query, collector);
+            result = getSimilarDocuments(snapshot, queryDocument, limit);
+        } finally {
+            try {
+                snapshotManager.release(snapshot);
+            } catch (IOException e) {
+                logger.warn("Could not release index reader", e);
+            }
+        }
+
+        queryLatency.recordSince(begin);
+
+        return result;
+    }
+
+    private ContextVector getSimilarDocuments(IndexSnapshot snapshot, QueryDocument queryDocument, int limit) throws ContextAnalyzerException {
+        IndexReader reader = snapshot.reader;
+        IndexSearcher searcher = snapshot.searcher;
+        DomainNorms norms = snapshot.norms;
+
+        QueryDocument.Selection selection;
+        try {
+            selection = queryDocument.select(reader, idfCache, MAX_QUERY_TERMS, maxReferenceTerms);
+        } catch (IOException e) {
+            throw new ContextAnalyzerException("Could not analyze query document", e);
+        }
+
+        // Get matching documents
+
+        int rawLimit = limit < MIN_RESULT_BATCH ? MIN_RESULT_BATCH : limit;
+        TopScoreDocCollector collector = TopScoreDocCollector.create(rawLimit, true);
+
+        try {
+            searcher.search(selection.getQuery(), collector);
         } catch (IOException e) {
             throw new ContextAnalyzerException("Failed to execute MoreLikeThis query", e);
-        } finally {
-            IOUtils.closeQuietly(queryDocumentReader);
         }
 
         ScoreDoc[] topDocs = collector.topDocs().scoreDocs;
@@ -225,43 +379,48 @@ public class ContextAnalyzerIndex implements Closeable {
         }
 
         // Compute cosine similarity
-        Document referenceDocument;
+        int[] ids = new int[topDocs.length];
+        double[] l2Norms = new double[topDocs.length];
 
-        try {
-            referenceDocument = DocumentBuilder.createDocument(queryDocument);
-        } catch (IOException e) {
-            throw new ContextAnalyzerException("Unable to read query document", e);
+        for (int i = 0; i < topDocs.length; i++) {
+            Document topDoc;
+            try {
+                topDoc = searcher.doc(topDocs[i].doc);
+            } catch (IOException e) {
+                throw new ContextAnalyzerException("Could not resolve document " + topDocs[i].doc + " in index", e);
+            }
+
+            ids[i] = DocumentBuilder.getId(topDoc);
+            l2Norms[i] = norms.getL2Norm(ids[i], reader.numDocs());
         }
 
-        ContextVector.Builder resultBuilder = new ContextVector.Builder(topDocs.length);
-        resultBuilder.setLimit(limit);
+        // Small candidate sets are not worth the hand-off to the similarity threads
+        Executor executor = topDocs.length < minParallelSimilarityCandidates ? null : this::executeSimilarityTask;
 
-        CosineSimilarityCalculator calculator = new CosineSimilarityCalculator(reader, DocumentBuilder.CONTENT_FIELD, getIDFCache());
-        calculator.setAnalyzer(analyzer);
+        CosineSimilarityCalculator calculator = new CosineSimilarityCalculator(reader, DocumentBuilder.CONTENT_FIELD, idfCache, executor, similarityThreads);
         calculator.setBoost(true);
-        calculator.setReferenceDocument(referenceDocument);
+        calculator.setReferenceTerms(selection.getReferenceTerms(), selection.getReferenceL2Norm());
         calculator.setScoreDocs(topDocs);
+        calculator.setL2Norms(l2Norms);
 
-        calculator.calculateSimilarity();
-
-        for (ScoreDoc topDocRef : topDocs) {
-            Document topDoc;
-            try {
-                topDoc = searcher.doc(topDocRef.doc);
-            } catch (IOException e) {
-                throw new ContextAnalyzerException("Could not resolve document " + topDocRef.doc + " in index", e);
-            }
+        try {
+            calculator.calculateSimilarity();
+        } catch (IOException e) {
+            throw new ContextAnalyzerException("Could not analyze query document", e);
+        }
 
-            int id = DocumentBuilder.getId(topDoc);
+        ContextVector.Builder resultBuilder = new ContextVector.Builder(topDocs.length);
+        resultBuilder.setLimit(limit);
 
+        for (int i = 0; i < topDocs.length; i++) {
             float similarityScore;
             try {
-                similarityScore = calculator.getSimilarity(topDocRef.doc);
+                similarityScore = calculator.getSimilarity(topDocs[i].doc);
             } catch (IOException e) {
-                throw new ContextAnalyzerException("Could not compute cosine similarity for doc " + id, e);
+                throw new ContextAnalyzerException("Could not compute cosine similarity for doc " + ids[i], e);
             }
 
-            resultBuilder.add(id, similarityScore);
+            resultBuilder.add(ids[i], similarityScore);
         }
 
         return resultBuilder.build();
@@ -269,9 +428,164 @@ public class ContextAnalyzerIndex implements Closeable {
 
     @Override
     public void close() throws IOException {
-        IOUtils.closeQuietly(this.indexReader);
+        this.refreshExecutor.shutdown();
+        this.similarityExecutor.shutdown();
+
+        try {
+            this.refreshExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // In-flight queries keep their snapshot open until they release it
+        IOUtils.closeQuietly(this.snapshotManager);
         IOUtils.closeQuietly(this.indexWriter);
         IOUtils.closeQuietly(this.indexDirectory);
     }
 
+    private static final class IndexSnapshot {
+
+        private final DirectoryReader reader;
+        private final IndexSearcher searcher;
+        private final DomainNorms norms;
+
+        private IndexSnapshot(DirectoryReader reader, DomainNorms norms) {
+            this.reader = reader;
+            this.searcher = new IndexSearcher(reader);
+            this.norms = norms;
+        }
+
+    }
+
+    private class SnapshotManager extends ReferenceManager<IndexSnapshot> {
+
+        // Changes of the last opened snapshot, notified once it has been swapped in;
+        // refreshes are serialized by the ReferenceManager
+        private Set<Integer> refreshedDomains = null;
+        private boolean refreshedReset = false;
+
+        public SnapshotManager() throws IOException {
+            DirectoryReader reader = DirectoryReader.open(indexWriter, true);
+            DomainNorms norms = null;
+
+            try {
+                norms = DomainNorms.load(normsFile, reader);
+            } catch (IOException e) {
+                logger.warn("Could not load domain norms from " + normsFile, e);
+            }
+
+            if (norms == null) {
+                // The index can be queried in the meantime
+                logger.info("Domain norms not found, they will be computed in background");
+
+                norms = DomainNorms.unavailable(reader.getVersion());
+                rebuildNorms = true;
+            }
+
+            current = new IndexSnapshot(reader, norms);
+
+            addListener(new ReferenceManager.RefreshListener() {
+
+                @Override
+                public void beforeRefresh() {
+                    refreshedDomains = null;
+                }
+
+                @Override
+                public void afterRefresh(boolean didRefresh) {
+                    ContextAnalyzerIndex.RefreshListener listener = refreshListener;
+
+                    if (didRefresh && refreshedDomains != null && listener != null)
+                        listener.onRefresh(refreshedDomains, refreshedReset);
+                }
+
+            });
+        }
+
+        @Override
+        protected void decRef(IndexSnapshot snapshot) throws IOException {
+            snapshot.reader.decRef();
+        }
+
+        @Override
+        protected boolean tryIncRef(IndexSnapshot snapshot) {
+            return snapshot.reader.tryIncRef();
+        }
+
+        @Override
+        protected int getRefCount(IndexSnapshot snapshot) {
+            return snapshot.reader.getRefCount();
+        }
+
+        @Override
+        protected IndexSnapshot refreshIfNeeded(IndexSnapshot current) throws IOException {
+            DirectoryReader reader;
+            HashSet<Integer> domains;
+            boolean rebuild;
+
+            // No change can be recorded while the reader is opened:
+            // the new reader contains all and only the changes of "domains"
+            updateLock.writeLock().lock();
+            try {
+                reader = DirectoryReader.openIfChanged(current.reader, indexWriter, true);
+
+                domains = new HashSet<>(pendingDomains);
+                pendingDomains.clear();
+                rebuild = rebuildNorms || !current.norms.isAvailable();
+                rebuildNorms = false;
+            } finally {
+                updateLock.writeLock().unlock();
+            }
+
+            if (reader == null) {
+                if (!rebuild)
+                    return null;
+
+                // Norms are built for the current reader
+                reader = current.reader;
+                reader.incRef();
+            }
+
+            try {
+                DomainNorms norms;
+
+                boolean reset = rebuild;
+
+                if (rebuild) {
+                    long begin = System.currentTimeMillis();
+
+                    idfCache.invalidate(reader.getVersion());
+                    norms = DomainNorms.build(reader, idfCache);
+
+                    logger.info("Domain norms computed in " + ((System.currentTimeMillis() - begin) / 1000.) + "s");
+                } else {
+                    norms = current.norms.update(current.reader, reader, domains, idfCache);
+
+                    for (int domain : domains) {
+                        if (!current.norms.contains(domain) && norms.contains(domain))
+                            reset = true;
+                    }
+                }
+
+                refreshedDomains = domains;
+                refreshedReset = reset;
+
+                return new IndexSnapshot(reader, norms);
+            } catch (IOException | RuntimeException e) {
+                // Changes will be processed with the next refresh
+                updateLock.writeLock().lock();
+                try {
+                    pendingDomains.addAll(domains);
+                    rebuildNorms |= rebuild;
+                } finally {
+                    updateLock.writeLock().unlock();
+                }
+
+                reader.decRef();
+                throw e;
+            }
+        }
+
+    }
+
 }
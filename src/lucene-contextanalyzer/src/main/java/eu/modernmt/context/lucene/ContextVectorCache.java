@@ -0,0 +1,369 @@
+package eu.modernmt.context.lucene;
+
+import eu.modernmt.model.ContextVector;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded LRU cache of context vectors. Entries are keyed by the SHA-1 digest of the query
+ * content, with runs of whitespace collapsed (they are token boundaries for every analyzer),
+ * and by the vector size limit: the content itself is never stored.
+ * <p>
+ * Every index refresh bumps the version of the domains it has re-indexed or deleted: an entry
+ * is considered stale (and lazily removed) if one of the domains of its vector has changed after
+ * the entry was computed. A refresh adding new domains, or rebuilding the index, invalidates
+ * all the entries. Like the translation cache, this trades exactness for hit rate: the small
+ * IDF drift caused by other domains, or an updated domain that would now enter the vector,
+ * are ignored until the entry is evicted or invalidated.
+ */
+public class ContextVectorCache implements ContextAnalyzerIndex.RefreshListener {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    public static class Stats {
+
+        private final int size;
+        private final int capacity;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long invalidations;
+
+        private Stats(int size, int capacity, long hits, long misses, long evictions, long invalidations) {
+            this.size = size;
+            this.capacity = capacity;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.invalidations = invalidations;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        public long getInvalidations() {
+            return invalidations;
+        }
+    }
+
+    public static final class Key {
+
+        private final byte[] digest;
+        private final int limit;
+        private final int hash;
+
+        private Key(byte[] digest, int limit) {
+            this.digest = digest;
+            this.limit = limit;
+            this.hash = 31 * Arrays.hashCode(digest) + limit;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Key key = (Key) o;
+
+            if (hash != key.hash) return false;
+            if (limit != key.limit) return false;
+            return Arrays.equals(digest, key.digest);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static class Entry {
+
+        private final int[] domains;
+        private final float[] scores;
+        private final long version;
+
+        private Entry(ContextVector vector, long version) {
+            this.domains = new int[vector.size()];
+            this.scores = new float[vector.size()];
+            this.version = version;
+
+            int i = 0;
+            for (ContextVector.Entry entry : vector) {
+                this.domains[i] = entry.domain.getId();
+                this.scores[i] = entry.score;
+                i++;
+            }
+        }
+
+        public ContextVector getContextVector() {
+            ContextVector.Builder builder = new ContextVector.Builder(domains.length);
+            for (int i = 0; i < domains.length; i++)
+                builder.add(domains[i], scores[i]);
+
+            return builder.build();
+        }
+    }
+
+    private final int capacity;
+    private final LinkedHashMap<Key, Entry> entries;
+
+    private final AtomicLong clock = new AtomicLong(0L);
+    private final ConcurrentHashMap<Integer, Long> domainVersions = new ConcurrentHashMap<>();
+    private volatile long lastClearVersion = 0L;
+
+    private long hits = 0L;
+    private long misses = 0L;
+    private long evictions = 0L;
+    private long invalidations = 0L;
+
+    public ContextVectorCache(int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<Key, Entry>(16, .75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > ContextVectorCache.this.capacity) {
+                    evictions++;
+                    return true;
+                } else {
+                    return false;
+                }
+            }
+        };
+    }
+
+    public static Key key(String content, int limit) {
+        try {
+            return key(new StringReader(content), limit);
+        } catch (IOException e) {
+            throw new Error("IOException from StringReader", e);
+        }
+    }
+
+    public static Key key(Reader content, int limit) throws IOException {
+        KeyReader reader = new KeyReader(content);
+        return reader.getKey(limit);
+    }
+
+    /**
+     * A reader that computes the cache key of the content it reads.
+     */
+    private static final class KeyReader extends FilterReader {
+
+        private final MessageDigest digest;
+        private final StringBuilder normalized = new StringBuilder(BUFFER_SIZE);
+        private boolean pendingSpace = false;
+        private boolean empty = true;
+        private boolean eof = false;
+
+        public KeyReader(Reader in) {
+            super(in);
+
+            try {
+                this.digest = MessageDigest.getInstance("SHA-1");
+            } catch (NoSuchAlgorithmException e) {
+                throw new Error("SHA-1 not supported", e);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            int c = super.read();
+            if (c == -1)
+                eof = true;
+            else
+                update((char) c);
+
+            flush(false);
+            return c;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read == -1)
+                eof = true;
+
+            for (int i = 0; i < read; i++)
+                update(buffer[offset + i]);
+
+            flush(false);
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Skipped chars must be hashed anyway
+            char[] buffer = new char[(int) Math.min(n, BUFFER_SIZE)];
+            int read = read(buffer, 0, buffer.length);
+
+            return read < 0 ? 0 : read;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void mark(int readAheadLimit) throws IOException {
+            throw new IOException("mark() not supported");
+        }
+
+        @Override
+        public void reset() throws IOException {
+            throw new IOException("reset() not supported");
+        }
+
+        private void update(char c) {
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f') {
+                pendingSpace = !empty;
+            } else {
+                if (pendingSpace)
+                    normalized.append(' ');
+
+                normalized.append(c);
+                pendingSpace = false;
+                empty = false;
+            }
+        }
+
+        private void flush(boolean all) {
+            int length = normalized.length();
+
+            // Surrogate pairs must not be split between two updates
+            if (!all && length > 0 && Character.isHighSurrogate(normalized.charAt(length - 1)))
+                length--;
+
+            if (length > 0) {
+                digest.update(normalized.substring(0, length).getBytes(StandardCharsets.UTF_8));
+                normalized.delete(0, length);
+            }
+        }
+
+        /**
+         * Reads the remaining content, if any, and returns the key of the whole content.
+         * The reader can be closed before, but only once the content has been entirely read.
+         */
+        public Key getKey(int limit) throws IOException {
+            char[] buffer = new char[BUFFER_SIZE];
+            while (!eof)
+                read(buffer, 0, buffer.length);
+
+            flush(true);
+            return new Key(digest.digest(), limit);
+        }
+    }
+
+    /**
+     * Returns the current cache version: it must be read before starting a query
+     * and then passed to {@link #put(Key, ContextVector, long)}, so that a concurrent
+     * refresh cannot be hidden by a result computed with the previous index snapshot.
+     *
+     * @return the current cache version
+     */
+    public long version() {
+        return clock.get();
+    }
+
+    public ContextVector get(Key key) {
+        Entry entry;
+
+        synchronized (this) {
+            entry = entries.get(key);
+
+            if (entry != null && !isValid(entry)) {
+                entries.remove(key);
+                invalidations++;
+                entry = null;
+            }
+
+            if (entry == null)
+                misses++;
+            else
+                hits++;
+        }
+
+        return entry == null ? null : entry.getContextVector();
+    }
+
+    public void put(Key key, ContextVector vector, long version) {
+        Entry entry = new Entry(vector, version);
+
+        if (!isValid(entry))
+            return;
+
+        synchronized (this) {
+            entries.put(key, entry);
+        }
+    }
+
+    public void clear() {
+        lastClearVersion = clock.incrementAndGet();
+
+        synchronized (this) {
+            invalidations += entries.size();
+            entries.clear();
+        }
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(entries.size(), capacity, hits, misses, evictions, invalidations);
+    }
+
+    private boolean isValid(Entry entry) {
+        if (entry.version < lastClearVersion)
+            return false;
+
+        for (int domain : entry.domains) {
+            Long version = domainVersions.get(domain);
+            if (version != null && entry.version < version)
+                return false;
+        }
+
+        return true;
+    }
+
+    // RefreshListener
+
+    @Override
+    public void onRefresh(Set<Integer> domains, boolean reset) {
+        if (reset) {
+            clear();
+        } else {
+            long version = clock.incrementAndGet();
+
+            for (int domain : domains)
+                domainVersions.put(domain, version);
+        }
+    }
+
+}
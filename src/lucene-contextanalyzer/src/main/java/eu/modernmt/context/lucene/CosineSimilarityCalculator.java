@@ -1,110 +1,226 @@
 package eu.modernmt.context.lucene;
 
-import org.apache.commons.io.IOUtils;
-import org.apache.lucene.analysis.Analyzer;
-import org.apache.lucene.document.Document;
 import org.apache.lucene.index.*;
 import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.ScoreDoc;
-import org.apache.lucene.store.Directory;
-import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
-import org.apache.lucene.util.Version;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.*;
 
 /**
  * Created by davide on 18/09/15.
+ * <p>
+ * The dot products with the reference document are computed term by term: the reference terms
+ * are split in about one chunk per thread, and every task walks the postings of the terms of its
+ * chunk reading their frequencies in the candidate documents, so that the cost depends on the
+ * terms of the reference document only. The L2 norms of the
+ * candidates should be provided with setL2Norms(); the missing ones are computed from the
+ * term vectors of the documents.
  */
 public class CosineSimilarityCalculator {
 
     private final IDFTable cache;
 
-    private ExecutorService executor;
+    private final Executor executor;
+    private final int parallelism;
     private boolean running = false;
     private boolean boost = false;
     private IndexReader indexReader;
-    private Analyzer analyzer;
     private String fieldName;
     private ReferenceDoc referenceDocument;
     private ScoreDoc[] scoreDocs;
-    private HashMap<Integer, Future<Float>> results;
-
-    public CosineSimilarityCalculator(IndexReader indexReader, String fieldName, IDFTable cache) {
+    private double[] l2Norms;
+
+    private int[] docs;
+    private HashMap<Integer, Integer> positions;
+    private float[] referenceWeights;
+    private ArrayList<Future<float[][]>> weights;
+    private HashMap<Integer, Future<Double>> norms;
+    private float[] similarities;
+
+    /**
+     * @param executor    the executor of the similarity tasks, usually shared with other
+     *                    calculators; if null, the tasks are run by the calling thread
+     * @param parallelism the number of tasks the reference terms are split into, usually
+     *                    the number of threads of the executor
+     */
+    public CosineSimilarityCalculator(IndexReader indexReader, String fieldName, IDFTable cache, Executor executor, int parallelism) {
         this.indexReader = indexReader;
         this.fieldName = fieldName;
-        this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        this.executor = executor;
+        this.parallelism = executor == null ? 1 : Math.max(1, parallelism);
         this.cache = cache;
     }
 
-    public void setAnalyzer(Analyzer analyzer) {
-        this.analyzer = analyzer;
-    }
-
-    public void setReferenceDocument(Document referenceDocument) {
-        this.referenceDocument = new ReferenceDoc(referenceDocument);
+    /**
+     * Sets the reference vector the score docs are compared with.
+     *
+     * @param terms  the weights of the reference terms to compare with the score docs
+     * @param l2Norm the L2 norm of the reference vector; it is greater than the norm of the
+     *               given weights if the vector has terms that cannot match any score doc
+     */
+    public void setReferenceTerms(HashMap<String, Float> terms, double l2Norm) {
+        this.referenceDocument = new ReferenceDoc(terms, l2Norm);
     }
 
     public void setScoreDocs(ScoreDoc[] scoreDocs) {
         this.scoreDocs = scoreDocs;
-        this.results = new HashMap<>();
+        this.l2Norms = null;
+    }
+
+    /**
+     * @param l2Norms the L2 norms of the TF-IDF vectors of the score docs, in the same order;
+     *                NaN if unknown. They are ignored if boost is disabled.
+     */
+    public void setL2Norms(double[] l2Norms) {
+        this.l2Norms = l2Norms;
     }
 
     public void setBoost(boolean boost) {
         this.boost = boost;
     }
 
-    public void calculateSimilarity() {
+    public void calculateSimilarity() throws IOException {
         this.calculateSimilarity(true);
     }
 
-    public void calculateSimilarity(boolean awaitTermination) {
+    public void calculateSimilarity(boolean awaitTermination) throws IOException {
+        HashMap<String, Float> referenceTerms = referenceDocument.getTerms();
+
         synchronized (this) {
             if (running)
                 throw new IllegalStateException("This instance is already in use by another thread");
             running = true;
         }
 
-        for (ScoreDoc scoreDoc : scoreDocs) {
-            int id = scoreDoc.doc;
-            results.put(id, executor.submit(new SimilarityTask(scoreDoc.doc)));
+        docs = new int[scoreDocs.length];
+        for (int i = 0; i < scoreDocs.length; i++)
+            docs[i] = scoreDocs[i].doc;
+        Arrays.sort(docs);
+
+        positions = new HashMap<>(docs.length);
+        for (int i = 0; i < docs.length; i++)
+            positions.put(docs[i], i);
+
+        norms = new HashMap<>();
+        for (int i = 0; i < scoreDocs.length; i++) {
+            if (!boost || l2Norms == null || Double.isNaN(l2Norms[i]))
+                norms.put(scoreDocs[i].doc, execute(new NormTask(scoreDocs[i].doc)));
         }
 
+        BytesRef[] terms = new BytesRef[referenceTerms.size()];
+        referenceWeights = new float[referenceTerms.size()];
+        similarities = null;
+
+        int t = 0;
+        for (Map.Entry<String, Float> entry : referenceTerms.entrySet()) {
+            terms[t] = new BytesRef(entry.getKey());
+            referenceWeights[t] = entry.getValue();
+            t++;
+        }
+
+        int chunkSize = Math.max(1, (terms.length + parallelism - 1) / parallelism);
+        weights = new ArrayList<>(parallelism);
+
+        for (int begin = 0; begin < terms.length; begin += chunkSize)
+            weights.add(execute(new TermTask(terms, begin, Math.min(terms.length, begin + chunkSize))));
+
         if (awaitTermination)
             this.awaitTermination();
     }
 
+    private <V> Future<V> execute(Callable<V> callable) {
+        FutureTask<V> task = new FutureTask<>(callable);
+
+        if (executor == null)
+            task.run();
+        else
+            executor.execute(task);
+
+        return task;
+    }
+
     public void awaitTermination() {
         synchronized (this) {
             if (!running)
                 return;
         }
 
-        for (Future<Float> result : this.results.values()) {
-            try {
-                result.get();
-            } catch (Throwable e) {
-            }
-        }
-
-        executor.shutdown();
+        for (Future<?> result : this.weights)
+            await(result);
+        for (Future<?> result : this.norms.values())
+            await(result);
 
         synchronized (this) {
             running = false;
         }
     }
 
+    private static void await(Future<?> result) {
+        try {
+            result.get();
+        } catch (Throwable e) {
+            // Errors are thrown by getSimilarity()
+        }
+    }
+
     public float getSimilarity(int docId) throws IOException {
         synchronized (this) {
             if (running)
                 awaitTermination();
+
+            if (similarities == null)
+                similarities = computeSimilarities();
+        }
+
+        return similarities[positions.get(docId)];
+    }
+
+    private float[] computeSimilarities() throws IOException {
+        double referenceL2Norm = referenceDocument.getL2Norm();
+
+        // Dot products are summed in the same order of the reference terms
+        double[] dotProducts = new double[docs.length];
+        int t = 0;
+        for (Future<float[][]> chunk : weights) {
+            for (float[] termWeights : get(chunk)) {
+                float referenceWeight = referenceWeights[t++];
+
+                for (int i = 0; i < docs.length; i++) {
+                    if (termWeights[i] != 0)
+                        dotProducts[i] += referenceWeight * termWeights[i];
+                }
+            }
         }
 
+        double[] docNorms = new double[docs.length];
+        for (int i = 0; i < scoreDocs.length; i++) {
+            int doc = scoreDocs[i].doc;
+            Future<Double> norm = norms.get(doc);
+
+            docNorms[positions.get(doc)] = norm == null ? l2Norms[i] : get(norm);
+        }
+
+        float[] similarities = new float[docs.length];
+        for (int i = 0; i < docs.length; i++) {
+            float similarity = (float) (dotProducts[i] / (referenceL2Norm * docNorms[i]));
+
+            if (!Float.isInfinite(similarity) && !Float.isNaN(similarity))
+                similarities[i] = similarity;
+        }
+
+        return similarities;
+    }
+
+    private static <V> V get(Future<V> result) throws IOException {
         try {
-            return results.get(docId).get();
+            return result.get();
         } catch (InterruptedException e) {
             throw new IllegalStateException("Execution has been cancelled", e);
         } catch (ExecutionException e) {
@@ -146,100 +262,90 @@ public class CosineSimilarityCalculator {
 
     protected class ReferenceDoc {
 
-        private Document document;
-        private HashMap<String, Float> terms = null;
-        private double l2Norm = -1.;
-
-        public ReferenceDoc(Document document) {
-            this.document = document;
-        }
-
-        public Document getDocument() {
-            return document;
-        }
-
-        public HashMap<String, Float> getTerms() throws IOException {
-            if (terms == null) {
-                synchronized (this) {
-                    if (terms == null) {
-                        Directory directory = new RAMDirectory();
-                        IndexWriter writer = null;
-                        IndexReader reader = null;
-
-                        try {
-                            IndexWriterConfig indexConfig = new IndexWriterConfig(Version.LUCENE_4_10_4, analyzer);
-                            indexConfig.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
-                            writer = new IndexWriter(directory, indexConfig);
-                            writer.addDocument(document);
-                            IOUtils.closeQuietly(writer);
-                            reader = DirectoryReader.open(directory);
-                            terms = getTermFrequencies(reader, 0);
-                        } catch (Exception e) {
-                            e.printStackTrace();
-                        } finally {
-                            IOUtils.closeQuietly(writer);
-                            IOUtils.closeQuietly(reader);
-                            IOUtils.closeQuietly(directory);
-                        }
+        private final HashMap<String, Float> terms;
+        private final double l2Norm;
 
-                    }
-                }
-            }
+        public ReferenceDoc(HashMap<String, Float> terms, double l2Norm) {
+            this.terms = terms;
+            this.l2Norm = l2Norm;
+        }
 
+        public HashMap<String, Float> getTerms() {
             return terms;
         }
 
-        public double getL2Norm() throws IOException {
-            if (l2Norm < 0) {
-                synchronized (this) {
-                    if (l2Norm < 0) {
-                        HashMap<String, Float> terms = getTerms();
-                        double norm = 0;
+        public double getL2Norm() {
+            return l2Norm;
+        }
+    }
+
+    protected class TermTask implements Callable<float[][]> {
+
+        private final BytesRef[] terms;
+        private final int begin;
+        private final int end;
+
+        /**
+         * Computes the weights of the terms in the range [begin, end) of the given array.
+         */
+        public TermTask(BytesRef[] terms, int begin, int end) {
+            this.terms = terms;
+            this.begin = begin;
+            this.end = end;
+        }
+
+        @Override
+        public float[][] call() throws IOException {
+            float[][] weights = new float[end - begin][];
+
+            Bits liveDocs = MultiFields.getLiveDocs(indexReader);
+            Terms indexTerms = MultiFields.getTerms(indexReader, fieldName);
+            TermsEnum termsEnum = indexTerms == null ? null : indexTerms.iterator(null);
+            DocsEnum docsEnum = null;
+
+            for (int t = begin; t < end; t++) {
+                BytesRef term = terms[t];
+                float[] termWeights = weights[t - begin] = new float[docs.length];
+
+                if (termsEnum == null || !termsEnum.seekExact(term))
+                    continue;
 
-                        for (Float value : terms.values())
-                            norm += value * value;
-                        l2Norm = Math.sqrt(norm);
+                docsEnum = termsEnum.docs(liveDocs, docsEnum);
+                float idf = boost ? cache.getIDF(indexReader, term) : 1.f;
+
+                int doc = docsEnum.nextDoc();
+                for (int i = 0; i < docs.length && doc != DocIdSetIterator.NO_MORE_DOCS; i++) {
+                    if (doc < docs[i])
+                        doc = docsEnum.advance(docs[i]);
+
+                    if (doc == docs[i]) {
+                        int freq = docsEnum.freq();
+                        termWeights[i] = boost ? IDFTable.tf(freq) * idf : freq;
                     }
                 }
             }
 
-            return l2Norm;
+            return weights;
         }
     }
 
-    protected class SimilarityTask implements Callable<Float> {
+    protected class NormTask implements Callable<Double> {
 
-        private int docId;
+        private final int docId;
 
-        public SimilarityTask(int docId) {
+        public NormTask(int docId) {
             this.docId = docId;
         }
 
         @Override
-        public Float call() throws IOException {
-            HashMap<String, Float> referenceTerms = referenceDocument.getTerms();
+        public Double call() throws IOException {
             HashMap<String, Float> terms = getTermFrequencies(indexReader, docId);
 
-            double dotProduct = 0;
-            double referenceL2Norm = referenceDocument.getL2Norm();
             double l2Norm = 0;
-
             for (Float value : terms.values())
                 l2Norm += value * value;
-            l2Norm = Math.sqrt(l2Norm);
 
-            for (Map.Entry<String, Float> entry : referenceTerms.entrySet()) {
-                Float otherFreq = terms.get(entry.getKey());
-                if (otherFreq != null)
-                    dotProduct += entry.getValue() * otherFreq;
-            }
-
-            float similarity = (float) (dotProduct / (referenceL2Norm * l2Norm));
-
-            if (Float.isInfinite(similarity) || Float.isNaN(similarity))
-                return 0.f;
-            else
-                return similarity;
+            return Math.sqrt(l2Norm);
         }
     }
 
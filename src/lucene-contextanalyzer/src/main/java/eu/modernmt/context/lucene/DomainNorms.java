@@ -0,0 +1,305 @@
+package eu.modernmt.context.lucene;
+
+import org.apache.lucene.index.*;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.FieldCache;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.apache.lucene.util.NumericUtils;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * L2 norms of the TF-IDF vectors of the indexed domains. The norm of a domain depends on
+ * the document frequency of all its terms, and on the number of documents in the index.
+ * With idf(t) = A - b(t), where A = ln(numDocs) + 1 and b(t) = ln(df(t) + 1), the squared
+ * norm is A^2 * S0 - 2A * S1 + S2 with:
+ * <ul>
+ * <li>S0 = sum of tf(t)^2 (the term frequencies)</li>
+ * <li>S1 = sum of tf(t)^2 * b(t)</li>
+ * <li>S2 = sum of tf(t)^2 * b(t)^2</li>
+ * </ul>
+ * The three sums do not depend on the number of documents. Document frequencies include the
+ * deleted documents (as Lucene does), so they change only for the terms of the documents added
+ * to the index, and for the terms of the deleted documents that are merged away: an update
+ * recomputes the updated domains and adjusts the others by walking the postings of those
+ * terms only. The terms of the deleted documents are tracked until the index has no deletions.
+ * <p>
+ * Instances are immutable: update() returns a new instance for the new index reader.
+ * An unavailable instance has no norms at all, it stands for norms still being built.
+ */
+class DomainNorms {
+
+    private final long version;
+    private final HashMap<Integer, double[]> sums;
+    private final Set<String> deletedTerms;
+
+    public static DomainNorms unavailable(long version) {
+        return new DomainNorms(version, null, null);
+    }
+
+    private DomainNorms(long version, HashMap<Integer, double[]> sums, Set<String> deletedTerms) {
+        this.version = version;
+        this.sums = sums;
+        this.deletedTerms = deletedTerms;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isAvailable() {
+        return sums != null;
+    }
+
+    public boolean contains(int domain) {
+        return sums != null && sums.containsKey(domain);
+    }
+
+    /**
+     * @return the L2 norm of the domain TF-IDF vector, or NaN if the domain is unknown
+     * or the norms are not available
+     */
+    public double getL2Norm(int domain, long numDocs) {
+        double[] sums = this.sums == null ? null : this.sums.get(domain);
+        if (sums == null)
+            return Double.NaN;
+
+        double a = Math.log(numDocs) + 1.0;
+        double norm = a * a * sums[0] - 2 * a * sums[1] + sums[2];
+
+        return norm > 0 ? Math.sqrt(norm) : 0;
+    }
+
+    // Computation
+
+    public static DomainNorms build(DirectoryReader reader, IDFTable idfTable) throws IOException {
+        HashMap<Integer, double[]> sums = new HashMap<>();
+
+        for (AtomicReaderContext context : reader.leaves()) {
+            AtomicReader leaf = context.reader();
+            Bits liveDocs = leaf.getLiveDocs();
+            FieldCache.Ints ids = getIds(leaf);
+
+            for (int doc = 0; doc < leaf.maxDoc(); doc++) {
+                if (liveDocs != null && !liveDocs.get(doc))
+                    continue;
+
+                Map<String, Integer> frequencies = getTermFrequencies(reader, context.docBase + doc);
+                sums.put(ids.get(doc), computeSums(reader, idfTable, frequencies));
+            }
+        }
+
+        return new DomainNorms(reader.getVersion(), sums, getDeletedTerms(reader));
+    }
+
+    private static Set<String> getDeletedTerms(IndexReader reader) throws IOException {
+        if (!reader.hasDeletions())
+            return Collections.emptySet();
+
+        HashSet<String> terms = new HashSet<>();
+
+        for (AtomicReaderContext context : reader.leaves()) {
+            Bits liveDocs = context.reader().getLiveDocs();
+            if (liveDocs == null)
+                continue;
+
+            for (int doc = 0; doc < liveDocs.length(); doc++) {
+                if (!liveDocs.get(doc))
+                    terms.addAll(getTermFrequencies(reader, context.docBase + doc).keySet());
+            }
+        }
+
+        return terms;
+    }
+
+    /**
+     * Computes the norms for a more recent reader of the same index. The IDF table entries
+     * of the terms whose document frequency changed are invalidated as well.
+     *
+     * @param domains all the domains added, updated or deleted between the two readers
+     */
+    public DomainNorms update(DirectoryReader oldReader, DirectoryReader newReader, Set<Integer> domains,
+                              IDFTable idfTable) throws IOException {
+        if (!isAvailable())
+            throw new IllegalStateException("Domain norms not available, they must be built");
+
+        HashMap<Integer, Map<String, Integer>> updatedDomains = new HashMap<>(domains.size());
+        HashSet<String> deletedTerms = new HashSet<>(this.deletedTerms);
+
+        // Document frequency can change for the terms of the new documents, and for the
+        // terms of the deleted documents (the old versions of the domains included)
+        HashSet<String> candidateTerms = new HashSet<>(this.deletedTerms);
+
+        for (int domain : domains) {
+            Map<String, Integer> oldTerms = getTermFrequencies(oldReader, findDocument(oldReader, domain));
+            Map<String, Integer> newTerms = getTermFrequencies(newReader, findDocument(newReader, domain));
+
+            deletedTerms.addAll(oldTerms.keySet());
+            candidateTerms.addAll(oldTerms.keySet());
+            candidateTerms.addAll(newTerms.keySet());
+
+            if (!newTerms.isEmpty())
+                updatedDomains.put(domain, newTerms);
+        }
+
+        if (!newReader.hasDeletions())
+            deletedTerms.clear();
+
+        HashMap<String, long[]> changedTerms = new HashMap<>();
+        for (String text : candidateTerms) {
+            Term term = new Term(DocumentBuilder.CONTENT_FIELD, text);
+
+            long oldDocFreq = oldReader.docFreq(term);
+            long newDocFreq = newReader.docFreq(term);
+
+            if (oldDocFreq != newDocFreq)
+                changedTerms.put(text, new long[]{oldDocFreq, newDocFreq});
+        }
+
+        idfTable.invalidate(newReader.getVersion(), changedTerms.keySet());
+
+        HashMap<Integer, double[]> sums = new HashMap<>(this.sums.size() + updatedDomains.size());
+        for (Map.Entry<Integer, double[]> entry : this.sums.entrySet()) {
+            if (!domains.contains(entry.getKey()))
+                sums.put(entry.getKey(), entry.getValue().clone());
+        }
+
+        // Adjust the domains that contain a changed term
+        for (Map.Entry<String, long[]> entry : changedTerms.entrySet()) {
+            Term term = new Term(DocumentBuilder.CONTENT_FIELD, entry.getKey());
+
+            double oldB = Math.log(entry.getValue()[0] + 1);
+            double newB = Math.log(entry.getValue()[1] + 1);
+
+            for (AtomicReaderContext context : newReader.leaves()) {
+                AtomicReader leaf = context.reader();
+                DocsEnum docsEnum = leaf.termDocsEnum(term);
+                if (docsEnum == null)
+                    continue;
+
+                FieldCache.Ints ids = getIds(leaf);
+
+                int doc;
+                while ((doc = docsEnum.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+                    double[] domainSums = sums.get(ids.get(doc));
+
+                    if (domainSums != null) {
+                        int freq = docsEnum.freq();
+                        domainSums[1] += freq * (newB - oldB);
+                        domainSums[2] += freq * (newB * newB - oldB * oldB);
+                    }
+                }
+            }
+        }
+
+        for (Map.Entry<Integer, Map<String, Integer>> entry : updatedDomains.entrySet())
+            sums.put(entry.getKey(), computeSums(newReader, idfTable, entry.getValue()));
+
+        return new DomainNorms(newReader.getVersion(), sums, deletedTerms);
+    }
+
+    private static double[] computeSums(IndexReader reader, IDFTable idfTable, Map<String, Integer> frequencies) throws IOException {
+        double[] sums = new double[3];
+
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            Term term = new Term(DocumentBuilder.CONTENT_FIELD, entry.getKey());
+            int freq = entry.getValue();
+            double b = Math.log(idfTable.getDocFreq(reader, term) + 1);
+
+            sums[0] += freq;
+            sums[1] += freq * b;
+            sums[2] += freq * b * b;
+        }
+
+        return sums;
+    }
+
+    private static FieldCache.Ints getIds(AtomicReader reader) throws IOException {
+        return FieldCache.DEFAULT.getInts(reader, DocumentBuilder.ID_FIELD, FieldCache.NUMERIC_UTILS_INT_PARSER, false);
+    }
+
+    private static int findDocument(IndexReader reader, int domain) throws IOException {
+        BytesRefBuilder builder = new BytesRefBuilder();
+        NumericUtils.intToPrefixCoded(domain, 0, builder);
+
+        DocsEnum docsEnum = MultiFields.getTermDocsEnum(reader, MultiFields.getLiveDocs(reader),
+                DocumentBuilder.ID_FIELD, builder.toBytesRef(), DocsEnum.FLAG_NONE);
+
+        if (docsEnum == null)
+            return -1;
+
+        int doc = docsEnum.nextDoc();
+        return doc == DocIdSetIterator.NO_MORE_DOCS ? -1 : doc;
+    }
+
+    private static Map<String, Integer> getTermFrequencies(IndexReader reader, int doc) throws IOException {
+        Terms vector = doc < 0 ? null : reader.getTermVector(doc, DocumentBuilder.CONTENT_FIELD);
+        if (vector == null)
+            return Collections.emptyMap();
+
+        HashMap<String, Integer> frequencies = new HashMap<>();
+
+        TermsEnum termsEnum = vector.iterator(null);
+        BytesRef text;
+        while ((text = termsEnum.next()) != null)
+            frequencies.put(text.utf8ToString(), (int) termsEnum.totalTermFreq());
+
+        return frequencies;
+    }
+
+    // Persistence
+
+    /**
+     * @return the stored norms, or null if the file is missing or it does not match the version of the given reader
+     */
+    public static DomainNorms load(File file, DirectoryReader reader) throws IOException {
+        if (!file.isFile())
+            return null;
+
+        long version = reader.getVersion();
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (input.readLong() != version)
+                return null;
+
+            int size = input.readInt();
+            HashMap<Integer, double[]> sums = new HashMap<>(size);
+
+            for (int i = 0; i < size; i++) {
+                int domain = input.readInt();
+                sums.put(domain, new double[]{input.readDouble(), input.readDouble(), input.readDouble()});
+            }
+
+            return new DomainNorms(version, sums, getDeletedTerms(reader));
+        }
+    }
+
+    public void store(File file) throws IOException {
+        if (!isAvailable())
+            throw new IllegalStateException("Domain norms not available");
+
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            output.writeLong(version);
+            output.writeInt(sums.size());
+
+            for (Map.Entry<Integer, double[]> entry : sums.entrySet()) {
+                double[] values = entry.getValue();
+
+                output.writeInt(entry.getKey());
+                output.writeDouble(values[0]);
+                output.writeDouble(values[1]);
+                output.writeDouble(values[2]);
+            }
+        }
+
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+}
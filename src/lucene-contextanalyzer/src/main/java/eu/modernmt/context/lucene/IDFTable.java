@@ -1,19 +1,30 @@
 package eu.modernmt.context.lucene;
 
+import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.util.BytesRef;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Created by davide on 22/09/15.
+ * <p>
+ * Cache of the document frequencies of the index terms. As Lucene does, frequencies include
+ * the deleted documents not yet merged away, while the IDF is computed with the number of
+ * documents of the reader in use: an entry stays valid until a document containing its term
+ * is added, or merged away. On every index refresh only those terms are invalidated (see
+ * DomainNorms), and the version of the new reader prevents queries still running on an older
+ * reader from caching outdated values. Terms missing from the index are never cached, so the
+ * size of the cache is bounded by the vocabulary of the index.
  */
 public class IDFTable {
 
-    private ConcurrentHashMap<String, Float> cache;
-    private String fieldId;
+    private final ConcurrentHashMap<String, Long> cache;
+    private final String fieldId;
+    private volatile long version = Long.MIN_VALUE;
 
     public IDFTable(String fieldId) {
         this.fieldId = fieldId;
@@ -29,48 +40,66 @@ public class IDFTable {
     }
 
     public float getTFIDF(IndexReader indexReader, Term term, int tf) throws IOException {
+        return tf(tf) * getIDF(indexReader, term);
+    }
+
+    public float getIDF(IndexReader indexReader, BytesRef term) throws IOException {
+        return getIDF(indexReader, new Term(fieldId, term));
+    }
+
+    public float getIDF(IndexReader indexReader, Term term) throws IOException {
+        return idf(indexReader.numDocs(), getDocFreq(indexReader, term));
+    }
+
+    public long getDocFreq(IndexReader indexReader, Term term) throws IOException {
         String text = term.text();
-        float idf;
-
-        try {
-            idf = cache.computeIfAbsent(text, s -> {
-                try {
-                    long df = indexReader.docFreq(term);
-                    return idf(indexReader.numDocs(), df);
-                } catch (IOException e) {
-                    throw new RuntimeIOException(e);
-                }
-            });
-        } catch (RuntimeIOException e) {
-            throw e.getIOException();
+        Long docFreq = cache.get(text);
+
+        if (docFreq == null) {
+            long value = indexReader.docFreq(term);
+            long readerVersion = indexReader instanceof DirectoryReader ?
+                    ((DirectoryReader) indexReader).getVersion() : Long.MIN_VALUE;
+
+            // Terms missing from the index are not cached: most of them come from query
+            // documents, and they would make the cache grow with every new query.
+            // The check must be atomic with respect to invalidate(), that removes
+            // the same key after the version has been updated
+            if (value > 0) {
+                cache.compute(text, (key, current) -> {
+                    if (current != null)
+                        return current;
+                    return readerVersion >= version ? value : null;
+                });
+            }
+
+            docFreq = value;
         }
 
-        return tf(tf) * idf;
+        return docFreq;
+    }
+
+    /**
+     * Invalidates the given terms only; entries computed from readers older than
+     * the given version will not be cached anymore.
+     */
+    public void invalidate(long version, Collection<String> terms) {
+        this.version = version;
+
+        for (String term : terms)
+            cache.remove(term);
     }
 
-    public void invalidate() {
-        // TODO: we may implement a smarter strategy to invalidate cache when index changes
+    public void invalidate(long version) {
+        this.version = version;
         cache.clear();
     }
 
-    private static float tf(int freq) {
+    static float tf(int freq) {
         return (float) Math.sqrt(freq);
     }
 
-    private static float idf(long numDocs, long docFreq) {
+    static float idf(long numDocs, long docFreq) {
         return (float) (Math.log(numDocs / (double) (docFreq + 1)) + 1.0);
     }
 
-    private static class RuntimeIOException extends RuntimeException {
-
-        public RuntimeIOException(IOException cause) {
-            super(cause);
-        }
-
-        public IOException getIOException() {
-            return (IOException) getCause();
-        }
-
-    }
-
 }
@@ -16,6 +16,7 @@ import org.apache.logging.log4j.Logger;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Reader;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
@@ -30,14 +31,29 @@ public class LuceneAnalyzer implements ContextAnalyzer {
 
     private final ContextAnalyzerIndex index;
     private final CorporaStorage storage;
+    private final ContextVectorCache cache;
 
     public LuceneAnalyzer(File indexPath, Locale language) throws IOException {
         this(indexPath, language, new Options());
     }
 
     public LuceneAnalyzer(File indexPath, Locale language, Options options) throws IOException {
-        this.index = new ContextAnalyzerIndex(new File(indexPath, "index"), language);
+        this.index = new ContextAnalyzerIndex(new File(indexPath, "index"), language, options);
         this.storage = new CorporaStorage(new File(indexPath, "storage"), options, this.index);
+
+        if (options.cacheSize > 0) {
+            this.cache = new ContextVectorCache(options.cacheSize);
+            this.index.setRefreshListener(this.cache);
+        } else {
+            this.cache = null;
+        }
+    }
+
+    /**
+     * @return the context vector cache, or null if disabled
+     */
+    public ContextVectorCache getCache() {
+        return cache;
     }
 
     @Override
@@ -79,7 +95,37 @@ public class LuceneAnalyzer implements ContextAnalyzer {
 
     @Override
     public ContextVector getContextVector(Corpus query, int limit) throws ContextAnalyzerException {
-        return this.index.getSimilarDocuments(query, limit);
+        if (cache == null)
+            return this.index.getSimilarDocuments(analyze(query), limit);
+
+        // The key is computed with a first pass over the content that does not
+        // tokenize it, so that cache hits do not pay for the analysis
+        ContextVectorCache.Key key;
+
+        try (Reader reader = query.getRawContentReader()) {
+            key = ContextVectorCache.key(reader, limit);
+        } catch (IOException e) {
+            throw new ContextAnalyzerException("Could not read content for similar documents query", e);
+        }
+
+        ContextVector vector = cache.get(key);
+
+        if (vector == null) {
+            long version = cache.version();
+            vector = this.index.getSimilarDocuments(analyze(query), limit);
+            cache.put(key, vector, version);
+        }
+
+        return vector;
+    }
+
+    private QueryDocument analyze(Corpus query) throws ContextAnalyzerException {
+        // The content is read once, even if it is a stream
+        try (Reader reader = query.getRawContentReader()) {
+            return this.index.analyze(reader);
+        } catch (IOException e) {
+            throw new ContextAnalyzerException("Could not read content for similar documents query", e);
+        }
     }
 
     @Override
@@ -0,0 +1,257 @@
+package eu.modernmt.context.lucene;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.TermToBytesRefAttribute;
+import org.apache.lucene.index.*;
+import org.apache.lucene.queries.mlt.MoreLikeThis;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.apache.lucene.util.BytesRefHash;
+import org.apache.lucene.util.PriorityQueue;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+
+/**
+ * The term frequencies of a query document, counted in a single pass over its token stream:
+ * the content is never stored, so memory depends on the number of distinct terms only,
+ * which is capped at MAX_DISTINCT_TERMS: past that, only the terms already seen are counted.
+ * The terms of the MoreLikeThis query are the ones with the highest TF-IDF, selected with
+ * a fixed-size heap and scored like MoreLikeThis does: with the raw term frequencies of the
+ * first MAX_QUERY_TOKENS tokens. The reference terms compared with the candidate domains
+ * come from the whole document, and they can be capped the same way.
+ */
+class QueryDocument {
+
+    public static class Selection {
+
+        private final BooleanQuery query;
+        private final HashMap<String, Float> referenceTerms;
+        private final double referenceL2Norm;
+
+        private Selection(BooleanQuery query, HashMap<String, Float> referenceTerms, double referenceL2Norm) {
+            this.query = query;
+            this.referenceTerms = referenceTerms;
+            this.referenceL2Norm = referenceL2Norm;
+        }
+
+        public BooleanQuery getQuery() {
+            return query;
+        }
+
+        /**
+         * @return the TF-IDF weights of the selected reference terms
+         */
+        public HashMap<String, Float> getReferenceTerms() {
+            return referenceTerms;
+        }
+
+        /**
+         * @return the L2 norm of the reference vector, including the terms missing from the index
+         */
+        public double getReferenceL2Norm() {
+            return referenceL2Norm;
+        }
+    }
+
+    private static final int MIN_QUERY_WORD_LENGTH = 2;
+    private static final int MAX_DISTINCT_TERMS = 1000000;
+    private static final int MAX_QUERY_TOKENS = MoreLikeThis.DEFAULT_MAX_NUM_TOKENS_PARSED;
+
+    private final String fieldName;
+    private final BytesRefHash terms;
+    private final int[] sortedIds;
+    private final int[] counts;
+    private final int[] queryCounts;
+
+    private QueryDocument(String fieldName, BytesRefHash terms, int[] counts, int[] queryCounts) {
+        this.fieldName = fieldName;
+        this.terms = terms;
+        this.counts = counts;
+        this.queryCounts = queryCounts;
+
+        // Terms are looked up in index order: most of the terms of a large document
+        // are usually missing from the index, and a sorted seek discards them quickly
+        this.sortedIds = terms.sort(BytesRef.getUTF8SortedAsUnicodeComparator());
+    }
+
+    public static QueryDocument analyze(Analyzer analyzer, String fieldName, Reader content) throws IOException {
+        BytesRefHash terms = new BytesRefHash();
+        int[] counts = new int[16];
+        int[] queryCounts = new int[16];
+        int tokens = 0;
+
+        try (TokenStream stream = analyzer.tokenStream(fieldName, content)) {
+            TermToBytesRefAttribute termAttribute = stream.addAttribute(TermToBytesRefAttribute.class);
+            BytesRef term = termAttribute.getBytesRef();
+
+            stream.reset();
+
+            while (stream.incrementToken()) {
+                termAttribute.fillBytesRef();
+
+                int id;
+                if (terms.size() < MAX_DISTINCT_TERMS) {
+                    id = terms.add(term);
+                    if (id < 0) {
+                        id = -id - 1;
+                    } else {
+                        counts = ArrayUtil.grow(counts, id + 1);
+                        queryCounts = ArrayUtil.grow(queryCounts, id + 1);
+                    }
+                } else {
+                    id = terms.find(term);
+                }
+
+                if (id >= 0) {
+                    counts[id]++;
+
+                    // Like MoreLikeThis, the query terms are taken from the first tokens only
+                    if (tokens < MAX_QUERY_TOKENS)
+                        queryCounts[id]++;
+                }
+
+                tokens++;
+            }
+
+            stream.end();
+        }
+
+        return new QueryDocument(fieldName, terms, counts, queryCounts);
+    }
+
+    /**
+     * Scores all the terms of the document with the IDF of the given reader, and selects the
+     * best ones. The reference vector is made of all the terms of the document or, if
+     * "referenceTerms" is positive, of the best "referenceTerms" terms only. The terms missing
+     * from the index cannot match any domain, so they count in the L2 norm only.
+     *
+     * @param queryTerms     the maximum number of terms of the MoreLikeThis query
+     * @param referenceTerms the maximum number of reference terms, 0 for no limit
+     */
+    public Selection select(IndexReader reader, IDFTable idfTable, int queryTerms, int referenceTerms) throws IOException {
+        long numDocs = reader.numDocs();
+
+        TermQueue queryQueue = new TermQueue(queryTerms);
+        TermQueue referenceQueue = referenceTerms > 0 ? new TermQueue(referenceTerms) : null;
+        HashMap<String, Float> weights = new HashMap<>();
+        double l2Norm = 0;
+
+        Terms indexTerms = MultiFields.getTerms(reader, fieldName);
+        TermsEnum termsEnum = indexTerms == null ? null : indexTerms.iterator(null);
+
+        BytesRef text = new BytesRef();
+        for (int i = 0; i < terms.size(); i++) {
+            int id = sortedIds[i];
+            terms.get(id, text);
+
+            int tf = counts[id];
+            long docFreq = 0;
+            if (termsEnum != null && termsEnum.seekExact(text))
+                docFreq = idfTable.getDocFreq(reader, new Term(fieldName, text));
+
+            float idf = IDFTable.idf(numDocs, docFreq);
+            float weight = IDFTable.tf(tf) * idf;
+
+            if (docFreq == 0) {
+                l2Norm += weight * weight;
+                continue;
+            }
+
+            if (weight > 0) {
+                if (referenceQueue == null) {
+                    weights.put(text.utf8ToString(), weight);
+                    l2Norm += weight * weight;
+                } else {
+                    referenceQueue.offer(text, weight);
+                }
+            }
+            int queryTf = queryCounts[id];
+            if (queryTf > 0 && !isNoiseWord(text))
+                queryQueue.offer(text, queryTf * idf);
+        }
+
+        // Query terms are boosted relative to the best one, as MoreLikeThis does
+        ScoredTerm[] best = queryQueue.drain();
+        BooleanQuery query = new BooleanQuery();
+
+        for (ScoredTerm term : best) {
+            TermQuery termQuery = new TermQuery(new Term(fieldName, term.text.toBytesRef()));
+            termQuery.setBoost(term.score / best[0].score);
+            query.add(termQuery, BooleanClause.Occur.SHOULD);
+        }
+
+        if (referenceQueue != null) {
+            for (ScoredTerm term : referenceQueue.drain()) {
+                weights.put(term.text.get().utf8ToString(), term.score);
+                l2Norm += term.score * term.score;
+            }
+        }
+
+        return new Selection(query, weights, Math.sqrt(l2Norm));
+    }
+
+    private static boolean isNoiseWord(BytesRef text) {
+        // A single char is at most 4 bytes long in UTF-8
+        return text.length <= 4 && text.utf8ToString().length() < MIN_QUERY_WORD_LENGTH;
+    }
+
+    private static final class ScoredTerm {
+
+        private final BytesRefBuilder text = new BytesRefBuilder();
+        private float score;
+
+        private ScoredTerm(BytesRef text, float score) {
+            this.text.copyBytes(text);
+            this.score = score;
+        }
+    }
+
+    private static final class TermQueue extends PriorityQueue<ScoredTerm> {
+
+        private final int capacity;
+
+        private TermQueue(int capacity) {
+            super(Math.max(1, capacity));
+            this.capacity = Math.max(1, capacity);
+        }
+
+        @Override
+        protected boolean lessThan(ScoredTerm a, ScoredTerm b) {
+            return a.score < b.score;
+        }
+
+        /**
+         * Adds the term if it is among the best ones seen so far; the slot of the
+         * worst term is reused, so that no allocation is made once the queue is full.
+         */
+        public void offer(BytesRef text, float score) {
+            if (size() < capacity) {
+                add(new ScoredTerm(text, score));
+            } else if (score > top().score) {
+                ScoredTerm worst = top();
+                worst.text.copyBytes(text);
+                worst.score = score;
+                updateTop();
+            }
+        }
+
+        /**
+         * @return the terms of the queue, best first
+         */
+        public ScoredTerm[] drain() {
+            ScoredTerm[] terms = new ScoredTerm[size()];
+            for (int i = terms.length - 1; i >= 0; i--)
+                terms[i] = pop();
+
+            return terms;
+        }
+    }
+
+}
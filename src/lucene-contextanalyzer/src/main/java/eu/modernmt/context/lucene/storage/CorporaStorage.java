@@ -8,6 +8,9 @@ import eu.modernmt.data.Deletion;
 import eu.modernmt.data.TranslationUnit;
 import eu.modernmt.io.LineReader;
 import eu.modernmt.model.corpus.Corpus;
+import eu.modernmt.stats.Gauge;
+import eu.modernmt.stats.LatencyHistogram;
+import eu.modernmt.stats.Metrics;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.logging.log4j.LogManager;
@@ -25,6 +28,8 @@ import java.util.stream.Collectors;
 public class CorporaStorage implements DataListener {
 
     private static final int MAX_CONCURRENT_BUCKET_ANALYSIS = 8;
+    private static final Gauge pendingBuckets = Metrics.gauge(Metrics.CONTEXT_PENDING_BUCKETS);
+    private static final LatencyHistogram analysisLatency = Metrics.histogram(Metrics.CONTEXT_ANALYSIS);
 
     private final Logger logger = LogManager.getLogger(CorporaStorage.class);
 
@@ -103,6 +108,7 @@ public class CorporaStorage implements DataListener {
         }
 
         pendingUpdatesBuckets.clear();
+        pendingBuckets.set(0);
         index.save();
 
         logger.debug("CorporaStorage index successfully written to disk");
@@ -124,6 +130,7 @@ public class CorporaStorage implements DataListener {
                 bucket.append(line);
 
             pendingUpdatesBuckets.add(bucket);
+            pendingBuckets.set(pendingUpdatesBuckets.size());
         } finally {
             IOUtils.closeQuietly(reader);
         }
@@ -152,6 +159,8 @@ public class CorporaStorage implements DataListener {
         if (buckets.isEmpty())
             return;
 
+        long begin = System.nanoTime();
+
         ArrayList<Future<Void>> pendingAnalysis = new ArrayList<>(buckets.size());
 
         for (CorpusBucket bucket : buckets) {
@@ -185,7 +194,8 @@ public class CorporaStorage implements DataListener {
         }
 
         this.contextAnalyzer.flush();
-        this.contextAnalyzer.invalidateCache();
+
+        analysisLatency.recordSince(begin);
     }
 
     public void shutdown() {
@@ -279,6 +289,7 @@ public class CorporaStorage implements DataListener {
 
                         bucket.append(unit.originalSourceSentence);
                         pendingUpdatesBuckets.add(bucket);
+                        pendingBuckets.set(pendingUpdatesBuckets.size());
                     } else if (message instanceof Deletion) {
                         Deletion deletion = (Deletion) message;
 
@@ -287,6 +298,7 @@ public class CorporaStorage implements DataListener {
                         if (bucket != null) {
                             bucket.markForDeletion();
                             pendingUpdatesBuckets.add(bucket);
+                            pendingBuckets.set(pendingUpdatesBuckets.size());
                         }
                     }
                 }
@@ -25,6 +25,26 @@ public class Options {
     // This value controls the maximum write behind delay
     public long writeBehindDelay = 10000L; // 10s (10000 ms)
 
+    // Threads shared by all the queries that compute the cosine
+    // similarity between the query and the candidate domains
+    public int similarityThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    // Maximum number of similarity tasks waiting for a thread: when
+    // the queue is full the query thread computes the similarity itself
+    public int similarityQueueSize = 1000;
+
+    // Queries with less candidates than this value are entirely
+    // computed by the query thread, without any hand-off
+    public int minParallelSimilarityCandidates = 8;
+
+    // If positive, only the query terms with the highest TF-IDF are compared
+    // with the candidate domains, 0 compares all the terms of the query
+    public int maxReferenceTerms = 0;
+
+    // Maximum number of context vectors cached by the analyzer,
+    // 0 disables the cache
+    public int cacheSize = 1000;
+
     public static class AnalysisOptions {
         // Prevent storing domain in the context analyzer if
         // it has been written less than 'minOffset' bytes
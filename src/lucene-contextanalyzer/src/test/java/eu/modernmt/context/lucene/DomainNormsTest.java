@@ -0,0 +1,153 @@
+package eu.modernmt.context.lucene;
+
+import eu.modernmt.context.lucene.analysis.CorpusAnalyzer;
+import org.apache.lucene.index.*;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.apache.lucene.util.NumericUtils;
+import org.apache.lucene.util.Version;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class DomainNormsTest {
+
+    // Norms are summed in double precision, while the norms computed by the
+    // calculator from the term vectors sum float TF-IDF weights
+    private static final double TOLERANCE = 1e-6;
+
+    private static final String[] WORDS = ("the user can open file from menu and save changes before closing " +
+            "window system will update settings automatically when new version is available please contact " +
+            "support if problem persists after restart alpha beta gamma delta epsilon zeta eta theta").split(" ");
+
+    private RAMDirectory directory;
+    private IndexWriter writer;
+    private Random random;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = new RAMDirectory();
+        writer = new IndexWriter(directory, new IndexWriterConfig(Version.LUCENE_4_10_4, new CorpusAnalyzer(Locale.ENGLISH)));
+        random = new Random(7);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        writer.close();
+        directory.close();
+    }
+
+    private String text(int domain) {
+        StringBuilder text = new StringBuilder();
+        int length = 20 + random.nextInt(200);
+
+        for (int i = 0; i < length; i++)
+            text.append(WORDS[(random.nextInt(WORDS.length) * (domain % 5 + 1) + domain) % WORDS.length]).append(' ');
+
+        return text.toString();
+    }
+
+    private void update(int domain) throws IOException {
+        writer.updateDocument(idTerm(domain), DocumentBuilder.createDocument(domain, new StringReader(text(domain))));
+    }
+
+    private static Term idTerm(int domain) {
+        BytesRefBuilder builder = new BytesRefBuilder();
+        NumericUtils.intToPrefixCoded(domain, 0, builder);
+        return new Term(DocumentBuilder.ID_FIELD, builder.toBytesRef());
+    }
+
+    private static int findDocument(IndexReader reader, int domain) throws IOException {
+        DocsEnum docsEnum = MultiFields.getTermDocsEnum(reader, MultiFields.getLiveDocs(reader),
+                DocumentBuilder.ID_FIELD, idTerm(domain).bytes(), DocsEnum.FLAG_NONE);
+
+        return docsEnum == null ? DocIdSetIterator.NO_MORE_DOCS : docsEnum.nextDoc();
+    }
+
+    private static void assertNormsMatchTermVectors(DirectoryReader reader, DomainNorms norms, Set<Integer> domains) throws Exception {
+        CosineSimilarityCalculator calculator = new CosineSimilarityCalculator(reader, DocumentBuilder.CONTENT_FIELD,
+                new IDFTable(DocumentBuilder.CONTENT_FIELD), null, 1);
+        calculator.setBoost(true);
+
+        for (int domain : domains) {
+            int doc = findDocument(reader, domain);
+
+            if (doc == DocIdSetIterator.NO_MORE_DOCS) {
+                assertFalse(norms.contains(domain));
+            } else {
+                double expected = calculator.new NormTask(doc).call();
+                double actual = norms.getL2Norm(domain, reader.numDocs());
+
+                assertEquals("domain " + domain, expected, actual, expected * TOLERANCE);
+            }
+        }
+    }
+
+    @Test
+    public void testBuiltNormsMatchTermVectors() throws Exception {
+        HashSet<Integer> domains = new HashSet<>();
+        for (int domain = 1; domain <= 30; domain++) {
+            update(domain);
+            domains.add(domain);
+        }
+
+        try (DirectoryReader reader = DirectoryReader.open(writer, true)) {
+            DomainNorms norms = DomainNorms.build(reader, new IDFTable(DocumentBuilder.CONTENT_FIELD));
+            assertNormsMatchTermVectors(reader, norms, domains);
+        }
+    }
+
+    @Test
+    public void testUpdatedNormsMatchTermVectors() throws Exception {
+        HashSet<Integer> domains = new HashSet<>();
+        for (int domain = 1; domain <= 30; domain++) {
+            update(domain);
+            domains.add(domain);
+        }
+
+        IDFTable idfTable = new IDFTable(DocumentBuilder.CONTENT_FIELD);
+        DirectoryReader reader = DirectoryReader.open(writer, true);
+        DomainNorms norms = DomainNorms.build(reader, idfTable);
+
+        try {
+            for (int round = 0; round < 10; round++) {
+                HashSet<Integer> changed = new HashSet<>();
+
+                for (int i = 0; i < 4; i++) {
+                    int domain = 1 + random.nextInt(40);
+                    update(domain);
+                    changed.add(domain);
+                }
+
+                int deleted = 1 + random.nextInt(40);
+                writer.deleteDocuments(idTerm(deleted));
+                changed.add(deleted);
+
+                // Deleted documents are merged away from time to time
+                if (round % 3 == 2)
+                    writer.forceMerge(1);
+
+                DirectoryReader newReader = DirectoryReader.openIfChanged(reader, writer, true);
+                norms = norms.update(reader, newReader, changed, idfTable);
+                reader.close();
+                reader = newReader;
+
+                domains.addAll(changed);
+                assertNormsMatchTermVectors(reader, norms, domains);
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+}
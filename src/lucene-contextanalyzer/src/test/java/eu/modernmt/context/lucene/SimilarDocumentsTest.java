@@ -0,0 +1,241 @@
+package eu.modernmt.context.lucene;
+
+import eu.modernmt.context.lucene.analysis.CorpusAnalyzer;
+import eu.modernmt.model.ContextVector;
+import eu.modernmt.model.corpus.impl.StringCorpus;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.*;
+import org.apache.lucene.queries.mlt.MoreLikeThis;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.Version;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the context vectors of ContextAnalyzerIndex with the scores of the original
+ * implementation: a MoreLikeThis query, then the cosine similarity between the term vector
+ * of the query document, indexed in a RAMDirectory, and the term vectors of the candidates.
+ */
+public class SimilarDocumentsTest {
+
+    // The original implementation sums float TF-IDF weights in a different order,
+    // and the domain norms are computed in closed form from the index statistics
+    private static final double EPSILON = 1e-5;
+
+    private static final int DOMAINS = 40;
+    private static final int LIMIT = 100;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ContextAnalyzerIndex index;
+    private Random random;
+    private String[] words;
+
+    @Before
+    public void setUp() throws Exception {
+        index = new ContextAnalyzerIndex(folder.newFolder("index"), Locale.ENGLISH);
+        random = new Random(21);
+
+        words = new String[300];
+        for (int i = 0; i < words.length; i++)
+            words[i] = word(i);
+
+        for (int domain = 1; domain <= DOMAINS; domain++)
+            index.add(DocumentBuilder.createDocument(domain, new StringReader(text(domain, 50 + random.nextInt(500)))));
+        index.flush();
+
+        // Updated domains leave deleted documents in the index
+        for (int domain = 1; domain <= DOMAINS; domain += 7)
+            index.update(domain, DocumentBuilder.createDocument(domain, new StringReader(text(domain, 50 + random.nextInt(500)))));
+        index.flush();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        index.close();
+    }
+
+    private static String word(int i) {
+        StringBuilder word = new StringBuilder();
+        do {
+            word.append((char) ('a' + i % 26));
+            i /= 26;
+        } while (i > 0);
+
+        return word.append("x").toString();
+    }
+
+    /**
+     * Every domain draws most of its words from its own region of the vocabulary.
+     */
+    private String text(int domain, int length) {
+        StringBuilder text = new StringBuilder();
+
+        for (int i = 0; i < length; i++) {
+            int word;
+            if (random.nextInt(4) == 0)
+                word = random.nextInt(words.length);
+            else
+                word = (domain * 7 + random.nextInt(30)) % words.length;
+
+            text.append(words[word]).append(' ');
+        }
+
+        return text.toString();
+    }
+
+    private String query(int length) {
+        String text = text(1 + random.nextInt(DOMAINS), length);
+
+        // Terms missing from the index count in the norm of the query only
+        return text + "unknownword " + random.nextInt(1000) + "missingterm";
+    }
+
+    // Original implementation
+
+    private static Map<Integer, Float> legacySimilarDocuments(IndexReader reader, Analyzer analyzer, String query, int limit) throws IOException {
+        IndexSearcher searcher = new IndexSearcher(reader);
+
+        MoreLikeThis mlt = new MoreLikeThis(reader);
+        mlt.setFieldNames(new String[]{DocumentBuilder.CONTENT_FIELD});
+        mlt.setMinDocFreq(0);
+        mlt.setMinTermFreq(1);
+        mlt.setMinWordLen(2);
+        mlt.setBoost(true);
+        mlt.setAnalyzer(analyzer);
+
+        TopScoreDocCollector collector = TopScoreDocCollector.create(Math.max(20, limit), true);
+        searcher.search(mlt.like(DocumentBuilder.CONTENT_FIELD, new StringReader(query)), collector);
+
+        HashMap<String, Float> referenceTerms;
+        try (RAMDirectory directory = new RAMDirectory()) {
+            IndexWriterConfig config = new IndexWriterConfig(Version.LUCENE_4_10_4, analyzer);
+            try (IndexWriter writer = new IndexWriter(directory, config)) {
+                writer.addDocument(DocumentBuilder.createDocument(new StringCorpus(null, Locale.ENGLISH, query)));
+            }
+
+            try (DirectoryReader referenceReader = DirectoryReader.open(directory)) {
+                referenceTerms = legacyTermFrequencies(reader, referenceReader, 0);
+            }
+        }
+
+        double referenceL2Norm = 0;
+        for (Float value : referenceTerms.values())
+            referenceL2Norm += value * value;
+        referenceL2Norm = Math.sqrt(referenceL2Norm);
+
+        HashMap<Integer, Float> result = new HashMap<>();
+
+        for (ScoreDoc scoreDoc : collector.topDocs().scoreDocs) {
+            HashMap<String, Float> terms = legacyTermFrequencies(reader, reader, scoreDoc.doc);
+
+            double dotProduct = 0;
+            double l2Norm = 0;
+
+            for (Float value : terms.values())
+                l2Norm += value * value;
+            l2Norm = Math.sqrt(l2Norm);
+
+            for (Map.Entry<String, Float> entry : referenceTerms.entrySet()) {
+                Float otherFreq = terms.get(entry.getKey());
+                if (otherFreq != null)
+                    dotProduct += entry.getValue() * otherFreq;
+            }
+
+            float similarity = (float) (dotProduct / (referenceL2Norm * l2Norm));
+            if (Float.isInfinite(similarity) || Float.isNaN(similarity))
+                similarity = 0.f;
+
+            result.put(DocumentBuilder.getId(searcher.doc(scoreDoc.doc)), similarity);
+        }
+
+        return result;
+    }
+
+    private static HashMap<String, Float> legacyTermFrequencies(IndexReader indexReader, IndexReader reader, int docId) throws IOException {
+        TermsEnum termsEnum = reader.getTermVector(docId, DocumentBuilder.CONTENT_FIELD).iterator(null);
+        HashMap<String, Float> frequencies = new HashMap<>();
+
+        BytesRef text;
+        while ((text = termsEnum.next()) != null) {
+            float f = 0;
+            DocsEnum docsEnum = termsEnum.docs(null, null);
+            if (docsEnum.nextDoc() != DocIdSetIterator.NO_MORE_DOCS)
+                f = docsEnum.freq();
+
+            if (f > 0) {
+                long docFreq = indexReader.docFreq(new Term(DocumentBuilder.CONTENT_FIELD, text));
+                float idf = (float) (Math.log(indexReader.numDocs() / (double) (docFreq + 1)) + 1.0);
+                f = (float) Math.sqrt((int) f) * idf;
+            }
+
+            if (f > 0)
+                frequencies.put(text.utf8ToString(), f);
+        }
+
+        return frequencies;
+    }
+
+    // Tests
+
+    private void assertSameScores(String query) throws Exception {
+        ContextVector vector = index.getSimilarDocuments(new StringCorpus(null, Locale.ENGLISH, query), LIMIT);
+
+        Map<Integer, Float> expected;
+        try (DirectoryReader reader = DirectoryReader.open(FSDirectory.open(folder.getRoot().toPath().resolve("index").toFile()))) {
+            expected = legacySimilarDocuments(reader, new CorpusAnalyzer(Locale.ENGLISH), query, LIMIT);
+        }
+
+        HashMap<Integer, Float> actual = new HashMap<>();
+        for (ContextVector.Entry entry : vector)
+            actual.put(entry.domain.getId(), entry.score);
+
+        assertEquals(expected.keySet(), actual.keySet());
+
+        for (Map.Entry<Integer, Float> entry : expected.entrySet())
+            assertEquals("domain " + entry.getKey(), entry.getValue(), actual.get(entry.getKey()), EPSILON);
+    }
+
+    @Test
+    public void testShortQueries() throws Exception {
+        for (int i = 0; i < 20; i++)
+            assertSameScores(query(5 + random.nextInt(20)));
+    }
+
+    @Test
+    public void testLongQueries() throws Exception {
+        for (int i = 0; i < 10; i++)
+            assertSameScores(query(1000 + random.nextInt(3000)));
+    }
+
+    @Test
+    public void testQueriesLongerThanMoreLikeThisLimit() throws Exception {
+        // MoreLikeThis parses the first 5000 tokens, the reference vector the whole query
+        for (int i = 0; i < 5; i++) {
+            String head = text(1 + random.nextInt(DOMAINS), 5000);
+            String tail = query(5000 + random.nextInt(20000));
+
+            assertSameScores(head + tail);
+        }
+    }
+
+}
@@ -11,18 +11,18 @@ import java.util.Locale;
  */
 public class FileCorpus implements Corpus {
 
-    private File file;
+    private FileProxy file;
     private String name;
     private Locale language;
 
-    private static String getNameFromFile(File file) {
-        String fullname = file.getName();
+    private static String getNameFromFile(FileProxy file) {
+        String fullname = file.getFilename();
         int lastDot = fullname.lastIndexOf('.');
         return lastDot < 0 ? fullname : fullname.substring(0, lastDot);
     }
 
-    private static Locale getLangFromFile(File file) {
-        String fullname = file.getName();
+    private static Locale getLangFromFile(FileProxy file) {
+        String fullname = file.getFilename();
         int lastDot = fullname.lastIndexOf('.');
         return lastDot < 0 ? Locale.getDefault() : Locale.forLanguageTag(fullname.substring(lastDot + 1));
     }
@@ -36,6 +36,10 @@ public class FileCorpus implements Corpus {
     }
 
     public FileCorpus(File file, String name, Locale language) {
+        this(FileProxy.wrap(file), name, language);
+    }
+
+    public FileCorpus(FileProxy file, String name, Locale language) {
         this.file = file;
         this.name = (name == null ? getNameFromFile(file) : name);
         this.language = (language == null ? getLangFromFile(file) : language);
@@ -52,18 +56,18 @@ public class FileCorpus implements Corpus {
     }
 
     @Override
-    public LineReader getContentReader() throws FileNotFoundException {
-        return new UnixLineReader(new FileInputStream(file), DefaultCharset.get());
+    public LineReader getContentReader() throws IOException {
+        return new UnixLineReader(file.getInputStream(), DefaultCharset.get());
     }
 
     @Override
     public LineWriter getContentWriter(boolean append) throws IOException {
-        return new UnixLineWriter(new FileOutputStream(file, append), DefaultCharset.get());
+        return new UnixLineWriter(file.getOutputStream(append), DefaultCharset.get());
     }
 
     @Override
     public Reader getRawContentReader() throws IOException {
-        return new InputStreamReader(new FileInputStream(file), DefaultCharset.get());
+        return new InputStreamReader(file.getInputStream(), DefaultCharset.get());
     }
 
     @Override
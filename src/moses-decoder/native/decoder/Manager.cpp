@@ -40,6 +40,8 @@ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
 #include "Timer.h"
 #include "OutputCollector.h"
 #include "FF/DistortionScoreProducer.h"
+#include "FF/StatefulFeatureFunction.h"
+#include "FF/StatelessFeatureFunction.h"
 #include "LM/Base.h"
 #include "TranslationModel/PhraseDictionary.h"
 #include "TranslationAnalysis.h"
@@ -1678,14 +1680,11 @@ OutputNBest(std::vector<hypothesis_t> &nBest) const
     if (!E.size()) continue;
     std::string target_string = GetTranslation(E);
 
-    // reported in a more structured manner
-    ostringstream buf;
-    bool with_labels = nbo.include_feature_labels; // default true
-    path->GetScoreBreakdown()->OutputAllFeatureScores(buf, with_labels);
-
     hypothesis_t hyp;
     hyp.text = target_string;
-    hyp.fvals = buf.str();
+    // feature scores are reported as a plain vector, in the same order of
+    // MosesDecoder::getFeatures() (stateless features first)
+    GetTuneableScores(*path->GetScoreBreakdown(), hyp.scores);
     // weighted total score
     hyp.score = path->GetFutureScore();
 
@@ -1693,6 +1692,37 @@ OutputNBest(std::vector<hypothesis_t> &nBest) const
   }
 }
 
+static void
+AppendTuneableScores(ScoreComponentCollection const& breakdown, FeatureFunction const* ff,
+                     std::vector<float> &scores)
+{
+  if (!ff->IsTuneable() || !ff->HasTuneableComponents())
+    return;
+
+  std::vector<float> values = breakdown.GetScoresForProducer(ff);
+  for (size_t j = 0; j < values.size(); ++j) {
+    if (ff->IsTuneableComponent(j))
+      scores.push_back(values[j]);
+  }
+}
+
+void
+Manager::
+GetTuneableScores(ScoreComponentCollection const& breakdown, std::vector<float> &scores) const
+{
+  scores.clear();
+
+  const std::vector<const StatelessFeatureFunction*>& slf
+  = StatelessFeatureFunction::GetStatelessFeatureFunctions();
+  for (size_t i = 0; i < slf.size(); ++i)
+    AppendTuneableScores(breakdown, slf[i], scores);
+
+  const std::vector<const StatefulFeatureFunction*>& sff
+  = StatefulFeatureFunction::GetStatefulFeatureFunctions();
+  for (size_t i = 0; i < sff.size(); ++i)
+    AppendTuneableScores(breakdown, sff[i], scores);
+}
+
 //////////////////////////////////////////////////////////////////////////
 /***
  * print surface factor only for the given phrase
@@ -140,6 +140,7 @@ protected:
 public:
   void OutputNBest(std::ostream& out, const Moses::TrellisPathList &nBestList) const;
   void OutputNBest(std::vector<hypothesis_t> &nBestList) const;
+  void GetTuneableScores(ScoreComponentCollection const& breakdown, std::vector<float> &scores) const;
 
   void OutputSurface(std::ostream &out,
                      Hypothesis const& edge,
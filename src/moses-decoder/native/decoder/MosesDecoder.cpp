@@ -3,6 +3,7 @@
 //
 
 #include <mutex>
+#include <chrono>
 #include <unordered_map>
 
 #include "decoder/MosesDecoder.h"
@@ -24,6 +25,7 @@ namespace mmt {
         class MosesDecoderImpl : public MosesDecoder {
             std::mutex m_sessionsMutex;
             unordered_map<uint64_t, boost::shared_ptr<Moses::ContextScope>> m_sessions;
+            uint64_t m_lastSessionId;
             std::vector<feature_t> m_features;
             std::vector<IncrementalModel *> m_incrementalModels;
 
@@ -47,7 +49,7 @@ namespace mmt {
 
             virtual translation_t translate(const std::string &text, uint64_t session,
                                             const std::map<std::string, float> *translationContext,
-                                            size_t nbestListSize) override;
+                                            size_t nbestListSize, int64_t deadline = 0) override;
 
             virtual const vector<IncrementalModel *> &GetIncrementalModels() const override;
         };
@@ -70,7 +72,7 @@ MosesDecoder *MosesDecoder::createInstance(const char *inifile, Aligner *aligner
     return new MosesDecoderImpl(params);
 }
 
-MosesDecoderImpl::MosesDecoderImpl(Moses::Parameter &param) : m_features() {
+MosesDecoderImpl::MosesDecoderImpl(Moses::Parameter &param) : m_lastSessionId(0), m_features() {
     const std::vector<const Moses::StatelessFeatureFunction *> &slf = Moses::StatelessFeatureFunction::GetStatelessFeatureFunctions();
     for (size_t i = 0; i < slf.size(); ++i) {
         const Moses::FeatureFunction *feature = slf[i];
@@ -154,8 +156,9 @@ uint64_t MosesDecoderImpl::createSession(const std::map<std::string, float> *tra
     uint64_t session_id;
     {
         std::lock_guard<std::mutex> lock(m_sessionsMutex);
-        // start with session ID 1 (when passed to translate(), session ID 0 means 'no session')
-        session_id = m_sessions.size() + 1;
+        // start with session ID 1 (when passed to translate(), session ID 0 means 'no session');
+        // IDs are never reused, as sessions may be destroyed in any order
+        session_id = ++m_lastSessionId;
         m_sessions.insert(std::make_pair(session_id, scope));
     }
     return session_id;
@@ -176,6 +179,8 @@ static void DoTranslate(translation_request_t const& request, boost::shared_ptr<
         opts->nbest.enabled = true;
     }
 
+    opts->search.deadline = request.deadline;
+
     boost::shared_ptr<Moses::InputType> source(new Moses::Sentence(opts, 0, request.sourceSent));
     boost::shared_ptr<Moses::IOWrapper> ioWrapperNone;
 
@@ -192,11 +197,18 @@ static void DoTranslate(translation_request_t const& request, boost::shared_ptr<
         if (manager.GetSource().options()->nbest.nbest_size)
             manager.OutputNBest(result.hypotheses);
     }
+
+    result.aborted = false;
+    if (request.deadline) {
+        int64_t now = std::chrono::duration_cast<std::chrono::milliseconds>(
+                std::chrono::system_clock::now().time_since_epoch()).count();
+        result.aborted = now >= request.deadline;
+    }
 }
 
 translation_t MosesDecoderImpl::translate(const std::string &text, uint64_t session,
                                           const std::map<std::string, float> *translationContext,
-                                          size_t nbestListSize) {
+                                          size_t nbestListSize, int64_t deadline) {
 
     // Retrieve the ContextScope of the session, or create a temporary one
 
@@ -228,6 +240,7 @@ translation_t MosesDecoderImpl::translate(const std::string &text, uint64_t sess
 
     request.sourceSent = text;
     request.nBestListSize = nbestListSize;
+    request.deadline = deadline;
 
     DoTranslate(request, scope, response);
 
@@ -4,6 +4,8 @@
 #include "InputType.h"
 #include "util/exception.hh"
 
+#include <chrono>
+
 namespace Moses
 {
 
@@ -24,6 +26,18 @@ bool
 Search::
 out_of_time()
 {
+  int64_t const& deadline = m_options.search.deadline;
+  if (deadline) {
+    int64_t now = std::chrono::duration_cast<std::chrono::milliseconds>(
+                    std::chrono::system_clock::now().time_since_epoch()).count();
+    if (now >= deadline) {
+      VERBOSE(1,"Decoding is past its deadline (" << now << ","
+              << deadline << ")" << std::endl);
+      interrupted_flag = 1;
+      return true;
+    }
+  }
+
   int const& timelimit = m_options.search.timeout;
   if (!timelimit) return false;
   double elapsed_time = GetUserTime();
@@ -25,7 +25,7 @@ typedef struct {
 typedef struct {
     std::string text;
     float score;
-    std::string fvals;
+    std::vector<float> scores; //< tuneable components of the tuneable features, in getFeatures() order
 } hypothesis_t;
 
 typedef struct {
@@ -33,11 +33,13 @@ typedef struct {
     int64_t session;
     std::vector<hypothesis_t> hypotheses;
     std::vector<std::pair<size_t, size_t> > alignment;
+    bool aborted; //< true if the search has been stopped because of the request deadline
 } translation_t;
 
 typedef struct {
   std::string sourceSent;
   size_t nBestListSize; //< set to 0 if no n-best list requested
+  int64_t deadline; //< absolute deadline in milliseconds since epoch, 0 if none
 } translation_request_t;
 
 
@@ -82,10 +84,12 @@ namespace mmt {
              * @param session             either 0 to avoid use of sessions (translate individually), or session ID obtained from openSession()
              * @param translationContext  context weights may be passed here if session == 0
              * @param nbestListSize       if non-zero, produce an n-best list of this size in the translation_t result
+             * @param deadline            if non-zero, the search is stopped when this time (ms since epoch) is reached
+             *                            and the result is marked as aborted
              */
             virtual translation_t translate(const std::string &text, uint64_t session,
                                             const std::map<std::string, float> *translationContext,
-                                            size_t nbestListSize) = 0;
+                                            size_t nbestListSize, int64_t deadline = 0) = 0;
 
             /**
              * Returns the list of internal incremental models.
@@ -15,6 +15,7 @@ namespace Moses
     , max_partial_trans_opt(DEFAULT_MAX_PART_TRANS_OPT_SIZE)
     , beam_width(DEFAULT_BEAM_WIDTH)
     , timeout(0)
+    , deadline(0)
     , consensus(false)
     , early_discarding_threshold(DEFAULT_EARLY_DISCARDING_THRESHOLD)
     , trans_opt_threshold(DEFAULT_TRANSLATION_OPTION_THRESHOLD)
@@ -23,6 +24,7 @@ namespace Moses
   SearchOptions::
   SearchOptions(Parameter const& param)
     : stack_diversity(0)
+    , deadline(0)
   {
     init(param);
   }
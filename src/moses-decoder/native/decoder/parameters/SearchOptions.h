@@ -1,6 +1,7 @@
 // -*- mode: c++; indent-tabs-mode: nil; tab-width: 2 -*-
 #pragma once
 #include <string>
+#include <stdint.h>
 #include "Parameter.h"
 #include "OptionsBaseClass.h"
 namespace Moses
@@ -25,6 +26,7 @@ namespace Moses
     float beam_width;
 
     int timeout;
+    int64_t deadline; // absolute deadline of the request (ms since epoch), 0 if none
 
     bool consensus; //! Use Consensus decoding  (DeNero et al 2009)
     
@@ -3,20 +3,18 @@
 //
 
 #include "JTranslation.h"
+#include <stdint.h>
+#include <stdlib.h>
 
 #define JTranslationClass "eu/modernmt/decoder/moses/TranslationXObject"
 #define JHypothesisClass JTranslationClass"$Hypothesis"
 
 JTranslation::JTranslation(JNIEnv *jvm) : _class(jvm->FindClass(JTranslationClass)) {
-    constructor = jvm->GetMethodID(_class, "<init>", "(Ljava/lang/String;[L" JHypothesisClass ";[I)V");
+    constructor = jvm->GetMethodID(_class, "<init>", "([I[L" JHypothesisClass ";[I)V");
 }
 
-jobject JTranslation::create(JNIEnv *jvm, std::string &text, jobjectArray nbestList, jintArray alignment) {
-    jstring jtext = jvm->NewStringUTF(text.c_str());
-    jobject jtranslation = jvm->NewObject(_class, constructor, jtext, nbestList, alignment);
-    jvm->DeleteLocalRef(jtext);
-
-    return jtranslation;
+jobject JTranslation::create(JNIEnv *jvm, jintArray words, jobjectArray nbestList, jintArray alignment) {
+    return jvm->NewObject(_class, constructor, words, nbestList, alignment);
 }
 
 jintArray JTranslation::getAlignment(JNIEnv *jvm, std::vector<std::pair<size_t, size_t>> alignment) {
@@ -40,15 +38,59 @@ jintArray JTranslation::getAlignment(JNIEnv *jvm, std::vector<std::pair<size_t,
 
 
 JHypothesis::JHypothesis(JNIEnv *jvm) : _class(jvm->FindClass(JHypothesisClass)) {
-    constructor = jvm->GetMethodID(_class, "<init>", "(Ljava/lang/String;FLjava/lang/String;)V");
+    constructor = jvm->GetMethodID(_class, "<init>", "([IF[F)V");
 }
 
-jobject JHypothesis::create(JNIEnv *jvm, std::string &text, float totalScore, std::string &fvals) {
-    jstring jtext = jvm->NewStringUTF(text.c_str());
-    jstring jfvals = jvm->NewStringUTF(fvals.c_str());
-    jobject jhypothesis = jvm->NewObject(_class, constructor, jtext, (jfloat) totalScore, jfvals);
-    jvm->DeleteLocalRef(jtext);
-    jvm->DeleteLocalRef(jfvals);
+jobject JHypothesis::create(JNIEnv *jvm, jintArray words, float totalScore, const std::vector<float> &scores) {
+    jsize size = (jsize) scores.size();
+
+    jfloatArray jscores = jvm->NewFloatArray(size);
+    jvm->SetFloatArrayRegion(jscores, 0, size, scores.data());
+
+    jobject jhypothesis = jvm->NewObject(_class, constructor, words, (jfloat) totalScore, jscores);
+    jvm->DeleteLocalRef(jscores);
 
     return jhypothesis;
 }
+
+jintArray ParseWords(JNIEnv *jvm, const std::string &text) {
+    std::vector<jint> buffer;
+
+    const char *cursor = text.c_str();
+    char *end;
+
+    while (true) {
+        while (*cursor == ' ')
+            cursor++;
+
+        if (*cursor == '\0')
+            break;
+
+        buffer.push_back((jint) strtoul(cursor, &end, 10));
+        cursor = end;
+    }
+
+    jsize size = (jsize) buffer.size();
+    jintArray jarray = jvm->NewIntArray(size);
+    jvm->SetIntArrayRegion(jarray, 0, size, buffer.data());
+
+    return jarray;
+}
+
+std::string FormatWords(JNIEnv *jvm, jintArray words) {
+    jsize size = jvm->GetArrayLength(words);
+    jint *ids = jvm->GetIntArrayElements(words, 0);
+
+    std::string text;
+    text.reserve((size_t) size * 8);
+
+    for (jsize i = 0; i < size; i++) {
+        if (i > 0)
+            text.push_back(' ');
+        text.append(std::to_string((uint32_t) ids[i]));
+    }
+
+    jvm->ReleaseIntArrayElements(words, ids, JNI_ABORT);
+
+    return text;
+}
@@ -19,9 +19,19 @@ public:
 
     jintArray getAlignment(JNIEnv *jvm, std::vector <std::pair<size_t, size_t>> alignment);
 
-    jobject create(JNIEnv *jvm, std::string &text, jobjectArray nbestList, jintArray alignment);
+    jobject create(JNIEnv *jvm, jintArray words, jobjectArray nbestList, jintArray alignment);
 };
 
+/**
+ * Parses a space separated list of word ids into a Java int array.
+ */
+jintArray ParseWords(JNIEnv *jvm, const std::string &text);
+
+/**
+ * Formats the ids of a Java int array as a space separated list of words.
+ */
+std::string FormatWords(JNIEnv *jvm, jintArray words);
+
 class JHypothesis {
     jmethodID constructor;
 
@@ -30,7 +40,7 @@ public:
 
     JHypothesis(JNIEnv *);
 
-    jobject create(JNIEnv *jvm, std::string &text, float totalScore, std::string &fvals);
+    jobject create(JNIEnv *jvm, jintArray words, float totalScore, const std::vector<float> &scores);
 };
 
 
@@ -156,22 +156,29 @@ JNIEXPORT void JNICALL Java_eu_modernmt_decoder_moses_MosesDecoder_destroySessio
 /*
  * Class:     eu_modernmt_decoder_moses_MosesDecoder
  * Method:    translate
- * Signature: (Ljava/lang/String;[I[FJI)Leu/modernmt/decoder/moses/TranslationXObject;
+ * Signature: ([I[I[FJIJ)Leu/modernmt/decoder/moses/TranslationXObject;
  */
 JNIEXPORT jobject JNICALL
-Java_eu_modernmt_decoder_moses_MosesDecoder_translate(JNIEnv *jvm, jobject jself, jstring text, jintArray contextKeys,
-                                                      jfloatArray contextValues, jlong session, jint nbest) {
+Java_eu_modernmt_decoder_moses_MosesDecoder_translate(JNIEnv *jvm, jobject jself, jintArray words, jintArray contextKeys,
+                                                      jfloatArray contextValues, jlong session, jint nbest,
+                                                      jlong deadline) {
     MosesDecoder *instance = jni_gethandle<MosesDecoder>(jvm, jself);
-    string sentence = jni_jstrtostr(jvm, text);
+    string sentence = FormatWords(jvm, words);
 
     translation_t translation;
     if (contextKeys != NULL) {
         map<string, float> context;
         ParseContext(jvm, contextKeys, contextValues, context);
 
-        translation = instance->translate(sentence, (uint64_t) session, &context, (size_t) nbest);
+        translation = instance->translate(sentence, (uint64_t) session, &context, (size_t) nbest, (int64_t) deadline);
     } else {
-        translation = instance->translate(sentence, (uint64_t) session, NULL, (size_t) nbest);
+        translation = instance->translate(sentence, (uint64_t) session, NULL, (size_t) nbest, (int64_t) deadline);
+    }
+
+    if (translation.aborted) {
+        jclass exceptionClass = jvm->FindClass("eu/modernmt/decoder/DeadlineExceededException");
+        jvm->ThrowNew(exceptionClass, "Decoding aborted: request deadline exceeded");
+        return NULL;
     }
 
     jobjectArray hypothesesArray = NULL;
@@ -182,18 +189,23 @@ Java_eu_modernmt_decoder_moses_MosesDecoder_translate(JNIEnv *jvm, jobject jself
         hypothesesArray = jvm->NewObjectArray((jsize) hypotheses.size(), Hypothesis._class, nullptr);
 
         for (size_t i = 0; i < hypotheses.size(); ++i) {
-            hypothesis_t hypothesis = hypotheses[i];
-            jobject jhypothesis = Hypothesis.create(jvm, hypothesis.text, hypothesis.score, hypothesis.fvals);
+            hypothesis_t &hypothesis = hypotheses[i];
+
+            jintArray jwords = ParseWords(jvm, hypothesis.text);
+            jobject jhypothesis = Hypothesis.create(jvm, jwords, hypothesis.score, hypothesis.scores);
             jvm->SetObjectArrayElement(hypothesesArray, (jsize) i, jhypothesis);
             jvm->DeleteLocalRef(jhypothesis);
+            jvm->DeleteLocalRef(jwords);
         }
     }
 
     JTranslation Translation(jvm);
 
+    jintArray jWords = ParseWords(jvm, translation.text);
     jintArray jAlignment = Translation.getAlignment(jvm, translation.alignment);
-    jobject jtranslation = Translation.create(jvm, translation.text, hypothesesArray, jAlignment);
+    jobject jtranslation = Translation.create(jvm, jWords, hypothesesArray, jAlignment);
 
+    jvm->DeleteLocalRef(jWords);
     jvm->DeleteLocalRef(jAlignment);
     if (hypothesesArray)
         jvm->DeleteLocalRef(hypothesesArray);
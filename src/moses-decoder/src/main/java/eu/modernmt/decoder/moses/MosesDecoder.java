@@ -3,6 +3,8 @@ package eu.modernmt.decoder.moses;
 import eu.modernmt.aligner.Aligner;
 import eu.modernmt.data.DataListener;
 import eu.modernmt.data.DataListenerProvider;
+import eu.modernmt.decoder.Deadline;
+import eu.modernmt.decoder.DeadlineExceededException;
 import eu.modernmt.decoder.Decoder;
 import eu.modernmt.decoder.DecoderFeature;
 import eu.modernmt.decoder.DecoderTranslation;
@@ -40,13 +42,26 @@ public class MosesDecoder implements Decoder, DataListenerProvider {
         }
     }
 
+    public static final int DEFAULT_MAX_SESSIONS = 10000;
+    public static final long DEFAULT_SESSION_TIMEOUT = 30L * 60L * 1000L;
+
     private final FeatureWeightsStorage storage;
-    private final HashMap<Long, Long> sessions = new HashMap<>();
+    private final SessionRegistry sessions;
     private long nativeHandle;
+    private volatile TranslationXObject.ScoreLayout scoreLayout = null;
 
     private ArrayList<DataListener> dataListeners = null;
 
     public MosesDecoder(File path, Aligner aligner, Vocabulary vocabulary, int threads) throws IOException {
+        this(path, aligner, vocabulary, threads, DEFAULT_MAX_SESSIONS, DEFAULT_SESSION_TIMEOUT);
+    }
+
+    /**
+     * @param maxSessions    maximum number of native sessions kept by the decoder
+     * @param sessionTimeout idle time in milliseconds after which a native session is destroyed, 0 for no timeout
+     */
+    public MosesDecoder(File path, Aligner aligner, Vocabulary vocabulary, int threads, int maxSessions, long sessionTimeout) throws IOException {
+        this.sessions = new SessionRegistry(this::createSession, this::destroySession, maxSessions, sessionTimeout);
         this.storage = new FeatureWeightsStorage(Paths.join(path, "weights.dat"));
 
         File iniTemplate = Paths.join(path, "moses.ini");
@@ -111,24 +126,21 @@ public class MosesDecoder implements Decoder, DataListenerProvider {
 
     // Translation session
 
-    private long getOrComputeSession(final TranslationSession session) {
-        return sessions.computeIfAbsent(session.getId(), key -> {
-            ContextXObject context = ContextXObject.build(session.getContextVector());
-            return createSession(context.keys, context.values);
-        });
+    private long createSession(TranslationSession session) {
+        ContextXObject context = ContextXObject.build(session.getContextVector());
+        return createSession(context.keys, context.values);
     }
 
     private native long createSession(int[] contextKeys, float[] contextValues);
 
     @Override
     public void closeSession(TranslationSession session) {
-        Long internalId = this.sessions.remove(session.getId());
-        if (internalId != null) {
-            this.destroySession(internalId);
+        sessions.close(session.getId());
+    }
 
-            if (logger.isDebugEnabled())
-                logger.debug(String.format("Session %d(%d) destroyed.", session.getId(), internalId));
-        }
+    @Override
+    public int getActiveSessionCount() {
+        return sessions.size();
     }
 
     private native void destroySession(long internalId);
@@ -137,53 +149,71 @@ public class MosesDecoder implements Decoder, DataListenerProvider {
 
     @Override
     public DecoderTranslation translate(Sentence text) {
-        return translate(text, null, null, 0);
+        return translate(text, null, null, 0, 0L);
     }
 
     @Override
     public DecoderTranslation translate(Sentence text, ContextVector contextVector) {
-        return translate(text, contextVector, null, 0);
+        return translate(text, contextVector, null, 0, 0L);
     }
 
     @Override
     public DecoderTranslation translate(Sentence text, TranslationSession session) {
-        return translate(text, null, session, 0);
+        return translate(text, null, session, 0, 0L);
     }
 
     @Override
     public DecoderTranslation translate(Sentence text, int nbestListSize) {
-        return translate(text, null, null, nbestListSize);
+        return translate(text, null, null, nbestListSize, 0L);
     }
 
     @Override
     public DecoderTranslation translate(Sentence text, ContextVector contextVector, int nbestListSize) {
-        return translate(text, contextVector, null, nbestListSize);
+        return translate(text, contextVector, null, nbestListSize, 0L);
     }
 
     @Override
     public DecoderTranslation translate(Sentence text, TranslationSession session, int nbestListSize) {
-        return translate(text, null, session, nbestListSize);
+        return translate(text, null, session, nbestListSize, 0L);
     }
 
-    private DecoderTranslation translate(Sentence sentence, ContextVector contextVector, TranslationSession session, int nbest) {
+    @Override
+    public DecoderTranslation translate(Sentence sentence, ContextVector contextVector, TranslationSession session, int nbest, long deadline) {
         Word[] sourceWords = sentence.getWords();
         if (sourceWords.length == 0)
             return new DecoderTranslation(new Word[0], sentence, null);
 
-        String text = XUtils.join(sourceWords);
+        int[] words = XUtils.encode(sourceWords);
 
-        long sessionId = session == null ? 0L : getOrComputeSession(session);
-        ContextXObject context = ContextXObject.build(contextVector);
+        // The session context takes precedence over the given context vector
+        ContextXObject context = session == null ? ContextXObject.build(contextVector) : null;
 
         if (logger.isDebugEnabled()) {
-            logger.debug("Translating: \"" + text + "\"");
+            logger.debug("Translating: \"" + sentence + "\"");
         }
 
+        // Requests that already expired are not sent to the native decoder at all,
+        // the others are aborted by the native search once the deadline is reached
+        DeadlineExceededException.check(deadline);
+
+        // The native search compares the deadline with the wall clock of this node
+        long nativeDeadline = Deadline.toEpochMillis(deadline);
+
         long start = System.currentTimeMillis();
-        TranslationXObject xtranslation = this.translate(text, context == null ? null : context.keys, context == null ? null : context.values, sessionId, nbest);
+        TranslationXObject xtranslation;
+
+        if (session == null) {
+            xtranslation = this.translate(words, context == null ? null : context.keys, context == null ? null : context.values, 0L, nbest, nativeDeadline);
+        } else {
+            // The native session can not be destroyed until the translation is complete
+            try (SessionRegistry.Handle handle = sessions.acquire(session)) {
+                xtranslation = this.translate(words, null, null, handle.getNativeId(), nbest, nativeDeadline);
+            }
+        }
+
         long elapsed = System.currentTimeMillis() - start;
 
-        DecoderTranslation translation = xtranslation.getTranslation(sentence);
+        DecoderTranslation translation = xtranslation.getTranslation(sentence, nbest > 0 ? getScoreLayout() : null);
         translation.setElapsedTime(elapsed);
 
         logger.info("Translation of " + sentence.length() + " words took " + (((double) elapsed) / 1000.) + "s");
@@ -191,7 +221,39 @@ public class MosesDecoder implements Decoder, DataListenerProvider {
         return translation;
     }
 
-    private native TranslationXObject translate(String text, int[] contextKeys, float[] contextValues, long session, int nbest);
+    private TranslationXObject.ScoreLayout getScoreLayout() {
+        // The set of tuneable components does not change with weights, the layout is computed once
+        if (scoreLayout == null) {
+            ArrayList<String> features = new ArrayList<>();
+            ArrayList<Integer> sizes = new ArrayList<>();
+
+            for (MosesFeature feature : getFeatures()) {
+                if (!feature.isTunable())
+                    continue;
+
+                int size = 0;
+                for (float weight : getFeatureWeights(feature)) {
+                    if (weight != MosesFeature.UNTUNEABLE_COMPONENT)
+                        size++;
+                }
+
+                if (size > 0) {
+                    features.add(feature.getName());
+                    sizes.add(size);
+                }
+            }
+
+            int[] array = new int[sizes.size()];
+            for (int i = 0; i < array.length; i++)
+                array[i] = sizes.get(i);
+
+            scoreLayout = new TranslationXObject.ScoreLayout(features.toArray(new String[features.size()]), array);
+        }
+
+        return scoreLayout;
+    }
+
+    private native TranslationXObject translate(int[] words, int[] contextKeys, float[] contextValues, long session, int nbest, long deadline) throws DeadlineExceededException;
 
     // DataListenerProvider
 
@@ -220,8 +282,11 @@ public class MosesDecoder implements Decoder, DataListenerProvider {
 
     @Override
     public void close() {
-        sessions.values().forEach(this::destroySession);
-        nativeHandle = dispose(nativeHandle);
+        // All the native sessions must be destroyed before the decoder
+        if (sessions.clear())
+            nativeHandle = dispose(nativeHandle);
+        else
+            logger.warn("Interrupted while waiting for the native sessions, decoder not disposed");
     }
 
     private native long dispose(long handle);
@@ -0,0 +1,345 @@
+package eu.modernmt.decoder.moses;
+
+import eu.modernmt.decoder.TranslationSession;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Thread-safe registry of the native sessions of the decoder, indexed by the id of
+ * the translation session. The registry is bounded: sessions idle for longer than
+ * the timeout are destroyed by a background task and, when the registry is full,
+ * the least recently used sessions are destroyed to make room for the new ones.
+ * Sessions in use by a translation are never destroyed until released.
+ * <p>
+ * Native sessions are created and destroyed outside the registry lock.
+ * Once clear() returns, no native session is created or destroyed anymore.
+ */
+class SessionRegistry {
+
+    private static final Logger logger = LogManager.getLogger(SessionRegistry.class);
+
+    /**
+     * Shared by all the registries: the scheduled tasks only hold a weak reference
+     * to their registry, so that the decoder can still be garbage collected.
+     */
+    private static final ScheduledExecutorService cleaner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "SessionRegistryCleaner");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static class Entry {
+
+        final long id;
+        final long nativeId;
+
+        int users = 0;
+        boolean closed = false;
+        long lastAccess = System.currentTimeMillis();
+
+        Entry(long id, long nativeId) {
+            this.id = id;
+            this.nativeId = nativeId;
+        }
+    }
+
+    /**
+     * A native session acquired for a translation, it must be released once the translation is done.
+     */
+    public class Handle implements AutoCloseable {
+
+        private final Entry entry;
+
+        private Handle(Entry entry) {
+            this.entry = entry;
+        }
+
+        public long getNativeId() {
+            return entry.nativeId;
+        }
+
+        @Override
+        public void close() {
+            release(entry);
+        }
+    }
+
+    // Access-ordered: the first entries are the least recently used ones
+    private final LinkedHashMap<Long, Entry> sessions = new LinkedHashMap<>(16, .75f, true);
+    private final ToLongFunction<TranslationSession> factory;
+    private final LongConsumer destroyer;
+    private final int maxSize;
+    private final long timeout;
+    private final ScheduledFuture<?> cleanerTask;
+
+    // Native sessions that are being created or that are no longer in the map but not yet destroyed
+    private int pending = 0;
+    private boolean closed = false;
+
+    /**
+     * @param factory   creates the native session, returning its native id
+     * @param destroyer destroys the native session with the given native id
+     * @param maxSize   maximum number of native sessions
+     * @param timeout   idle time in milliseconds after which a session is destroyed, 0 for no timeout
+     */
+    public SessionRegistry(ToLongFunction<TranslationSession> factory, LongConsumer destroyer, int maxSize, long timeout) {
+        this.factory = factory;
+        this.destroyer = destroyer;
+        this.maxSize = maxSize;
+        this.timeout = timeout;
+
+        if (timeout > 0) {
+            long interval = Math.max(1000L, timeout / 10);
+            this.cleanerTask = cleaner.scheduleWithFixedDelay(new IdleSessionsCleaner(this), interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            this.cleanerTask = null;
+        }
+    }
+
+    public Handle acquire(TranslationSession session) {
+        long id = session.getId();
+
+        synchronized (this) {
+            if (closed)
+                throw new IllegalStateException("Session registry has been closed");
+
+            Entry entry = sessions.get(id);
+            if (entry != null)
+                return use(entry);
+
+            pending++;
+        }
+
+        // The native session is created outside the lock: if another thread
+        // creates the same session in the meantime, this one is destroyed
+        Entry created;
+        try {
+            created = new Entry(id, factory.applyAsLong(session));
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pending--;
+                notifyAll();
+            }
+            throw e;
+        }
+
+        Handle handle = null;
+        ArrayList<Entry> garbage = new ArrayList<>();
+
+        synchronized (this) {
+            // The new session stays pending until it is either in the map or destroyed
+            if (closed) {
+                garbage.add(created);
+            } else {
+                Entry entry = sessions.get(id);
+
+                if (entry == null) {
+                    pending--;
+                    sessions.put(id, created);
+                    entry = created;
+                    evictLeastRecentlyUsedSessions(garbage);
+                } else {
+                    garbage.add(created);
+                }
+
+                handle = use(entry);
+            }
+        }
+
+        destroy(garbage);
+
+        if (handle == null)
+            throw new IllegalStateException("Session registry has been closed");
+
+        return handle;
+    }
+
+    private Handle use(Entry entry) {
+        entry.users++;
+        entry.lastAccess = System.currentTimeMillis();
+        return new Handle(entry);
+    }
+
+    private void release(Entry entry) {
+        boolean destroy;
+
+        synchronized (this) {
+            entry.users--;
+            entry.lastAccess = System.currentTimeMillis();
+            destroy = entry.closed && entry.users == 0;
+
+            // Moves the entry at the end of the access order, consistently with lastAccess
+            if (!entry.closed)
+                sessions.get(entry.id);
+        }
+
+        if (destroy)
+            destroy(entry);
+    }
+
+    public void close(long id) {
+        Entry entry;
+
+        synchronized (this) {
+            entry = sessions.remove(id);
+            if (entry == null || !markClosed(entry))
+                return;
+        }
+
+        destroy(entry);
+    }
+
+    /**
+     * Marks the entry, already removed from the map, as closed: it is counted as pending
+     * until it is destroyed, either by the caller if it returns true, or by the last user.
+     */
+    private boolean markClosed(Entry entry) {
+        entry.closed = true;
+        pending++;
+        return entry.users == 0;
+    }
+
+    private void destroy(ArrayList<Entry> entries) {
+        for (Entry entry : entries)
+            destroy(entry);
+    }
+
+    private void destroy(Entry entry) {
+        try {
+            destroyer.accept(entry.nativeId);
+        } finally {
+            synchronized (this) {
+                pending--;
+                notifyAll();
+            }
+        }
+
+        if (logger.isDebugEnabled())
+            logger.debug(String.format("Session %d(%d) destroyed.", entry.id, entry.nativeId));
+    }
+
+    private void evictIdleSessions() {
+        ArrayList<Entry> garbage = new ArrayList<>();
+
+        synchronized (this) {
+            long threshold = System.currentTimeMillis() - timeout;
+
+            Iterator<Entry> iterator = sessions.values().iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+
+                // Entries are sorted by access time: the following ones are more recent
+                if (entry.lastAccess >= threshold)
+                    break;
+
+                if (entry.users == 0) {
+                    iterator.remove();
+                    markClosed(entry);
+                    garbage.add(entry);
+                }
+            }
+        }
+
+        destroy(garbage);
+    }
+
+    /**
+     * Removes the least recently used sessions that are not in use until the registry
+     * is back to its maximum size: the sessions in use are skipped, so the cost is
+     * bounded by the number of concurrent translations.
+     */
+    private void evictLeastRecentlyUsedSessions(ArrayList<Entry> garbage) {
+        int excess = sessions.size() - maxSize;
+
+        Iterator<Entry> iterator = sessions.values().iterator();
+        while (excess > 0 && iterator.hasNext()) {
+            Entry entry = iterator.next();
+
+            if (entry.users == 0) {
+                iterator.remove();
+                markClosed(entry);
+                garbage.add(entry);
+                excess--;
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Closes the registry and destroys all the native sessions, waiting for the ones
+     * in use by a translation to be released.
+     *
+     * @return true if all the native sessions have been destroyed, false if interrupted while waiting
+     */
+    public boolean clear() {
+        if (cleanerTask != null)
+            cleanerTask.cancel(false);
+
+        ArrayList<Entry> garbage = new ArrayList<>();
+
+        synchronized (this) {
+            closed = true;
+
+            for (Entry entry : sessions.values()) {
+                if (markClosed(entry))
+                    garbage.add(entry);
+            }
+
+            sessions.clear();
+        }
+
+        destroy(garbage);
+
+        synchronized (this) {
+            try {
+                while (pending > 0)
+                    wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static class IdleSessionsCleaner implements Runnable {
+
+        private final WeakReference<SessionRegistry> registry;
+
+        private IdleSessionsCleaner(SessionRegistry registry) {
+            this.registry = new WeakReference<>(registry);
+        }
+
+        @Override
+        public void run() {
+            SessionRegistry registry = this.registry.get();
+
+            // Throwing cancels the subsequent executions of the task
+            if (registry == null)
+                throw new IllegalStateException("Session registry has been garbage collected");
+
+            try {
+                registry.evictIdleSessions();
+            } catch (RuntimeException e) {
+                logger.warn("Unable to evict idle sessions", e);
+            }
+        }
+
+    }
+
+}
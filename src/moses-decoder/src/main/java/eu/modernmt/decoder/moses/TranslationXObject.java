@@ -16,57 +16,57 @@ import java.util.List;
 class TranslationXObject {
 
     static class Hypothesis {
-        public String text;
+        public int[] words;
         public float totalScore;
-        public String fvals;
+        public float[] scores;
 
-        public Hypothesis(String text, float totalScore, String fvals) {
-            this.text = text;
+        public Hypothesis(int[] words, float totalScore, float[] scores) {
+            this.words = words;
             this.totalScore = totalScore;
-            this.fvals = fvals;
+            this.scores = scores;
         }
 
-        public TranslationHypothesis getTranslationHypothesis(Sentence source) {
-            HashMap<String, float[]> scores = new HashMap<>();
+        public TranslationHypothesis getTranslationHypothesis(Sentence source, ScoreLayout layout) {
+            HashMap<String, float[]> scores = new HashMap<>(layout.features.length);
 
-            String[] tokens = fvals.trim().split("\\s+");
-
-            String feature = null;
-            float[] weights = new float[tokens.length];
-            int index = 0;
-
-            for (int i = 0; i < tokens.length + 1; i++) {
-                String token = i < tokens.length ? tokens[i] : null;
+            int offset = 0;
+            for (int i = 0; i < layout.features.length; i++) {
+                int size = layout.sizes[i];
+                scores.put(layout.features[i], Arrays.copyOfRange(this.scores, offset, offset + size));
+                offset += size;
+            }
 
-                if (token == null || token.endsWith("=")) {
-                    if (feature != null)
-                        scores.put(feature, Arrays.copyOf(weights, index));
+            return new TranslationHypothesis(XUtils.decodeWords(this.words), source, null, this.totalScore, scores);
+        }
+    }
 
-                    if (token != null)
-                        feature = token.substring(0, token.length() - 1);
+    /**
+     * The layout of the scores of a hypothesis: native scores are a flat array that contains
+     * the tuneable components of every tuneable feature, in the order of the decoder features.
+     */
+    static class ScoreLayout {
 
-                    index = 0;
-                } else {
-                    weights[index++] = Float.parseFloat(token);
-                }
-            }
+        public final String[] features;
+        public final int[] sizes;
 
-            return new TranslationHypothesis(XUtils.explode(this.text), source, null, this.totalScore, scores);
+        public ScoreLayout(String[] features, int[] sizes) {
+            this.features = features;
+            this.sizes = sizes;
         }
     }
 
-    public String text;
+    public int[] words;
     public Hypothesis[] nbestList;
     public int[] alignment;
 
-    public TranslationXObject(String text, Hypothesis[] nbestList, int[] alignment) {
-        this.text = text;
+    public TranslationXObject(int[] words, Hypothesis[] nbestList, int[] alignment) {
+        this.words = words;
         this.nbestList = nbestList;
         this.alignment = alignment;
     }
 
-    public DecoderTranslation getTranslation(Sentence source) {
-        Word[] words = XUtils.explode(text);
+    public DecoderTranslation getTranslation(Sentence source, ScoreLayout layout) {
+        Word[] words = XUtils.decodeWords(this.words);
 
         DecoderTranslation translation = new DecoderTranslation(words, source, XUtils.decode(alignment));
 
@@ -74,7 +74,7 @@ class TranslationXObject {
             List<TranslationHypothesis> nbest = new ArrayList<>(nbestList.length);
 
             for (Hypothesis hyp : nbestList)
-                nbest.add(hyp.getTranslationHypothesis(source));
+                nbest.add(hyp.getTranslationHypothesis(source, layout));
 
             translation.setNbest(nbest);
         }
@@ -40,31 +40,12 @@ class XUtils {
         return new Alignment(source, target);
     }
 
-    public static String join(Word[] words) {
-        StringBuilder text = new StringBuilder();
+    public static Word[] decodeWords(int[] ids) {
+        Word[] words = new Word[ids.length];
 
-        for (int i = 0; i < words.length; i++) {
-            if (i > 0)
-                text.append(' ');
-
-            text.append(Integer.toUnsignedString(words[i].getId()));
-        }
-
-        return text.toString();
-    }
-
-    public static Word[] explode(String text) {
-        if (text.isEmpty())
-            return new Word[0];
-
-        String[] pieces = text.split(" +");
-        Word[] words = new Word[pieces.length];
-
-        for (int i = 0; i < pieces.length; i++) {
-            String rightSpace = i < pieces.length - 1 ? " " : null;
-
-            long id = Long.parseLong(pieces[i]);
-            words[i] = new Word((int) (id), rightSpace);
+        for (int i = 0; i < ids.length; i++) {
+            String rightSpace = i < ids.length - 1 ? " " : null;
+            words[i] = new Word(ids[i], rightSpace);
         }
 
         return words;
@@ -6,8 +6,10 @@ import eu.modernmt.model.Alignment;
 import eu.modernmt.model.ContextVector;
 import eu.modernmt.rest.framework.JSONSerializer;
 import eu.modernmt.rest.framework.routing.RouterServlet;
+import eu.modernmt.rest.model.BatchTranslationResponse;
 import eu.modernmt.rest.model.TranslationResponse;
 import eu.modernmt.rest.serializers.AlignmentSerializer;
+import eu.modernmt.rest.serializers.BatchTranslationResponseSerializer;
 import eu.modernmt.rest.serializers.ContextVectorSerializer;
 import eu.modernmt.rest.serializers.TranslationHypothesisSerializer;
 import eu.modernmt.rest.serializers.TranslationResponseSerializer;
@@ -15,8 +17,11 @@ import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.LineIterator;
 import org.eclipse.jetty.server.Handler;
 import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlet.ServletHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
 
 import javax.servlet.ServletException;
 import java.io.File;
@@ -31,6 +36,7 @@ public class RESTServer {
 
     static {
         JSONSerializer.registerCustomSerializer(TranslationResponse.class, new TranslationResponseSerializer());
+        JSONSerializer.registerCustomSerializer(BatchTranslationResponse.class, new BatchTranslationResponseSerializer());
         JSONSerializer.registerCustomSerializer(TranslationHypothesis.class, new TranslationHypothesisSerializer());
         JSONSerializer.registerCustomSerializer(Alignment.class, new AlignmentSerializer());
         JSONSerializer.registerCustomSerializer(ContextVector.class, new ContextVectorSerializer());
@@ -56,6 +62,12 @@ public class RESTServer {
         // the size threshold after which files will be written to disk
         public int fileSizeThreshold = 2 * 1024; // 2kb
 
+        // The fixed number of Jetty threads: asynchronous actions do not hold them while waiting
+        public int threads = Math.max(16, 2 * Runtime.getRuntime().availableProcessors());
+
+        // The time after which an asynchronous request that has not completed yet gets a 503 response
+        public long asyncTimeout = 5L * 60L * 1000L; // 5 minutes
+
         public ServerOptions(int port) {
             this.port = port;
         }
@@ -64,19 +76,27 @@ public class RESTServer {
     private Server jettyServer;
 
     public RESTServer(ServerOptions options) {
-        this.jettyServer = new Server(options.port);
+        this.jettyServer = new Server(new QueuedThreadPool(options.threads, options.threads));
+
+        ServerConnector connector = new ServerConnector(jettyServer);
+        connector.setPort(options.port);
+        jettyServer.addConnector(connector);
 
         Handler rootHandler;
 
         if (options.contextPath == null) {
             ServletHandler router = new ServletHandler();
-            router.addServletWithMapping(Router.class, "/*");
+            ServletHolder holder = router.addServletWithMapping(Router.class, "/*");
+            holder.setAsyncSupported(true);
+            holder.setInitParameter(RouterServlet.ASYNC_TIMEOUT_PARAM, Long.toString(options.asyncTimeout));
 
             rootHandler = router;
         } else {
             ServletContextHandler contextHandler = new ServletContextHandler();
             contextHandler.setContextPath(options.contextPath);
-            contextHandler.addServlet(Router.class, "/*");
+            ServletHolder holder = contextHandler.addServlet(Router.class, "/*");
+            holder.setAsyncSupported(true);
+            holder.setInitParameter(RouterServlet.ASYNC_TIMEOUT_PARAM, Long.toString(options.asyncTimeout));
 
             rootHandler = contextHandler;
         }
@@ -0,0 +1,172 @@
+package eu.modernmt.rest.actions;
+
+import eu.modernmt.rest.framework.HttpMethod;
+import eu.modernmt.rest.framework.RESTRequest;
+import eu.modernmt.rest.framework.RESTResponse;
+import eu.modernmt.rest.framework.actions.Action;
+import eu.modernmt.rest.framework.routing.Route;
+import eu.modernmt.stats.Counter;
+import eu.modernmt.stats.Gauge;
+import eu.modernmt.stats.LatencyHistogram;
+import eu.modernmt.stats.Metrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.Map;
+
+/**
+ * Exports the metrics of the local node in the Prometheus text format.
+ */
+@Route(aliases = "_metrics", method = HttpMethod.GET)
+public class ServerMetrics implements Action {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final String PREFIX = "mmt_";
+
+    private final Logger logger = LogManager.getLogger(getClass());
+
+    @Override
+    public void execute(RESTRequest request, RESTResponse response) {
+        try {
+            StringBuilder output = new StringBuilder();
+
+            appendJvmMetrics(output);
+            appendCounters(output, Metrics.getCounters());
+            appendGauges(output, Metrics.getGauges());
+            appendHistograms(output, Metrics.getHistograms());
+
+            response.ok(CONTENT_TYPE, output.toString());
+        } catch (Throwable e) {
+            logger.error("Internal error while executing action " + getClass().getSimpleName(), e);
+            response.unexpectedError(e);
+        }
+    }
+
+    private static void appendJvmMetrics(StringBuilder output) {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+
+        appendType(output, "jvm_heap_used_bytes", "gauge");
+        appendSample(output, "jvm_heap_used_bytes", null, heap.getUsed());
+        appendType(output, "jvm_heap_committed_bytes", "gauge");
+        appendSample(output, "jvm_heap_committed_bytes", null, heap.getCommitted());
+        appendType(output, "jvm_heap_max_bytes", "gauge");
+        appendSample(output, "jvm_heap_max_bytes", null, heap.getMax());
+
+        appendType(output, "jvm_gc_collections_total", "counter");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            appendSample(output, "jvm_gc_collections_total", "gc=\"" + escape(gc.getName()) + '"', gc.getCollectionCount());
+
+        appendType(output, "jvm_gc_time_seconds_total", "counter");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            appendSample(output, "jvm_gc_time_seconds_total", "gc=\"" + escape(gc.getName()) + '"', gc.getCollectionTime() / 1000.);
+
+        appendType(output, "jvm_threads", "gauge");
+        appendSample(output, "jvm_threads", null, ManagementFactory.getThreadMXBean().getThreadCount());
+    }
+
+    private static void appendCounters(StringBuilder output, Map<Metrics.Key, Counter> counters) {
+        String type = null;
+
+        for (Map.Entry<Metrics.Key, Counter> entry : counters.entrySet()) {
+            String name = name(entry.getKey()) + "_total";
+
+            if (!name.equals(type)) {
+                appendType(output, name, "counter");
+                type = name;
+            }
+
+            appendSample(output, name, labels(entry.getKey(), null), entry.getValue().get());
+        }
+    }
+
+    private static void appendGauges(StringBuilder output, Map<Metrics.Key, Gauge> gauges) {
+        String type = null;
+
+        for (Map.Entry<Metrics.Key, Gauge> entry : gauges.entrySet()) {
+            String name = name(entry.getKey());
+
+            if (!name.equals(type)) {
+                appendType(output, name, "gauge");
+                type = name;
+            }
+
+            appendSample(output, name, labels(entry.getKey(), null), entry.getValue().get());
+        }
+    }
+
+    private static void appendHistograms(StringBuilder output, Map<Metrics.Key, LatencyHistogram> histograms) {
+        String type = null;
+
+        for (Map.Entry<Metrics.Key, LatencyHistogram> entry : histograms.entrySet()) {
+            Metrics.Key key = entry.getKey();
+            LatencyHistogram histogram = entry.getValue();
+            LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+
+            String name = name(key) + "_seconds";
+
+            if (!name.equals(type)) {
+                appendType(output, name, "summary");
+                type = name;
+            }
+
+            appendSample(output, name, labels(key, "quantile=\"0.5\""), snapshot.getP50() / 1000.);
+            appendSample(output, name, labels(key, "quantile=\"0.9\""), snapshot.getP90() / 1000.);
+            appendSample(output, name, labels(key, "quantile=\"0.99\""), snapshot.getP99() / 1000.);
+            appendSample(output, name, labels(key, "quantile=\"0.999\""), snapshot.getP999() / 1000.);
+            appendSample(output, name + "_sum", labels(key, null), histogram.getSum() / 1e6);
+            appendSample(output, name + "_count", labels(key, null), histogram.getCount());
+        }
+    }
+
+    private static String name(Metrics.Key key) {
+        return key.getName().replace('.', '_');
+    }
+
+    private static String labels(Metrics.Key key, String extra) {
+        if (key.getLabelCount() == 0)
+            return extra;
+
+        StringBuilder labels = new StringBuilder();
+        for (int i = 0; i < key.getLabelCount(); i++) {
+            if (i > 0)
+                labels.append(',');
+            labels.append(key.getLabelName(i));
+            labels.append("=\"");
+            labels.append(escape(key.getLabelValue(i)));
+            labels.append('"');
+        }
+
+        if (extra != null) {
+            labels.append(',');
+            labels.append(extra);
+        }
+
+        return labels.toString();
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static void appendType(StringBuilder output, String name, String type) {
+        output.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void appendSample(StringBuilder output, String name, String labels, double value) {
+        output.append(PREFIX).append(name);
+        if (labels != null)
+            output.append('{').append(labels).append('}');
+        output.append(' ');
+
+        if (value == Math.rint(value) && !Double.isInfinite(value))
+            output.append((long) value);
+        else
+            output.append(value);
+
+        output.append('\n');
+    }
+
+}
@@ -7,6 +7,7 @@ import eu.modernmt.rest.framework.RESTRequest;
 import eu.modernmt.rest.framework.actions.ObjectAction;
 import eu.modernmt.rest.framework.routing.Route;
 import eu.modernmt.rest.model.ServerStatistics;
+import eu.modernmt.stats.Metrics;
 
 import java.io.IOException;
 
@@ -18,7 +19,9 @@ public class ServerStats extends ObjectAction<ServerStatistics> {
 
     @Override
     protected ServerStatistics execute(RESTRequest req, Parameters params) throws IOException {
-        return new ServerStatistics(new ServerStatistics.ClusterStats(ModernMT.cluster.getNodes()));
+        return new ServerStatistics(new ServerStatistics.ClusterStats(ModernMT.cluster.getNodes(), ModernMT.cluster.getExecutionStats()),
+                ModernMT.translation.getCacheStats(), ModernMT.translation.getContextCacheStats(),
+                Metrics.getLatencySnapshots(), Metrics.getGaugeValues());
     }
 
 }
@@ -8,6 +8,7 @@ import eu.modernmt.model.corpus.BilingualCorpus;
 import eu.modernmt.model.corpus.impl.parallel.InlineParallelFileCorpus;
 import eu.modernmt.model.corpus.impl.tmx.TMXCorpus;
 import eu.modernmt.persistence.PersistenceException;
+import eu.modernmt.rest.actions.util.ParameterFileProxy;
 import eu.modernmt.rest.framework.FileParameter;
 import eu.modernmt.rest.framework.HttpMethod;
 import eu.modernmt.rest.framework.Parameters;
@@ -141,39 +142,4 @@ public class AddToDomainCorpus extends ObjectAction<ImportJob> {
         }
     }
 
-    private static class ParameterFileProxy implements FileProxy {
-
-        private final FileParameter file;
-        private final boolean gzipped;
-
-        public ParameterFileProxy(FileParameter file, boolean gzipped) {
-            this.file = file;
-            this.gzipped = gzipped;
-        }
-
-        @Override
-        public String getFilename() {
-            return file.getFilename();
-        }
-
-        @Override
-        public InputStream getInputStream() throws IOException {
-            InputStream stream = file.getInputStream();
-            if (gzipped)
-                stream = new GZIPInputStream(stream);
-
-            return stream;
-        }
-
-        @Override
-        public OutputStream getOutputStream(boolean append) throws IOException {
-            throw new UnsupportedOperationException();
-        }
-
-        @Override
-        public String toString() {
-            return getFilename();
-        }
-    }
-
 }
\ No newline at end of file
@@ -2,24 +2,30 @@ package eu.modernmt.rest.actions.translation;
 
 import eu.modernmt.context.ContextAnalyzerException;
 import eu.modernmt.facade.ModernMT;
+import eu.modernmt.io.FileProxy;
 import eu.modernmt.model.ContextVector;
+import eu.modernmt.model.corpus.impl.parallel.FileCorpus;
 import eu.modernmt.persistence.PersistenceException;
 import eu.modernmt.rest.actions.util.ContextUtils;
+import eu.modernmt.rest.actions.util.ParameterFileProxy;
 import eu.modernmt.rest.framework.FileParameter;
 import eu.modernmt.rest.framework.HttpMethod;
 import eu.modernmt.rest.framework.Parameters;
 import eu.modernmt.rest.framework.RESTRequest;
 import eu.modernmt.rest.framework.actions.ObjectAction;
 import eu.modernmt.rest.framework.routing.Route;
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
 
-import java.io.*;
-import java.nio.charset.Charset;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.zip.GZIPInputStream;
 
 /**
  * Created by davide on 15/12/15.
+ * <p>
+ * Uploaded contents, either as a "content" file part or as a plain text request body,
+ * are streamed directly to the context analyzer: they are read once and never copied.
  */
 @Route(aliases = "context-vector", method = HttpMethod.GET)
 public class GetContextVector extends ObjectAction<ContextVector> {
@@ -28,31 +34,6 @@ public class GetContextVector extends ObjectAction<ContextVector> {
         GZIP
     }
 
-    private static void copy(FileParameter source, File destination, FileCompression compression) throws IOException {
-        Reader reader = null;
-        Writer writer = null;
-
-        try {
-            InputStream input = source.getInputStream();
-
-            if (compression != null) {
-                switch (compression) {
-                    case GZIP:
-                        input = new GZIPInputStream(input);
-                        break;
-                }
-            }
-
-            reader = new InputStreamReader(input, Charset.defaultCharset());
-            writer = new OutputStreamWriter(new FileOutputStream(destination, false), Charset.defaultCharset());
-
-            IOUtils.copyLarge(reader, writer);
-        } finally {
-            IOUtils.closeQuietly(reader);
-            IOUtils.closeQuietly(writer);
-        }
-    }
-
     @Override
     protected ContextVector execute(RESTRequest req, Parameters _params) throws ContextAnalyzerException, PersistenceException, IOException {
         Params params = (Params) _params;
@@ -63,15 +44,8 @@ public class GetContextVector extends ObjectAction<ContextVector> {
         } else if (params.localFile != null) {
             context = ModernMT.translation.getContextVector(params.localFile, params.limit);
         } else {
-            File file = null;
-
-            try {
-                file = File.createTempFile("mmt-context", "txt");
-                copy(params.content, file, params.compression);
-                context = ModernMT.translation.getContextVector(file, params.limit);
-            } finally {
-                FileUtils.deleteQuietly(file);
-            }
+            FileCorpus corpus = new FileCorpus(params.content, "context", ModernMT.translation.getSourceLanguage());
+            context = ModernMT.translation.getContextVector(corpus, params.limit);
         }
 
         return ContextUtils.resolve(context);
@@ -89,8 +63,7 @@ public class GetContextVector extends ObjectAction<ContextVector> {
         public final int limit;
         public final String text;
         public final File localFile;
-        public final FileParameter content;
-        public final FileCompression compression;
+        public final FileProxy content;
 
         public Params(RESTRequest req) throws ParameterParsingException {
             super(req);
@@ -101,21 +74,62 @@ public class GetContextVector extends ObjectAction<ContextVector> {
             String localFile;
 
             if ((content = req.getFile("content")) != null) {
+                FileCompression compression = getEnum("content_compression", FileCompression.class, null);
+
                 this.text = null;
                 this.localFile = null;
-                this.content = content;
-                this.compression = getEnum("content_compression", FileCompression.class, null);
+                this.content = new ParameterFileProxy(content, FileCompression.GZIP.equals(compression));
             } else if ((localFile = getString("local_file", false, null)) != null) {
                 this.text = null;
                 this.localFile = new File(localFile);
                 this.content = null;
-                this.compression = null;
+            } else if (req.hasPlainTextContent() && getString("text", false, null) == null) {
+                FileCompression compression = getEnum("content_compression", FileCompression.class, null);
+
+                this.text = null;
+                this.localFile = null;
+                this.content = new RequestContentProxy(req, FileCompression.GZIP.equals(compression));
             } else {
                 this.text = getString("text", false);
                 this.localFile = null;
                 this.content = null;
-                this.compression = null;
             }
         }
     }
+
+    private static class RequestContentProxy implements FileProxy {
+
+        private final RESTRequest request;
+        private final boolean gzipped;
+
+        public RequestContentProxy(RESTRequest request, boolean gzipped) {
+            this.request = request;
+            this.gzipped = gzipped;
+        }
+
+        @Override
+        public String getFilename() {
+            return "context";
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            // Content-Encoding is handled by the request, this is the compression of the content itself
+            InputStream stream = request.getContentStream();
+            if (gzipped)
+                stream = new GZIPInputStream(stream);
+
+            return stream;
+        }
+
+        @Override
+        public OutputStream getOutputStream(boolean append) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String toString() {
+            return getFilename();
+        }
+    }
 }
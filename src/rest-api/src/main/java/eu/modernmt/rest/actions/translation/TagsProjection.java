@@ -1,7 +1,6 @@
 package eu.modernmt.rest.actions.translation;
 
 import eu.modernmt.aligner.Aligner;
-import eu.modernmt.aligner.AlignerException;
 import eu.modernmt.facade.ModernMT;
 import eu.modernmt.facade.exceptions.validation.LanguagePairNotSupportedException;
 import eu.modernmt.model.Token;
@@ -9,40 +8,43 @@ import eu.modernmt.model.Translation;
 import eu.modernmt.rest.framework.HttpMethod;
 import eu.modernmt.rest.framework.Parameters;
 import eu.modernmt.rest.framework.RESTRequest;
-import eu.modernmt.rest.framework.actions.ObjectAction;
+import eu.modernmt.rest.framework.actions.AsyncObjectAction;
 import eu.modernmt.rest.framework.routing.Route;
 import eu.modernmt.rest.model.ProjectedTranslation;
 
 import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Created by lucamastrostefano on 15/03/16.
  */
 @Route(aliases = "tags-projection", method = HttpMethod.GET)
-public class TagsProjection extends ObjectAction<ProjectedTranslation> {
+public class TagsProjection extends AsyncObjectAction<ProjectedTranslation> {
 
     @Override
-    protected ProjectedTranslation execute(RESTRequest req, Parameters _params) throws AlignerException, LanguagePairNotSupportedException {
+    protected CompletableFuture<ProjectedTranslation> execute(RESTRequest req, Parameters _params) throws LanguagePairNotSupportedException {
         Params params = (Params) _params;
 
         ModernMT.tags.isLanguagesSupported(params.sourceLanguage, params.targetLanguage);
 
-        Translation taggedTranslation;
+        CompletableFuture<Translation> future;
         if (params.symmetrizationStrategy != null) {
-            taggedTranslation = ModernMT.tags.project(params.sentence, params.translation, params.sourceLanguage, params.targetLanguage, params.symmetrizationStrategy);
+            future = ModernMT.tags.projectAsync(params.sentence, params.translation, params.sourceLanguage, params.targetLanguage, params.symmetrizationStrategy);
         } else {
-            taggedTranslation = ModernMT.tags.project(params.sentence, params.translation, params.sourceLanguage, params.targetLanguage);
+            future = ModernMT.tags.projectAsync(params.sentence, params.translation, params.sourceLanguage, params.targetLanguage);
         }
 
-        ProjectedTranslation result = new ProjectedTranslation(taggedTranslation.toString());
+        return future.thenApply(taggedTranslation -> {
+            ProjectedTranslation result = new ProjectedTranslation(taggedTranslation.toString());
 
-        if (params.showDetails) {
-            result.setSourceTokens(stringifyTokens(taggedTranslation.getSource().getWords()));
-            result.setTargetTokens(stringifyTokens(taggedTranslation.getWords()));
-            result.setAlignment(taggedTranslation.getAlignment());
-        }
+            if (params.showDetails) {
+                result.setSourceTokens(stringifyTokens(taggedTranslation.getSource().getWords()));
+                result.setTargetTokens(stringifyTokens(taggedTranslation.getWords()));
+                result.setAlignment(taggedTranslation.getAlignment());
+            }
 
-        return result;
+            return result;
+        });
     }
 
     private static String[] stringifyTokens(Token[] tokens) {
@@ -1,7 +1,7 @@
 package eu.modernmt.rest.actions.translation;
 
-import eu.modernmt.context.ContextAnalyzerException;
-import eu.modernmt.decoder.TranslationException;
+import eu.modernmt.decoder.Deadline;
+import eu.modernmt.decoder.DecoderTranslation;
 import eu.modernmt.facade.ModernMT;
 import eu.modernmt.model.ContextVector;
 import eu.modernmt.persistence.PersistenceException;
@@ -9,38 +9,55 @@ import eu.modernmt.rest.actions.util.ContextUtils;
 import eu.modernmt.rest.framework.HttpMethod;
 import eu.modernmt.rest.framework.Parameters;
 import eu.modernmt.rest.framework.RESTRequest;
-import eu.modernmt.rest.framework.actions.ObjectAction;
+import eu.modernmt.rest.framework.actions.AsyncObjectAction;
 import eu.modernmt.rest.framework.routing.Route;
 import eu.modernmt.rest.model.TranslationResponse;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Created by davide on 17/12/15.
  */
 @Route(aliases = "translate", method = HttpMethod.GET)
-public class Translate extends ObjectAction<TranslationResponse> {
+public class Translate extends AsyncObjectAction<TranslationResponse> {
 
     @Override
-    protected TranslationResponse execute(RESTRequest req, Parameters _params) throws ContextAnalyzerException, TranslationException, PersistenceException {
+    protected CompletableFuture<TranslationResponse> execute(RESTRequest req, Parameters _params) {
         Params params = (Params) _params;
 
         TranslationResponse result = new TranslationResponse();
+        CompletableFuture<DecoderTranslation> translation;
 
         if (params.sessionId > 0) {
             result.session = params.sessionId;
-            result.translation = ModernMT.translation.get(params.query, params.sessionId, params.nbest);
+            translation = ModernMT.translation.getAsync(params.query, params.sessionId, params.nbest, params.deadline);
         } else if (params.context != null) {
-            result.translation = ModernMT.translation.get(params.query, params.context, params.nbest);
+            translation = ModernMT.translation.getAsync(params.query, params.context, params.nbest, params.deadline);
         } else if (params.contextString != null) {
-            result.context = ModernMT.translation.getContextVector(params.contextString, params.contextLimit);
-            result.translation = ModernMT.translation.get(params.query, result.context, params.nbest);
+            translation = ModernMT.translation.getContextVectorAsync(params.contextString, params.contextLimit)
+                    .thenCompose(context -> {
+                        result.context = context;
+                        return ModernMT.translation.getAsync(params.query, context, params.nbest, params.deadline);
+                    });
         } else {
-            result.translation = ModernMT.translation.get(params.query, params.nbest);
+            translation = ModernMT.translation.getAsync(params.query, null, params.nbest, params.deadline);
         }
 
-        if (result.context != null)
-            result.context = ContextUtils.resolve(result.context);
+        return translation.thenApply(value -> {
+            result.translation = value;
+
+            if (result.context != null) {
+                try {
+                    result.context = ContextUtils.resolve(result.context);
+                } catch (PersistenceException e) {
+                    throw new CompletionException(e);
+                }
+            }
 
-        return result;
+            return result;
+        });
     }
 
     @Override
@@ -56,6 +73,7 @@ public class Translate extends ObjectAction<TranslationResponse> {
         public final String contextString;
         public final int contextLimit;
         public final int nbest;
+        public final long deadline;
 
         public Params(RESTRequest req) throws ParameterParsingException {
             super(req);
@@ -65,6 +83,14 @@ public class Translate extends ObjectAction<TranslationResponse> {
             contextLimit = getInt("context_limit", 10);
             nbest = getInt("nbest", 0);
 
+            // The timeout is converted to an absolute deadline as soon as the request is received,
+            // so that the time spent in queues counts against it
+            long timeout = getLong("timeout_ms", 0L);
+            if (timeout < 0)
+                throw new ParameterParsingException("timeout_ms", Long.toString(timeout));
+
+            deadline = timeout > 0 ? Deadline.after(timeout, TimeUnit.MILLISECONDS) : Deadline.NONE;
+
             if (sessionId == 0) {
                 String weights = getString("context_vector", false, null);
 
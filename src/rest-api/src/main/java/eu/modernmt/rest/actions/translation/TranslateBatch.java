@@ -0,0 +1,127 @@
+package eu.modernmt.rest.actions.translation;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import eu.modernmt.decoder.Deadline;
+import eu.modernmt.facade.BatchTranslation;
+import eu.modernmt.facade.ModernMT;
+import eu.modernmt.model.ContextVector;
+import eu.modernmt.persistence.PersistenceException;
+import eu.modernmt.rest.actions.util.ContextUtils;
+import eu.modernmt.rest.framework.HttpMethod;
+import eu.modernmt.rest.framework.Parameters;
+import eu.modernmt.rest.framework.RESTRequest;
+import eu.modernmt.rest.framework.actions.AsyncObjectAction;
+import eu.modernmt.rest.framework.routing.Route;
+import eu.modernmt.rest.model.BatchTranslationResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Translates a JSON array of sentences (request body) with a single request.
+ * Translation options are the same of the "translate" action and are passed
+ * in the query string.
+ */
+@Route(aliases = "translate/batch", method = HttpMethod.POST)
+public class TranslateBatch extends AsyncObjectAction<BatchTranslationResponse> {
+
+    @Override
+    protected CompletableFuture<BatchTranslationResponse> execute(RESTRequest req, Parameters _params) {
+        Params params = (Params) _params;
+
+        BatchTranslationResponse result = new BatchTranslationResponse();
+        CompletableFuture<BatchTranslation> translations;
+
+        if (params.sessionId > 0) {
+            result.session = params.sessionId;
+            translations = ModernMT.translation.getAsync(params.query, params.sessionId, params.nbest, params.deadline);
+        } else if (params.context != null) {
+            translations = ModernMT.translation.getAsync(params.query, params.context, params.nbest, params.deadline);
+        } else if (params.contextString != null) {
+            translations = ModernMT.translation.getContextVectorAsync(params.contextString, params.contextLimit)
+                    .thenCompose(context -> {
+                        result.context = context;
+                        return ModernMT.translation.getAsync(params.query, context, params.nbest, params.deadline);
+                    });
+        } else {
+            translations = ModernMT.translation.getAsync(params.query, null, params.nbest, params.deadline);
+        }
+
+        return translations.thenApply(value -> {
+            result.translations = value;
+
+            if (result.context != null) {
+                try {
+                    result.context = ContextUtils.resolve(result.context);
+                } catch (PersistenceException e) {
+                    throw new CompletionException(e);
+                }
+            }
+
+            return result;
+        });
+    }
+
+    @Override
+    protected Parameters getParameters(RESTRequest req) throws Parameters.ParameterParsingException {
+        return new Params(req);
+    }
+
+    public static class Params extends Parameters {
+
+        public final List<String> query;
+        public final long sessionId;
+        public final ContextVector context;
+        public final String contextString;
+        public final int contextLimit;
+        public final int nbest;
+        public final long deadline;
+
+        public Params(RESTRequest req) throws ParameterParsingException {
+            super(req);
+
+            JsonArray json = req.getJSONArray();
+            if (json == null || json.size() == 0)
+                throw new ParameterParsingException();
+
+            query = new ArrayList<>(json.size());
+            for (JsonElement element : json) {
+                if (!element.isJsonPrimitive())
+                    throw new ParameterParsingException("q", element.toString());
+
+                query.add(element.getAsString());
+            }
+
+            sessionId = getLong("session", 0L);
+            contextLimit = getInt("context_limit", 10);
+            nbest = getInt("nbest", 0);
+
+            // The timeout is converted to an absolute deadline as soon as the request is received,
+            // so that the time spent in queues counts against it
+            long timeout = getLong("timeout_ms", 0L);
+            if (timeout < 0)
+                throw new ParameterParsingException("timeout_ms", Long.toString(timeout));
+
+            deadline = timeout > 0 ? Deadline.after(timeout, TimeUnit.MILLISECONDS) : Deadline.NONE;
+
+            if (sessionId == 0) {
+                String weights = getString("context_vector", false, null);
+
+                if (weights != null) {
+                    context = ContextUtils.parseParameter("context_vector", weights);
+                    contextString = null;
+                } else {
+                    context = null;
+                    contextString = getString("context", false, null);
+                }
+            } else {
+                context = null;
+                contextString = null;
+            }
+        }
+    }
+}
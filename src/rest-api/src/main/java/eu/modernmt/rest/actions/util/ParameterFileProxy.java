@@ -0,0 +1,48 @@
+package eu.modernmt.rest.actions.util;
+
+import eu.modernmt.io.FileProxy;
+import eu.modernmt.rest.framework.FileParameter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Read-only view of an uploaded file: its content is streamed
+ * (and decompressed if needed) directly from the request part.
+ */
+public class ParameterFileProxy implements FileProxy {
+
+    private final FileParameter file;
+    private final boolean gzipped;
+
+    public ParameterFileProxy(FileParameter file, boolean gzipped) {
+        this.file = file;
+        this.gzipped = gzipped;
+    }
+
+    @Override
+    public String getFilename() {
+        return file.getFilename();
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        InputStream stream = file.getInputStream();
+        if (gzipped)
+            stream = new GZIPInputStream(stream);
+
+        return stream;
+    }
+
+    @Override
+    public OutputStream getOutputStream(boolean append) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String toString() {
+        return getFilename();
+    }
+}
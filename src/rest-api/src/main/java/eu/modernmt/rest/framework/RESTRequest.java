@@ -14,6 +14,7 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.Part;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
@@ -22,6 +23,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.UUID;
+import java.util.zip.GZIPInputStream;
 
 public class RESTRequest {
 
@@ -113,6 +115,23 @@ public class RESTRequest {
         }
     }
 
+    public boolean hasPlainTextContent() {
+        return isContentType("text/plain");
+    }
+
+    /**
+     * @return the raw request body, decompressed if it has been sent with "Content-Encoding: gzip"
+     */
+    public InputStream getContentStream() throws IOException {
+        InputStream stream = request.getInputStream();
+
+        String encoding = request.getHeader("Content-Encoding");
+        if (encoding != null && encoding.trim().equalsIgnoreCase("gzip"))
+            stream = new GZIPInputStream(stream);
+
+        return stream;
+    }
+
     public String getQueryString() {
         if (queryString == null) {
             String qs = request.getQueryString();
@@ -17,6 +17,7 @@ public class RESTResponse {
 
     private HttpServletResponse response;
     private JsonObject content = null;
+    private boolean written = false;
 
     public RESTResponse(HttpServletResponse response) {
         this.response = response;
@@ -46,6 +47,21 @@ public class RESTResponse {
         output(HttpServletResponse.SC_OK, json, null);
     }
 
+    public synchronized void ok(String contentType, String text) {
+        if (written)
+            throw new IllegalStateException("Output has been already set");
+        written = true;
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(contentType);
+
+        try {
+            response.getOutputStream().write(text.getBytes("UTF-8"));
+        } catch (IOException e) {
+            logger.error("unable to write response", e);
+        }
+    }
+
     public void forbidden() {
         forbidden(null);
     }
@@ -70,9 +86,18 @@ public class RESTResponse {
         output(HttpServletResponse.SC_SERVICE_UNAVAILABLE, null, e);
     }
 
-    private void output(int httpStatus, JsonElement json, Throwable throwable) {
-        if (content != null)
+    public void timeout() {
+        timeout(null);
+    }
+
+    public void timeout(Throwable e) {
+        output(HttpServletResponse.SC_GATEWAY_TIMEOUT, null, e);
+    }
+
+    private synchronized void output(int httpStatus, JsonElement json, Throwable throwable) {
+        if (written)
             throw new IllegalStateException("Output has been already set");
+        written = true;
 
         content = new JsonObject();
         content.addProperty("status", httpStatus);
@@ -124,6 +149,10 @@ public class RESTResponse {
         return error;
     }
 
+    public synchronized boolean isWritten() {
+        return written;
+    }
+
     public int getHttpStatus() {
         return response.getStatus();
     }
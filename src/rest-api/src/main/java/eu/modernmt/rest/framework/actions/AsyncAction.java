@@ -0,0 +1,16 @@
+package eu.modernmt.rest.framework.actions;
+
+import eu.modernmt.rest.framework.RESTRequest;
+import eu.modernmt.rest.framework.RESTResponse;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An action that does not need the calling thread until its response is ready.
+ * The returned future completes once the response has been written.
+ */
+public interface AsyncAction extends Action {
+
+    CompletableFuture<Void> executeAsync(RESTRequest request, RESTResponse response);
+
+}
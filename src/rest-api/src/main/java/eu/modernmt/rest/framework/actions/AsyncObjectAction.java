@@ -0,0 +1,65 @@
+package eu.modernmt.rest.framework.actions;
+
+import eu.modernmt.rest.framework.Parameters;
+import eu.modernmt.rest.framework.RESTRequest;
+import eu.modernmt.rest.framework.RESTResponse;
+
+import java.lang.reflect.ParameterizedType;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+public abstract class AsyncObjectAction<M> extends JSONAction implements AsyncAction {
+
+    @Override
+    public final CompletableFuture<Void> executeAsync(RESTRequest req, RESTResponse resp) {
+        Parameters params;
+        CompletableFuture<M> future;
+
+        try {
+            params = getParameters(req);
+            future = execute(req, params);
+        } catch (Throwable e) {
+            onError(req, resp, e);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return future.handle((object, error) -> {
+            if (error != null) {
+                onError(req, resp, unwrap(error));
+            } else {
+                try {
+                    output(req, resp, params, wrap(object));
+                } catch (Throwable e) {
+                    onError(req, resp, e);
+                }
+            }
+
+            return null;
+        });
+    }
+
+    @Override
+    protected final ObjectActionResult getResult(RESTRequest req, Parameters params) throws Throwable {
+        try {
+            return wrap(execute(req, params).get());
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private ObjectActionResult wrap(M object) {
+        Class<M> objectClass = (Class<M>) ((ParameterizedType) getClass().getGenericSuperclass()).getActualTypeArguments()[0];
+        return object == null ? null : new ObjectActionResult<>(object, objectClass);
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        while ((e instanceof CompletionException || e instanceof ExecutionException) && e.getCause() != null)
+            e = e.getCause();
+        return e;
+    }
+
+    protected abstract CompletableFuture<M> execute(RESTRequest req, Parameters params) throws Throwable;
+
+}
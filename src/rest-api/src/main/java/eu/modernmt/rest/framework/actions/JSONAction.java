@@ -2,44 +2,61 @@ package eu.modernmt.rest.framework.actions;
 
 import com.google.gson.JsonElement;
 import eu.modernmt.cluster.error.SystemShutdownException;
+import eu.modernmt.decoder.DeadlineExceededException;
 import eu.modernmt.facade.exceptions.AuthenticationException;
 import eu.modernmt.facade.exceptions.ValidationException;
 import eu.modernmt.rest.framework.Parameters;
 import eu.modernmt.rest.framework.RESTRequest;
 import eu.modernmt.rest.framework.RESTResponse;
 import eu.modernmt.rest.framework.routing.TemplateException;
+import eu.modernmt.stats.LatencyHistogram;
+import eu.modernmt.stats.Metrics;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 public abstract class JSONAction implements Action {
 
+    private static final LatencyHistogram serializationLatency = Metrics.histogram(Metrics.HTTP_SERIALIZATION);
+
     protected final Logger logger = LogManager.getLogger(getClass());
 
     @Override
     public final void execute(RESTRequest req, RESTResponse resp) {
         try {
             unsecureExecute(req, resp);
-        } catch (TemplateException e) {
+        } catch (Throwable e) {
+            onError(req, resp, e);
+        }
+    }
+
+    protected final void onError(RESTRequest req, RESTResponse resp, Throwable e) {
+        try {
+            throw e;
+        } catch (TemplateException ex) {
             if (logger.isDebugEnabled())
-                logger.debug("Template exception while executing action " + this, e);
-            resp.resourceNotFound(e);
-        } catch (Parameters.ParameterParsingException e) {
-            resp.badRequest(e);
-        } catch (ValidationException e) {
+                logger.debug("Template exception while executing action " + this, ex);
+            resp.resourceNotFound(ex);
+        } catch (Parameters.ParameterParsingException ex) {
+            resp.badRequest(ex);
+        } catch (ValidationException ex) {
             if (logger.isDebugEnabled())
-                logger.debug("Validation exception while executing action " + this, e);
-            resp.badRequest(e);
-        } catch (AuthenticationException e) {
+                logger.debug("Validation exception while executing action " + this, ex);
+            resp.badRequest(ex);
+        } catch (AuthenticationException ex) {
             if (logger.isDebugEnabled())
-                logger.debug("Authentication exception while executing action " + this, e);
-            resp.forbidden(e);
-        } catch (SystemShutdownException e) {
+                logger.debug("Authentication exception while executing action " + this, ex);
+            resp.forbidden(ex);
+        } catch (SystemShutdownException ex) {
             if (logger.isDebugEnabled())
-                logger.debug("Unable to complete action " + this + ": system is shutting down", e);
-            resp.unavailable(e);
-        } catch (Throwable e) {
-            logger.error("Internal error while executing action " + this, e);
-            resp.unexpectedError(e);
+                logger.debug("Unable to complete action " + this + ": system is shutting down", ex);
+            resp.unavailable(ex);
+        } catch (DeadlineExceededException ex) {
+            if (logger.isDebugEnabled())
+                logger.debug("Unable to complete action " + this + " before its deadline", ex);
+            resp.timeout(ex);
+        } catch (Throwable ex) {
+            logger.error("Internal error while executing action " + this, ex);
+            resp.unexpectedError(ex);
         }
     }
 
@@ -47,13 +64,20 @@ public abstract class JSONAction implements Action {
         Parameters params = getParameters(req);
         JSONActionResult result = getResult(req, params);
 
+        output(req, resp, params, result);
+    }
+
+    protected final void output(RESTRequest req, RESTResponse resp, Parameters params, JSONActionResult result) throws Throwable {
         if (result == null) {
             resp.resourceNotFound();
         } else {
+            long begin = System.nanoTime();
+
             result.beforeDump(req, params);
             JsonElement json = result.dump(this, req, params);
 
             resp.ok(json);
+            serializationLatency.recordSince(begin);
         }
     }
 
@@ -5,9 +5,15 @@ import eu.modernmt.rest.framework.HttpMethod;
 import eu.modernmt.rest.framework.RESTRequest;
 import eu.modernmt.rest.framework.RESTResponse;
 import eu.modernmt.rest.framework.actions.Action;
+import eu.modernmt.rest.framework.actions.AsyncAction;
+import eu.modernmt.stats.LatencyHistogram;
+import eu.modernmt.stats.Metrics;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
@@ -16,18 +22,33 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.UnsupportedEncodingException;
 import java.util.Collection;
 import java.util.UUID;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public abstract class RouterServlet extends HttpServlet {
 
     private static final String DEFAULT_ENCODING = "UTF-8";
+    private static final long DEFAULT_ASYNC_TIMEOUT = 5L * 60L * 1000L; // millis
+
+    /**
+     * Name of the init parameter with the time in milliseconds after which
+     * an asynchronous action that has not responded yet gets a 503 response
+     */
+    public static final String ASYNC_TIMEOUT_PARAM = "async-timeout";
+    private static final LatencyHistogram requestLatency = Metrics.histogram(Metrics.HTTP_REQUEST);
 
     protected final Logger logger = LogManager.getLogger(getClass());
     private RouteTree routes;
+    private long asyncTimeout = DEFAULT_ASYNC_TIMEOUT;
 
     @Override
     public void init(ServletConfig config) throws ServletException {
         super.init(config);
 
+        String timeout = config.getInitParameter(ASYNC_TIMEOUT_PARAM);
+        if (timeout != null)
+            asyncTimeout = Long.parseLong(timeout);
+
         routes = new RouteTree();
 
         for (Class<?> clazz : getDeclaredActions()) {
@@ -66,6 +87,8 @@ public abstract class RouterServlet extends HttpServlet {
 
     @Override
     protected void service(HttpServletRequest req, HttpServletResponse resp) {
+        long begin = System.nanoTime();
+
         RESTRequest restRequest = wrapRequest(req);
         RESTResponse restResponse = new RESTResponse(resp);
 
@@ -91,6 +114,9 @@ public abstract class RouterServlet extends HttpServlet {
             logger.info(log.toString());
         }
 
+        AsyncContext context = null;
+        boolean async = false;
+
         try {
             Class<? extends Action> actionClass = restRequest.getActionClass();
 
@@ -102,36 +128,134 @@ public abstract class RouterServlet extends HttpServlet {
                 if (logger.isDebugEnabled())
                     logger.debug("Executing REST action " + action);
 
-                action.execute(restRequest, restResponse);
+                if (action instanceof AsyncAction && req.isAsyncSupported()) {
+                    // The servlet thread is released immediately, the response
+                    // is completed by the thread that produces the result
+                    context = req.startAsync();
+                    context.setTimeout(asyncTimeout);
+
+                    AsyncCompletion completion = new AsyncCompletion(context, restResponse, logUUID, begin);
+                    context.addListener(completion);
+
+                    ((AsyncAction) action).executeAsync(restRequest, restResponse).whenComplete((v, e) -> completion.complete(e));
+                    async = true;
+                } else {
+                    action.execute(restRequest, restResponse);
+                }
             }
         } catch (Throwable e) {
             logger.error("Unexpected exceptions", e);
-            restResponse.unexpectedError(e);
+            writeError(restResponse, e);
         } finally {
-            if (logger.isInfoEnabled()) {
-                StringBuilder log = new StringBuilder();
-                log.append("REST Response (");
-                log.append(logUUID);
-                log.append("): ");
-                log.append(restResponse.getHttpStatus());
-
-                if (logger.isDebugEnabled()) {
-                    JsonElement json = restResponse.getContent();
-
-                    if (json != null) {
-                        String content = json.toString();
-                        if (content.length() > 200)
-                            content = content.substring(0, 199) + "[...]";
-
-                        log.append(' ');
-                        log.append(content);
-                    }
+            if (!async) {
+                try {
+                    logResponse(logUUID, restResponse);
+                    requestLatency.recordSince(begin);
+                } finally {
+                    // The action failed after the request was put in asynchronous mode
+                    if (context != null)
+                        context.complete();
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Writes an error response, unless the action has already written its own.
+     */
+    private void writeError(RESTResponse restResponse, Throwable e) {
+        synchronized (restResponse) {
+            if (restResponse.isWritten())
+                return;
+
+            if (e instanceof TimeoutException)
+                restResponse.unavailable(e);
+            else
+                restResponse.unexpectedError(e);
+        }
+    }
+
+    /**
+     * Completes an asynchronous request exactly once: when its action is done,
+     * or when it times out, whichever comes first.
+     */
+    private class AsyncCompletion implements AsyncListener {
+
+        private final AsyncContext context;
+        private final RESTResponse restResponse;
+        private final String logUUID;
+        private final long begin;
+        private final AtomicBoolean completed = new AtomicBoolean(false);
+
+        private AsyncCompletion(AsyncContext context, RESTResponse restResponse, String logUUID, long begin) {
+            this.context = context;
+            this.restResponse = restResponse;
+            this.logUUID = logUUID;
+            this.begin = begin;
+        }
+
+        public void complete(Throwable error) {
+            if (!completed.compareAndSet(false, true))
+                return;
+
+            try {
+                if (error != null) {
+                    logger.error("Unexpected exceptions", error);
+                    writeError(restResponse, error);
                 }
 
-                logger.info(log.toString());
+                logResponse(logUUID, restResponse);
+            } finally {
+                context.complete();
+                requestLatency.recordSince(begin);
             }
         }
 
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            complete(new TimeoutException("Request not completed in " + asyncTimeout + "ms"));
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            complete(event.getThrowable());
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            // Nothing to do
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Nothing to do
+        }
+    }
+
+    private void logResponse(String logUUID, RESTResponse restResponse) {
+        if (logger.isInfoEnabled()) {
+            StringBuilder log = new StringBuilder();
+            log.append("REST Response (");
+            log.append(logUUID);
+            log.append("): ");
+            log.append(restResponse.getHttpStatus());
+
+            if (logger.isDebugEnabled()) {
+                JsonElement json = restResponse.getContent();
+
+                if (json != null) {
+                    String content = json.toString();
+                    if (content.length() > 200)
+                        content = content.substring(0, 199) + "[...]";
+
+                    log.append(' ');
+                    log.append(content);
+                }
+            }
+
+            logger.info(log.toString());
+        }
     }
 
 }
@@ -0,0 +1,12 @@
+package eu.modernmt.rest.model;
+
+import eu.modernmt.facade.BatchTranslation;
+import eu.modernmt.model.ContextVector;
+
+public class BatchTranslationResponse {
+
+    public BatchTranslation translations = null;
+    public ContextVector context = null;
+    public long session = 0;
+
+}
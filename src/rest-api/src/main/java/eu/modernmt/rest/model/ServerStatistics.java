@@ -1,8 +1,13 @@
 package eu.modernmt.rest.model;
 
+import eu.modernmt.cluster.ExecutionStats;
 import eu.modernmt.cluster.NodeInfo;
+import eu.modernmt.context.lucene.ContextVectorCache;
+import eu.modernmt.decoder.cache.TranslationCache;
+import eu.modernmt.stats.LatencyHistogram;
 
 import java.util.Collection;
+import java.util.Map;
 
 /**
  * Created by davide on 15/12/16.
@@ -12,16 +17,28 @@ public class ServerStatistics {
     public static class ClusterStats {
 
         private final Collection<NodeInfo> nodes;
+        private final ExecutionStats execution;
 
-        public ClusterStats(Collection<NodeInfo> nodes) {
+        public ClusterStats(Collection<NodeInfo> nodes, ExecutionStats execution) {
             this.nodes = nodes;
+            this.execution = execution;
         }
     }
 
     private final ClusterStats cluster;
-
-    public ServerStatistics(ClusterStats cluster) {
+    private final TranslationCache.Stats translationCache;
+    private final ContextVectorCache.Stats contextCache;
+    private final Map<String, LatencyHistogram.Snapshot> latency;
+    private final Map<String, Long> gauges;
+
+    public ServerStatistics(ClusterStats cluster, TranslationCache.Stats translationCache,
+                            ContextVectorCache.Stats contextCache,
+                            Map<String, LatencyHistogram.Snapshot> latency, Map<String, Long> gauges) {
         this.cluster = cluster;
+        this.translationCache = translationCache;
+        this.contextCache = contextCache;
+        this.latency = latency;
+        this.gauges = gauges;
     }
 
 }
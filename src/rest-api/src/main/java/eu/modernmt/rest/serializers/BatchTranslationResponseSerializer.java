@@ -0,0 +1,57 @@
+package eu.modernmt.rest.serializers;
+
+import com.google.gson.*;
+import eu.modernmt.decoder.TranslationException;
+import eu.modernmt.model.ContextVector;
+import eu.modernmt.rest.model.BatchTranslationResponse;
+import eu.modernmt.rest.model.TranslationResponse;
+
+import java.lang.reflect.Type;
+
+public class BatchTranslationResponseSerializer implements JsonSerializer<BatchTranslationResponse> {
+
+    @Override
+    public JsonElement serialize(BatchTranslationResponse src, Type typeOfSrc, JsonSerializationContext context) {
+        JsonArray translations = new JsonArray();
+
+        for (int i = 0; i < src.translations.size(); i++) {
+            if (src.translations.hasError(i)) {
+                JsonObject json = new JsonObject();
+                json.add("error", encode(src.translations.getError(i)));
+                translations.add(json);
+            } else {
+                TranslationResponse response = new TranslationResponse();
+                response.translation = src.translations.getTranslation(i);
+
+                translations.add(context.serialize(response, TranslationResponse.class));
+            }
+        }
+
+        JsonObject json = new JsonObject();
+        json.add("translations", translations);
+
+        if (src.session > 0L)
+            json.addProperty("session", src.session);
+
+        if (src.context != null)
+            json.add("contextVector", context.serialize(src.context, ContextVector.class));
+
+        return json;
+    }
+
+    private static JsonObject encode(TranslationException e) {
+        String msg = e.getMessage();
+        Throwable cause = e.getCause();
+
+        if (cause != null && cause.getMessage() != null)
+            msg = msg + ": " + cause.getMessage().trim();
+
+        JsonObject error = new JsonObject();
+        error.addProperty("type", (cause == null ? e : cause).getClass().getSimpleName());
+        if (msg != null)
+            error.addProperty("message", msg);
+
+        return error;
+    }
+
+}
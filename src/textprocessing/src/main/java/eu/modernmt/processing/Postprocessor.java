@@ -39,7 +39,9 @@ public class Postprocessor implements Closeable {
         if (builder == null)
             builder = getDefaultBuilder();
 
-        this.executor = new PipelineExecutor<>(sourceLanguage, targetLanguage, builder, threads);
+        // Single sentences are processed by the calling thread (e.g. a decoder worker):
+        // handing them to the executor would only add two context switches per call
+        this.executor = new PipelineExecutor<>("postprocessor", sourceLanguage, targetLanguage, builder, threads, true);
         this.vocabulary = vocabulary;
     }
 
@@ -48,6 +50,17 @@ public class Postprocessor implements Closeable {
         this.executor.process((Collection<Translation>) translations, getMetadata());
     }
 
+    /**
+     * Processes all the translations, even if some of them fail.
+     *
+     * @param errors an array with the size of the list, filled with the error of every
+     *               failed translation and null for the translations processed successfully
+     */
+    @SuppressWarnings("unchecked")
+    public void process(List<? extends Translation> translations, Throwable[] errors) throws ProcessingException {
+        this.executor.process((Collection<Translation>) translations, getMetadata(), errors);
+    }
+
     public void process(Translation[] translation) throws ProcessingException {
         this.executor.process(Arrays.asList(translation), getMetadata());
     }
@@ -50,7 +50,9 @@ public class Preprocessor implements Closeable {
         if (builder == null)
             builder = getDefaultBuilder();
 
-        this.executor = new PipelineExecutor<>(sourceLanguage, targetLanguage, builder, threads);
+        // Single sentences are processed by the calling thread (e.g. a decoder worker):
+        // handing them to the executor would only add two context switches per call
+        this.executor = new PipelineExecutor<>("preprocessor", sourceLanguage, targetLanguage, builder, threads, true);
         this.vocabulary = vocabulary;
     }
 
@@ -5,6 +5,8 @@ import eu.modernmt.processing.PipelineOutputStream;
 import eu.modernmt.processing.ProcessingException;
 import eu.modernmt.processing.ProcessingPipeline;
 import eu.modernmt.processing.builder.PipelineBuilder;
+import eu.modernmt.stats.Gauge;
+import eu.modernmt.stats.Metrics;
 
 import java.util.*;
 import java.util.concurrent.*;
@@ -21,8 +23,28 @@ public class PipelineExecutor<P, R> {
     private final Locale target;
     private final PipelineBuilder<P, R> builder;
     private final int threads;
+    private final boolean callerRuns;
+    private final Gauge queuedTasks;
+    private final Gauge busyThreads;
 
     public PipelineExecutor(Locale source, Locale target, PipelineBuilder<P, R> builder, int threads) {
+        this("default", source, target, builder, threads);
+    }
+
+    /**
+     * @param name the name of the pipeline, used to label the executor metrics
+     */
+    public PipelineExecutor(String name, Locale source, Locale target, PipelineBuilder<P, R> builder, int threads) {
+        this(name, source, target, builder, threads, false);
+    }
+
+    /**
+     * @param name       the name of the pipeline, used to label the executor metrics
+     * @param callerRuns if true, single-item calls are processed by the calling thread with
+     *                   a pipeline borrowed from the pool, instead of being handed to the worker pool;
+     *                   batch and stream calls are always processed by the worker pool
+     */
+    public PipelineExecutor(String name, Locale source, Locale target, PipelineBuilder<P, R> builder, int threads, boolean callerRuns) {
         this.executor = Executors.newFixedThreadPool(threads);
         this.pipelineBuffer = new ConcurrentLinkedQueue<>();
 
@@ -30,6 +52,9 @@ public class PipelineExecutor<P, R> {
         this.target = target;
         this.builder = builder;
         this.threads = threads;
+        this.callerRuns = callerRuns;
+        this.queuedTasks = Metrics.gauge(Metrics.PIPELINE_QUEUED, "pipeline", name);
+        this.busyThreads = Metrics.gauge(Metrics.PIPELINE_BUSY, "pipeline", name);
     }
 
     public void shutdownNow() {
@@ -53,6 +78,9 @@ public class PipelineExecutor<P, R> {
     }
 
     public R process(P value, Map<String, Object> metadata) throws ProcessingException {
+        if (callerRuns)
+            return call(value, metadata);
+
         try {
             return submit(value, metadata).get();
         } catch (ExecutionException e) {
@@ -65,7 +93,8 @@ public class PipelineExecutor<P, R> {
             else
                 throw new RuntimeException("Unexpected exception", cause);
         } catch (InterruptedException e) {
-            return null;
+            Thread.currentThread().interrupt();
+            throw new ProcessingException("Processing interrupted", e);
         }
     }
 
@@ -73,33 +102,112 @@ public class PipelineExecutor<P, R> {
         return process(input, null);
     }
 
+    /**
+     * @throws ProcessingException if an item fails or if the thread is interrupted
+     *                             before all the items have been processed
+     */
     public List<R> process(Collection<P> input, Map<String, Object> metadata) throws ProcessingException {
         BatchTask<P, R> task = new BatchTask<>(input);
-        process(task, task, metadata);
+        ProcessingJob<P, R> job = new ProcessingJob<>(this, task, task, metadata);
+
+        try {
+            job.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProcessingException("Processing interrupted", e);
+        }
+
         return task.getOutput();
     }
 
+    /**
+     * Same as process(input, metadata), but a failing item does not stop the batch:
+     * its result is null and its error is stored in "errors" at the same position.
+     *
+     * If the thread is interrupted, the items not processed yet fail with a ProcessingException.
+     *
+     * @param errors an array with the size of the input, set to null for the items
+     *               processed successfully
+     */
+    public List<R> process(Collection<P> input, Map<String, Object> metadata, Throwable[] errors) throws ProcessingException {
+        if (errors.length < input.size())
+            throw new IllegalArgumentException("Errors array is smaller than the input");
+
+        Arrays.fill(errors, null);
+
+        BatchTask<P, R> task = new BatchTask<>(input);
+        ProcessingJob<P, R> job = new ProcessingJob<>(this, task, task, metadata, errors);
+
+        List<R> output = task.getOutput();
+
+        try {
+            job.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            ProcessingException error = new ProcessingException("Processing interrupted", e);
+            for (int i = output.size(); i < input.size(); i++) {
+                errors[i] = error;
+                output.add(null);
+            }
+        }
+
+        return output;
+    }
+
     public void process(PipelineInputStream<P> input, PipelineOutputStream<R> output) throws ProcessingException {
         process(input, output, null);
     }
 
     public void process(PipelineInputStream<P> input, PipelineOutputStream<R> output, Map<String, Object> metadata) throws ProcessingException {
-        ProcessingJob<P, R> job = new ProcessingJob<>(this, input, output);
+        ProcessingJob<P, R> job = new ProcessingJob<>(this, input, output, metadata);
 
-        if (metadata != null)
-            job.setMetadata(metadata);
+        try {
+            job.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
-        job.start();
+    private Future<R> submit(P param, Map<String, Object> metadata) {
+        queuedTasks.increment();
 
         try {
-            job.join();
-        } catch (InterruptedException e) {
-            // Ignore it
+            return this.executor.submit(new Task(param, metadata));
+        } catch (RejectedExecutionException e) {
+            queuedTasks.decrement();
+            throw e;
+        }
+    }
+
+    void execute(Runnable task) {
+        queuedTasks.increment();
+
+        try {
+            this.executor.execute(() -> {
+                queuedTasks.decrement();
+                task.run();
+            });
+        } catch (RejectedExecutionException e) {
+            queuedTasks.decrement();
+            throw e;
         }
     }
 
-    Future<R> submit(P param, Map<String, Object> metadata) {
-        return this.executor.submit(new Task(param, metadata));
+    R call(P param, Map<String, Object> metadata) throws ProcessingException {
+        busyThreads.increment();
+
+        try {
+            ProcessingPipeline<P, R> pipeline = getPipeline();
+
+            try {
+                return pipeline.call(param, copy(metadata));
+            } finally {
+                releasePipeline(pipeline);
+            }
+        } finally {
+            busyThreads.decrement();
+        }
     }
 
     private ProcessingPipeline<P, R> getPipeline() throws ProcessingException {
@@ -115,6 +223,10 @@ public class PipelineExecutor<P, R> {
         pipelineBuffer.add(pipeline);
     }
 
+    private static Map<String, Object> copy(Map<String, Object> metadata) {
+        return metadata == null ? new HashMap<>() : new HashMap<>(metadata);
+    }
+
     private class Task implements Callable<R> {
 
         private final P param;
@@ -126,16 +238,9 @@ public class PipelineExecutor<P, R> {
         }
 
         @Override
-        @SuppressWarnings("unchecked")
         public R call() throws ProcessingException {
-            Map<String, Object> metadata = (this.metadata == null) ? new HashMap<>() : new HashMap<>(this.metadata);
-            ProcessingPipeline<P, R> pipeline = getPipeline();
-
-            try {
-                return pipeline.call(param, metadata);
-            } finally {
-                releasePipeline(pipeline);
-            }
+            queuedTasks.decrement();
+            return PipelineExecutor.this.call(param, metadata);
         }
     }
 }
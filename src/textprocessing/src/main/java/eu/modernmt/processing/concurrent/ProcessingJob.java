@@ -6,193 +6,155 @@ import eu.modernmt.processing.ProcessingException;
 
 import java.io.IOException;
 import java.util.Map;
-import java.util.concurrent.*;
 
 /**
  * Created by davide on 31/05/16.
+ * <p>
+ * Ordered stream processing on the worker pool of a PipelineExecutor. The calling thread
+ * reads the input, submits every item with its sequence number and writes the results
+ * in input order; no thread is created by the job. At most "window" items are in flight
+ * at the same time: workers store their results in a ring buffer indexed by sequence
+ * number, and the reader stops reading until the oldest result has been written.
+ * If a "failures" array is given, a failing item does not stop the job: its error is
+ * stored at the item sequence number and a null result is written in its place.
  */
 class ProcessingJob<P, R> {
 
-    private static final Object POISON_PILL = new Object();
+    private static final Object NULL_RESULT = new Object();
 
-    private PipelineExecutor<P, R> executor;
-    private Map<String, Object> metadata = null;
-    private PipelineInputStream<P> input;
-    private PipelineOutputStream<R> output;
+    private final PipelineExecutor<P, R> executor;
+    private final PipelineInputStream<P> input;
+    private final PipelineOutputStream<R> output;
+    private final Map<String, Object> metadata;
+    private final Throwable[] failures;
 
-    private BlockingQueue<Object> inputQueue;
-    private BlockingQueue<Object> outputQueue;
+    private final Object[] buffer;
 
-    private final Collector collector = new Collector();
-    private final Submitter submitter = new Submitter();
-    private final Outputter outputter = new Outputter();
-
-    private Throwable error = null;
+    ProcessingJob(PipelineExecutor<P, R> executor, PipelineInputStream<P> input, PipelineOutputStream<R> output, Map<String, Object> metadata) {
+        this(executor, input, output, metadata, null);
+    }
 
-    ProcessingJob(PipelineExecutor<P, R> executor, PipelineInputStream<P> input, PipelineOutputStream<R> output) {
+    ProcessingJob(PipelineExecutor<P, R> executor, PipelineInputStream<P> input, PipelineOutputStream<R> output, Map<String, Object> metadata, Throwable[] failures) {
         this.executor = executor;
         this.input = input;
         this.output = output;
-
-        int size = Math.max(50, executor.getThreads() * 2);
-        this.inputQueue = new ArrayBlockingQueue<>(size);
-        this.outputQueue = new ArrayBlockingQueue<>(size);
-    }
-
-    public void setMetadata(Map<String, Object> metadata) {
         this.metadata = metadata;
+        this.failures = failures;
+        this.buffer = new Object[Math.max(50, executor.getThreads() * 2)];
     }
 
-    public void start() {
-        this.collector.start();
-        this.submitter.start();
-        this.outputter.start();
-    }
+    public void run() throws ProcessingException, InterruptedException {
+        long submitted = 0;
+        long written = 0;
+        boolean eof = false;
 
-    public void stop() {
-        collector.terminate();
+        while (true) {
+            while (!eof && submitted - written < buffer.length) {
+                P param = read();
 
-        try {
-            // The POISON_PILL could be added twice, but this is not a problem.
-            // On the contrary the drop() call could have removed the POISON_PILL
-            // added by the Collector thread.
-            inputQueue.clear();
-            inputQueue.put(POISON_PILL);
-        } catch (InterruptedException e) {
-            // Ignore
-        } finally {
-            outputQueue.clear();
+                if (param == null)
+                    eof = true;
+                else
+                    executor.execute(new Item(submitted++, param));
+            }
+
+            if (written == submitted)
+                break;
+
+            R value = take(written++);
+            if (output != null)
+                write(value);
         }
     }
 
-    private void signalException(Throwable exception) {
-        this.error = exception;
-        this.stop();
+    private P read() throws ProcessingException {
+        try {
+            return input.read();
+        } catch (IOException e) {
+            throw new ProcessingException("Unable to read from PipelineInputStream", e);
+        }
     }
 
-    public void join() throws InterruptedException, ProcessingException {
-        this.collector.join();
-        this.submitter.join();
-        this.outputter.join();
-
-        if (error != null) {
-            if (error instanceof ExecutionException)
-                error = error.getCause();
+    private void write(R value) throws ProcessingException {
+        try {
+            output.write(value);
+        } catch (IOException e) {
+            throw new ProcessingException("Unable to write to PipelineOutputStream", e);
+        }
+    }
 
-            if (error instanceof InterruptedException)
-                throw (InterruptedException) error;
-            else if (error instanceof ProcessingException)
-                throw (ProcessingException) error;
-            else if (error instanceof RuntimeException)
-                throw (RuntimeException) error;
-            else
-                throw new Error("Unexpected exception", error);
+    private void complete(long sequence, Object result) {
+        synchronized (buffer) {
+            buffer[(int) (sequence % buffer.length)] = result;
+            buffer.notifyAll();
         }
     }
 
-    private class Collector extends Thread {
+    @SuppressWarnings("unchecked")
+    private R take(long sequence) throws InterruptedException, ProcessingException {
+        int index = (int) (sequence % buffer.length);
+        Object result;
 
-        private boolean terminated = false;
+        synchronized (buffer) {
+            while ((result = buffer[index]) == null)
+                buffer.wait();
 
-        public void terminate() {
-            terminated = true;
+            buffer[index] = null;
         }
 
-        private P next() {
-            try {
-                return input.read();
-            } catch (IOException e) {
-                signalException(new ProcessingException("Unable to read from PipelineInputStream", e));
-                return null;
-            }
-        }
+        if (result instanceof Failure) {
+            Throwable error = ((Failure) result).error;
 
-        @Override
-        public void run() {
-            P param;
-
-            while (!terminated && (param = next()) != null) {
-                try {
-                    inputQueue.put(param);
-                } catch (InterruptedException e) {
-                    signalException(e);
-                    break;
-                }
+            if (failures != null && !(error instanceof Error)) {
+                failures[(int) sequence] = error;
+                return null;
             }
 
-            try {
-                inputQueue.put(POISON_PILL);
-            } catch (InterruptedException e) {
-                // Ignore
-            }
+            if (error instanceof ProcessingException)
+                throw (ProcessingException) error;
+            else if (error instanceof RuntimeException)
+                throw (RuntimeException) error;
+            else if (error instanceof Error)
+                throw (Error) error;
+            else
+                throw new Error("Unexpected exception", error);
         }
 
+        return result == NULL_RESULT ? null : (R) result;
     }
 
-    private class Submitter extends Thread {
+    private static final class Failure {
 
-        @SuppressWarnings("unchecked")
-        private P next() {
-            try {
-                Object result = inputQueue.take();
-                return result == POISON_PILL ? null : (P) result;
-            } catch (InterruptedException e) {
-                return null;
-            }
-        }
+        private final Throwable error;
 
-        @Override
-        public void run() {
-            P param;
-
-            while ((param = next()) != null) {
-                try {
-                    Future<R> future = executor.submit(param, metadata);
-                    outputQueue.put(future);
-                } catch (RejectedExecutionException | InterruptedException e) {
-                    signalException(e);
-                    break;
-                }
-            }
-
-            try {
-                outputQueue.put(POISON_PILL);
-            } catch (InterruptedException e) {
-                // Ignore
-            }
+        private Failure(Throwable error) {
+            this.error = error;
         }
 
     }
 
-    private class Outputter extends Thread {
+    private class Item implements Runnable {
 
-        @SuppressWarnings("unchecked")
-        private Future<R> next() throws InterruptedException {
-            Object result = outputQueue.take();
-            if (result == POISON_PILL)
-                return null;
+        private final long sequence;
+        private final P param;
 
-            return ((Future<R>) result);
+        private Item(long sequence, P param) {
+            this.sequence = sequence;
+            this.param = param;
         }
 
         @Override
         public void run() {
-            Future<R> result;
+            Object result;
 
             try {
-                while ((result = next()) != null) {
-                    R value = result.get();
-                    if (output != null)
-                        output.write(value);
-                }
-            } catch (InterruptedException e) {
-                // break
-            } catch (ExecutionException e) {
-                signalException(e);
-                // break
-            } catch (IOException e) {
-                signalException(new ProcessingException("Unable to write to PipelineOutputStream", e));
+                R value = executor.call(param, metadata);
+                result = value == null ? NULL_RESULT : value;
+            } catch (Throwable e) {
+                result = new Failure(e);
             }
+
+            complete(sequence, result);
         }
 
     }
@@ -41,7 +41,7 @@ public class XMLEditableString {
 
     private String originalString;
     private StringBuilder currentString;
-    private Deque<Operation> changeLog;
+    private List<Operation> changeLog;
     private List<TokenHook> tokens;
     private List<TokenHook> xml;
     private Editor editor;
@@ -51,7 +51,7 @@ public class XMLEditableString {
     protected XMLEditableString(String originalString) {
         this.originalString = originalString;
         this.currentString = new StringBuilder(originalString);
-        this.changeLog = new LinkedList<>();
+        this.changeLog = new ArrayList<>();
         this.tokens = new ArrayList<>();
         this.xml = new ArrayList<>();
         this.editor = new Editor(this);
@@ -74,104 +74,103 @@ public class XMLEditableString {
         return this.currentString.toString();
     }
 
+    /**
+     * Applies a batch of operations created by the Editor: operations are sorted,
+     * they do not overlap and the start index of each one already takes into account
+     * the length changes of the previous ones. The new string is therefore built with
+     * a single copy of the current one.
+     */
     protected void applyOperations(Collection<Operation> operations) throws InvalidOperationException {
-        applyOperations(operations, true);
-    }
-
-    protected void applyOperations(Collection<Operation> operations, boolean save) throws InvalidOperationException {
         if (this.compiled) {
             throw new IllegalStateException("XMLEditableString already compiled");
         }
+
+        String string = this.currentString.toString();
+        StringBuilder result = null;
+
+        // Word tokens are added only by compile(), that ends the editing:
+        // XML hooks of the previous commits are the only ones that can be moved
+        HookIndex xmlIndex = this.xml.isEmpty() ? null : new HookIndex(this.xml);
+
+        int cursor = 0; // index of the first char of string not yet copied
+        int delta = 0; // length change of the operations already applied
+
         for (Operation operation : operations) {
-            int operationEndIndex = operation.startIndex + operation.length;
-            operation.originalString = this.currentString.substring(operation.startIndex, operationEndIndex);
+            int startIndex = operation.startIndex - delta;
+            int endIndex = startIndex + operation.length;
+            operation.originalString = string.substring(startIndex, endIndex);
 
-            int delta = operation.lengthNewString - operation.length;
-            if (delta != 0) {
-                for (TokenHook hook : this.tokens) {
-                    int hookLastEditedIndex = hook.startIndex + hook.length - 1;
-                    if (hook.startIndex >= operationEndIndex) {
-                        hook.startIndex += delta;
-                    } else if (hook.startIndex > operation.startIndex) {
-                        throw new InvalidOperationException(operation, hook);
-                    } else if (hook.startIndex == operation.startIndex && operation.length > hook.length) {
-                        throw new InvalidOperationException(operation, hook);
-                    } else if (hook.startIndex == operation.startIndex && operation.length < hook.length) {
-                        hook.length += delta;
-                    } else if (hook.startIndex == operation.startIndex) {
-                        hook.length = operation.lengthNewString;
-                    } else if (hookLastEditedIndex >= operationEndIndex) {
-                        hook.length += delta;
-                    } else if (hookLastEditedIndex >= operation.startIndex) {
-                        throw new InvalidOperationException(operation, hook);
-                    } else if (hookLastEditedIndex < operation.startIndex) {
-                        //Do nothing
-                    } else {
-                        throw new InvalidOperationException(operation, hook, "Unexpected situation");
-                    }
-                }
+            if (xmlIndex != null && TokenHook.TokenType.XML.equals(operation.tokenType)) {
+                xmlIndex.apply(operation);
             }
 
-            if (TokenHook.TokenType.XML.equals(operation.tokenType)) {
-                for (TokenHook hook : this.xml) {
-                    int hookLastEditedIndex = hook.startIndex + hook.length - 1;
-                    if (hook.startIndex >= operationEndIndex) {
-                        hook.startIndex += delta;
-                    } else if (hook.startIndex > operation.startIndex) {
-                        throw new InvalidOperationException(operation, hook);
-                    } else if (hook.startIndex == operation.startIndex && operation.length > hook.length) {
-                        throw new InvalidOperationException(operation, hook);
-                    } else if (hook.startIndex == operation.startIndex && operation.length < hook.length) {
-                        hook.length += delta;
-                    } else if (hook.startIndex == operation.startIndex) {
-                        hook.length = operation.lengthNewString;
-                    } else if (hookLastEditedIndex >= operationEndIndex) {
-                        hook.length += delta;
-                    } else if (hookLastEditedIndex >= operation.startIndex) {
-                        throw new InvalidOperationException(operation, hook);
-                    } else if (hookLastEditedIndex < operation.startIndex) {
-                        //Do nothing
-                    } else {
-                        throw new InvalidOperationException(operation, hook, "Unexpected situation");
-                    }
+            if (!TokenHook.TokenType.Word.equals(operation.tokenType)) {
+                if (result == null) {
+                    result = new StringBuilder(string.length() + 16);
                 }
-            }
 
-            if (!TokenHook.TokenType.Word.equals(operation.tokenType)) {
-                this.currentString.replace(operation.startIndex, operationEndIndex, operation.newString);
+                result.append(string, cursor, startIndex).append(operation.newString);
+                cursor = endIndex;
             }
 
-            if (save) {
-                if (operation.tokenType != null) {
-                    if (TokenHook.TokenType.XML.equals(operation.tokenType)) {
-                        TokenHook hook = new TokenHook(operation.startIndex, operation.lengthNewString,
-                                operation.tokenType);
-                        this.xml.add(hook);
-                    } else {
-                        if (this.tokenMask == null) {
-                            this.tokenMask = new TokenMask(this.currentString.length());
-                        }
+            delta += operation.lengthNewString - operation.length;
 
-                        this.tokenMask.setToken(operation.startIndex, operation.lengthNewString);
+            if (operation.tokenType != null) {
+                if (TokenHook.TokenType.XML.equals(operation.tokenType)) {
+                    TokenHook hook = new TokenHook(operation.startIndex, operation.lengthNewString,
+                            operation.tokenType);
+                    this.xml.add(hook);
+                } else {
+                    if (this.tokenMask == null) {
+                        this.tokenMask = new TokenMask(string.length() + delta);
                     }
-                }
 
-                this.changeLog.push(operation);
+                    this.tokenMask.setToken(operation.startIndex, operation.lengthNewString);
+                }
             }
+
+            this.changeLog.add(operation);
+        }
+
+        if (xmlIndex != null) {
+            xmlIndex.flush();
+        }
+
+        if (result != null) {
+            result.append(string, cursor, string.length());
+            this.currentString = result;
         }
     }
 
+    /**
+     * Moves the hooks back to the original string, undoing the changes from the most recent one.
+     */
     private void reverseChangeLog() throws InvalidOperationException {
-        Deque<Operation> operations = new LinkedList<>(this.changeLog);
-        while (!operations.isEmpty()) {
-            Operation operation = operations.pop();
+        HookIndex tokenIndex = new HookIndex(this.tokens);
+        HookIndex xmlIndex = new HookIndex(this.xml);
+
+        for (int i = this.changeLog.size() - 1; i >= 0; i--) {
+            Operation operation = this.changeLog.get(i);
+
             if (!TokenHook.TokenType.Word.equals(operation.tokenType)) {
                 Operation inverse = operation.getInverse();
-                Collection<Operation> c = new LinkedList<>();
-                c.add(inverse);
-                this.applyOperations(c, false);
+                // The more recent changes are already undone: the string contains the replacement
+                inverse.originalString = operation.newString;
+
+                if (inverse.lengthNewString != inverse.length) {
+                    tokenIndex.apply(inverse);
+                }
+
+                if (TokenHook.TokenType.XML.equals(inverse.tokenType)) {
+                    xmlIndex.apply(inverse);
+                }
             }
         }
+
+        tokenIndex.flush();
+        xmlIndex.flush();
+
+        this.currentString = new StringBuilder(this.originalString);
     }
 
     public List<TokenHook> compile() throws InvalidOperationException {
@@ -218,6 +217,113 @@ public class XMLEditableString {
         return this.currentString.toString();
     }
 
+    /**
+     * Hooks sorted by start index, with the shifts of their start indexes stored in
+     * a Fenwick tree: moving all the hooks that follow an operation costs O(log n).
+     * Hooks must not overlap, as the word tokens and the XML tags of a string do not.
+     */
+    static class HookIndex {
+
+        private final TokenHook[] hooks;
+        private final int[] shifts;
+
+        public HookIndex(List<TokenHook> hooks) {
+            this.hooks = hooks.toArray(new TokenHook[hooks.size()]);
+            this.shifts = new int[this.hooks.length + 1];
+
+            Arrays.sort(this.hooks, (t1, t2) -> t1.startIndex - t2.startIndex);
+        }
+
+        private int startIndexOf(int i) {
+            int startIndex = hooks[i].startIndex;
+            for (int j = i + 1; j > 0; j -= j & -j)
+                startIndex += shifts[j];
+            return startIndex;
+        }
+
+        private void shift(int from, int delta) {
+            for (int j = from + 1; j < shifts.length; j += j & -j)
+                shifts[j] += delta;
+        }
+
+        /**
+         * @return the position of the first hook that starts at or after the given index
+         */
+        private int search(int index) {
+            int low = 0;
+            int high = hooks.length;
+
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+
+                if (startIndexOf(mid) < index)
+                    low = mid + 1;
+                else
+                    high = mid;
+            }
+
+            return low;
+        }
+
+        private InvalidOperationException error(Operation operation, int i) {
+            hooks[i].startIndex = startIndexOf(i);
+            return new InvalidOperationException(operation, hooks[i]);
+        }
+
+        public void apply(Operation operation) throws InvalidOperationException {
+            int startIndex = operation.startIndex;
+            int endIndex = startIndex + operation.length;
+            int delta = operation.lengthNewString - operation.length;
+
+            int first = search(startIndex);
+
+            // Only the hooks that include the start index of the operation are resized
+            for (int i = first - 1; i >= 0; i--) {
+                TokenHook hook = hooks[i];
+                int hookLastEditedIndex = startIndexOf(i) + hook.length - 1;
+
+                if (hookLastEditedIndex >= endIndex) {
+                    hook.length += delta;
+                } else if (hookLastEditedIndex >= startIndex) {
+                    throw error(operation, i);
+                } else if (hook.length > 0) {
+                    break;
+                }
+            }
+
+            int i = first;
+
+            if (operation.length > 0) {
+                for (; i < hooks.length && startIndexOf(i) == startIndex; i++) {
+                    TokenHook hook = hooks[i];
+
+                    if (operation.length > hook.length) {
+                        throw error(operation, i);
+                    } else if (operation.length < hook.length) {
+                        hook.length += delta;
+                    } else {
+                        hook.length = operation.lengthNewString;
+                    }
+                }
+
+                if (i < hooks.length && startIndexOf(i) < endIndex) {
+                    throw error(operation, i);
+                }
+            }
+
+            if (delta != 0 && i < hooks.length) {
+                shift(i, delta);
+            }
+        }
+
+        public void flush() {
+            for (int i = 0; i < hooks.length; i++)
+                hooks[i].startIndex = startIndexOf(i);
+
+            Arrays.fill(shifts, 0);
+        }
+    }
+
     public static class Editor {
 
         private List<Operation> changeLog;
@@ -231,7 +337,7 @@ public class XMLEditableString {
         }
 
         protected void init() {
-            this.changeLog = new LinkedList<>();
+            this.changeLog = new ArrayList<>();
             this.lastEditedIndex = -1;
             this.deltaIndexes = 0;
             this.inUse = true;
@@ -0,0 +1,87 @@
+package eu.modernmt.processing.concurrent;
+
+import eu.modernmt.model.Sentence;
+import eu.modernmt.processing.PipelineInputStream;
+import eu.modernmt.processing.PipelineOutputStream;
+import eu.modernmt.processing.Preprocessor;
+import eu.modernmt.processing.ProcessingException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+
+public class ProcessingJobTest {
+
+    private Preprocessor preprocessor;
+
+    @Before
+    public void setUp() throws IOException {
+        preprocessor = new Preprocessor(Locale.ENGLISH, null, null, 4, null);
+    }
+
+    @After
+    public void tearDown() {
+        preprocessor.close();
+    }
+
+    private static List<String> sentences(int size) {
+        ArrayList<String> sentences = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            sentences.add("Sentence number " + i + (i % 7 == 0 ? " with <b>some</b> tags" : "") + ".");
+        return sentences;
+    }
+
+    @Test
+    public void testOutputInInputOrder() throws ProcessingException {
+        List<String> input = sentences(5000);
+        List<Sentence> output = preprocessor.process(input);
+
+        assertEquals(input.size(), output.size());
+        for (int i = 0; i < input.size(); i++)
+            assertEquals(input.get(i), output.get(i).toString(false));
+    }
+
+    @Test
+    public void testEmptyInput() throws ProcessingException {
+        assertEquals(0, preprocessor.process(new ArrayList<>()).size());
+    }
+
+    @Test(expected = ProcessingException.class)
+    public void testInputError() throws ProcessingException {
+        List<String> input = sentences(100);
+
+        preprocessor.process(new PipelineInputStream<String>() {
+
+            private int index = 0;
+
+            @Override
+            public String read() throws IOException {
+                if (index == 70)
+                    throw new IOException("Broken stream");
+                return input.get(index++);
+            }
+
+            @Override
+            public void close() {
+            }
+
+        }, new PipelineOutputStream<Sentence>() {
+
+            @Override
+            public void write(Sentence value) {
+            }
+
+            @Override
+            public void close() {
+            }
+
+        });
+    }
+
+}
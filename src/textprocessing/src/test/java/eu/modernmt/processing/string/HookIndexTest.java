@@ -0,0 +1,204 @@
+package eu.modernmt.processing.string;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the hook shifts computed by XMLEditableString.HookIndex with the
+ * per-hook loop it replaced, on sequences of Editor-like operations.
+ */
+public class HookIndexTest {
+
+    private static void legacyApply(List<TokenHook> hooks, XMLEditableString.Operation operation) throws InvalidOperationException {
+        int operationEndIndex = operation.startIndex + operation.length;
+        int delta = operation.lengthNewString - operation.length;
+
+        for (TokenHook hook : hooks) {
+            int hookLastEditedIndex = hook.startIndex + hook.length - 1;
+            if (hook.startIndex >= operationEndIndex) {
+                hook.startIndex += delta;
+            } else if (hook.startIndex > operation.startIndex) {
+                throw new InvalidOperationException(operation, hook);
+            } else if (hook.startIndex == operation.startIndex && operation.length > hook.length) {
+                throw new InvalidOperationException(operation, hook);
+            } else if (hook.startIndex == operation.startIndex && operation.length < hook.length) {
+                hook.length += delta;
+            } else if (hook.startIndex == operation.startIndex) {
+                hook.length = operation.lengthNewString;
+            } else if (hookLastEditedIndex >= operationEndIndex) {
+                hook.length += delta;
+            } else if (hookLastEditedIndex >= operation.startIndex) {
+                throw new InvalidOperationException(operation, hook);
+            }
+        }
+    }
+
+    private static XMLEditableString.Operation operation(int startIndex, int length, int lengthNewString) {
+        XMLEditableString.Operation operation = new XMLEditableString.Operation();
+        operation.startIndex = startIndex;
+        operation.length = length;
+        operation.lengthNewString = lengthNewString;
+        return operation;
+    }
+
+    private static List<TokenHook> hooks(int... startAndLength) {
+        ArrayList<TokenHook> hooks = new ArrayList<>();
+        for (int i = 0; i < startAndLength.length; i += 2)
+            hooks.add(new TokenHook(startAndLength[i], startAndLength[i + 1], TokenHook.TokenType.XML));
+        return hooks;
+    }
+
+    private static List<TokenHook> copy(List<TokenHook> hooks) {
+        ArrayList<TokenHook> copy = new ArrayList<>(hooks.size());
+        for (TokenHook hook : hooks)
+            copy.add(new TokenHook(hook.startIndex, hook.length, hook.tokenType));
+        return copy;
+    }
+
+    /**
+     * Applies the operations both ways and checks that the hooks end up in the same
+     * positions, or that both implementations reject the same operation.
+     */
+    private static void assertSameHooks(List<TokenHook> hooks, List<XMLEditableString.Operation> operations) {
+        List<TokenHook> expected = copy(hooks);
+        List<TokenHook> actual = copy(hooks);
+
+        XMLEditableString.HookIndex index = new XMLEditableString.HookIndex(actual);
+
+        for (int i = 0; i < operations.size(); i++) {
+            XMLEditableString.Operation operation = operations.get(i);
+
+            boolean expectedError = false;
+            try {
+                legacyApply(expected, operation);
+            } catch (InvalidOperationException e) {
+                expectedError = true;
+            }
+
+            boolean actualError = false;
+            try {
+                index.apply(operation);
+            } catch (InvalidOperationException e) {
+                actualError = true;
+            }
+
+            String message = "hooks " + hooks + ", operation " + i + " of " + operations;
+            assertEquals(message, expectedError, actualError);
+
+            if (expectedError)
+                return;
+        }
+
+        index.flush();
+
+        for (int i = 0; i < hooks.size(); i++) {
+            String message = "hook " + i + " of " + hooks + ", operations " + operations;
+            assertEquals(message, expected.get(i).startIndex, actual.get(i).startIndex);
+            assertEquals(message, expected.get(i).length, actual.get(i).length);
+        }
+    }
+
+    @Test
+    public void testEditsBetweenHooks() {
+        List<XMLEditableString.Operation> operations = new ArrayList<>();
+        operations.add(operation(0, 2, 5));
+        operations.add(operation(12, 1, 0));
+        operations.add(operation(20, 3, 3));
+
+        assertSameHooks(hooks(3, 4, 14, 2, 30, 1), operations);
+    }
+
+    @Test
+    public void testEditsAdjacentToHooks() {
+        List<XMLEditableString.Operation> operations = new ArrayList<>();
+        // Right before the first hook, right after it and exactly on the second one
+        operations.add(operation(3, 2, 1));
+        operations.add(operation(8, 1, 4));
+        operations.add(operation(13, 3, 1));
+
+        assertSameHooks(hooks(5, 4, 9, 0, 16, 3), operations);
+        assertSameHooks(hooks(5, 4, 9, 3, 16, 3), operations);
+    }
+
+    @Test
+    public void testInsertionsAtHookBoundaries() {
+        List<XMLEditableString.Operation> operations = new ArrayList<>();
+        operations.add(operation(5, 0, 2));
+        operations.add(operation(11, 0, 1));
+        operations.add(operation(13, 0, 3));
+
+        assertSameHooks(hooks(5, 4, 9, 3, 16, 3), operations);
+    }
+
+    @Test
+    public void testEditsInsideHooks() {
+        List<XMLEditableString.Operation> operations = new ArrayList<>();
+        operations.add(operation(6, 2, 5));
+        operations.add(operation(20, 1, 0));
+
+        assertSameHooks(hooks(5, 4, 18, 6), operations);
+    }
+
+    @Test
+    public void testOverlappingEdits() {
+        List<XMLEditableString.Operation> startsBefore = new ArrayList<>();
+        startsBefore.add(operation(3, 4, 1));
+        assertSameHooks(hooks(5, 4), startsBefore);
+
+        List<XMLEditableString.Operation> endsAfter = new ArrayList<>();
+        endsAfter.add(operation(7, 4, 1));
+        assertSameHooks(hooks(5, 4), endsAfter);
+
+        List<XMLEditableString.Operation> longerThanHook = new ArrayList<>();
+        longerThanHook.add(operation(5, 6, 1));
+        assertSameHooks(hooks(5, 4, 20, 2), longerThanHook);
+
+        List<XMLEditableString.Operation> spansTwoHooks = new ArrayList<>();
+        spansTwoHooks.add(operation(7, 5, 2));
+        assertSameHooks(hooks(5, 4, 9, 4), spansTwoHooks);
+    }
+
+    @Test
+    public void testRandomEdits() {
+        Random random = new Random(19);
+
+        for (int run = 0; run < 5000; run++) {
+            // Hooks do not overlap, but they can be adjacent
+            List<TokenHook> hooks = new ArrayList<>();
+            int position = random.nextInt(3);
+            int size = random.nextInt(12);
+
+            for (int i = 0; i < size; i++) {
+                int length = 1 + random.nextInt(5);
+                hooks.add(new TokenHook(position, length, TokenHook.TokenType.XML));
+                position += length + random.nextInt(4);
+            }
+
+            // Operations are sorted and do not overlap: like the Editor does, the start
+            // index of every operation takes into account the changes of the previous ones
+            List<XMLEditableString.Operation> operations = new ArrayList<>();
+            int index = 0;
+            int delta = 0;
+
+            while (index < position + 2 && operations.size() < 8) {
+                index += random.nextInt(5);
+
+                int length = random.nextInt(4);
+                int lengthNewString = random.nextInt(4);
+
+                operations.add(operation(index + delta, length, lengthNewString));
+
+                index += length;
+                delta += lengthNewString - length;
+            }
+
+            assertSameHooks(hooks, operations);
+        }
+    }
+
+}